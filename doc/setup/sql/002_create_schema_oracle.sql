@@ -1,4 +1,13 @@
 
+    create table gf_change_log (
+        id number(19,0) not null,
+        entity_type varchar2(255 char) not null,
+        entity_id number(19,0),
+        node varchar2(255 char) not null,
+        timestamp timestamp not null,
+        primary key (id)
+    );
+
     create table gr_gsinstance (
         id number(19,0) not null,
         baseURL varchar2(255 char) not null,
@@ -137,6 +146,8 @@
 
     create index idx_rule_priority on gr_rule (priority);
 
+    create index idx_changelog_time on gf_change_log (timestamp);
+
     alter table gr_rule 
         add constraint fk_rule_user 
         foreign key (gsuser_id) 
@@ -12,6 +12,7 @@
 --drop table gf_gsinstance cascade;
 --drop table gf_user_usergroups;
 --drop table gf_usergroup cascade;
+--drop table gf_change_log;
 
 --drop sequence hibernate_sequence;
 
@@ -123,8 +124,19 @@
         primary key (id)
     );
 
+    create table gf_change_log (
+        id int8 not null,
+        entity_type varchar(255) not null,
+        entity_id int8,
+        node varchar(255) not null,
+        timestamp timestamp not null,
+        primary key (id)
+    );
+
     create index idx_gsuser_name on gf_gsuser (name);
 
+    create index idx_changelog_time on gf_change_log (timestamp);
+
     alter table gf_layer_attributes
         add constraint fk_attribute_layer
         foreign key (details_id)
@@ -155,6 +167,10 @@
 
     create index idx_rule_priority on gf_rule (priority);
 
+    create index idx_rule_limits_area on gf_rule_limits using gist (area);
+
+    create index idx_layer_details_area on gf_layer_details using gist (area);
+
     alter table gf_rule
         add constraint fk_rule_user
         foreign key (gsuser_id)
@@ -199,6 +215,7 @@ alter table gf_gsuser owner to geofence;
 alter table gf_gsinstance owner to geofence;
 alter table gf_user_usergroups owner to geofence;
 alter table gf_usergroup owner to geofence;
+alter table gf_change_log owner to geofence;
 
 alter sequence hibernate_sequence owner to geofence;
 
@@ -66,4 +66,13 @@ public interface WorkspacesManagerRemoteService extends RemoteService
      */
     public List<LayerStyle> getStyles(RuleModel rule) throws ApplicationException;
 
+    /**
+     * Discards the cached catalog metadata of the instance, so that it will be
+     * read again from GeoServer.
+     *
+     * @param gsInstance
+     * @throws ApplicationException
+     */
+    public void refreshCatalog(GSInstanceModel gsInstance) throws ApplicationException;
+
 }
@@ -144,6 +144,14 @@ public class InstanceGridWidget extends GeofenceGridWidget<GSInstanceModel>
         instanceBaseUrl.setSortable(false);
         configs.add(instanceBaseUrl);
 
+        ColumnConfig instanceStatus = new ColumnConfig();
+        instanceStatus.setId(BeanKeyValue.INSTANCE_STATUS.getValue());
+        instanceStatus.setHeader("Status");
+        instanceStatus.setWidth(180);
+        instanceStatus.setMenuDisabled(true);
+        instanceStatus.setSortable(false);
+        configs.add(instanceStatus);
+
         ColumnConfig instanceUsername = new ColumnConfig();
         instanceUsername.setId(BeanKeyValue.USER_NAME.getValue());
         instanceUsername.setHeader("Username");
@@ -84,4 +84,16 @@ public class WorkspacesManagerServiceImpl extends RemoteServiceServlet implement
     {
         return workspaceManagerService.getStyles(rule);
     }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * org.geoserver.geofence.gui.client.service.WorkspacesManagerRemoteService#refreshCatalog(org.
+     * geoserver.geofence.gui.client.model.GSInstanceModel)
+     */
+    public void refreshCatalog(GSInstanceModel gsInstance) throws ApplicationException
+    {
+        workspaceManagerService.refreshCatalog(gsInstance);
+    }
 }
@@ -60,4 +60,13 @@ public interface IWorkspacesManagerService
      * @throws ApplicationException
      */
     public List<LayerStyle> getStyles(RuleModel rule) throws ApplicationException;
+
+    /**
+     * Discards the cached catalog metadata of the instance, so that it will be
+     * read again from GeoServer.
+     *
+     * @param gsInstance
+     * @throws ApplicationException
+     */
+    public void refreshCatalog(GSInstanceModel gsInstance) throws ApplicationException;
 }
@@ -0,0 +1,510 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.gui.server.service.impl;
+
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geoserver.geofence.gui.client.ApplicationException;
+import org.geoserver.geofence.gui.client.model.GSInstanceModel;
+import org.geoserver.geofence.gui.service.GeofenceRemoteService;
+import org.geoserver.geofence.services.dto.InstanceStatus;
+import it.geosolutions.geoserver.rest.GeoServerRESTReader;
+import it.geosolutions.geoserver.rest.decoder.RESTAbstractList;
+import it.geosolutions.geoserver.rest.decoder.RESTCoverageList;
+import it.geosolutions.geoserver.rest.decoder.RESTCoverageStoreList;
+import it.geosolutions.geoserver.rest.decoder.RESTFeatureType;
+import it.geosolutions.geoserver.rest.decoder.RESTFeatureTypeList;
+import it.geosolutions.geoserver.rest.decoder.RESTLayer;
+import it.geosolutions.geoserver.rest.decoder.RESTStyleList;
+import it.geosolutions.geoserver.rest.decoder.RESTWorkspaceList;
+import it.geosolutions.geoserver.rest.decoder.utils.NameLinkElem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Caches the catalog metadata read from the GeoServer instances, so that it is shared
+ * among all the GUI sessions.
+ * <P>
+ * Each entry is loaded at most once at a time, and is reloaded when older than
+ * <TT>timeToLive</TT> seconds, or after the instance catalog has been {@link #refresh(GSInstanceModel) refreshed}.
+ * <BR>Failed or empty GeoServer responses are not cached.
+ * <BR>Expired entries are swept from the catalog of an instance when it is accessed
+ * (at most once every <TT>timeToLive</TT> seconds), and from all the catalogs on
+ * {@link #refresh(GSInstanceModel) refresh}, so that the per-layer entries of layers
+ * no longer requested do not pile up.
+ * <P>
+ * The coverages of the stores in a workspace are requested in parallel,
+ * using at most <TT>fetchThreads</TT> concurrent requests.
+ * <P>
+ * Entries of instances found unreachable by the GeoFence instance monitor are not loaded:
+ * an error is returned at once, instead of waiting for the GeoServer timeouts.
+ * The instance statuses are refreshed every <TT>statusTimeToLive</TT> seconds.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class GeoServerCatalogCache
+{
+
+    private static final Logger logger = LoggerFactory.getLogger(GeoServerCatalogCache.class);
+
+    private long timeToLive = 600;
+    private int fetchThreads = 8;
+    private long statusTimeToLive = 10;
+
+    private GeofenceRemoteService geofenceRemoteService;
+
+    private volatile Map<Long, InstanceStatus> statuses;
+    private volatile long statusesLoadTime;
+
+    private final ConcurrentMap<String, InstanceCatalog> catalogs = new ConcurrentHashMap<String, InstanceCatalog>();
+
+    private ExecutorService executor;
+
+    public List<String> getWorkspaces(final GSInstanceModel instance)
+    {
+        final InstanceCatalog catalog = getCatalog(instance);
+        return catalog.get("workspaces", new Callable<List<String>>() {
+                public List<String> call() {
+                    RESTWorkspaceList workspaces = catalog.reader.getWorkspaces();
+                    return workspaces == null ? null : names(workspaces);
+                }
+            });
+    }
+
+    /**
+     * @return the names of all the layers in the instance.
+     */
+    public SortedSet<String> getLayers(final GSInstanceModel instance)
+    {
+        final InstanceCatalog catalog = getCatalog(instance);
+        return catalog.get("layers", new Callable<SortedSet<String>>() {
+                public SortedSet<String> call() {
+                    RESTAbstractList<NameLinkElem> layers = catalog.reader.getLayers();
+                    return layers == null ? null : Collections.unmodifiableSortedSet(new TreeSet<String>(names(layers)));
+                }
+            });
+    }
+
+    public List<String> getLayerGroups(final GSInstanceModel instance)
+    {
+        final InstanceCatalog catalog = getCatalog(instance);
+        return catalog.get("layergroups", new Callable<List<String>>() {
+                public List<String> call() {
+                    RESTAbstractList<NameLinkElem> groups = catalog.reader.getLayerGroups();
+                    return groups == null ? null : names(groups);
+                }
+            });
+    }
+
+    /**
+     * @return the names of the feature types and of the coverages in the workspace.
+     */
+    public SortedSet<String> getWorkspaceLayers(final GSInstanceModel instance, final String workspace)
+    {
+        final InstanceCatalog catalog = getCatalog(instance);
+        return catalog.get("workspace:" + workspace, new Callable<SortedSet<String>>() {
+                public SortedSet<String> call() throws Exception {
+                    return loadWorkspaceLayers(catalog.reader, workspace);
+                }
+            });
+    }
+
+    public List<String> getStyles(final GSInstanceModel instance)
+    {
+        final InstanceCatalog catalog = getCatalog(instance);
+        return catalog.get("styles", new Callable<List<String>>() {
+                public List<String> call() {
+                    RESTStyleList styles = catalog.reader.getStyles();
+                    return styles == null ? null : Collections.unmodifiableList(styles.getNames());
+                }
+            });
+    }
+
+    /**
+     * @return the layer, or null if it could not be read.
+     */
+    public RESTLayer getLayer(final GSInstanceModel instance, final String workspace, final String layer)
+    {
+        final InstanceCatalog catalog = getCatalog(instance);
+        return catalog.get("layer:" + workspace + ":" + layer, new Callable<RESTLayer>() {
+                public RESTLayer call() {
+                    return catalog.reader.getLayer(workspace, layer);
+                }
+            });
+    }
+
+    /**
+     * @return the attributes of a vector layer, an empty list for other layers,
+     * or null if the layer could not be read.
+     */
+    public List<RESTFeatureType.Attribute> getAttributes(final GSInstanceModel instance, final String workspace, final String layer)
+    {
+        final InstanceCatalog catalog = getCatalog(instance);
+        return catalog.get("attributes:" + workspace + ":" + layer, new Callable<List<RESTFeatureType.Attribute>>() {
+                public List<RESTFeatureType.Attribute> call() {
+                    RESTLayer restLayer = getLayer(instance, workspace, layer);
+                    if (restLayer == null) {
+                        return null;
+                    }
+                    if (restLayer.getType() != RESTLayer.Type.VECTOR) {
+                        return Collections.emptyList();
+                    }
+                    RESTFeatureType featureType = catalog.reader.getFeatureType(restLayer);
+                    return featureType == null ? null : Collections.unmodifiableList(featureType.getAttributes());
+                }
+            });
+    }
+
+    /**
+     * Discards the cached catalog of the instance, so that it will be reloaded on next access.
+     * <BR>Expired entries of the other instances are discarded as well.
+     */
+    public void refresh(GSInstanceModel instance)
+    {
+        evict(instance.getBaseURL());
+        sweep();
+    }
+
+    /**
+     * Discards the expired entries, and the catalogs left empty.
+     */
+    public void sweep()
+    {
+        for (InstanceCatalog catalog : catalogs.values()) {
+            catalog.sweep();
+            if (catalog.entries.isEmpty()) {
+                catalogs.remove(catalog.key, catalog);
+            }
+        }
+    }
+
+    /**
+     * @return the number of cached entries, in all the catalogs.
+     */
+    int size()
+    {
+        int size = 0;
+        for (InstanceCatalog catalog : catalogs.values()) {
+            size += catalog.entries.size();
+        }
+        return size;
+    }
+
+    /**
+     * Discards the cached catalogs of the instances with the given URL.
+     */
+    public void evict(String baseURL)
+    {
+        for (InstanceCatalog catalog : catalogs.values()) {
+            if (equals(catalog.baseURL, baseURL)) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Evicting catalog for " + baseURL);
+                }
+                catalogs.remove(catalog.key, catalog);
+            }
+        }
+    }
+
+    public void clear()
+    {
+        catalogs.clear();
+    }
+
+    public synchronized void destroy()
+    {
+        catalogs.clear();
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private InstanceCatalog getCatalog(GSInstanceModel instance)
+    {
+        String key = instance.getBaseURL() + "|" + instance.getUsername();
+        InstanceCatalog catalog = catalogs.get(key);
+        if (catalog != null && equals(catalog.password, instance.getPassword())) {
+            return catalog;
+        }
+
+        try {
+            InstanceCatalog newCatalog = new InstanceCatalog(key, instance);
+            if (catalog == null) {
+                catalog = catalogs.putIfAbsent(key, newCatalog);
+                return catalog != null ? catalog : newCatalog;
+            } else {
+                // the credentials have changed
+                catalogs.put(key, newCatalog);
+                return newCatalog;
+            }
+        } catch (MalformedURLException e) {
+            logger.error(e.getLocalizedMessage(), e);
+            throw new ApplicationException(e.getLocalizedMessage(), e);
+        }
+    }
+
+    /**
+     * @return the reader used to load the catalog of an instance.
+     */
+    protected GeoServerRESTReader createReader(String baseURL, String username, String password)
+        throws MalformedURLException
+    {
+        return new GeoServerRESTReader(baseURL, username, password);
+    }
+
+    /**
+     * @return the current time in millis.
+     */
+    protected long now()
+    {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Fails if the instance monitor reported the instance as unreachable.
+     */
+    private void checkAvailable(long instanceId, String instanceName)
+    {
+        InstanceStatus status = getStatuses().get(instanceId);
+        if (status != null && Boolean.FALSE.equals(status.getAvailable())) {
+            throw new ApplicationException("GeoServer instance " + instanceName + " is not reachable" +
+                    (status.getLastError() != null ? ": " + status.getLastError() : ""));
+        }
+    }
+
+    private Map<Long, InstanceStatus> getStatuses()
+    {
+        Map<Long, InstanceStatus> current = statuses;
+        long now = now();
+        if (current == null || now - statusesLoadTime > statusTimeToLive * 1000) {
+            current = new HashMap<Long, InstanceStatus>();
+            if (geofenceRemoteService != null) {
+                try {
+                    for (InstanceStatus status : geofenceRemoteService.getInstanceAdminService().getStatusList()) {
+                        current.put(status.getId(), status);
+                    }
+                } catch (RuntimeException e) {
+                    // don't block the catalog if the statuses can not be read
+                    logger.warn("Could not load the GeoServer instances status: " + e.getMessage());
+                }
+            }
+            statuses = current;
+            statusesLoadTime = now;
+        }
+        return current;
+    }
+
+    private SortedSet<String> loadWorkspaceLayers(final GeoServerRESTReader reader, final String workspace)
+        throws InterruptedException, ExecutionException
+    {
+        RESTFeatureTypeList featureTypes = reader.getFeatureTypes(workspace);
+        RESTCoverageStoreList coverageStores = reader.getCoverageStores(workspace);
+        if (featureTypes == null || coverageStores == null) {
+            return null;
+        }
+
+        SortedSet<String> layerNames = new TreeSet<String>(names(featureTypes));
+
+        List<Future<RESTCoverageList>> coverages = new ArrayList<Future<RESTCoverageList>>();
+        for (final NameLinkElem cs : coverageStores) {
+            coverages.add(getExecutor().submit(new Callable<RESTCoverageList>() {
+                    public RESTCoverageList call() {
+                        return reader.getCoverages(workspace, cs.getName());
+                    }
+                }));
+        }
+        for (Future<RESTCoverageList> future : coverages) {
+            RESTCoverageList coverageList = future.get();
+            if (coverageList == null) {
+                return null;
+            }
+            layerNames.addAll(names(coverageList));
+        }
+
+        return Collections.unmodifiableSortedSet(layerNames);
+    }
+
+    private synchronized ExecutorService getExecutor()
+    {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(fetchThreads, new ThreadFactory() {
+                    private final AtomicInteger cnt = new AtomicInteger();
+
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "geoserver-catalog-" + cnt.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        }
+        return executor;
+    }
+
+    private static List<String> names(Iterable<? extends NameLinkElem> elems)
+    {
+        List<String> names = new ArrayList<String>();
+        for (NameLinkElem elem : elems) {
+            names.add(elem.getName());
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    private static boolean equals(String s1, String s2)
+    {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
+    /**
+     * Max age of the cached entries, in seconds.
+     */
+    public void setTimeToLive(long timeToLive)
+    {
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Max number of concurrent requests sent to a GeoServer while loading a workspace.
+     */
+    public void setFetchThreads(int fetchThreads)
+    {
+        this.fetchThreads = fetchThreads;
+    }
+
+    /**
+     * Max age of the cached instance statuses, in seconds.
+     */
+    public void setStatusTimeToLive(long statusTimeToLive)
+    {
+        this.statusTimeToLive = statusTimeToLive;
+    }
+
+    public void setGeofenceRemoteService(GeofenceRemoteService geofenceRemoteService)
+    {
+        this.geofenceRemoteService = geofenceRemoteService;
+    }
+
+    /**
+     * The cached catalog of a single GeoServer instance.
+     */
+    private class InstanceCatalog
+    {
+        private final String key;
+        private final long instanceId;
+        private final String instanceName;
+        private final String baseURL;
+        private final String password;
+        private final GeoServerRESTReader reader;
+
+        private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+        private volatile long lastSweep = now();
+
+        InstanceCatalog(String key, GSInstanceModel instance) throws MalformedURLException
+        {
+            this.key = key;
+            this.instanceId = instance.getId();
+            this.instanceName = instance.getName();
+            this.baseURL = instance.getBaseURL();
+            this.password = instance.getPassword();
+            this.reader = createReader(baseURL, instance.getUsername(), password);
+        }
+
+        /**
+         * Removes the expired entries.
+         */
+        void sweep()
+        {
+            lastSweep = now();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                if (e.getValue().isExpired()) {
+                    entries.remove(e.getKey(), e.getValue());
+                }
+            }
+        }
+
+        /**
+         * Returns the cached value, loading it if missing or expired.
+         * Concurrent requests for the same entry wait for a single load.
+         */
+        @SuppressWarnings("unchecked")
+        <T> T get(String name, Callable<T> loader)
+        {
+            if (now() - lastSweep > timeToLive * 1000) {
+                sweep();
+            }
+
+            while (true) {
+                Entry entry = entries.get(name);
+                if (entry == null || entry.isExpired()) {
+                    checkAvailable(instanceId, instanceName);
+
+                    Entry newEntry = new Entry(new FutureTask<Object>((Callable<Object>) loader));
+                    boolean added = entry == null ?
+                            entries.putIfAbsent(name, newEntry) == null :
+                            entries.replace(name, entry, newEntry);
+                    if (!added) {
+                        continue; // another thread is loading it
+                    }
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Loading " + name + " from " + baseURL);
+                    }
+                    newEntry.task.run();
+                    entry = newEntry;
+                }
+
+                try {
+                    Object value = entry.task.get();
+                    if (value == null) {
+                        entries.remove(name, entry);
+                    }
+                    return (T) value;
+                } catch (ExecutionException e) {
+                    entries.remove(name, entry);
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    logger.error("Error loading " + name + " from " + baseURL + ": " + cause.getLocalizedMessage(), cause);
+                    throw new ApplicationException(cause.getLocalizedMessage(), cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ApplicationException(e.getLocalizedMessage(), e);
+                }
+            }
+        }
+    }
+
+    private class Entry
+    {
+        private final FutureTask<Object> task;
+        private final long created = now();
+
+        Entry(FutureTask<Object> task)
+        {
+            this.task = task;
+        }
+
+        boolean isExpired()
+        {
+            return task.isDone() && now() - created > timeToLive * 1000;
+        }
+    }
+}
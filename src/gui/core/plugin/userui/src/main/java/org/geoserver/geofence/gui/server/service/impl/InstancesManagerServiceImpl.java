@@ -10,6 +10,7 @@ import org.geoserver.geofence.gui.client.model.GSInstanceModel;
 import org.geoserver.geofence.gui.client.model.data.rpc.RpcPageLoadResult;
 import org.geoserver.geofence.gui.server.service.IInstancesManagerService;
 import org.geoserver.geofence.gui.service.GeofenceRemoteService;
+import org.geoserver.geofence.services.dto.InstanceStatus;
 import org.geoserver.geofence.services.dto.ShortInstance;
 import org.geoserver.geofence.services.exception.BadRequestServiceEx;
 import org.geoserver.geofence.services.exception.NotFoundServiceEx;
@@ -21,8 +22,10 @@ import java.net.ConnectException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.httpclient.Credentials;
 import org.apache.commons.httpclient.HttpClient;
@@ -51,6 +54,9 @@ public class InstancesManagerServiceImpl implements IInstancesManagerService {
 	@Autowired
 	private GeofenceRemoteService geofenceRemoteService;
 
+	@Autowired
+	private GeoServerCatalogCache catalogCache;
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -89,6 +95,8 @@ public class InstancesManagerServiceImpl implements IInstancesManagerService {
 			throw new ApplicationException("No server instance found on server");
 		}
 
+		Map<Long, InstanceStatus> statuses = loadStatuses();
+
 		Iterator<ShortInstance> it = instancesList.iterator();
 
 		while (it.hasNext()) {
@@ -104,6 +112,7 @@ public class InstancesManagerServiceImpl implements IInstancesManagerService {
 			local.setBaseURL(remote.getBaseURL());
 			local.setUsername(remote.getUsername());
 			local.setPassword(remote.getPassword());
+			local.setStatus(formatStatus(statuses.get(remote.getId())));
 			instancesListDTO.add(local);
 		}
 
@@ -111,6 +120,30 @@ public class InstancesManagerServiceImpl implements IInstancesManagerService {
 				t.intValue());
 	}
 
+	private Map<Long, InstanceStatus> loadStatuses() {
+		Map<Long, InstanceStatus> statuses = new HashMap<Long, InstanceStatus>();
+		try {
+			for (InstanceStatus status : geofenceRemoteService.getInstanceAdminService().getStatusList()) {
+				statuses.put(status.getId(), status);
+			}
+		} catch (RuntimeException e) {
+			logger.warn("Could not load the instances status: " + e.getMessage());
+		}
+		return statuses;
+	}
+
+	private static String formatStatus(InstanceStatus status) {
+		if (status == null || status.getAvailable() == null) {
+			return "Unknown";
+		}
+		if (status.getAvailable().booleanValue()) {
+			return String.format("Up - %d ms (avg %d ms, %.0f%% up)",
+					status.getLastLatency(), status.getAverageLatency(), status.getAvailability());
+		}
+		return String.format("Down (%.0f%% up)%s", status.getAvailability(),
+				status.getLastError() != null ? ": " + status.getLastError() : "");
+	}
+
 	/**
 	 * 
 	 * @param config
@@ -152,6 +185,7 @@ public class InstancesManagerServiceImpl implements IInstancesManagerService {
 					.get(instance.getId());
 			geofenceRemoteService.getInstanceAdminService().delete(
 					remote_instance.getId());
+			catalogCache.evict(remote_instance.getBaseURL());
 		} catch (NotFoundServiceEx e) {
 			logger.error(e.getLocalizedMessage(), e.getCause());
 			throw new ApplicationException(e.getLocalizedMessage(),
@@ -242,6 +276,7 @@ public class InstancesManagerServiceImpl implements IInstancesManagerService {
 			try {
 				remote_instance = geofenceRemoteService
 						.getInstanceAdminService().get(instance.getId());
+				catalogCache.evict(remote_instance.getBaseURL());
 				remote_instance.setName(instance.getName());
 				remote_instance.setDateCreation(instance.getDateCreation());
 				remote_instance.setDescription(instance.getDescription());
@@ -250,6 +285,7 @@ public class InstancesManagerServiceImpl implements IInstancesManagerService {
 				remote_instance.setUsername(instance.getUsername());
 				geofenceRemoteService.getInstanceAdminService().update(
 						remote_instance);
+				catalogCache.evict(instance.getBaseURL());
 			} catch (NotFoundServiceEx e) {
 				logger.error(e.getLocalizedMessage(), e.getCause());
 				throw new ApplicationException(e.getLocalizedMessage(),
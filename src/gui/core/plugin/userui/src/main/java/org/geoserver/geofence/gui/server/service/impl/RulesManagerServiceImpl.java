@@ -68,6 +68,9 @@ public class RulesManagerServiceImpl implements IRulesManagerService {
     @Autowired
     private GeofenceRemoteService geofenceRemoteService;
 
+    @Autowired
+    private GeoServerCatalogCache catalogCache;
+
     /*
      * (non-Javadoc)
      *
@@ -406,7 +409,6 @@ public class RulesManagerServiceImpl implements IRulesManagerService {
 //		Set<LayerAttribute> layerAttributes = null;
 
         GSInstanceModel gsInstance = rule.getInstance();
-        GeoServerRESTReader gsreader;
 
         String ws = rule.getWorkspace();
         if(StringUtils.isBlank(ws) || "*".equals(ws))
@@ -416,38 +418,34 @@ public class RulesManagerServiceImpl implements IRulesManagerService {
         if(StringUtils.isBlank(layername) || "*".equals(layername))
             throw new ApplicationException("A layer name is needed");
 
-        try {
-            gsreader = new GeoServerRESTReader(
-                    gsInstance.getBaseURL(),
-                    gsInstance.getUsername(), gsInstance.getPassword());
-
-            RESTLayer layer = gsreader.getLayer(ws, layername);
-
-            if (layer.getType().equals(RESTLayer.Type.VECTOR)) {
-                // ///////////////////////
-                // Vector Layer
-                // ///////////////////////
-                RESTFeatureType featureType = gsreader.getFeatureType(layer);
+        RESTLayer layer = catalogCache.getLayer(gsInstance, ws, layername);
+        if (layer == null) {
+            throw new ApplicationException("Error loading layer info from GeoServer");
+        }
 
-                for (RESTFeatureType.Attribute attrFromGS : featureType.getAttributes()) {
-                    LayerAttribUI layAttrUI = new LayerAttribUI();
-                    layAttrUI.setName(attrFromGS.getName());
-                    layAttrUI.setDataType(attrFromGS.getBinding());
-                    layAttrUI.setAccessType("READWRITE");
+        if (layer.getType().equals(RESTLayer.Type.VECTOR)) {
+            // ///////////////////////
+            // Vector Layer
+            // ///////////////////////
+            List<RESTFeatureType.Attribute> attributes = catalogCache.getAttributes(gsInstance, ws, layername);
+            if (attributes == null) {
+                throw new ApplicationException("Error loading layer attributes from GeoServer");
+            }
 
-                    layerAttributesDTO.add(layAttrUI);
-                }
+            for (RESTFeatureType.Attribute attrFromGS : attributes) {
+                LayerAttribUI layAttrUI = new LayerAttribUI();
+                layAttrUI.setName(attrFromGS.getName());
+                layAttrUI.setDataType(attrFromGS.getBinding());
+                layAttrUI.setAccessType("READWRITE");
 
-            } else {
-                // ///////////////////////
-                // Raster Layer
-                // ///////////////////////
-                layerAttributesDTO = null;
+                layerAttributesDTO.add(layAttrUI);
             }
 
-        } catch (MalformedURLException e) {
-            logger.error(e.getMessage(), e);
-            throw new ApplicationException(e.getMessage(), e);
+        } else {
+            // ///////////////////////
+            // Raster Layer
+            // ///////////////////////
+            layerAttributesDTO = null;
         }
 
         return layerAttributesDTO;
@@ -5,8 +5,8 @@
 
 package org.geoserver.geofence.gui.server.service.impl;
 
-import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -25,18 +25,6 @@ import org.geoserver.geofence.gui.client.model.data.rpc.RpcPageLoadResult;
 import org.geoserver.geofence.gui.server.service.IWorkspacesManagerService;
 import org.geoserver.geofence.gui.service.GeofenceRemoteService;
 import org.geoserver.geofence.services.exception.NotFoundServiceEx;
-import it.geosolutions.geoserver.rest.GeoServerRESTReader;
-import it.geosolutions.geoserver.rest.decoder.RESTAbstractList;
-import it.geosolutions.geoserver.rest.decoder.RESTCoverageList;
-import it.geosolutions.geoserver.rest.decoder.RESTCoverageStoreList;
-import it.geosolutions.geoserver.rest.decoder.RESTFeatureTypeList;
-import it.geosolutions.geoserver.rest.decoder.RESTLayer;
-import it.geosolutions.geoserver.rest.decoder.RESTStyleList;
-import it.geosolutions.geoserver.rest.decoder.RESTWorkspaceList;
-import it.geosolutions.geoserver.rest.decoder.RESTWorkspaceList.RESTShortWorkspace;
-import it.geosolutions.geoserver.rest.decoder.utils.NameLinkElem;
-import java.util.SortedSet;
-import java.util.TreeSet;
 import org.apache.commons.lang.StringUtils;
 
 import org.slf4j.Logger;
@@ -64,6 +52,10 @@ public class WorkspacesManagerServiceImpl implements IWorkspacesManagerService
     @Autowired
     private WorkspaceConfigOpts workspaceConfigOpts;
 
+    /** The GeoServer catalog cache. */
+    @Autowired
+    private GeoServerCatalogCache catalogCache;
+
     /*
      * (non-Javadoc)
      *
@@ -80,27 +72,14 @@ public class WorkspacesManagerServiceImpl implements IWorkspacesManagerService
 
         if ((remoteURL != null) && !remoteURL.equals("*") && !remoteURL.contains("?"))
         {
-            try
+            List<String> workspaces = catalogCache.getWorkspaces(gsInstance);
+            if (workspaces != null)
             {
-                GeoServerRESTReader gsreader = new GeoServerRESTReader(remoteURL, gsInstance.getUsername(), gsInstance.getPassword());
-
-                RESTWorkspaceList workspaces = gsreader.getWorkspaces();
-                if ((workspaces != null) && !workspaces.isEmpty())
+                for (String workspace : workspaces)
                 {
-                    Iterator<RESTShortWorkspace> wkIT = workspaces.iterator();
-                    while (wkIT.hasNext())
-                    {
-                        RESTShortWorkspace workspace = wkIT.next();
-
-                        workspacesListDTO.add(new WorkspaceModel(workspace.getName()));
-                    }
+                    workspacesListDTO.add(new WorkspaceModel(workspace));
                 }
             }
-            catch (MalformedURLException e)
-            {
-                logger.error(e.getLocalizedMessage(), e);
-                throw new ApplicationException(e.getLocalizedMessage(), e);
-            }
         }
 
         return new RpcPageLoadResult<WorkspaceModel>(workspacesListDTO, 0, workspacesListDTO.size());
@@ -126,76 +105,37 @@ public class WorkspacesManagerServiceImpl implements IWorkspacesManagerService
                 (workspace != null) &&
                 (workspace.length() > 0))
         {
-            try
-            {
-                GeoServerRESTReader gsreader = new GeoServerRESTReader(baseURL, gsInstance.getUsername(), gsInstance.getPassword());
+            Collection<String> layerNames;
 
-                if (workspace.equals("*") && workspaceConfigOpts.isShowDefaultGroups() && service.equals("WMS"))
-                {
-                    RESTAbstractList<NameLinkElem> layerGroups = gsreader.getLayerGroups();
-
-                    if ((layerGroups != null)) {
-                        for (NameLinkElem lg : layerGroups) {
-//                            RESTLayerGroup group = gsreader.getLayerGroup(lg.getName());
-//                            if (group != null)
-//                            {
-//                                layersListDTO.add(new Layer(group.getName()));
-//                            }
-                            layersListDTO.add(new Layer(lg.getName()));
-                        }
-                    }
-                }
-                else
-                {
-                    SortedSet<String> sortedLayerNames = new TreeSet<String>();
-
-                    if (workspace.equals("*")) { // load all layers
-                        RESTAbstractList<NameLinkElem> layers = gsreader.getLayers();
-                    	if (layers != null)
-                    		for (NameLinkElem layerLink : layers) {
-                    			sortedLayerNames.add(layerLink.getName());
-                    		}
-                    } else {
+            if (workspace.equals("*") && workspaceConfigOpts.isShowDefaultGroups() && service.equals("WMS"))
+            {
+                layerNames = catalogCache.getLayerGroups(gsInstance);
+            }
+            else if (workspace.equals("*")) // load all layers
+            {
+                layerNames = catalogCache.getLayers(gsInstance);
+            }
+            else
+            {
+                if(StringUtils.isBlank(workspace))
+                    throw new ApplicationException("A workspace name is needed");
 
-                        if(StringUtils.isBlank(workspace))
-                            throw new ApplicationException("A workspace name is needed");
+                layerNames = catalogCache.getWorkspaceLayers(gsInstance, workspace);
+            }
 
-                        sortedLayerNames = getWorkspaceLayers(gsreader, workspace);
-                    }
-                    // return the sorted layers list
-                    for (String layerName : sortedLayerNames) {
-                        layersListDTO.add(new Layer(layerName));
-                    }
+            // the layers are already sorted
+            if (layerNames != null)
+            {
+                for (String layerName : layerNames)
+                {
+                    layersListDTO.add(new Layer(layerName));
                 }
-            } catch (MalformedURLException e) {
-                logger.error(e.getLocalizedMessage(), e);
-                throw new ApplicationException(e.getLocalizedMessage(), e);
             }
         }
 
         return new RpcPageLoadResult<Layer>(layersListDTO, 0, layersListDTO.size());
     }
 
-    public SortedSet<String> getWorkspaceLayers(GeoServerRESTReader reader, String workspace) {
-
-        SortedSet<String> layerNames = new TreeSet<String>();
-
-        RESTFeatureTypeList featureTypes = reader.getFeatureTypes(workspace);
-        for (NameLinkElem ft : featureTypes) {
-            layerNames.add(ft.getName());
-        }
-
-        RESTCoverageStoreList coverageStores = reader.getCoverageStores(workspace);
-        for (NameLinkElem csName : coverageStores) {
-            RESTCoverageList coverages = reader.getCoverages(workspace, csName.getName());
-            for (NameLinkElem coverage : coverages) {
-                layerNames.add(coverage.getName());
-            }
-        }
-
-        return layerNames;
-    }
-
     /*
      * (non-Javadoc)
      *
@@ -225,11 +165,11 @@ public class WorkspacesManagerServiceImpl implements IWorkspacesManagerService
                 }
             }
 
-            GeoServerRESTReader gsreader = new GeoServerRESTReader(rule.getInstance().getBaseURL(),
-                    rule.getInstance().getUsername(), rule.getInstance().getPassword());
-
-            RESTStyleList styles = gsreader.getStyles();
-            List<String> names = styles.getNames();
+            List<String> names = catalogCache.getStyles(rule.getInstance());
+            if (names == null)
+            {
+                throw new ApplicationException("Error loading styles from GeoServer");
+            }
             Iterator<String> iterator = names.iterator();
 
             while (iterator.hasNext())
@@ -262,11 +202,6 @@ public class WorkspacesManagerServiceImpl implements IWorkspacesManagerService
             }
 
         }
-        catch (MalformedURLException e)
-        {
-            logger.error(e.getLocalizedMessage(), e);
-            throw new ApplicationException(e.getLocalizedMessage(), e);
-        }
         catch (NotFoundServiceEx e)
         {
             logger.error(e.getLocalizedMessage(), e);
@@ -276,4 +211,17 @@ public class WorkspacesManagerServiceImpl implements IWorkspacesManagerService
         return layerStyles;
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * org.geoserver.geofence.gui.server.service.IWorkspacesManagerService#refreshCatalog(org.geoserver
+     * .geofence.gui.client.model.GSInstanceModel)
+     */
+    public void refreshCatalog(GSInstanceModel gsInstance) throws ApplicationException
+    {
+        logger.info("Refreshing the catalog of " + gsInstance.getBaseURL());
+        catalogCache.refresh(gsInstance);
+    }
+
 }
@@ -0,0 +1,283 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.gui.server.service.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geoserver.geofence.core.model.GSInstance;
+import org.geoserver.geofence.gui.client.model.GSInstanceModel;
+import org.geoserver.geofence.gui.service.GeofenceRemoteService;
+import org.geoserver.geofence.services.InstanceAdminService;
+import it.geosolutions.geoserver.rest.GeoServerRESTReader;
+import it.geosolutions.geoserver.rest.decoder.RESTLayer;
+import it.geosolutions.geoserver.rest.decoder.RESTWorkspaceList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class GeoServerCatalogCacheTest
+{
+
+    private static final String URL1 = "http://gs1.example.com/geoserver";
+    private static final String URL2 = "http://gs2.example.com/geoserver";
+
+    private TestCatalogCache cache;
+
+    @Before
+    public void setUp()
+    {
+        cache = new TestCatalogCache();
+        cache.setTimeToLive(600);
+    }
+
+    @After
+    public void tearDown()
+    {
+        cache.destroy();
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception
+    {
+        final GSInstanceModel instance = createInstance(1, URL1);
+        cache.blocker = new CountDownLatch(1);
+
+        int threads = 8;
+        final CountDownLatch started = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(new Callable<List<String>>() {
+                        public List<String> call()
+                        {
+                            started.countDown();
+                            return cache.getWorkspaces(instance);
+                        }
+                    }));
+            }
+
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            // let the other threads reach the pending load
+            Thread.sleep(200);
+            cache.blocker.countDown();
+
+            for (Future<List<String>> result : results) {
+                assertEquals("ws1", result.get(10, TimeUnit.SECONDS).get(0));
+            }
+            assertEquals(1, cache.workspaceLoads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExpiry()
+    {
+        GSInstanceModel instance = createInstance(1, URL1);
+
+        cache.getWorkspaces(instance);
+        cache.getWorkspaces(instance);
+        assertEquals(1, cache.workspaceLoads.get());
+
+        cache.time += 599 * 1000;
+        cache.getWorkspaces(instance);
+        assertEquals(1, cache.workspaceLoads.get());
+
+        cache.time += 2 * 1000;
+        cache.getWorkspaces(instance);
+        assertEquals(2, cache.workspaceLoads.get());
+    }
+
+    @Test
+    public void testSweepOnAccess()
+    {
+        GSInstanceModel instance = createInstance(1, URL1);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(cache.getAttributes(instance, "ws", "layer" + i).isEmpty());
+        }
+        assertEquals(20, cache.size()); // layer and attributes entries
+
+        cache.time += 601 * 1000;
+        cache.getWorkspaces(instance);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testSweepOnRefresh()
+    {
+        GSInstanceModel instance1 = createInstance(1, URL1);
+        GSInstanceModel instance2 = createInstance(2, URL2);
+
+        cache.getLayer(instance1, "ws", "layer");
+        cache.getLayer(instance2, "ws", "layer");
+        assertEquals(2, cache.size());
+
+        cache.time += 601 * 1000;
+        cache.getWorkspaces(instance1);
+        assertEquals(2, cache.size()); // no sweep yet on instance2
+        cache.getWorkspaces(instance2);
+        cache.getLayer(instance2, "ws", "other");
+        assertEquals(3, cache.size());
+
+        cache.time += 601 * 1000;
+        cache.refresh(instance1);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEvictOnInstanceUpdate()
+    {
+        GSInstanceModel instance1 = createInstance(1, URL1);
+        GSInstanceModel instance2 = createInstance(2, URL2);
+        InstancesManagerServiceImpl service = createInstancesManager(instance1);
+
+        cache.getWorkspaces(instance1);
+        cache.getWorkspaces(instance2);
+        assertEquals(2, cache.workspaceLoads.get());
+
+        GSInstanceModel moved = createInstance(1, URL1 + "2");
+        service.saveInstance(moved);
+        assertEquals(1, cache.size());
+
+        cache.getWorkspaces(instance1);
+        cache.getWorkspaces(instance2);
+        assertEquals(3, cache.workspaceLoads.get());
+
+        // changed credentials are not served the old catalog
+        instance2.setPassword("changed");
+        cache.getWorkspaces(instance2);
+        assertEquals(4, cache.workspaceLoads.get());
+    }
+
+    @Test
+    public void testEvictOnInstanceDelete()
+    {
+        GSInstanceModel instance1 = createInstance(1, URL1);
+        GSInstanceModel instance2 = createInstance(2, URL2);
+        InstancesManagerServiceImpl service = createInstancesManager(instance1);
+
+        cache.getWorkspaces(instance1);
+        cache.getWorkspaces(instance2);
+        assertEquals(2, cache.size());
+
+        service.deleteInstance(instance1);
+        assertEquals(1, cache.size());
+
+        cache.getWorkspaces(instance2);
+        assertEquals(2, cache.workspaceLoads.get());
+    }
+
+    private InstancesManagerServiceImpl createInstancesManager(final GSInstanceModel stored)
+    {
+        InstanceAdminService instanceAdminService = (InstanceAdminService) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class[] {InstanceAdminService.class},
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                    {
+                        String name = method.getName();
+                        if ("get".equals(name)) {
+                            GSInstance instance = new GSInstance();
+                            instance.setId(stored.getId());
+                            instance.setName(stored.getName());
+                            instance.setBaseURL(stored.getBaseURL());
+                            instance.setUsername(stored.getUsername());
+                            instance.setPassword(stored.getPassword());
+                            return instance;
+                        } else if ("update".equals(name)) {
+                            return stored.getId();
+                        } else if ("delete".equals(name)) {
+                            return Boolean.TRUE;
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+
+        GeofenceRemoteService remoteService = new GeofenceRemoteService();
+        remoteService.setInstanceAdminService(instanceAdminService);
+
+        InstancesManagerServiceImpl service = new InstancesManagerServiceImpl();
+        ReflectionTestUtils.setField(service, "geofenceRemoteService", remoteService);
+        ReflectionTestUtils.setField(service, "catalogCache", cache);
+        return service;
+    }
+
+    private static GSInstanceModel createInstance(long id, String baseURL)
+    {
+        GSInstanceModel instance = new GSInstanceModel();
+        instance.setId(id);
+        instance.setName("gs" + id);
+        instance.setBaseURL(baseURL);
+        instance.setUsername("admin");
+        instance.setPassword("geoserver");
+        return instance;
+    }
+
+    /**
+     * Uses a manual clock, and readers returning canned responses.
+     */
+    static class TestCatalogCache extends GeoServerCatalogCache
+    {
+        long time = 1000000;
+        volatile CountDownLatch blocker;
+        final AtomicInteger workspaceLoads = new AtomicInteger();
+
+        @Override
+        protected long now()
+        {
+            return time;
+        }
+
+        @Override
+        protected GeoServerRESTReader createReader(String baseURL, String username, String password)
+            throws MalformedURLException
+        {
+            return new GeoServerRESTReader(baseURL, username, password) {
+                    @Override
+                    public RESTWorkspaceList getWorkspaces()
+                    {
+                        workspaceLoads.incrementAndGet();
+                        if (blocker != null) {
+                            try {
+                                blocker.await(10, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                        return RESTWorkspaceList.build("<workspaces><workspace><name>ws1</name></workspace></workspaces>");
+                    }
+
+                    @Override
+                    public RESTLayer getLayer(String workspace, String name)
+                    {
+                        return RESTLayer.build("<layer><name>" + name + "</name><type>RASTER</type></layer>");
+                    }
+                };
+        }
+    }
+}
@@ -68,6 +68,9 @@ public enum BeanKeyValue {
     
     /** The BASE url. */
     BASE_URL("baseUrl"),
+
+    /** The INSTANCE status. */
+    INSTANCE_STATUS("instanceStatus"),
     
     /** The INSTANCE. */
     INSTANCE("instance"),
@@ -45,6 +45,8 @@ public class GSInstanceModel extends BeanModel implements IsSerializable
     /** The password */
     private String password;
 
+    private String status;
+
 
     /**
     * Instantiates a new gS instance.
@@ -221,6 +223,20 @@ public class GSInstanceModel extends BeanModel implements IsSerializable
         this.password = password;
     }
 
+    /**
+     * @return a description of the reachability of the instance, as reported by the instance monitor.
+     */
+    public String getStatus()
+    {
+        return status;
+    }
+
+    public void setStatus(String status)
+    {
+        this.status = status;
+        set(BeanKeyValue.INSTANCE_STATUS.getValue(), this.status);
+    }
+
     /* (non-Javadoc)
      * @see java.lang.Object#hashCode()
      */
@@ -37,6 +37,10 @@ public class Cvs2Xml {
 //    protected static final String CLI_ALIGNGROUPS_LONG = "aligngroups";
     protected static final String CLI_DELETERULES_LONG = "deleterules";
     protected static final String CLI_DELETERULES_CHAR = "d";
+    protected static final String CLI_SYNC_LONG = "sync";
+    protected static final String CLI_SYNC_CHAR = "y";
+    protected static final String CLI_REPORT_LONG = "report";
+    protected static final String CLI_REPORT_CHAR = "p";
 
     public static void main(String[] args) throws FileNotFoundException, IOException, ParseException {
 
@@ -117,6 +121,14 @@ public class Cvs2Xml {
         if(cli.hasOption(CLI_DELETERULES_LONG))
             runInfo.setDeleteObsoleteRules(true);
 
+        if(cli.hasOption(CLI_SYNC_LONG))
+            runInfo.setSyncRequested(true);
+
+        final String reportFileName = cli.getOptionValue(CLI_REPORT_LONG);
+        if(reportFileName != null) {
+            runInfo.setReportFile(new File(reportFileName));
+        }
+
         return runInfo;
     }
 
@@ -158,7 +170,18 @@ public class Cvs2Xml {
             return false;
         }
 
-        if(runInfo.getOutputFile() == null && ! runInfo.isSendRequested()) {
+        if(runInfo.getReportFile() != null) {
+            if( ! runInfo.isSyncRequested()) {
+                LOGGER.error("The report file can only be created in sync mode");
+                return false;
+            }
+            if( ! runInfo.getReportFile().getAbsoluteFile().getParentFile().canWrite() ) {
+                LOGGER.error("Can't write report file " + runInfo.getReportFile().getAbsolutePath());
+                return false;
+            }
+        }
+
+        if(runInfo.getOutputFile() == null && runInfo.getReportFile() == null && ! runInfo.isSendRequested()) {
             LOGGER.error("Neither output file or send to geofence was requested. Skipping out.");
             return false;
         }
@@ -216,6 +239,16 @@ public class Cvs2Xml {
                 .withDescription("Delete obsolete rules")
                 .withLongOpt(CLI_DELETERULES_LONG)
                 .create(CLI_DELETERULES_CHAR));
+        options.addOption(OptionBuilder
+                .withDescription("Only send the differences between the files and the data in GeoFence")
+                .withLongOpt(CLI_SYNC_LONG)
+                .create(CLI_SYNC_CHAR));
+        options.addOption(OptionBuilder
+                .withArgName("file")
+                .hasArg()
+                .withDescription("the report of the changes computed in sync mode; without --send it's a dry run")
+                .withLongOpt(CLI_REPORT_LONG)
+                .create(CLI_REPORT_CHAR));
         return options;
     }
 
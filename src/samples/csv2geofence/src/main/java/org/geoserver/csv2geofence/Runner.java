@@ -12,7 +12,12 @@ import org.geoserver.csv2geofence.config.model.UserFileConfig;
 import org.geoserver.csv2geofence.config.model.internal.RuleOp;
 import org.geoserver.csv2geofence.config.model.internal.RunInfo;
 import org.geoserver.csv2geofence.config.model.internal.UserOp;
+import org.geoserver.csv2geofence.impl.BatchSender;
+import org.geoserver.csv2geofence.impl.BatchXmlWriter;
+import org.geoserver.csv2geofence.impl.OpHandler;
 import org.geoserver.csv2geofence.impl.RuleFileLoader;
+import org.geoserver.csv2geofence.impl.RuleIndex;
+import org.geoserver.csv2geofence.impl.SyncPlanner;
 import org.geoserver.csv2geofence.impl.UserFileLoader;
 import org.geoserver.csv2geofence.impl.RulesProcessor;
 import org.geoserver.csv2geofence.impl.UsersProcessor;
@@ -20,23 +25,28 @@ import org.geoserver.geofence.services.dto.RuleFilter;
 import org.geoserver.geofence.services.dto.ShortGroup;
 import org.geoserver.geofence.services.rest.GeoFenceClient;
 import org.geoserver.geofence.services.rest.RuleServiceHelper;
-import org.geoserver.geofence.services.rest.model.RESTBatch;
 import org.geoserver.geofence.services.rest.model.RESTBatchOperation;
+import org.geoserver.geofence.services.rest.model.RESTInputGroup;
 import org.geoserver.geofence.services.rest.model.RESTInputRule;
 import org.geoserver.geofence.services.rest.model.RESTInputUser;
 import org.geoserver.geofence.services.rest.model.RESTOutputRule;
-import org.geoserver.geofence.services.rest.model.RESTOutputRuleList;
 import org.geoserver.geofence.services.rest.model.config.RESTFullUserGroupList;
 import org.geoserver.geofence.services.rest.model.util.RESTBatchOperationFactory;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.xml.bind.JAXB;
 import org.apache.cxf.jaxrs.client.ServerWebApplicationException;
 import org.apache.logging.log4j.LogManager;
@@ -53,6 +63,9 @@ import org.apache.logging.log4j.Logger;
 public class Runner {
     private final static Logger LOGGER = LogManager.getLogger(Runner.class);
 
+    private static final int RULE_PAGE_SIZE = 1000;
+    private static final int USER_PAGE_SIZE = 1000;
+
     private RunInfo runInfo;
 
     public Runner(RunInfo runInfo) {
@@ -76,73 +89,209 @@ public class Runner {
 
         //-- gather information on requested groups from files
         // map contains as key the uppercase version of the name of the group in the value
-        LOGGER.info("Scanning user files for groups...");
-        Map<String, String> requestedGroups = retrieveRequestedGroups(cfg.getUserFileConfig(), runInfo.getUserFiles());
+        LOGGER.info("Scanning user and rule files for groups...");
+        Map<String, String> requestedGroups = retrieveRequestedGroups(cfg, runInfo.getUserFiles(), runInfo.getRuleFiles());
 
+        BatchXmlWriter xmlWriter = null;
+        if( runInfo.getOutputFile() != null) {
+            LOGGER.info("Creating XML command file " + runInfo.getOutputFile());
+            xmlWriter = new BatchXmlWriter(runInfo.getOutputFile());
+        }
 
-        RESTBatch batch = new RESTBatch();
+        Writer report = null;
+        if( runInfo.getReportFile() != null) {
+            LOGGER.info("Creating report file " + runInfo.getReportFile());
+            report = new OutputStreamWriter(new FileOutputStream(runInfo.getReportFile()), "UTF-8");
+        }
 
-        // create new user groups
-        List<RESTBatchOperation> groupOps = createGroups(requestedGroups, existingGroups);
-        batch.getList().addAll(groupOps);
+        boolean ok;
+        try {
+            ok = process(cfg, geoFenceClient, existingGroups, requestedGroups, xmlWriter, report);
+        } finally {
+            if(xmlWriter != null) {
+                xmlWriter.close();
+                LOGGER.info("XML command file saved.");
+            }
+            if(report != null) {
+                report.close();
+                LOGGER.info("Report file saved.");
+            }
+        }
 
+        if(runInfo.isSendRequested()) {
+            if(ok) {
+                LOGGER.info("GeoFence data updated");
+            } else {
+                LOGGER.error("GeoFence data have not been fully updated");
+            }
+        }
+    }
 
-        // Process the user files
-        LOGGER.info("Scanning user files for users...");
-        for (File file : runInfo.getUserFiles()) {
-            LOGGER.info("Processing user file '" + file+"'");
-            List<RESTBatchOperation> batchOps = processUserFile(file, cfg.getUserFileConfig(), existingGroups);
-            batch.getList().addAll(batchOps);
+    /**
+     * Parses the files in parallel, and streams the converted operations to GeoFence in chunks.
+     * <BR>Groups are created first; then users and rules are sent by separate senders,
+     * since inserting rules concurrently would make their priorities unpredictable.
+     * <BR>User files are parsed in parallel, while rule files are parsed sequentially in file order,
+     * concurrently with the user files.
+     * <BR>In sync mode, ops are filtered and adjusted by a {@link SyncPlanner}.
+     *
+     * @return false if some chunk could not be sent
+     */
+    private boolean process(final Configuration cfg, GeoFenceClient client, final Map<String, String> existingGroups, Map<String, String> requestedGroups,
+            BatchXmlWriter xmlWriter, Writer report) throws IOException {
+
+        final GeofenceConfig gcfg = cfg.getGeofenceConfig();
+        final boolean send = runInfo.isSendRequested();
+        final boolean sync = runInfo.isSyncRequested();
+
+        // snapshot of the existing rules, taken before any rule is sent
+        // sync mode always needs the index, since it compares whole layers
+        final RuleIndex ruleIndex = gcfg.getRuleLookup() == GeofenceConfig.RuleLookup.query && ! sync ?
+                null :
+                new RuleIndex(new RuleServiceHelper(client.getRuleService()),
+                        gcfg.getRuleLookup() != GeofenceConfig.RuleLookup.full,
+                        RULE_PAGE_SIZE);
+        if(ruleIndex != null) {
+            // groups not yet in GeoFence have no rules
+            List<String> groupNames = new ArrayList<String>();
+            for (String upperName : requestedGroups.keySet()) {
+                String existing = existingGroups.get(upperName);
+                if(existing != null) {
+                    groupNames.add(existing);
+                }
+            }
+            ruleIndex.preload(groupNames);
         }
 
-        // Process the rule files
-        LOGGER.info("Scanning rule files...");
-        for (File file : runInfo.getRuleFiles()) {
-            LOGGER.info("Processing rule file '" + file+"'");
-            List<RESTBatchOperation> batchOps = processRuleFile(file, cfg.getRuleFileConfig(), existingGroups);
-            batch.getList().addAll(batchOps);
+        final SyncPlanner planner;
+        if(sync) {
+            LOGGER.info("Loading existing users in GeoFence...");
+            planner = new SyncPlanner(SyncPlanner.loadUsers(client.getUserService(), USER_PAGE_SIZE), ruleIndex, report);
+        } else {
+            planner = null;
         }
 
-        // verify users
-        LOGGER.info("Performing existence check on users...");
-        verifyUsers(batch, geoFenceClient);
-        LOGGER.info("Performing existence check on rules...");
-        verifyRules(batch, geoFenceClient);
+        // create new user groups before anything else
+        BatchSender groupSender = new BatchSender("groups", gcfg, 1, send, xmlWriter);
+        for (RESTBatchOperation op : createGroups(requestedGroups, existingGroups)) {
+            groupSender.add(op);
+            if(report != null) {
+                report.write("INSERT group " + ((RESTInputGroup)op.getPayload()).getName() + "\n");
+            }
+        }
+        if( ! groupSender.close()) {
+            return false;
+        }
 
+        final BatchSender userSender = new BatchSender("users", gcfg, gcfg.getSendThreads(), send, xmlWriter) {
+            @Override
+            protected List<RESTBatchOperation> prepare(List<RESTBatchOperation> ops, GeoFenceClient client) {
+                if(planner == null) {
+                    verifyUsers(ops, client);
+                }
+                return ops;
+            }
+        };
+        final BatchSender ruleSender = new BatchSender("rules", gcfg, gcfg.getRuleSendThreads(), send, xmlWriter) {
+            @Override
+            protected List<RESTBatchOperation> prepare(List<RESTBatchOperation> ops, GeoFenceClient client) {
+                // the planner already took care of the existing rules
+                return planner == null ? verifyRules(ops, client, ruleIndex) : ops;
+            }
+        };
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (final File file : runInfo.getUserFiles()) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    LOGGER.info("Processing user file '" + file+"'");
+                    processUserFile(file, cfg.getUserFileConfig(), existingGroups, planner, userSender);
+                    return null;
+                }
+            });
+        }
+        // rule files are parsed one after the other, in order, so that rules reach
+        // the sender in a stable order, and get stable priorities
+        tasks.add(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                for (File file : runInfo.getRuleFiles()) {
+                    LOGGER.info("Processing rule file '" + file+"'");
+                    processRuleFile(file, cfg.getRuleFileConfig(), existingGroups, planner, ruleSender);
+                }
+                return null;
+            }
+        });
 
-        if( runInfo.getOutputFile() != null) {
-            Writer xmlWriter = null;
-            xmlWriter = new FileWriter(runInfo.getOutputFile());
-            LOGGER.info("Creating XML command file " + runInfo.getOutputFile());
-            JAXB.marshal(batch, xmlWriter);
-            xmlWriter.flush();
-            xmlWriter.close();
-            LOGGER.info("XML command file saved.");
+        boolean usersOk;
+        boolean rulesOk;
+        try {
+            runAll(tasks);
+        } finally {
+            usersOk = userSender.close();
+            rulesOk = ruleSender.close();
         }
+        if(planner != null) {
+            LOGGER.info("Sync " + (send ? "" : "(dry run) ") + planner.getSummary());
+        }
+        return usersOk && rulesOk;
+    }
 
-        if(runInfo.isSendRequested()) {
-            LOGGER.info("Sending "+batch.getList().size()+" commands to GeoFence...");
-            try {
-                geoFenceClient.getBatchService().exec(batch);
-                LOGGER.info("GeoFence data updated");
-            } catch (ServerWebApplicationException ex) {
-                LOGGER.error("GeoFence error (HTTP:"+ex.getStatus()+"): " + ex.getMessage() , ex);
-                LOGGER.error("GeoFence data have not been updated");
+    /**
+     * Runs the tasks in parallel, and waits for their completion.
+     */
+    private static void runAll(List<Callable<Void>> tasks) throws IOException {
+        if(tasks.isEmpty()) {
+            return;
+        }
+        int threads = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(task));
             }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if(e.getCause() instanceof IOException)
+                        throw (IOException)e.getCause();
+                    if(e.getCause() instanceof RuntimeException)
+                        throw (RuntimeException)e.getCause();
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while processing files", e);
+        } finally {
+            executor.shutdownNow();
         }
     }
 
-
-
-    private static List<RESTBatchOperation> processUserFile(File userFile, UserFileConfig ucfg, Map<String,String> remappedGroupNames) throws IOException  {
-        // load and parse file
-
-        List<UserOp> userOps;
+    /**
+     * @param planner if not null, only the ops needed to align GeoFence are sent
+     */
+    private static void processUserFile(File userFile, UserFileConfig ucfg, final Map<String,String> remappedGroupNames,
+            final SyncPlanner planner, final BatchSender sender) throws IOException  {
+        // parse file and convert each line
         try {
             UserFileLoader loader = new UserFileLoader(ucfg);
-            userOps = loader.load(userFile);
-            UsersProcessor processor = new UsersProcessor();
-            return processor.buildUserBatchOps(userOps, remappedGroupNames);
+            final UsersProcessor processor = new UsersProcessor();
+            loader.load(userFile, new OpHandler<UserOp>() {
+                @Override
+                public void handle(UserOp op) throws IOException {
+                    RESTBatchOperation restOp = processor.buildBatchOperation(op, remappedGroupNames);
+                    if(planner != null) {
+                        restOp = planner.planUser(restOp);
+                    }
+                    if(restOp != null) {
+                        sender.add(restOp);
+                    }
+                }
+            });
 
         } catch (IOException e) {
             LOGGER.warn("Error loading file '"+userFile+"': " + e.getMessage(), e);
@@ -150,15 +299,29 @@ public class Runner {
         }
     }
 
-    private static List<RESTBatchOperation> processRuleFile(File ruleFile, RuleFileConfig cfg, Map<String,String> remappedGroupNames) throws IOException  {
-        // load and parse file
-
-        List<RuleOp> ruleOps;
+    /**
+     * @param planner if not null, only the ops needed to align GeoFence are sent
+     */
+    private static void processRuleFile(File ruleFile, final RuleFileConfig cfg, final Map<String,String> remappedGroupNames,
+            final SyncPlanner planner, final BatchSender sender) throws IOException  {
+        // parse file and convert each line
         try {
             RuleFileLoader loader = new RuleFileLoader(cfg);
-            ruleOps = loader.load(ruleFile);
-            RulesProcessor processor = new RulesProcessor();
-            return processor.buildBatchOps(ruleOps, remappedGroupNames, cfg);
+            final RulesProcessor processor = new RulesProcessor();
+            loader.load(ruleFile, new OpHandler<RuleOp>() {
+                @Override
+                public void handle(RuleOp op) throws IOException {
+                    List<RESTBatchOperation> restOps = processor.buildBatchOperation(op, remappedGroupNames, cfg);
+                    if(planner != null) {
+                        String groupName = remappedGroupNames.get(op.getGroupName().toUpperCase());
+                        restOps = planner.planRules(groupName, op.getLayerName(), restOps);
+                    }
+                    // rules from the same line must be inserted in order
+                    if( ! restOps.isEmpty()) {
+                        sender.addAll(restOps);
+                    }
+                }
+            });
 
         } catch (IOException e) {
             LOGGER.warn("Error loading file '"+ruleFile+"': " + e.getMessage(), e);
@@ -168,7 +331,8 @@ public class Runner {
 
     private Map<String, String> retrieveGFGroups(GeoFenceClient client) {
         RESTFullUserGroupList groups = client.getUserGroupService().getList(null, null, null);
-        Map<String, String> ret = new HashMap<String, String>();
+        // accessed by the file processing threads
+        Map<String, String> ret = new ConcurrentHashMap<String, String>();
         for (ShortGroup shortGroup : groups.getList()) {
             String groupName = shortGroup.getName();
             String old = ret.put(groupName.toUpperCase(), groupName);
@@ -182,40 +346,60 @@ public class Runner {
     }
 
     /**
-     * Collect all group names from user files.
-     *
+     * Collect all group names from user files and rule file headers.
+     * <BR>Files are scanned in parallel, and only the group names are kept in memory.
      *
-     * @param cfg
-     * @param files
      * @return a Map having as keys the uppercase name
      */
-    private Map<String, String> retrieveRequestedGroups(UserFileConfig cfg, List<File> files) {
-        Map<String, String> upperNames = new HashMap<String, String>();
-
-        UserFileLoader loader = new UserFileLoader(cfg);
-
-        for (File file : files) {
-            LOGGER.debug("Collecting group names from file '" + file+"'");
-            List<UserOp> userOps;
-            try {
-                userOps = loader.load(file);
-            } catch (IOException ex) {
-                LOGGER.error("Error loading file " + file + ": " + ex.getMessage());
-                throw new IllegalStateException("Error loading file", ex);
-            }
-            for (UserOp userOp : userOps) {
-                for (String groupName : userOp.getGroups()) {
-                    String old = upperNames.put(groupName.toUpperCase(), groupName);
-                    if(old != null && ! old.equals(groupName)) {
-                        LOGGER.warn("Conflict in group names in files: '"+old+"' and '"+groupName+"'");
+    private Map<String, String> retrieveRequestedGroups(Configuration cfg, List<File> userFiles, List<File> ruleFiles) throws IOException {
+        final Map<String, String> upperNames = new ConcurrentHashMap<String, String>();
+
+        final UserFileLoader userLoader = new UserFileLoader(cfg.getUserFileConfig());
+        final RuleFileLoader ruleLoader = new RuleFileLoader(cfg.getRuleFileConfig());
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (final File file : userFiles) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    LOGGER.debug("Collecting group names from file '" + file+"'");
+                    userLoader.load(file, new OpHandler<UserOp>() {
+                        @Override
+                        public void handle(UserOp userOp) {
+                            for (String groupName : userOp.getGroups()) {
+                                addGroupName(upperNames, groupName);
+                            }
+                        }
+                    });
+                    return null;
+                }
+            });
+        }
+        for (final File file : ruleFiles) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    LOGGER.debug("Collecting group names from rule file '" + file+"'");
+                    for (String groupName : ruleLoader.loadGroupNames(file)) {
+                        addGroupName(upperNames, groupName);
                     }
+                    return null;
                 }
-            }
+            });
         }
-        LOGGER.info("Collected " + upperNames.size() + " groups in " + files.size() + " files");
+        runAll(tasks);
+
+        LOGGER.info("Collected " + upperNames.size() + " groups in " + (userFiles.size() + ruleFiles.size()) + " files");
         return upperNames;
     }
 
+    private static void addGroupName(Map<String, String> upperNames, String groupName) {
+        String old = upperNames.put(groupName.toUpperCase(), groupName);
+        if(old != null && ! old.equals(groupName)) {
+            LOGGER.warn("Conflict in group names in files: '"+old+"' and '"+groupName+"'");
+        }
+    }
+
     /**
      *
      * May add entries to existingGroups
@@ -263,8 +447,8 @@ public class Runner {
         }
     }
 
-    private void verifyUsers(RESTBatch batch, GeoFenceClient client) {
-        for (RESTBatchOperation op : batch.getList()) {
+    private void verifyUsers(List<RESTBatchOperation> ops, GeoFenceClient client) {
+        for (RESTBatchOperation op : ops) {
             if(op.getService() == RESTBatchOperation.ServiceName.users) {
 
                 switch(op.getType()) {
@@ -296,48 +480,39 @@ public class Runner {
      * Check for rule collision.
      * Optionally augment the batch list with rule deletion operations.
      *
+     * @param index if not null, existing rules are looked up in the index instead of querying GeoFence
+     * @return the ops, preceded by the rule deletion operations if any
      */
-    private void verifyRules(RESTBatch batch, GeoFenceClient client) {
+    private List<RESTBatchOperation> verifyRules(List<RESTBatchOperation> ops, GeoFenceClient client, RuleIndex index) {
 
-        final RuleServiceHelper helper = new RuleServiceHelper(client.getRuleService());
+        final RuleServiceHelper helper = index == null ? new RuleServiceHelper(client.getRuleService()) : null;
 
         List<RESTBatchOperation> deleteOps = new LinkedList<RESTBatchOperation>();
 
-        for (RESTBatchOperation op : batch.getList()) {
+        for (RESTBatchOperation op : ops) {
             if(op.getService() == RESTBatchOperation.ServiceName.rules) {
 
-                StringBuilder sb = new StringBuilder();
                 RESTInputRule rule = (RESTInputRule)op.getPayload();
-                RuleFilter ruleFilter = new RuleFilter(RuleFilter.SpecialFilterType.DEFAULT);
-
-                ruleFilter.setUserGroup(rule.getGroup().getName());
-                ruleFilter.getUserGroup().setIncludeDefault(false);
-                sb.append("group:").append(rule.getGroup().getName());
+                String desc = "group:" + rule.getRolename()
+                        + " layer:" + rule.getLayer()
+                        + (rule.getService() != null ? " service:" + rule.getService() : "")
+                        + (rule.getRequest() != null ? " request:" + rule.getRequest() : "");
 
-                ruleFilter.setLayer(rule.getLayer());
-                ruleFilter.getLayer().setIncludeDefault(false);
-                sb.append(" layer:").append(rule.getLayer());
+                List<RESTOutputRule> rulesFound = index != null ?
+                        index.find(rule.getRolename(), rule.getLayer(), rule.getService(), rule.getRequest()) :
+                        queryRules(helper, rule);
 
-                if(rule.getService() != null) {
-                    ruleFilter.setService(rule.getService());
-                    ruleFilter.getService().setIncludeDefault(false);
-                    sb.append(" service:").append(rule.getService());
-                }
-
-                if(rule.getRequest() != null) {
-                    ruleFilter.setRequest(rule.getRequest());
-                    ruleFilter.getRequest().setIncludeDefault(false);
-                    sb.append(" request:").append(rule.getRequest());
-                }
-
-                RESTOutputRuleList rulesFound = helper.get(null, null, false, ruleFilter);
-                if( ! rulesFound.getList().isEmpty()) {
-                    if(rulesFound.getList().size() == 1) {
+                if( ! rulesFound.isEmpty()) {
+                    if(rulesFound.size() == 1) {
 
                         if(runInfo.isDeleteObsoleteRules()) {
-                            RESTBatchOperation ruleDelOp = RESTBatchOperationFactory.createDeleteRuleOp(rulesFound.getList().get(0).getId());
+                            RESTOutputRule obsolete = rulesFound.get(0);
+                            RESTBatchOperation ruleDelOp = RESTBatchOperationFactory.createDeleteRuleOp(obsolete.getId());
                             deleteOps.add(ruleDelOp);
-                            LOGGER.debug("Replacing rule on " + sb);
+                            if(index != null) {
+                                index.remove(obsolete);
+                            }
+                            LOGGER.debug("Replacing rule on " + desc);
 
                         } else {
                             LOGGER.warn("Rule " + rule + " already exists in GeoFence: operation 'insert' is likely to trigger an error.");
@@ -346,7 +521,7 @@ public class Runner {
                             }
                         }
 
-                    } else  if(rulesFound.getList().size() > 1) {
+                    } else  if(rulesFound.size() > 1) {
 
                         LOGGER.error("Found too many rules matching an input rule");
                         LOGGER.error("Input Rule is " + rule);
@@ -359,12 +534,41 @@ public class Runner {
             }
         }
 
-        if(! deleteOps.isEmpty()) {
-            LOGGER.info("Adding "+deleteOps.size()+ " rule delete ops at the top of the batch" );
-            LOGGER.debug("Old list size: "+batch.getList().size() );
-            batch.getList().addAll(0, deleteOps);
-            LOGGER.debug("New list size: "+batch.getList().size() );
+        if(deleteOps.isEmpty()) {
+            return ops;
         }
+
+        LOGGER.info("Adding "+deleteOps.size()+ " rule delete ops at the top of the batch" );
+        List<RESTBatchOperation> ret = new ArrayList<RESTBatchOperation>(deleteOps.size() + ops.size());
+        ret.addAll(deleteOps);
+        ret.addAll(ops);
+        LOGGER.debug("New list size: "+ret.size() );
+        return ret;
+    }
+
+    /**
+     * Queries GeoFence for the rules having exactly the same group, layer, service and request of the input rule.
+     */
+    private static List<RESTOutputRule> queryRules(RuleServiceHelper helper, RESTInputRule rule) {
+        RuleFilter ruleFilter = new RuleFilter(RuleFilter.SpecialFilterType.DEFAULT);
+
+        ruleFilter.setRole(rule.getRolename());
+        ruleFilter.getRole().setIncludeDefault(false);
+
+        ruleFilter.setLayer(rule.getLayer());
+        ruleFilter.getLayer().setIncludeDefault(false);
+
+        if(rule.getService() != null) {
+            ruleFilter.setService(rule.getService());
+            ruleFilter.getService().setIncludeDefault(false);
+        }
+
+        if(rule.getRequest() != null) {
+            ruleFilter.setRequest(rule.getRequest());
+            ruleFilter.getRequest().setIncludeDefault(false);
+        }
+
+        return helper.get(null, null, false, ruleFilter).getList();
     }
 
     private boolean existUser(GeoFenceClient client, String userName) {
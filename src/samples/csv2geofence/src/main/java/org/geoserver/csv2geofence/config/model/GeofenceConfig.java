@@ -11,12 +11,31 @@ import javax.xml.bind.annotation.XmlType;
  *
  * @author ETj (etj at geo-solutions.it)
  */
-@XmlType(propOrder={"restUrl","username","password"})
+@XmlType(propOrder={"restUrl","username","password","batchSize","sendThreads","ruleSendThreads","retries","ruleLookup"})
 public class GeofenceConfig {
+
+    /**
+     * How existing rules are looked up when checking for collisions.
+     */
+    public static enum RuleLookup {
+        /** GeoFence is queried for every input rule. */
+        query,
+        /** The rules of each group are loaded once, when the group is first found. */
+        group,
+        /** All the rules are loaded at once. */
+        full;
+    }
+
     private String restUrl;
     private String username;
     private String password;
 
+    private int batchSize = 500;
+    private int sendThreads = 4;
+    private int ruleSendThreads = 1;
+    private int retries = 3;
+    private RuleLookup ruleLookup = RuleLookup.group;
+
     public String getRestUrl() {
         return restUrl;
     }
@@ -41,4 +60,60 @@ public class GeofenceConfig {
         this.password = password;
     }
 
+    /**
+     * Max number of operations sent to GeoFence in a single batch request.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Number of concurrent batch requests for users and groups.
+     */
+    public int getSendThreads() {
+        return sendThreads;
+    }
+
+    public void setSendThreads(int sendThreads) {
+        this.sendThreads = sendThreads;
+    }
+
+    /**
+     * Number of concurrent batch requests for rules.
+     * <BR>Inserting a rule shifts the priority of the following ones, so the default is 1.
+     */
+    public int getRuleSendThreads() {
+        return ruleSendThreads;
+    }
+
+    public void setRuleSendThreads(int ruleSendThreads) {
+        this.ruleSendThreads = ruleSendThreads;
+    }
+
+    /**
+     * How many times a failed batch request is retried.
+     */
+    public int getRetries() {
+        return retries;
+    }
+
+    public void setRetries(int retries) {
+        this.retries = retries;
+    }
+
+    /**
+     * How existing rules are looked up; see {@link RuleLookup}.
+     */
+    public RuleLookup getRuleLookup() {
+        return ruleLookup;
+    }
+
+    public void setRuleLookup(RuleLookup ruleLookup) {
+        this.ruleLookup = ruleLookup;
+    }
+
 }
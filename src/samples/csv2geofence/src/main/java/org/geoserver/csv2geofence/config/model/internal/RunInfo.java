@@ -25,6 +25,8 @@ public class RunInfo {
     private boolean sendRequested;
 //    private boolean groupAlignRequested = false;
     private boolean deleteObsoleteRules = false;
+    private boolean syncRequested = false;
+    private File reportFile;
 
 
     public File getConfigurationFile() {
@@ -83,4 +85,26 @@ public class RunInfo {
         this.deleteObsoleteRules = deleteObsoleteRules;
     }
 
+    /**
+     * In sync mode, only the differences between the files and the data in GeoFence are sent.
+     */
+    public boolean isSyncRequested() {
+        return syncRequested;
+    }
+
+    public void setSyncRequested(boolean syncRequested) {
+        this.syncRequested = syncRequested;
+    }
+
+    /**
+     * The file where the changes computed in sync mode are listed.
+     */
+    public File getReportFile() {
+        return reportFile;
+    }
+
+    public void setReportFile(File reportFile) {
+        this.reportFile = reportFile;
+    }
+
 }
@@ -0,0 +1,278 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.csv2geofence.impl;
+
+import org.geoserver.csv2geofence.config.model.GeofenceConfig;
+import org.geoserver.geofence.services.rest.GeoFenceClient;
+import org.geoserver.geofence.services.rest.model.RESTBatch;
+import org.geoserver.geofence.services.rest.model.RESTBatchOperation;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ws.rs.WebApplicationException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+
+/**
+ * Collects batch operations into chunks of <TT>batchSize</TT> operations,
+ * and sends them to GeoFence using <TT>threads</TT> concurrent requests.
+ * <P>
+ * At most <TT>2 * threads</TT> chunks are queued: when the queue is full, the
+ * callers of {@link #add(RESTBatchOperation) add()} are blocked, so that memory
+ * usage does not depend on the size of the input.
+ * <BR>Chunks contain non idempotent inserts, so a chunk is only retried when it surely did not
+ * reach GeoFence: on connection failures, and on a 503 (Service Unavailable) reply.
+ * Any other error (e.g. a read timeout or a 500 reply, received when the chunk may already
+ * have been committed) fails the chunk.
+ * <P>
+ * Chunks are also written to the optional {@link BatchXmlWriter}.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class BatchSender {
+
+    private final static Logger LOGGER = LogManager.getLogger(BatchSender.class);
+
+    private final String name;
+    private final GeofenceConfig geofenceConfig;
+    private final boolean send;
+    private final BatchXmlWriter xmlWriter;
+
+    private final int batchSize;
+    private final int retries;
+
+    private final ExecutorService executor;
+    private final Semaphore queued;
+
+    /** Each sending thread uses its own client, since the CXF proxies are not thread safe. */
+    private final ThreadLocal<GeoFenceClient> clients = new ThreadLocal<GeoFenceClient>();
+
+    private List<RESTBatchOperation> current;
+
+    private final AtomicLong sentOps = new AtomicLong();
+    private final AtomicInteger sentChunks = new AtomicInteger();
+    private final AtomicInteger failedChunks = new AtomicInteger();
+    private volatile Exception failure;
+
+    /**
+     * @param name used in logs and thread names
+     * @param send if false, chunks are only prepared and written to the xmlWriter
+     * @param xmlWriter may be null
+     */
+    public BatchSender(String name, GeofenceConfig geofenceConfig, int threads, boolean send, BatchXmlWriter xmlWriter) {
+        this.name = name;
+        this.geofenceConfig = geofenceConfig;
+        this.send = send;
+        this.xmlWriter = xmlWriter;
+
+        this.batchSize = Math.max(1, geofenceConfig.getBatchSize());
+        this.retries = Math.max(0, geofenceConfig.getRetries());
+
+        final int nthreads = Math.max(1, threads);
+        this.queued = new Semaphore(nthreads * 2);
+        this.executor = Executors.newFixedThreadPool(nthreads, new ThreadFactory() {
+            private final AtomicInteger cnt = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "csv2geofence-" + BatchSender.this.name + "-" + cnt.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.current = new ArrayList<RESTBatchOperation>(batchSize);
+    }
+
+    public void add(RESTBatchOperation op) throws IOException {
+        List<RESTBatchOperation> full = null;
+        synchronized(this) {
+            current.add(op);
+            if(current.size() >= batchSize) {
+                full = current;
+                current = new ArrayList<RESTBatchOperation>(batchSize);
+            }
+        }
+        if(full != null) {
+            submit(full);
+        }
+    }
+
+    /**
+     * Adds the ops to the same chunk, so that they will be sent in the given order.
+     * <BR>The chunk may then be bigger than <TT>batchSize</TT>.
+     */
+    public void addAll(List<RESTBatchOperation> ops) throws IOException {
+        List<RESTBatchOperation> full = null;
+        synchronized(this) {
+            current.addAll(ops);
+            if(current.size() >= batchSize) {
+                full = current;
+                current = new ArrayList<RESTBatchOperation>(batchSize);
+            }
+        }
+        if(full != null) {
+            submit(full);
+        }
+    }
+
+    /**
+     * Sends the pending operations, waits for all the chunks to be completed and releases the threads.
+     *
+     * @return false if any chunk could not be sent.
+     */
+    public boolean close() throws IOException {
+        List<RESTBatchOperation> last;
+        synchronized(this) {
+            last = current;
+            current = new ArrayList<RESTBatchOperation>();
+        }
+        try {
+            if(failure != null) {
+                LOGGER.warn("[" + name + "] Discarding " + last.size() + " pending operations after a failure");
+            } else if(! last.isEmpty()) {
+                submit(last);
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                while( ! executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    LOGGER.info("[" + name + "] Waiting for the pending chunks to be completed...");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while sending batches", e);
+            }
+        }
+
+        LOGGER.info("[" + name + "] " + (send ? "Sent " : "Processed ") + sentOps.get() + " operations in "
+                + sentChunks.get() + " chunks" + (failedChunks.get() > 0 ? ", " + failedChunks.get() + " chunks FAILED" : ""));
+        return failedChunks.get() == 0;
+    }
+
+    /**
+     * Hook for checking or augmenting a chunk before it is sent.
+     * It runs in the sending thread.
+     *
+     * @return the ops to be sent
+     */
+    protected List<RESTBatchOperation> prepare(List<RESTBatchOperation> ops, GeoFenceClient client) {
+        return ops;
+    }
+
+    private void submit(final List<RESTBatchOperation> ops) throws IOException {
+        if(failure != null) {
+            throw new IOException("[" + name + "] Aborting: a previous batch could not be processed", failure);
+        }
+
+        try {
+            queued.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while queueing batch", e);
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    process(ops);
+                } catch (Exception e) {
+                    failedChunks.incrementAndGet();
+                    if(failure == null) {
+                        failure = e;
+                    }
+                    LOGGER.error("[" + name + "] Error processing a chunk of " + ops.size() + " operations: " + e.getMessage(), e);
+                } finally {
+                    queued.release();
+                }
+            }
+        });
+    }
+
+    private void process(List<RESTBatchOperation> ops) throws Exception {
+        GeoFenceClient client = getClient();
+
+        List<RESTBatchOperation> prepared = prepare(ops, client);
+
+        if(xmlWriter != null) {
+            xmlWriter.write(prepared);
+        }
+
+        if(send) {
+            RESTBatch batch = new RESTBatch();
+            batch.setList(prepared);
+            exec(client, batch);
+        }
+
+        sentOps.addAndGet(prepared.size());
+        sentChunks.incrementAndGet();
+    }
+
+    private void exec(GeoFenceClient client, RESTBatch batch) throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                client.getBatchService().exec(batch);
+                return;
+            } catch (RuntimeException e) {
+                int status = e instanceof WebApplicationException && ((WebApplicationException)e).getResponse() != null ?
+                        ((WebApplicationException)e).getResponse().getStatus() :
+                        -1;
+                if(attempt >= retries || ! isRetriable(e, status)) {
+                    if(status > 0) {
+                        LOGGER.error("[" + name + "] GeoFence error (HTTP:" + status + "): " + e.getMessage());
+                    }
+                    throw e;
+                }
+                LOGGER.warn("[" + name + "] Error sending " + batch + ", retrying (" + (attempt+1) + "/" + retries + "): " + e.getMessage());
+                Thread.sleep(1000L * (attempt + 1));
+            }
+        }
+    }
+
+    /**
+     * @return true if the batch surely was not executed by GeoFence.
+     */
+    static boolean isRetriable(Throwable e, int status) {
+        if(status == 503) {
+            return true;
+        }
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if(t instanceof ConnectException || t instanceof NoRouteToHostException || t instanceof UnknownHostException) {
+                return true;
+            }
+            if(t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private GeoFenceClient getClient() {
+        GeoFenceClient client = clients.get();
+        if(client == null) {
+            client = new GeoFenceClient();
+            client.setGeostoreRestUrl(geofenceConfig.getRestUrl());
+            client.setUsername(geofenceConfig.getUsername());
+            client.setPassword(geofenceConfig.getPassword());
+            clients.set(client);
+        }
+        return client;
+    }
+
+    public long getSentOps() {
+        return sentOps.get();
+    }
+}
@@ -0,0 +1,63 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.csv2geofence.impl;
+
+import org.geoserver.geofence.services.rest.model.RESTBatch;
+import org.geoserver.geofence.services.rest.model.RESTBatchOperation;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+
+
+/**
+ * Writes a {@link RESTBatch} XML document one operation at a time,
+ * so that the whole batch never needs to be kept in memory.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class BatchXmlWriter {
+
+    private final Writer writer;
+    private final Marshaller marshaller;
+
+    public BatchXmlWriter(File file) throws IOException {
+        try {
+            marshaller = JAXBContext.newInstance(RESTBatch.class).createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        } catch (JAXBException e) {
+            throw new IOException("Can't create XML marshaller: " + e.getMessage(), e);
+        }
+
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n<batch>\n");
+    }
+
+    public synchronized void write(List<RESTBatchOperation> ops) throws IOException {
+        try {
+            for (RESTBatchOperation op : ops) {
+                marshaller.marshal(new JAXBElement<RESTBatchOperation>(new QName("operation"), RESTBatchOperation.class, op), writer);
+                writer.write('\n');
+            }
+        } catch (JAXBException e) {
+            throw new IOException("Can't write batch operation: " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        writer.write("</batch>\n");
+        writer.close();
+    }
+}
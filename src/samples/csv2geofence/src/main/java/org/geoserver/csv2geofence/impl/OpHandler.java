@@ -0,0 +1,19 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.csv2geofence.impl;
+
+import java.io.IOException;
+
+/**
+ * Receives the ops parsed by the file loaders, one line at a time,
+ * so that files do not need to be loaded in memory.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public interface OpHandler<T> {
+
+    void handle(T op) throws IOException;
+}
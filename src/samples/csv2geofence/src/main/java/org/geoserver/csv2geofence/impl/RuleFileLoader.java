@@ -8,10 +8,12 @@ package org.geoserver.csv2geofence.impl;
 import au.com.bytecode.opencsv.CSVReader;
 import org.geoserver.csv2geofence.config.model.RuleFileConfig;
 import org.geoserver.csv2geofence.config.model.internal.RuleOp;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -36,20 +38,74 @@ public class RuleFileLoader {
     }
 
     public List<RuleOp> load(File file) throws FileNotFoundException, IOException {
+        final List<RuleOp> ret = new LinkedList<RuleOp>();
+        load(file, new OpHandler<RuleOp>() {
+            @Override
+            public void handle(RuleOp op) {
+                ret.add(op);
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Parses the file line by line, passing each RuleOp to the handler.
+     */
+    public void load(File file, OpHandler<RuleOp> handler) throws FileNotFoundException, IOException {
+
+        CSVReader reader = createReader(file);
+        try {
+            parse(reader, handler);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Only reads the header line.
+     *
+     * @return the names of the groups in the configured columns
+     */
+    public List<String> loadGroupNames(File file) throws FileNotFoundException, IOException {
+
+        CSVReader reader = createReader(file);
+        try {
+            String[] headers = reader.readNext();
+            List<String> ret = new ArrayList<String>();
+            if(headers != null) {
+                for (RuleFileConfig.Group group : config.getGroups()) {
+                    ret.add(getGroupName(headers, group));
+                }
+            }
+            return ret;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private CSVReader createReader(File file) throws FileNotFoundException {
+        return new CSVReader(new BufferedReader(new FileReader(file)), config.getFieldSeparator().charAt(0));
+    }
+
+    private static String getGroupName(String[] headers, RuleFileConfig.Group group) {
+        int idx = group.getIndex() - 1; // indices are 1-based
+        if(headers.length <= idx)
+            throw new IndexOutOfBoundsException("Header has " + headers.length + " elements. "
+                    + "Group column expected at position " + (idx+1) );
+        return headers[idx];
+    }
 
-        CSVReader reader = new CSVReader(new FileReader(file), config.getFieldSeparator().charAt(0));
+    protected void parse(CSVReader reader, OpHandler<RuleOp> handler) throws IOException {
 
         // fetch layer names at given columns
         String[] headers = reader.readNext();
+        if(headers == null) {
+            return;
+        }
 //        groupNames = new ArrayList<String>();
 
         for (RuleFileConfig.Group group : config.getGroups()) {
-            int idx = group.getIndex() - 1; // indices are 1-based
-            if(headers.length <= idx)
-                throw new IndexOutOfBoundsException("Header has " + headers.length + " elements. "
-                        + "Group column expected at position " + (idx+1) );
-
-            String realName = headers[idx];
+            String realName = getGroupName(headers, group);
             LOGGER.debug(" Group name in rule file : '"+realName+"'");
 //            groupNames.add(realName);
         }
@@ -58,8 +114,6 @@ public class RuleFileLoader {
                 Pattern.compile(config.getValidLayernameRegEx()) :
                 null;
 
-        List<RuleOp> ret = new LinkedList<RuleOp>();
-
         String[] line;
         while ((line = reader.readNext()) != null) {
 
@@ -94,12 +148,10 @@ public class RuleFileLoader {
                     ruleOp.setGroupName(groupName);
                     ruleOp.setVerb(verb);
 
-                    ret.add(ruleOp);
+                    handler.handle(ruleOp);
 //                }
             }
         }
-
-        return ret;
     }
 
 }
@@ -0,0 +1,230 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.csv2geofence.impl;
+
+import org.geoserver.geofence.services.dto.RuleFilter;
+import org.geoserver.geofence.services.rest.RuleServiceHelper;
+import org.geoserver.geofence.services.rest.model.RESTOutputRule;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+
+/**
+ * Local index of the rules existing in GeoFence, used to find the rules replaced
+ * by the imported ones without querying GeoFence for each input rule.
+ * <P>
+ * Rules are indexed by group and layer; only the rules
+ * having no user, instance and workspace are indexed, since they are the only ones
+ * the importer may create.
+ * <BR>Rules are loaded either all at once, or only for the groups passed to {@link #preload(Collection) preload()}.
+ * In both cases the index is a snapshot taken in <TT>preload()</TT>, before any rule is sent, so it will not
+ * contain the rules inserted by the import itself.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class RuleIndex {
+
+    private final static Logger LOGGER = LogManager.getLogger(RuleIndex.class);
+
+    private static final Comparator<RESTOutputRule> PRIORITY_COMPARATOR = new Comparator<RESTOutputRule>() {
+        @Override
+        public int compare(RESTOutputRule r1, RESTOutputRule r2) {
+            long p1 = r1.getPriority() == null ? Long.MAX_VALUE : r1.getPriority();
+            long p2 = r2.getPriority() == null ? Long.MAX_VALUE : r2.getPriority();
+            return p1 < p2 ? -1 : (p1 == p2 ? 0 : 1);
+        }
+    };
+
+    private final RuleServiceHelper helper;
+    private final boolean byGroup;
+    private final int pageSize;
+
+    /** Indexed rules, by group and layer. */
+    private final ConcurrentMap<String, Map<String, List<RESTOutputRule>>> groups = new ConcurrentHashMap<String, Map<String, List<RESTOutputRule>>>();
+    private volatile boolean fullyLoaded = false;
+    /** In group mode, set once the snapshot of the requested groups has been loaded. */
+    private volatile boolean preloaded = false;
+
+    /**
+     * @param byGroup if true, only the rules of the requested groups are loaded; otherwise all rules are loaded at once
+     */
+    public RuleIndex(RuleServiceHelper helper, boolean byGroup, int pageSize) {
+        this.helper = helper;
+        this.byGroup = byGroup;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Loads the rules now: all of them, or only the ones of the given groups if the index is loaded by group.
+     * <BR>Must be called before any rule is sent. Groups not preloaded are then considered empty.
+     *
+     * @param groupNames the groups the imported rules may refer to
+     */
+    public void preload(Collection<String> groupNames) {
+        if( ! byGroup) {
+            loadAll();
+            return;
+        }
+        for (String group : groupNames) {
+            loadGroup(group);
+        }
+        preloaded = true;
+        LOGGER.info("Loaded rules for " + groupNames.size() + " groups");
+    }
+
+    /**
+     * @return the rules matching exactly the given fields; null fields only match rules with no value.
+     */
+    public List<RESTOutputRule> find(String group, String layer, String service, String request) {
+        Map<String, List<RESTOutputRule>> groupRules = getGroup(group);
+        synchronized(groupRules) {
+            List<RESTOutputRule> layerRules = groupRules.get(key(layer));
+            if(layerRules == null) {
+                return Collections.<RESTOutputRule>emptyList();
+            }
+            List<RESTOutputRule> ret = new ArrayList<RESTOutputRule>(1);
+            for (RESTOutputRule rule : layerRules) {
+                if(equals(service, rule.getService()) && equals(request, rule.getRequest())) {
+                    ret.add(rule);
+                }
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * @return all the rules of the given group and layer, sorted by priority.
+     */
+    public List<RESTOutputRule> findLayer(String group, String layer) {
+        Map<String, List<RESTOutputRule>> groupRules = getGroup(group);
+        List<RESTOutputRule> ret;
+        synchronized(groupRules) {
+            List<RESTOutputRule> layerRules = groupRules.get(key(layer));
+            if(layerRules == null) {
+                return Collections.<RESTOutputRule>emptyList();
+            }
+            ret = new ArrayList<RESTOutputRule>(layerRules);
+        }
+        Collections.sort(ret, PRIORITY_COMPARATOR);
+        return ret;
+    }
+
+    /**
+     * Removes a rule from the index, once a delete op has been created for it,
+     * so that the same rule will not be deleted twice.
+     */
+    public void remove(RESTOutputRule rule) {
+        Map<String, List<RESTOutputRule>> groupRules = getGroup(rule.getRolename());
+        synchronized(groupRules) {
+            List<RESTOutputRule> found = groupRules.get(key(rule.getLayer()));
+            if(found != null) {
+                for (int i = 0; i < found.size(); i++) {
+                    if(found.get(i).getId().equals(rule.getId())) {
+                        found.remove(i);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private Map<String, List<RESTOutputRule>> getGroup(String group) {
+        String groupKey = group == null ? "" : group;
+        Map<String, List<RESTOutputRule>> groupRules = groups.get(groupKey);
+        if(groupRules != null) {
+            return groupRules;
+        }
+
+        if( ! byGroup) {
+            loadAll();
+        } else if( ! preloaded) {
+            loadGroup(group);
+        }
+        // else: the group was not in the snapshot, so it had no rules
+
+        groupRules = groups.get(groupKey);
+        if(groupRules == null) { // no rules at all for this group
+            groups.putIfAbsent(groupKey, new HashMap<String, List<RESTOutputRule>>());
+            groupRules = groups.get(groupKey);
+        }
+        return groupRules;
+    }
+
+    private synchronized void loadGroup(String group) {
+        String groupKey = group == null ? "" : group;
+        if(groups.containsKey(groupKey)) {
+            return;
+        }
+        RuleFilter filter = new RuleFilter(RuleFilter.SpecialFilterType.ANY, false);
+        if(group == null) {
+            filter.setRole(RuleFilter.SpecialFilterType.DEFAULT);
+        } else {
+            filter.setRole(group);
+            filter.getRole().setIncludeDefault(false);
+        }
+        List<RESTOutputRule> rules = helper.getAll(filter, pageSize);
+        LOGGER.debug("Loaded " + rules.size() + " rules for group " + group);
+        Map<String, List<RESTOutputRule>> loaded = index(rules).get(groupKey);
+        // the group is published only once it's complete
+        groups.put(groupKey, loaded != null ? loaded : new HashMap<String, List<RESTOutputRule>>());
+    }
+
+    private synchronized void loadAll() {
+        if(fullyLoaded) {
+            return;
+        }
+        List<RESTOutputRule> rules = helper.getAll(null, pageSize);
+        LOGGER.info("Loaded " + rules.size() + " rules");
+        groups.putAll(index(rules));
+        fullyLoaded = true;
+    }
+
+    /**
+     * @return the indexable rules, by group and key
+     */
+    private static Map<String, Map<String, List<RESTOutputRule>>> index(List<RESTOutputRule> rules) {
+        Map<String, Map<String, List<RESTOutputRule>>> ret = new HashMap<String, Map<String, List<RESTOutputRule>>>();
+        int cnt = 0;
+        for (RESTOutputRule rule : rules) {
+            if(rule.getUsername() != null || rule.getInstance() != null || rule.getWorkspace() != null) {
+                continue;
+            }
+            String groupKey = rule.getRolename() == null ? "" : rule.getRolename();
+            Map<String, List<RESTOutputRule>> groupRules = ret.get(groupKey);
+            if(groupRules == null) {
+                groupRules = new HashMap<String, List<RESTOutputRule>>();
+                ret.put(groupKey, groupRules);
+            }
+            String key = key(rule.getLayer());
+            List<RESTOutputRule> list = groupRules.get(key);
+            if(list == null) {
+                list = new ArrayList<RESTOutputRule>();
+                groupRules.put(key, list);
+            }
+            list.add(rule);
+            cnt++;
+        }
+        LOGGER.debug("Indexed " + cnt + " rules");
+        return ret;
+    }
+
+    private static String key(String layer) {
+        return layer == null ? "" : layer;
+    }
+
+    private static boolean equals(String s1, String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+}
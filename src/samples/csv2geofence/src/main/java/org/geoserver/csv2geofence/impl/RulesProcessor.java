@@ -53,7 +53,7 @@ public class RulesProcessor {
      * @param ruleMapping
      * @return
      */
-    protected List<RESTBatchOperation> buildBatchOperation(RuleOp ruleOp, Map<String, String> availableGroups, RuleFileConfig ruleFileConfig) {
+    public List<RESTBatchOperation> buildBatchOperation(RuleOp ruleOp, Map<String, String> availableGroups, RuleFileConfig ruleFileConfig) {
 
         Map<String,List<RuleFileConfig.ServiceRequest>> ruleMapping = ruleFileConfig.getRuleMapping();
         int offsetFromBottom = ruleFileConfig.getOffsetFromBottom();
@@ -86,7 +86,7 @@ public class RulesProcessor {
                 restOp.setType(RESTBatchOperation.TypeName.insert);
 
                 RESTInputRule rule = new RESTInputRule();
-                rule.setGroupName(realGroupName);
+                rule.setRolename(realGroupName);
                 rule.setLayer(ruleOp.getLayerName());
                 rule.setService(serviceRequest.getService());
                 rule.setRequest(serviceRequest.getRequest());
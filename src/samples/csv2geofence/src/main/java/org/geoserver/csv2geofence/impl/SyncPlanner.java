@@ -0,0 +1,316 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.csv2geofence.impl;
+
+import org.geoserver.geofence.core.model.GSUser;
+import org.geoserver.geofence.core.model.UserGroup;
+import org.geoserver.geofence.services.rest.RESTUserService;
+import org.geoserver.geofence.services.rest.model.RESTBatchOperation;
+import org.geoserver.geofence.services.rest.model.RESTFullUserList;
+import org.geoserver.geofence.services.rest.model.RESTInputRule;
+import org.geoserver.geofence.services.rest.model.RESTInputUser;
+import org.geoserver.geofence.services.rest.model.RESTOutputRule;
+import org.geoserver.geofence.services.rest.model.util.IdName;
+import org.geoserver.geofence.services.rest.model.util.RESTBatchOperationFactory;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+
+/**
+ * Computes the operations needed to bring GeoFence to the state described by the input files.
+ * <P>
+ * The existing users and rules are loaded once; each desired user or rule op is then
+ * compared against the existing entity having the same natural key, and only the
+ * required insert, update and delete ops are returned:
+ * <UL>
+ * <LI>users are keyed by name; an user is updated only if its groups, full name or email differ;</LI>
+ * <LI>rules are compared by group and layer: the rules of a layer are replaced only if
+ * their service, request and grant, in priority order, differ from the requested ones.</LI>
+ * </UL>
+ * Entities not mentioned in the input files are left untouched.
+ * <P>
+ * Each change is also written to the optional report, so that a run without sending
+ * can be used as a dry run.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class SyncPlanner {
+
+    private final static Logger LOGGER = LogManager.getLogger(SyncPlanner.class);
+
+    private final Map<String, UserState> users;
+    private final RuleIndex ruleIndex;
+    private final Writer report;
+
+    /** group/layer slices already planned, used to detect duplicated input lines. */
+    private final Set<String> plannedSlices = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final AtomicInteger usersUnchanged = new AtomicInteger();
+    private final AtomicInteger usersInserted = new AtomicInteger();
+    private final AtomicInteger usersUpdated = new AtomicInteger();
+    private final AtomicInteger usersDeleted = new AtomicInteger();
+    private final AtomicInteger layersUnchanged = new AtomicInteger();
+    private final AtomicInteger layersReplaced = new AtomicInteger();
+    private final AtomicInteger rulesInserted = new AtomicInteger();
+    private final AtomicInteger rulesDeleted = new AtomicInteger();
+
+    /**
+     * @param users the existing users, by name, as returned by {@link #loadUsers(RESTUserService, int) loadUsers()}
+     * @param ruleIndex the existing rules
+     * @param report may be null
+     */
+    public SyncPlanner(Map<String, UserState> users, RuleIndex ruleIndex, Writer report) {
+        this.users = users;
+        this.ruleIndex = ruleIndex;
+        this.report = report;
+    }
+
+    /**
+     * Loads the existing users with their groups.
+     */
+    public static Map<String, UserState> loadUsers(RESTUserService service, int pageSize) {
+        Map<String, UserState> ret = new ConcurrentHashMap<String, UserState>();
+        for (int page = 0; ; page++) {
+            RESTFullUserList list = service.getFullList(null, page, pageSize);
+            for (GSUser user : list) {
+                Set<String> groups = new HashSet<String>();
+                if(user.getGroups() != null) {
+                    for (UserGroup group : user.getGroups()) {
+                        groups.add(group.getName().toUpperCase());
+                    }
+                }
+                ret.put(user.getName(), new UserState(user.getFullName(), user.getEmailAddress(), groups));
+            }
+            if(list.getUserList().size() < pageSize) {
+                break;
+            }
+        }
+        LOGGER.info("Loaded " + ret.size() + " users");
+        return ret;
+    }
+
+    /**
+     * @param desired a user op as built by the {@link UsersProcessor}
+     * @return the op needed to align the user, or null if the user is already aligned
+     */
+    public RESTBatchOperation planUser(RESTBatchOperation desired) throws IOException {
+        String name;
+        RESTInputUser payload = (RESTInputUser)desired.getPayload();
+        if(desired.getType() == RESTBatchOperation.TypeName.insert) {
+            name = payload.getName();
+        } else {
+            name = desired.getName();
+        }
+
+        // the same user may be found in more than one file
+        synchronized(users) {
+            UserState existing = users.get(name);
+
+            if(desired.getType() == RESTBatchOperation.TypeName.delete) {
+                if(existing == null) {
+                    usersUnchanged.incrementAndGet();
+                    return null;
+                }
+                users.remove(name);
+                usersDeleted.incrementAndGet();
+                report("DELETE user " + name);
+                return desired;
+            }
+
+            Set<String> groups = toUpperNames(payload.getGroups());
+
+            if(existing == null) {
+                RESTInputUser user = payload;
+                if(desired.getType() != RESTBatchOperation.TypeName.insert) {
+                    // updating a missing user: insert it
+                    user = new RESTInputUser();
+                    user.setName(name);
+                    user.setEnabled(true);
+                    user.setGroups(payload.getGroups());
+                }
+                users.put(name, new UserState(user.getFullName(), user.getEmailAddress(), groups));
+                usersInserted.incrementAndGet();
+                report("INSERT user " + name + " groups " + groups);
+                RESTBatchOperation op = RESTBatchOperationFactory.createUserInputOp();
+                op.setPayload(user);
+                return op;
+            }
+
+            RESTInputUser update = new RESTInputUser();
+            StringBuilder changes = new StringBuilder();
+            if(payload.getGroups() != null && ! groups.equals(existing.groups)) {
+                update.setGroups(payload.getGroups());
+                changes.append(" groups ").append(existing.groups).append(" -> ").append(groups);
+            }
+            if(payload.getFullName() != null && ! payload.getFullName().equals(existing.fullName)) {
+                update.setFullName(payload.getFullName());
+                changes.append(" fullName");
+            }
+            if(payload.getEmailAddress() != null && ! payload.getEmailAddress().equals(existing.emailAddress)) {
+                update.setEmailAddress(payload.getEmailAddress());
+                changes.append(" email");
+            }
+
+            if(changes.length() == 0) {
+                usersUnchanged.incrementAndGet();
+                return null;
+            }
+
+            users.put(name, new UserState(
+                    update.getFullName() != null ? update.getFullName() : existing.fullName,
+                    update.getEmailAddress() != null ? update.getEmailAddress() : existing.emailAddress,
+                    update.getGroups() != null ? groups : existing.groups));
+            usersUpdated.incrementAndGet();
+            report("UPDATE user " + name + changes);
+
+            RESTBatchOperation op = RESTBatchOperationFactory.createUserUpdateOp(name);
+            op.setPayload(update);
+            return op;
+        }
+    }
+
+    /**
+     * @param group the real name of the group
+     * @param desired the ops built by the {@link RulesProcessor} for a rule file line
+     * @return the ops needed to align the rules of the layer: either no rule ops at all,
+     *  or the deletion of the existing rules followed by the insertion of the desired ones
+     */
+    public List<RESTBatchOperation> planRules(String group, String layer, List<RESTBatchOperation> desired) throws IOException {
+        List<RESTBatchOperation> otherOps = new ArrayList<RESTBatchOperation>();
+        List<RESTBatchOperation> ruleOps = new ArrayList<RESTBatchOperation>();
+        for (RESTBatchOperation op : desired) {
+            if(op.getService() == RESTBatchOperation.ServiceName.rules) {
+                ruleOps.add(op);
+            } else {
+                otherOps.add(op);
+            }
+        }
+
+        if( ! plannedSlices.add(group + '\u0000' + layer)) {
+            LOGGER.warn("Rules for group:" + group + " layer:" + layer + " are defined more than once: results may be unexpected");
+        }
+
+        List<RESTOutputRule> existing = ruleIndex.findLayer(group, layer);
+        if(sameRules(existing, ruleOps)) {
+            layersUnchanged.incrementAndGet();
+            return otherOps;
+        }
+
+        List<RESTBatchOperation> ret = new ArrayList<RESTBatchOperation>(otherOps.size() + existing.size() + ruleOps.size());
+        ret.addAll(otherOps);
+        for (RESTOutputRule rule : existing) {
+            ret.add(RESTBatchOperationFactory.createDeleteRuleOp(rule.getId()));
+            ruleIndex.remove(rule);
+        }
+        ret.addAll(ruleOps);
+
+        layersReplaced.incrementAndGet();
+        rulesDeleted.addAndGet(existing.size());
+        rulesInserted.addAndGet(ruleOps.size());
+        report("REPLACE rules group:" + group + " layer:" + layer + " " + describe(existing) + " -> " + describeInput(ruleOps));
+        return ret;
+    }
+
+    /**
+     * Compares the existing rules, sorted by priority, with the rules to be inserted, in insertion order.
+     */
+    private static boolean sameRules(List<RESTOutputRule> existing, List<RESTBatchOperation> ruleOps) {
+        if(existing.size() != ruleOps.size()) {
+            return false;
+        }
+        for (int i = 0; i < existing.size(); i++) {
+            RESTOutputRule old = existing.get(i);
+            RESTInputRule rule = (RESTInputRule)ruleOps.get(i).getPayload();
+            if(old.getIpaddress() != null || old.getConstraints() != null
+                    || ! equals(old.getService(), rule.getService())
+                    || ! equals(old.getRequest(), rule.getRequest())
+                    || old.getGrant() != rule.getGrant()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String describe(List<RESTOutputRule> rules) {
+        StringBuilder sb = new StringBuilder("[");
+        for (RESTOutputRule rule : rules) {
+            if(sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(rule.getService()).append(':').append(rule.getRequest()).append(':').append(rule.getGrant());
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String describeInput(List<RESTBatchOperation> ops) {
+        StringBuilder sb = new StringBuilder("[");
+        for (RESTBatchOperation op : ops) {
+            RESTInputRule rule = (RESTInputRule)op.getPayload();
+            if(sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(rule.getService()).append(':').append(rule.getRequest()).append(':').append(rule.getGrant());
+        }
+        return sb.append(']').toString();
+    }
+
+    private static Set<String> toUpperNames(List<IdName> groups) {
+        Set<String> ret = new HashSet<String>();
+        if(groups != null) {
+            for (IdName group : groups) {
+                ret.add(group.getName().toUpperCase());
+            }
+        }
+        return ret;
+    }
+
+    private static boolean equals(String s1, String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
+    private void report(String line) throws IOException {
+        LOGGER.debug(line);
+        if(report != null) {
+            synchronized(report) {
+                report.write(line);
+                report.write('\n');
+            }
+        }
+    }
+
+    public String getSummary() {
+        return "users: " + usersInserted + " inserted, " + usersUpdated + " updated, " + usersDeleted + " deleted, "
+                + usersUnchanged + " unchanged; "
+                + "layers: " + layersReplaced + " replaced (" + rulesDeleted + " rules deleted, " + rulesInserted + " inserted), "
+                + layersUnchanged + " unchanged";
+    }
+
+    /**
+     * The fields of an existing user which may be changed by the import.
+     */
+    public static class UserState {
+        final String fullName;
+        final String emailAddress;
+        /** uppercase group names */
+        final Set<String> groups;
+
+        public UserState(String fullName, String emailAddress, Set<String> groups) {
+            this.fullName = fullName;
+            this.emailAddress = emailAddress;
+            this.groups = groups;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import au.com.bytecode.opencsv.CSVReader;
 import org.geoserver.csv2geofence.config.model.UserFileConfig;
 import org.geoserver.csv2geofence.config.model.internal.OperationType;
 import org.geoserver.csv2geofence.config.model.internal.UserOp;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
@@ -42,8 +43,30 @@ public class UserFileLoader {
     }
 
     public List<UserOp> load(File file) throws FileNotFoundException, IOException {
+        final List<UserOp> ret = new LinkedList<UserOp>();
+        load(file, new OpHandler<UserOp>() {
+            @Override
+            public void handle(UserOp op) {
+                ret.add(op);
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Parses the file line by line, passing each UserOp to the handler.
+     */
+    public void load(File file, OpHandler<UserOp> handler) throws FileNotFoundException, IOException {
+
+        CSVReader reader = new CSVReader(new BufferedReader(new FileReader(file)), config.getFieldSeparator(), config.getStringSeparator());
+        try {
+            parse(reader, handler);
+        } finally {
+            reader.close();
+        }
+    }
 
-        CSVReader reader = new CSVReader(new FileReader(file), config.getFieldSeparator(), config.getStringSeparator());
+    protected void parse(CSVReader reader, OpHandler<UserOp> handler) throws IOException {
 
         String[] line;
 
@@ -53,8 +76,6 @@ public class UserFileLoader {
         Pattern namePattern = Pattern.compile(config.getValidUsernameRegEx());
         Pattern groupPattern = Pattern.compile(config.getValidGroupRegEx());
 
-        List<UserOp> ret = new LinkedList<UserOp>();
-
         while ((line = reader.readNext()) != null) {
 
             UserOp userOp = new UserOp();
@@ -112,10 +133,8 @@ public class UserFileLoader {
 
 //            LOGGER.info(op +" user " + username + " in groups " + groups);
             LOGGER.debug(userOp.toString());
-            ret.add(userOp);
+            handler.handle(userOp);
         }
-
-        return ret;
     }
 
     protected OperationType parseOperationType(String s) {
@@ -37,7 +37,7 @@ public class UsersProcessor {
         return ret;
     }
 
-    protected RESTBatchOperation buildBatchOperation(UserOp userOp, Map<String, String> availableGroups) {
+    public RESTBatchOperation buildBatchOperation(UserOp userOp, Map<String, String> availableGroups) {
 
         RESTBatchOperation restOp = new RESTBatchOperation();
         restOp.setService(RESTBatchOperation.ServiceName.users);
@@ -0,0 +1,39 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.csv2geofence;
+
+import org.geoserver.csv2geofence.impl.BatchXmlWriter;
+import org.geoserver.geofence.services.rest.model.RESTBatch;
+import org.geoserver.geofence.services.rest.model.RESTBatchOperation;
+import org.geoserver.geofence.services.rest.model.util.RESTBatchOperationFactory;
+import java.io.File;
+import java.util.Arrays;
+import javax.xml.bind.JAXB;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class BatchXmlWriterTest extends BaseTest {
+
+    @Test
+    public void testWriteChunks() throws Exception {
+        File out = new File(getTempDir(), "batch.xml");
+
+        BatchXmlWriter writer = new BatchXmlWriter(out);
+        writer.write(Arrays.asList(RESTBatchOperationFactory.createGroupInputOp("g1")));
+        writer.write(Arrays.asList(RESTBatchOperationFactory.createGroupInputOp("g2"),
+                RESTBatchOperationFactory.createDeleteRuleOp(42L)));
+        writer.close();
+
+        RESTBatch batch = JAXB.unmarshal(out, RESTBatch.class);
+        assertEquals(3, batch.getList().size());
+        assertEquals(RESTBatchOperation.ServiceName.groups, batch.getList().get(0).getService());
+        assertEquals(RESTBatchOperation.ServiceName.rules, batch.getList().get(2).getService());
+    }
+}
@@ -0,0 +1,120 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.csv2geofence;
+
+import org.geoserver.csv2geofence.impl.RuleIndex;
+import org.geoserver.geofence.services.rest.RESTRuleService;
+import org.geoserver.geofence.services.rest.RuleServiceHelper;
+import org.geoserver.geofence.services.rest.model.RESTOutputRule;
+import org.geoserver.geofence.services.rest.model.RESTOutputRuleList;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class RuleIndexTest extends BaseTest {
+
+    private int requests = 0;
+
+    @Test
+    public void testFullIndex() {
+        List<RESTOutputRule> rules = new ArrayList<RESTOutputRule>();
+        for (int i = 0; i < 25; i++) {
+            rules.add(createRule(i, "g" + (i % 5), "layer" + i, "WMS", null));
+        }
+        rules.add(createRule(100, "g1", "layer1", "WFS", "Transaction"));
+        RESTOutputRule userRule = createRule(101, "g1", "layer2", "WMS", null);
+        userRule.setUsername("someone"); // not indexed
+        rules.add(userRule);
+
+        RuleIndex index = new RuleIndex(new RuleServiceHelper(createService(rules)), false, 10);
+        index.preload(Collections.<String>emptyList());
+        assertEquals("Rules should be loaded in pages", 3, requests);
+
+        assertEquals(1, index.find("g1", "layer1", "WMS", null).size());
+        assertEquals(100L, index.find("g1", "layer1", "WFS", "Transaction").get(0).getId().longValue());
+        assertTrue(index.find("g1", "layer1", "WFS", null).isEmpty());
+        assertTrue(index.find("g2", "layer1", "WMS", null).isEmpty());
+        assertEquals(1, index.find("g2", "layer2", "WMS", null).size());
+        assertTrue(index.find("unknown", "layer2", "WMS", null).isEmpty());
+        assertEquals("No further requests expected", 3, requests);
+
+        RESTOutputRule found = index.find("g1", "layer1", "WMS", null).get(0);
+        index.remove(found);
+        assertTrue(index.find("g1", "layer1", "WMS", null).isEmpty());
+    }
+
+    @Test
+    public void testGroupIndex() {
+        final List<RESTOutputRule> rules = new ArrayList<RESTOutputRule>();
+        for (int i = 0; i < 25; i++) {
+            rules.add(createRule(i, "g" + (i % 5), "layer" + i, "WMS", null));
+        }
+
+        RuleIndex index = new RuleIndex(new RuleServiceHelper(createService(rules)), true, 10);
+        index.preload(Arrays.asList("g1", "g2"));
+        assertEquals("One page per group expected", 2, requests);
+
+        // rules inserted after the snapshot must not be seen
+        rules.add(createRule(100, "g1", "layer100", "WMS", null));
+        rules.add(createRule(101, "g3", "layer3", "WFS", null));
+
+        assertEquals(1, index.find("g1", "layer1", "WMS", null).size());
+        assertEquals(1, index.find("g2", "layer2", "WMS", null).size());
+        assertTrue(index.find("g1", "layer100", "WMS", null).isEmpty());
+
+        // groups not preloaded are not loaded lazily, and are considered empty
+        assertTrue(index.find("g3", "layer3", "WMS", null).isEmpty());
+        assertTrue(index.find("g3", "layer3", "WFS", null).isEmpty());
+        assertEquals("No further requests expected", 2, requests);
+    }
+
+    private RESTRuleService createService(final List<RESTOutputRule> rules) {
+        return (RESTRuleService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{RESTRuleService.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if( ! "get".equals(method.getName()) || args.length < 3) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        requests++;
+                        int page = (Integer)args[0];
+                        int entries = (Integer)args[1];
+                        String group = (String)args[5];
+                        List<RESTOutputRule> found = new ArrayList<RESTOutputRule>();
+                        for (RESTOutputRule rule : rules) {
+                            if(group == null || group.equals(rule.getRolename())) {
+                                found.add(rule);
+                            }
+                        }
+                        RESTOutputRuleList ret = new RESTOutputRuleList(entries);
+                        for (int i = page * entries; i < Math.min(found.size(), (page+1) * entries); i++) {
+                            ret.add(found.get(i));
+                        }
+                        return ret;
+                    }
+                });
+    }
+
+    private static RESTOutputRule createRule(long id, String group, String layer, String service, String request) {
+        RESTOutputRule rule = new RESTOutputRule();
+        rule.setId(id);
+        rule.setRolename(group);
+        rule.setLayer(layer);
+        rule.setService(service);
+        rule.setRequest(request);
+        return rule;
+    }
+}
@@ -0,0 +1,53 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.csv2geofence;
+
+import org.geoserver.csv2geofence.config.model.Configuration;
+import org.geoserver.csv2geofence.config.model.internal.RuleOp;
+import org.geoserver.csv2geofence.impl.OpHandler;
+import org.geoserver.csv2geofence.impl.RuleFileLoader;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.bind.JAXB;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class RuleLoaderTest extends BaseTest {
+
+    @Test
+    public void testLoadGroupNames() throws Exception {
+        Configuration cfg = JAXB.unmarshal(loadFile("config00.xml"), Configuration.class);
+        RuleFileLoader loader = new RuleFileLoader(cfg.getRuleFileConfig());
+
+        List<String> groups = loader.loadGroupNames(loadFile("rules.csv"));
+        assertEquals(7, groups.size());
+        assertEquals("DataAdminGITeam", groups.get(1));
+    }
+
+    @Test
+    public void testStreamingLoad() throws Exception {
+        Configuration cfg = JAXB.unmarshal(loadFile("config00.xml"), Configuration.class);
+        RuleFileLoader loader = new RuleFileLoader(cfg.getRuleFileConfig());
+        File ruleFile = loadFile("rules.csv");
+
+        final AtomicInteger cnt = new AtomicInteger();
+        loader.load(ruleFile, new OpHandler<RuleOp>() {
+            @Override
+            public void handle(RuleOp op) {
+                assertNotNull(op.getLayerName());
+                cnt.incrementAndGet();
+            }
+        });
+
+        assertTrue(cnt.get() > 0);
+        assertEquals(cnt.get(), loader.load(ruleFile).size());
+    }
+}
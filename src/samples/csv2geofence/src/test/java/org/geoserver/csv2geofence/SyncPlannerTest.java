@@ -0,0 +1,175 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.csv2geofence;
+
+import org.geoserver.csv2geofence.impl.RuleIndex;
+import org.geoserver.csv2geofence.impl.SyncPlanner;
+import org.geoserver.geofence.core.model.enums.GrantType;
+import org.geoserver.geofence.services.rest.RESTRuleService;
+import org.geoserver.geofence.services.rest.RuleServiceHelper;
+import org.geoserver.geofence.services.rest.model.RESTBatchOperation;
+import org.geoserver.geofence.services.rest.model.RESTInputRule;
+import org.geoserver.geofence.services.rest.model.RESTInputUser;
+import org.geoserver.geofence.services.rest.model.RESTOutputRule;
+import org.geoserver.geofence.services.rest.model.RESTOutputRuleList;
+import org.geoserver.geofence.services.rest.model.util.IdName;
+import org.geoserver.geofence.services.rest.model.util.RESTBatchOperationFactory;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class SyncPlannerTest extends BaseTest {
+
+    @Test
+    public void testUsers() throws Exception {
+        Map<String, SyncPlanner.UserState> users = new ConcurrentHashMap<String, SyncPlanner.UserState>();
+        users.put("u1", new SyncPlanner.UserState("User 1", null, new HashSet<String>(Arrays.asList("G1", "G2"))));
+        users.put("u2", new SyncPlanner.UserState("User 2", null, new HashSet<String>(Arrays.asList("G1"))));
+
+        StringWriter report = new StringWriter();
+        SyncPlanner planner = new SyncPlanner(users, createIndex(new ArrayList<RESTOutputRule>()), report);
+
+        // same groups, different case
+        assertNull(planner.planUser(createUserUpdate("u1", "g2", "g1")));
+
+        RESTBatchOperation op = planner.planUser(createUserInsert("u2", "g1", "g3"));
+        assertEquals(RESTBatchOperation.TypeName.update, op.getType());
+        assertEquals("u2", op.getName());
+        assertEquals(2, ((RESTInputUser)op.getPayload()).getGroups().size());
+        // now aligned
+        assertNull(planner.planUser(createUserUpdate("u2", "g1", "g3")));
+
+        op = planner.planUser(createUserUpdate("u3", "g1"));
+        assertEquals(RESTBatchOperation.TypeName.insert, op.getType());
+        assertEquals("u3", ((RESTInputUser)op.getPayload()).getName());
+
+        assertNull(planner.planUser(createUserDelete("u4")));
+        assertEquals(RESTBatchOperation.TypeName.delete, planner.planUser(createUserDelete("u1")).getType());
+        assertNull(planner.planUser(createUserDelete("u1")));
+
+        assertEquals(3, report.toString().split("\n").length);
+    }
+
+    @Test
+    public void testRules() throws Exception {
+        List<RESTOutputRule> rules = new ArrayList<RESTOutputRule>();
+        rules.add(createRule(1, 20, "g1", "l1", "WFS", GrantType.DENY));
+        rules.add(createRule(2, 10, "g1", "l1", "WMS", GrantType.ALLOW));
+        rules.add(createRule(3, 30, "g1", "l2", "WMS", GrantType.ALLOW));
+
+        SyncPlanner planner = new SyncPlanner(new ConcurrentHashMap<String, SyncPlanner.UserState>(), createIndex(rules), null);
+
+        // same rules, in priority order
+        List<RESTBatchOperation> ops = planner.planRules("g1", "l1", Arrays.asList(
+                createRuleInsert("g1", "l1", "WMS", GrantType.ALLOW),
+                createRuleInsert("g1", "l1", "WFS", GrantType.DENY)));
+        assertTrue(ops.isEmpty());
+
+        // different grant
+        ops = planner.planRules("g1", "l2", Arrays.asList(
+                createRuleInsert("g1", "l2", "WMS", GrantType.DENY)));
+        assertEquals(2, ops.size());
+        assertEquals(RESTBatchOperation.TypeName.delete, ops.get(0).getType());
+        assertEquals(3L, ops.get(0).getId().longValue());
+        assertEquals(RESTBatchOperation.TypeName.insert, ops.get(1).getType());
+
+        // new layer, group op is kept
+        ops = planner.planRules("g2", "l1", Arrays.asList(
+                RESTBatchOperationFactory.createGroupInputOp("g2"),
+                createRuleInsert("g2", "l1", "WMS", GrantType.ALLOW)));
+        assertEquals(2, ops.size());
+        assertEquals(RESTBatchOperation.ServiceName.groups, ops.get(0).getService());
+    }
+
+    private RuleIndex createIndex(final List<RESTOutputRule> rules) {
+        RESTRuleService service = (RESTRuleService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{RESTRuleService.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        int page = (Integer)args[0];
+                        RESTOutputRuleList ret = new RESTOutputRuleList(rules.size());
+                        if(page == 0) {
+                            for (RESTOutputRule rule : rules) {
+                                ret.add(rule);
+                            }
+                        }
+                        return ret;
+                    }
+                });
+        RuleIndex index = new RuleIndex(new RuleServiceHelper(service), false, 100);
+        index.preload(Collections.<String>emptyList());
+        return index;
+    }
+
+    private static RESTBatchOperation createUserInsert(String name, String... groups) {
+        RESTInputUser user = new RESTInputUser();
+        user.setName(name);
+        user.setGroups(toIdNames(groups));
+        RESTBatchOperation op = RESTBatchOperationFactory.createUserInputOp();
+        op.setPayload(user);
+        return op;
+    }
+
+    private static RESTBatchOperation createUserUpdate(String name, String... groups) {
+        RESTInputUser user = new RESTInputUser();
+        user.setGroups(toIdNames(groups));
+        RESTBatchOperation op = RESTBatchOperationFactory.createUserUpdateOp(name);
+        op.setPayload(user);
+        return op;
+    }
+
+    private static RESTBatchOperation createUserDelete(String name) {
+        RESTBatchOperation op = new RESTBatchOperation();
+        op.setService(RESTBatchOperation.ServiceName.users);
+        op.setType(RESTBatchOperation.TypeName.delete);
+        op.setName(name);
+        return op;
+    }
+
+    private static List<IdName> toIdNames(String... names) {
+        List<IdName> ret = new ArrayList<IdName>();
+        for (String name : names) {
+            ret.add(new IdName(name));
+        }
+        return ret;
+    }
+
+    private static RESTBatchOperation createRuleInsert(String group, String layer, String service, GrantType grant) {
+        RESTInputRule rule = new RESTInputRule();
+        rule.setRolename(group);
+        rule.setLayer(layer);
+        rule.setService(service);
+        rule.setGrant(grant);
+        RESTBatchOperation op = RESTBatchOperationFactory.createRuleInputOp();
+        op.setPayload(rule);
+        return op;
+    }
+
+    private static RESTOutputRule createRule(long id, long priority, String group, String layer, String service, GrantType grant) {
+        RESTOutputRule rule = new RESTOutputRule();
+        rule.setId(id);
+        rule.setPriority(priority);
+        rule.setRolename(group);
+        rule.setLayer(layer);
+        rule.setService(service);
+        rule.setGrant(grant);
+        return rule;
+    }
+}
@@ -0,0 +1,118 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.core.model;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import org.hibernate.annotations.Index;
+
+/**
+ * Records a change in the configuration, so that other GeoFence nodes
+ * sharing the same DB can invalidate their caches.
+ * <P>
+ * Entries are only meaningful for a short time, and can be purged
+ * after all the nodes have read them.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+@Entity(name = "ChangeLogEntry")
+@Table(name = "gf_change_log")
+public class ChangeLogEntry implements Serializable {
+
+    private static final long serialVersionUID = 4511207146371452206L;
+
+    @Id
+    @GeneratedValue
+    @Column
+    private Long id;
+
+    /** The kind of the changed entities (e.g. RULE, USER). */
+    @Column(name = "entity_type", nullable = false)
+    private String entityType;
+
+    /** Id of the changed entity, null if not known or if more entities were changed. */
+    @Column(name = "entity_id", nullable = true)
+    private Long entityId;
+
+    /** The node where the change happened. */
+    @Column(nullable = false)
+    private String node;
+
+    @Column(nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    @Index(name = "idx_changelog_time")
+    private Date timestamp;
+
+    public ChangeLogEntry() {
+    }
+
+    public ChangeLogEntry(String entityType, Long entityId, String node, Date timestamp) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.node = node;
+        this.timestamp = timestamp;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public void setNode(String node) {
+        this.node = node;
+    }
+
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Date timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+                + "[id:" + id
+                + " type:" + entityType
+                + (entityId == null ? "" : " eid:" + entityId)
+                + " node:" + node
+                + " ts:" + timestamp
+                + ']';
+    }
+}
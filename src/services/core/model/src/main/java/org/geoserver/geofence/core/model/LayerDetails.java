@@ -84,8 +84,10 @@ public class LayerDetails implements Serializable {
     @ForeignKey(name="fk_details_rule")
     private Rule rule;
 
-    /** Styles allowed for this layer */
-    @org.hibernate.annotations.CollectionOfElements(fetch=FetchType.EAGER)
+    /** Styles allowed for this layer.
+     * <P>Lazily loaded: DAOs will initialize it when returning full LayerDetails.
+     */
+    @org.hibernate.annotations.CollectionOfElements(fetch=FetchType.LAZY)
     @JoinTable( name = "gf_layer_styles", joinColumns = @JoinColumn(name = "details_id"))
     @ForeignKey(name="fk_styles_layer")
     @Column(name="styleName")
@@ -94,8 +96,9 @@ public class LayerDetails implements Serializable {
     /** Feature Attributes associated to the Layer
      * <P>We'll use the pair <TT>(details_id, name)</TT> as PK for the associated table.
      * To do so, we have to perform some trick on the <TT>{@link LayerAttribute#access}</TT> field.
+     * <P>Lazily loaded: DAOs will initialize it when returning full LayerDetails.
      */
-    @org.hibernate.annotations.CollectionOfElements(fetch=FetchType.EAGER)
+    @org.hibernate.annotations.CollectionOfElements(fetch=FetchType.LAZY)
     @JoinTable( name = "gf_layer_attributes",  joinColumns = @JoinColumn(name = "details_id"),  uniqueConstraints = @UniqueConstraint(columnNames={"details_id", "name"}))
     // override is used to set the pk as {"details_id", "name"}
 //    @AttributeOverride( name="access", column=@Column(name="access", nullable=false) )
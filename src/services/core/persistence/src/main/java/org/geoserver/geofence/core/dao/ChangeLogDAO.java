@@ -0,0 +1,32 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.core.dao;
+
+import java.util.Date;
+import java.util.List;
+
+import org.geoserver.geofence.core.model.ChangeLogEntry;
+
+/**
+ * Public interface to define operations on ChangeLogEntry
+ *
+ * @author Emanuele Tajariol (etj at geo-solutions.it)
+ */
+
+public interface ChangeLogDAO extends RestrictedGenericDAO<ChangeLogEntry> {
+
+    /**
+     * @return the entries created at or after the given time, sorted by id.
+     */
+    List<ChangeLogEntry> findSince(Date since);
+
+    /**
+     * Removes the entries older than the given time.
+     *
+     * @return the number of removed entries
+     */
+    int purgeBefore(Date before);
+}
@@ -5,6 +5,10 @@
 
 package org.geoserver.geofence.core.dao;
 
+import java.util.Map;
+
+import com.vividsolutions.jts.geom.MultiPolygon;
+
 import org.geoserver.geofence.core.model.LayerDetails;
 
 /**
@@ -16,4 +20,12 @@ import org.geoserver.geofence.core.model.LayerDetails;
 public interface LayerDetailsDAO 
         extends RestrictedGenericDAO<LayerDetails>,
                 AllowedStylesProvider{
+
+    /**
+     * Only reads the id and the area of the LayerDetails, without loading the
+     * other fields and the styles and attributes collections.
+     *
+     * @return the areas of the LayerDetails which have one, by LayerDetails (i.e. Rule) id.
+     */
+    Map<Long, MultiPolygon> getAreas();
 }
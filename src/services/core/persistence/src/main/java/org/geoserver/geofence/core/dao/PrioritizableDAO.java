@@ -5,6 +5,11 @@
 
 package org.geoserver.geofence.core.dao;
 
+import java.util.List;
+
+import com.googlecode.genericdao.search.ISearch;
+
+import org.geoserver.geofence.core.dao.util.MatchingQuery;
 import org.geoserver.geofence.core.model.Prioritizable;
 import org.geoserver.geofence.core.model.enums.InsertPosition;
 
@@ -32,4 +37,13 @@ public interface PrioritizableDAO<T extends Prioritizable> extends RestrictedGen
      */
     void swap(long id1, long id2);
 
+    /**
+     * Returns the entities matching the given query, sorted by priority.
+     * <P>
+     * The JPQL statement is cached by the query {@link MatchingQuery#getShape() shape},
+     * so this method should be preferred to {@link #search(ISearch) search()}
+     * in the hot paths where the same kind of query is run over and over.
+     */
+    List<T> searchMatching(MatchingQuery query);
+
 }
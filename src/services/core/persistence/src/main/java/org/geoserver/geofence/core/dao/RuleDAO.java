@@ -5,6 +5,10 @@
 
 package org.geoserver.geofence.core.dao;
 
+import java.util.List;
+
+import com.googlecode.genericdao.search.ISearch;
+
 import org.geoserver.geofence.core.model.Rule;
 import org.geoserver.geofence.core.model.enums.InsertPosition;
 
@@ -17,4 +21,19 @@ import org.geoserver.geofence.core.model.enums.InsertPosition;
 public interface RuleDAO extends PrioritizableDAO<Rule> {
 
     long persist(Rule entity, InsertPosition position);
+
+    /**
+     * Searches Rules fetching their {@link org.geoserver.geofence.core.model.RuleLimits RuleLimits}
+     * and {@link org.geoserver.geofence.core.model.LayerDetails LayerDetails} in the same query.
+     * <P>
+     * Collections in the LayerDetails (allowed styles and attributes) are <B>not</B>
+     * initialized, so this plan is meant for the rule evaluation and for the rule listings,
+     * where only the rules fields, the limits and the details' plain fields are needed.
+     * <BR>Full LayerDetails for a given Rule can then be loaded by
+     * {@link LayerDetailsDAO#find(Long) LayerDetailsDAO.find(ruleId)}.
+     * <P>
+     * Regular {@link #search(ISearch) search()}, {@link #find(Long) find()} and
+     * {@link #findAll() findAll()} will return fully initialized LayerDetails.
+     */
+    List<Rule> searchShallow(ISearch search);
 }
@@ -0,0 +1,188 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.core.dao.datasource;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.sql.DataSource;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes read-only transactions to a replica DataSource, and everything else to the primary one.
+ * <P>
+ * Replicas may lag behind the primary DB, so a session that has just committed a write
+ * will keep on reading from the primary for {@link #setStickyPrimaryMillis(long) stickyPrimaryMillis}.
+ * <BR>The session is identified by the key set in {@link #setSessionKey(String)}, which in the
+ * webapps is bound to each request by <TT>DataSourceSessionFilter</TT>; threads not bound to any
+ * session (e.g. background tasks) all share the same anonymous session.
+ * <BR>The write times of the sessions no longer sticky are swept on writes, at most once per
+ * sticky interval, so that sessions which write and never come back are not kept forever.
+ * <P>
+ * The routing decision is taken when the connection is requested, so this DataSource
+ * should be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy LazyConnectionDataSourceProxy},
+ * in order to have the transaction read-only flag set when the connection is actually fetched.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger LOGGER = LogManager.getLogger(ReadWriteRoutingDataSource.class);
+
+    private enum Route { PRIMARY, REPLICA }
+
+    private static final String NO_SESSION = "";
+
+    private static final ThreadLocal<String> SESSION_KEY = new ThreadLocal<>();
+
+    private DataSource primaryDataSource;
+    private DataSource replicaDataSource;
+    private boolean replicaEnabled = false;
+    private long stickyPrimaryMillis = 5000;
+
+    /** Last write time per session. */
+    private final ConcurrentMap<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private volatile long lastSweep;
+
+    @Override
+    public void afterPropertiesSet() {
+        if(primaryDataSource == null) {
+            throw new IllegalArgumentException("Primary DataSource is not set");
+        }
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primaryDataSource);
+        if(replicaEnabled && replicaDataSource != null) {
+            targets.put(Route.REPLICA, replicaDataSource);
+        } else {
+            replicaEnabled = false;
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primaryDataSource);
+        setLenientFallback(false);
+
+        LOGGER.info("Read replica is " + (replicaEnabled ? "enabled" : "disabled"));
+        super.afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if( ! TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if(TransactionSynchronizationManager.isSynchronizationActive()) {
+                final String session = currentSession();
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        if(replicaEnabled) {
+                            recordWrite(session);
+                        }
+                    }
+                });
+            }
+            return Route.PRIMARY;
+        }
+
+        if( ! replicaEnabled) {
+            return Route.PRIMARY;
+        }
+
+        if(isRecentWriter(currentSession())) {
+            if(LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Recent write in session, reading from primary");
+            }
+            return Route.PRIMARY;
+        }
+
+        return Route.REPLICA;
+    }
+
+    private void recordWrite(String session) {
+        long now = now();
+        lastWrites.put(session, now);
+
+        if(now - lastSweep >= stickyPrimaryMillis) {
+            lastSweep = now;
+            for (Map.Entry<String, Long> entry : lastWrites.entrySet()) {
+                if(now - entry.getValue() >= stickyPrimaryMillis) {
+                    lastWrites.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private boolean isRecentWriter(String session) {
+        Long last = lastWrites.get(session);
+        if(last == null) {
+            return false;
+        }
+        if(now() - last < stickyPrimaryMillis) {
+            return true;
+        }
+        lastWrites.remove(session, last);
+        return false;
+    }
+
+    /**
+     * @return the number of sessions whose last write time is still tracked.
+     */
+    int getTrackedSessions() {
+        return lastWrites.size();
+    }
+
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+
+    private static String currentSession() {
+        String key = SESSION_KEY.get();
+        return key == null ? NO_SESSION : key;
+    }
+
+    /**
+     * Binds the current thread to a session (e.g. the authenticated user, or the http session id).
+     * <BR>Writes committed in a session only affect the routing of the reads in the same session.
+     */
+    public static void setSessionKey(String key) {
+        SESSION_KEY.set(key);
+    }
+
+    /**
+     * Unbinds the current thread from its session.
+     */
+    public static void clearSessionKey() {
+        SESSION_KEY.remove();
+    }
+
+    public void setPrimaryDataSource(DataSource primaryDataSource) {
+        this.primaryDataSource = primaryDataSource;
+    }
+
+    public void setReplicaDataSource(DataSource replicaDataSource) {
+        this.replicaDataSource = replicaDataSource;
+    }
+
+    /**
+     * When disabled (default), all the connections are fetched from the primary DataSource.
+     */
+    public void setReplicaEnabled(boolean replicaEnabled) {
+        this.replicaEnabled = replicaEnabled;
+    }
+
+    /**
+     * How long reads should be routed to the primary after a write, in order to
+     * tolerate the replica lag.
+     */
+    public void setStickyPrimaryMillis(long stickyPrimaryMillis) {
+        this.stickyPrimaryMillis = stickyPrimaryMillis;
+    }
+}
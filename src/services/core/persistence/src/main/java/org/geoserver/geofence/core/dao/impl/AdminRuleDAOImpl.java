@@ -15,6 +15,7 @@ import static org.geoserver.geofence.core.dao.util.SearchUtil.*;
 import org.geoserver.geofence.core.model.enums.InsertPosition;
 import org.geoserver.geofence.core.dao.AdminRuleDAO;
 import org.geoserver.geofence.core.dao.DuplicateKeyException;
+import org.geoserver.geofence.core.dao.util.MatchingQuery;
 import org.geoserver.geofence.core.model.AdminRule;
 
 import org.apache.log4j.LogManager;
@@ -89,15 +90,29 @@ public class AdminRuleDAOImpl extends PrioritizableDAOImpl<AdminRule> implements
     }
 
     @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
     public List<AdminRule> findAll() {
         return super.findAll();
     }
 
     @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
+    public int count(ISearch search) {
+        return super.count(search);
+    }
+
+    @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
     public List<AdminRule> search(ISearch search) {
         return super.search(search);
     }
 
+    @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
+    public List<AdminRule> searchMatching(MatchingQuery query) {
+        return super.searchMatching(AdminRule.class, query, "instance");
+    }
+
     @Override
     public AdminRule merge(AdminRule entity) {
         Search search = getDupSearch(entity);
@@ -0,0 +1,72 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.core.dao.impl;
+
+import java.util.Date;
+import java.util.List;
+import javax.persistence.Query;
+
+import com.googlecode.genericdao.search.ISearch;
+import com.googlecode.genericdao.search.Search;
+
+import org.geoserver.geofence.core.dao.ChangeLogDAO;
+import org.geoserver.geofence.core.model.ChangeLogEntry;
+
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Public implementation of the ChangeLogDAO interface
+ *
+ * @author Emanuele Tajariol (etj at geo-solutions.it)
+ */
+@Transactional(value = "geofenceTransactionManager")
+public class ChangeLogDAOImpl extends BaseDAO<ChangeLogEntry, Long> implements ChangeLogDAO {
+
+    @Override
+    public void persist(ChangeLogEntry... entities) {
+        super.persist(entities);
+    }
+
+    @Override
+    public List<ChangeLogEntry> findAll() {
+        return super.findAll();
+    }
+
+    @Override
+    public List<ChangeLogEntry> search(ISearch search) {
+        return super.search(search);
+    }
+
+    @Override
+    public ChangeLogEntry merge(ChangeLogEntry entity) {
+        return super.merge(entity);
+    }
+
+    @Override
+    public boolean remove(ChangeLogEntry entity) {
+        return super.remove(entity);
+    }
+
+    @Override
+    public boolean removeById(Long id) {
+        return super.removeById(id);
+    }
+
+    @Override
+    public List<ChangeLogEntry> findSince(Date since) {
+        Search search = new Search(ChangeLogEntry.class);
+        search.addFilterGreaterOrEqual("timestamp", since);
+        search.addSortAsc("id");
+        return super.search(search);
+    }
+
+    @Override
+    public int purgeBefore(Date before) {
+        Query query = em().createQuery("DELETE FROM ChangeLogEntry WHERE timestamp < :before");
+        query.setParameter("before", before);
+        return query.executeUpdate();
+    }
+}
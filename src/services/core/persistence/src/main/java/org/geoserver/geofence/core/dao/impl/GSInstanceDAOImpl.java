@@ -39,12 +39,14 @@ public class GSInstanceDAOImpl extends BaseDAO<GSInstance, Long> implements GSIn
     }
 
     @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
     public List<GSInstance> findAll()
     {
         return super.findAll();
     }
 
     @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
     public List<GSInstance> search(ISearch search)
     {
         return super.search(search);
@@ -45,18 +45,21 @@ public class GSUserDAOImpl extends BaseDAO<GSUser, Long> implements GSUserDAO
     }
 
     @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
     public List<GSUser> findAll()
     {
         return super.findAll();
     }
 
     @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
     public List<GSUser> search(ISearch search)
     {
         return super.search(search);
     }
 
     @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
     public GSUser getFull(String name) {
         Search search = new Search(GSUser.class);
         search.addFilterEqual("name", name);
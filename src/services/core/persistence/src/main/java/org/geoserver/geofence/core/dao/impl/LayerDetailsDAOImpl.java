@@ -5,10 +5,14 @@
 
 package org.geoserver.geofence.core.dao.impl;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.googlecode.genericdao.search.ISearch;
+import com.googlecode.genericdao.search.Search;
+import com.vividsolutions.jts.geom.MultiPolygon;
 
 import org.geoserver.geofence.core.dao.LayerDetailsDAO;
 import org.geoserver.geofence.core.model.LayerAttribute;
@@ -46,18 +50,60 @@ public class LayerDetailsDAOImpl extends BaseDAO<LayerDetails, Long> implements
         super.persist(entities);
     }
 
-//    @Override
-//    public LayerDetails find(Long id) {
-//        return super.find(id);
-//    }
     @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
+    public LayerDetails find(Long id) {
+        LayerDetails details = super.find(id);
+        if ( details != null ) {
+            initCollections(details);
+        }
+        return details;
+    }
+
+    @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
     public List<LayerDetails> findAll() {
-        return super.findAll();
+        List<LayerDetails> list = super.findAll();
+        for (LayerDetails details : list) {
+            initCollections(details);
+        }
+        return list;
     }
 
     @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
     public List<LayerDetails> search(ISearch search) {
-        return super.search(search);
+        List<LayerDetails> list = super.search(search);
+        for (LayerDetails details : list) {
+            initCollections(details);
+        }
+        return list;
+    }
+
+    @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
+    public Map<Long, MultiPolygon> getAreas() {
+        Search search = new Search(LayerDetails.class);
+        search.addField("id");
+        search.addField("area");
+        search.addFilterNotNull("area");
+        search.setResultMode(Search.RESULT_ARRAY);
+
+        List<Object[]> rows = super._search(search);
+        Map<Long, MultiPolygon> ret = new HashMap<>();
+        for (Object[] row : rows) {
+            ret.put((Long) row[0], (MultiPolygon) row[1]);
+        }
+        return ret;
+    }
+
+    /**
+     * Styles and attributes are lazily loaded; make sure they are
+     * available after the transaction is closed.
+     */
+    private void initCollections(LayerDetails details) {
+        Hibernate.initialize(details.getAllowedStyles());
+        Hibernate.initialize(details.getAttributes());
     }
 
     @Override
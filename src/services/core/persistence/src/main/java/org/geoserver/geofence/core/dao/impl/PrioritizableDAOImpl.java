@@ -6,9 +6,12 @@
 package org.geoserver.geofence.core.dao.impl;
 
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.persistence.Query;
 
 import org.geoserver.geofence.core.dao.PrioritizableDAO;
+import org.geoserver.geofence.core.dao.util.MatchingQuery;
 import org.geoserver.geofence.core.model.enums.InsertPosition;
 import org.geoserver.geofence.core.model.Prioritizable;
 
@@ -32,6 +35,9 @@ public abstract class PrioritizableDAOImpl<T extends Prioritizable>
         implements PrioritizableDAO<T>
 {
     private static final Logger LOGGER = LogManager.getLogger(PrioritizableDAOImpl.class);
+
+    /** JPQL statements for the matching queries, keyed by query shape. */
+    private final ConcurrentMap<String, String> matchingStatements = new ConcurrentHashMap<>();
     
     protected long persist(Class<T> clazz, T entity, InsertPosition position) {
         switch(position) {
@@ -180,4 +186,28 @@ public abstract class PrioritizableDAOImpl<T extends Prioritizable>
         return super.search(search);
     }
 
+    /**
+     * Runs a {@link MatchingQuery}, reusing the JPQL statement already built
+     * for queries having the same shape.
+     *
+     * @param fetches the relations to be fetched along with the entities;
+     * should not change across calls from the same DAO, since they are not
+     * part of the statement key.
+     */
+    protected List<T> searchMatching(Class<T> clazz, MatchingQuery matchingQuery, String... fetches) {
+        String shape = matchingQuery.getShape();
+        String jpql = matchingStatements.get(shape);
+        if ( jpql == null ) {
+            jpql = matchingQuery.buildStatement(clazz.getSimpleName(), fetches);
+            matchingStatements.putIfAbsent(shape, jpql);
+            if(LOGGER.isDebugEnabled()) {
+                LOGGER.debug("New matching statement for shape " + shape + ": " + jpql);
+            }
+        }
+
+        Query query = em().createQuery(jpql);
+        matchingQuery.setParameters(query);
+        return query.getResultList();
+    }
+
 }
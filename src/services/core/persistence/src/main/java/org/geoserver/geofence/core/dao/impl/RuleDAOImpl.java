@@ -5,6 +5,7 @@
 
 package org.geoserver.geofence.core.dao.impl;
 
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -13,6 +14,7 @@ import com.googlecode.genericdao.search.Search;
 
 import org.geoserver.geofence.core.dao.RuleDAO;
 import static org.geoserver.geofence.core.dao.util.SearchUtil.*;
+import org.geoserver.geofence.core.model.LayerDetails;
 import org.geoserver.geofence.core.model.Rule;
 
 import org.geoserver.geofence.core.model.enums.GrantType;
@@ -20,7 +22,9 @@ import org.geoserver.geofence.core.model.enums.InsertPosition;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.geoserver.geofence.core.dao.DuplicateKeyException;
+import org.geoserver.geofence.core.dao.util.MatchingQuery;
 
+import org.hibernate.Hibernate;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -42,7 +46,7 @@ public class RuleDAOImpl extends PrioritizableDAOImpl<Rule> implements RuleDAO {
             // check there are no dups for the rules received
             if ( rule.getAccess() != GrantType.LIMIT ) { // there may be as many LIMIT rules as desired
                 Search search = getDupSearch(rule);
-                List<Rule> dups = search(search);
+                List<Rule> dups = searchShallow(search);
                 for (Rule dup : dups) {
                     if ( dup.getAccess() != GrantType.LIMIT ) {
                         if(dup.getId().equals(rule.getId())) {
@@ -97,13 +101,80 @@ public class RuleDAOImpl extends PrioritizableDAOImpl<Rule> implements RuleDAO {
     }
 
     @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
+    public Rule find(Long id) {
+        Rule rule = super.find(id);
+        if(rule != null) {
+            initDetails(rule);
+        }
+        return rule;
+    }
+
+    @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
     public List<Rule> findAll() {
-        return super.findAll();
+        Search search = new Search(Rule.class);
+        return search(search);
     }
 
     @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
+    public int count(ISearch search) {
+        return super.count(search);
+    }
+
+    @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
     public List<Rule> search(ISearch search) {
-        return super.search(search);
+        List<Rule> rules = searchShallow(search);
+        for (Rule rule : rules) {
+            initDetails(rule);
+        }
+        return rules;
+    }
+
+    @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
+    public List<Rule> searchShallow(ISearch search) {
+        // Limits and details are inverse one-to-one relations, so hibernate would
+        // load them with a separate select per rule: let's join them in the main query.
+        Search fetching = copySearch(search);
+        fetching.addFetch("instance");
+        fetching.addFetch("ruleLimits");
+        fetching.addFetch("layerDetails");
+        return super.search(fetching);
+    }
+
+    @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
+    public List<Rule> searchMatching(MatchingQuery query) {
+        return super.searchMatching(Rule.class, query, "instance", "ruleLimits", "layerDetails");
+    }
+
+    /**
+     * Makes sure the lazy collections in the details are loaded while
+     * we are still inside the transaction.
+     */
+    private void initDetails(Rule rule) {
+        LayerDetails details = rule.getLayerDetails();
+        if(details != null) {
+            Hibernate.initialize(details.getAllowedStyles());
+            Hibernate.initialize(details.getAttributes());
+        }
+    }
+
+    private static Search copySearch(ISearch search) {
+        Search copy = new Search(Rule.class);
+        if(search != null) {
+            copy.setFilters(new ArrayList<>(search.getFilters()));
+            copy.setDisjunction(search.isDisjunction());
+            copy.setSorts(new ArrayList<>(search.getSorts()));
+            copy.setFirstResult(search.getFirstResult());
+            copy.setMaxResults(search.getMaxResults());
+            copy.setPage(search.getPage());
+            copy.setFetches(new ArrayList<>(search.getFetches()));
+        }
+        return copy;
     }
 
     @Override
@@ -111,7 +182,7 @@ public class RuleDAOImpl extends PrioritizableDAOImpl<Rule> implements RuleDAO {
         Search search = getDupSearch(entity);
 
         // check if we are dup'ing some other Rule.
-        List<Rule> existent = search(search);
+        List<Rule> existent = searchShallow(search);
         switch (existent.size()) {
             case 0:
                 break;
@@ -44,12 +44,14 @@ public class UserGroupDAOImpl extends BaseDAO<UserGroup, Long>
     }
 
     @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
     public List<UserGroup> findAll()
     {
         return super.findAll();
     }
 
     @Override
+    @Transactional(value = "geofenceTransactionManager", readOnly = true)
     public List<UserGroup> search(ISearch search)
     {
         return super.search(search);
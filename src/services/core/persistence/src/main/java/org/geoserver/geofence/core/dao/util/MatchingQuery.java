@@ -0,0 +1,154 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.core.dao.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.Query;
+
+/**
+ * Parameterized query used when matching prioritized rules against a request.
+ * <P>
+ * The JPQL statement only depends on the <i>shape</i> of the query, i.e. on which
+ * fields are matched against the default (null) value only, and which ones are
+ * matched against the default value or a given value. Fields that should match any
+ * value are simply not added to the query.
+ * <BR>DAOs can then cache the generated statements by {@link #getShape() shape},
+ * so that the same JPQL (and the same SQL) is reused for each request with the same
+ * shape, and only the parameters change.
+ * <P>
+ * Fields may refer to a property in a related entity (e.g. <TT>instance.name</TT>):
+ * in this case the related entity is left joined, so that a null relation
+ * will match as a default value.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class MatchingQuery {
+
+    private static final String ROOT = "e";
+
+    private final List<String> fields = new ArrayList<>();
+    private final List<Object> values = new ArrayList<>();
+    private final StringBuilder shape = new StringBuilder();
+
+    private Integer maxResults;
+
+    /**
+     * The field should only match the default (null) value.
+     */
+    public MatchingQuery addNull(String field) {
+        fields.add(field);
+        values.add(null);
+        shape.append(field).append("=N;");
+        return this;
+    }
+
+    /**
+     * The field should match either the default (null) value, or the given value.
+     */
+    public MatchingQuery addNullOrEqual(String field, Object value) {
+        if(value == null) {
+            throw new NullPointerException("Null value for field " + field);
+        }
+        fields.add(field);
+        values.add(value);
+        shape.append(field).append("=V;");
+        return this;
+    }
+
+    public MatchingQuery setMaxResults(Integer maxResults) {
+        this.maxResults = maxResults;
+        return this;
+    }
+
+    public Integer getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * A key identifying the JPQL statement for this query.
+     */
+    public String getShape() {
+        return shape.toString() + (maxResults == null ? "" : "max");
+    }
+
+    /**
+     * Creates the JPQL statement for this query shape.
+     *
+     * @param entityName the name of the queried entity
+     * @param fetches the relations that should be fetched in the same query
+     */
+    public String buildStatement(String entityName, String... fetches) {
+        StringBuilder from = new StringBuilder("SELECT ").append(ROOT)
+                .append(" FROM ").append(entityName).append(' ').append(ROOT);
+
+        List<String> joined = new ArrayList<>();
+        for (String field : fields) {
+            int dot = field.indexOf('.');
+            if(dot > 0) {
+                String relation = field.substring(0, dot);
+                if( ! joined.contains(relation)) {
+                    joined.add(relation);
+                }
+            }
+        }
+
+        for (String fetch : fetches) {
+            from.append(" LEFT JOIN FETCH ").append(ROOT).append('.').append(fetch);
+            if(joined.contains(fetch)) {
+                from.append(' ').append(alias(fetch));
+                joined.remove(fetch);
+            }
+        }
+        for (String relation : joined) {
+            from.append(" LEFT JOIN ").append(ROOT).append('.').append(relation).append(' ').append(alias(relation));
+        }
+
+        StringBuilder where = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            String field = fields.get(i);
+            int dot = field.indexOf('.');
+            String nullable = ROOT + "." + (dot > 0 ? field.substring(0, dot) : field);
+            String path = dot > 0 ? alias(field.substring(0, dot)) + field.substring(dot) : nullable;
+
+            where.append(where.length() == 0 ? " WHERE " : " AND ");
+            if(values.get(i) == null) {
+                where.append(nullable).append(" IS NULL");
+            } else {
+                where.append('(').append(nullable).append(" IS NULL OR ")
+                        .append(path).append(" = :p").append(i).append(')');
+            }
+        }
+
+        return from.append(where).append(" ORDER BY ").append(ROOT).append(".priority ASC").toString();
+    }
+
+    /**
+     * Sets the values for this query in a Query created from the statement
+     * returned by {@link #buildStatement(String, String...) buildStatement()}.
+     */
+    public void setParameters(Query query) {
+        for (int i = 0; i < values.size(); i++) {
+            Object value = values.get(i);
+            if(value != null) {
+                query.setParameter("p" + i, value);
+            }
+        }
+        if(maxResults != null) {
+            query.setMaxResults(maxResults);
+        }
+    }
+
+    private static String alias(String relation) {
+        return "j_" + relation;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + shape + " values:" + values + ']';
+    }
+}
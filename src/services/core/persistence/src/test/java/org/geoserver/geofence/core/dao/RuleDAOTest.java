@@ -8,6 +8,7 @@ package org.geoserver.geofence.core.dao;
 import com.googlecode.genericdao.search.Search;
 import com.vividsolutions.jts.geom.MultiPolygon;
 import static org.geoserver.geofence.core.dao.BaseDAOTest.ruleDAO;
+import org.geoserver.geofence.core.dao.util.MatchingQuery;
 import org.geoserver.geofence.core.dao.util.SearchUtil;
 import org.geoserver.geofence.core.model.GSUser;
 import org.geoserver.geofence.core.model.IPAddressRange;
@@ -18,6 +19,9 @@ import org.geoserver.geofence.core.model.enums.AccessType;
 import org.geoserver.geofence.core.model.enums.GrantType;
 import org.geoserver.geofence.core.model.enums.InsertPosition;
 import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Hibernate;
 
 import static org.junit.Assert.*;
 import org.junit.Test;
@@ -196,6 +200,87 @@ public class RuleDAOTest extends BaseDAOTest {
 
     }
 
+    @Test
+    public void testSearchShallow() throws Exception {
+
+        long rid = createRule().getId();
+
+        {
+            Rule loaded = ruleDAO.find(rid);
+
+            LayerDetails details = new LayerDetails();
+            details.setRule(loaded);
+            details.setDefaultStyle("default");
+            details.getAllowedStyles().add("s1");
+            details.getAttributes().add(new LayerAttribute("a1", AccessType.NONE));
+            detailsDAO.persist(details);
+        }
+
+        // shallow search: details are there, but their collections are not loaded
+        {
+            List<Rule> rules = ruleDAO.searchShallow(new Search(Rule.class));
+            assertEquals(1, rules.size());
+            LayerDetails details = rules.get(0).getLayerDetails();
+            assertNotNull(details);
+            assertEquals("default", details.getDefaultStyle());
+            assertFalse(Hibernate.isInitialized(details.getAllowedStyles()));
+            assertFalse(Hibernate.isInitialized(details.getAttributes()));
+        }
+
+        // full search and details lookup
+        {
+            List<Rule> rules = ruleDAO.search(new Search(Rule.class));
+            assertEquals(1, rules.size());
+            LayerDetails details = rules.get(0).getLayerDetails();
+            assertEquals(1, details.getAllowedStyles().size());
+            assertEquals(1, details.getAttributes().size());
+
+            details = detailsDAO.find(rid);
+            assertEquals(1, details.getAllowedStyles().size());
+            assertEquals(1, details.getAttributes().size());
+        }
+    }
+
+    @Test
+    public void testSearchMatching() throws Exception {
+
+        ruleDAO.persist(new Rule(10, null, null, null, null, "WMS", null, "w1", "l1", GrantType.ALLOW));
+        ruleDAO.persist(new Rule(20, null, null, null, null, "WMS", null, "w1", null, GrantType.DENY));
+        ruleDAO.persist(new Rule(30, null, null, null, null, null, null, "w2", null, GrantType.ALLOW));
+
+        {
+            MatchingQuery query = new MatchingQuery()
+                    .addNullOrEqual("service", "WMS")
+                    .addNullOrEqual("workspace", "w1")
+                    .addNullOrEqual("layer", "l1");
+            List<Rule> found = ruleDAO.searchMatching(query);
+            assertEquals(2, found.size());
+            assertEquals(10, found.get(0).getPriority());
+            assertEquals(20, found.get(1).getPriority());
+        }
+
+        // same shape, different values: the cached statement is reused
+        {
+            MatchingQuery query = new MatchingQuery()
+                    .addNullOrEqual("service", "WFS")
+                    .addNullOrEqual("workspace", "w2")
+                    .addNullOrEqual("layer", "l1");
+            List<Rule> found = ruleDAO.searchMatching(query);
+            assertEquals(1, found.size());
+            assertEquals(30, found.get(0).getPriority());
+        }
+
+        {
+            MatchingQuery query = new MatchingQuery()
+                    .addNullOrEqual("instance.name", "i1")
+                    .addNull("layer")
+                    .setMaxResults(1);
+            List<Rule> found = ruleDAO.searchMatching(query);
+            assertEquals(1, found.size());
+            assertEquals(20, found.get(0).getPriority());
+        }
+    }
+
     @Test
     public void testLayerDetailsPK() {
 
@@ -313,6 +398,9 @@ public class RuleDAOTest extends BaseDAOTest {
             LayerDetails details = loaded.getLayerDetails();
             assertNotNull(details);
             assertNotNull(details.getArea());
+
+            Map<Long, MultiPolygon> areas = detailsDAO.getAreas();
+            assertTrue(details.getArea().equalsExact(areas.get(details.getId())));
         }
 
 
@@ -328,6 +416,7 @@ public class RuleDAOTest extends BaseDAOTest {
 
             Rule loaded2 = ruleDAO.find(id);
             assertNull(loaded2.getLayerDetails());
+            assertFalse(detailsDAO.getAreas().containsKey(loaded2.getId()));
         }
 
         // remove Rule and cascade on details
@@ -0,0 +1,179 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.core.dao.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class ReadWriteRoutingDataSourceTest {
+
+    /** Names of the stub DataSources a connection has been requested to. */
+    private final List<String> calls = new ArrayList<>();
+
+    private ReadWriteRoutingDataSource ds;
+
+    @Before
+    public void setUp() {
+        ds = new ReadWriteRoutingDataSource();
+        ds.setPrimaryDataSource(createStub("primary"));
+        ds.setReplicaDataSource(createStub("replica"));
+        ds.setReplicaEnabled(true);
+        ds.setStickyPrimaryMillis(60000);
+        ds.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() {
+        ReadWriteRoutingDataSource.clearSessionKey();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testReadOnlyGoesToReplica() throws Exception {
+        assertEquals("replica", read("s1"));
+        assertEquals("primary", write("s1", false));
+    }
+
+    @Test
+    public void testStickyPrimaryPerSession() throws Exception {
+        assertEquals("primary", write("s1", true));
+
+        // the writer session reads its own writes from the primary
+        assertEquals("primary", read("s1"));
+        // other sessions are not affected
+        assertEquals("replica", read("s2"));
+        assertEquals("replica", read(null));
+    }
+
+    @Test
+    public void testRollbackDoesNotStick() throws Exception {
+        assertEquals("primary", write("s1", false));
+        assertEquals("replica", read("s1"));
+    }
+
+    @Test
+    public void testStickyExpires() throws Exception {
+        ds.setStickyPrimaryMillis(0);
+        write("s1", true);
+        assertEquals("replica", read("s1"));
+    }
+
+    @Test
+    public void testStaleSessionsSwept() throws Exception {
+        final long[] time = {100000};
+        ds = new ReadWriteRoutingDataSource() {
+            @Override
+            protected long now() {
+                return time[0];
+            }
+        };
+        ds.setPrimaryDataSource(createStub("primary"));
+        ds.setReplicaDataSource(createStub("replica"));
+        ds.setReplicaEnabled(true);
+        ds.setStickyPrimaryMillis(1000);
+        ds.afterPropertiesSet();
+
+        for (int i = 0; i < 100; i++) {
+            write("s" + i, true);
+        }
+        assertEquals(100, ds.getTrackedSessions());
+
+        // the writer sessions never read again
+        time[0] += 500;
+        write("other", true);
+        assertEquals(101, ds.getTrackedSessions());
+
+        time[0] += 600;
+        write("last", true);
+        assertEquals(2, ds.getTrackedSessions());
+        assertEquals("primary", read("other"));
+        assertEquals("replica", read("s0"));
+    }
+
+    @Test
+    public void testReplicaDisabled() throws Exception {
+        ds = new ReadWriteRoutingDataSource();
+        ds.setPrimaryDataSource(createStub("primary"));
+        ds.setReplicaDataSource(createStub("replica"));
+        ds.afterPropertiesSet();
+
+        assertEquals("primary", read("s1"));
+    }
+
+    private String read(String session) throws Exception {
+        return connect(session, true, false);
+    }
+
+    private String write(String session, boolean commit) throws Exception {
+        return connect(session, false, commit);
+    }
+
+    /**
+     * Simulates a transaction fetching a connection, and returns the name of the DataSource used.
+     */
+    private String connect(String session, boolean readOnly, boolean commit) throws Exception {
+        ReadWriteRoutingDataSource.setSessionKey(session);
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+        try {
+            calls.clear();
+            ds.getConnection();
+            if(commit) {
+                for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+                    sync.afterCommit();
+                }
+            }
+            assertEquals(1, calls.size());
+            return calls.get(0);
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+            TransactionSynchronizationManager.clearSynchronization();
+            ReadWriteRoutingDataSource.clearSessionKey();
+        }
+    }
+
+    private DataSource createStub(final String name) {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        switch(method.getName()) {
+                            case "getConnection":
+                                calls.add(name);
+                                return null;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            case "toString":
+                                return name;
+                            default:
+                                return null;
+                        }
+                    }
+                });
+    }
+}
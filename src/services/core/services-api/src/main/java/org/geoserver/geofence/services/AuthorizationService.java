@@ -15,4 +15,13 @@ public interface AuthorizationService {
 
     public AuthUser authorize(String username, String password);
 
+    /**
+     * Returns a digest of the current credentials of a user, which changes whenever the
+     * password, the enabled flag or the role of the user change.
+     * <BR>Used to revoke the authentication tokens issued before such changes.
+     *
+     * @return null if the user does not exist or is disabled.
+     */
+    public String getCredentialStamp(String username);
+
 }
@@ -6,6 +6,7 @@
 package org.geoserver.geofence.services;
 
 import org.geoserver.geofence.core.model.GSInstance;
+import org.geoserver.geofence.services.dto.InstanceStatus;
 import org.geoserver.geofence.services.dto.ShortInstance;
 import org.geoserver.geofence.services.exception.NotFoundServiceEx;
 
@@ -40,4 +41,15 @@ public interface InstanceAdminService extends GetProviderService<GSInstance>
 
     long getCount(String nameLike);
 
+    // ==========================================================================
+    // Health
+
+    /**
+     * @return the reachability and latency stats of all the instances;
+     * the stats are empty if no monitor is running.
+     */
+    List<InstanceStatus> getStatusList();
+
+    InstanceStatus getStatus(long id) throws NotFoundServiceEx;
+
 }
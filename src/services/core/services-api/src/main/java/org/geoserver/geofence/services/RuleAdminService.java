@@ -5,6 +5,7 @@
 
 package org.geoserver.geofence.services;
 
+import com.vividsolutions.jts.geom.Geometry;
 import org.geoserver.geofence.core.model.LayerDetails;
 import org.geoserver.geofence.core.model.Rule;
 import org.geoserver.geofence.core.model.RuleLimits;
@@ -146,6 +147,14 @@ public interface RuleAdminService
      */
     List<Rule> getListFull(RuleFilter filter, Integer page, Integer entries);
 
+    /**
+     * Return the Rules having an allowed area, either in their limits or in their
+     * layer details, intersecting the given geometry; sorted by priority.
+     * <P>
+     * Rules with no area restrictions are not returned.
+     */
+    List<ShortRule> getListByArea(Geometry geometry);
+
     /**
      * Return the Rules count according to the filter.
      * @param filter
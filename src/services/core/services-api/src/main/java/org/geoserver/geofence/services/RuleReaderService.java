@@ -6,10 +6,14 @@
 package org.geoserver.geofence.services;
 
 import org.geoserver.geofence.core.model.Rule;
+import org.geoserver.geofence.services.dto.AccessExplanation;
 import org.geoserver.geofence.services.dto.AccessInfo;
+import org.geoserver.geofence.services.dto.AdministrableWorkspaces;
+import org.geoserver.geofence.services.dto.AccessibleLayers;
 import org.geoserver.geofence.services.dto.AuthUser;
 import org.geoserver.geofence.services.dto.RuleFilter;
 import org.geoserver.geofence.services.dto.ShortRule;
+import org.geoserver.geofence.services.dto.UserPolicy;
 
 import java.util.List;
 
@@ -46,6 +50,14 @@ public interface RuleReaderService
      */
     AccessInfo getAccessInfo(RuleFilter filter);
 
+    /**
+     * Computes the same result as {@link #getAccessInfo(RuleFilter)}, also tracing
+     * the rules involved and the time spent in each evaluation stage.
+     * <P>
+     * Meant for diagnostics: the tracing adds some overhead to the evaluation.
+     */
+    AccessExplanation explainAccessInfo(RuleFilter filter);
+
     /**
      * info about admin authorization on a given workspace.
      *
@@ -53,6 +65,40 @@ public interface RuleReaderService
      */
     AccessInfo getAdminAuthorization(RuleFilter filter);
 
+    /**
+     * Returns in a single call all the workspaces the user or role in the filter
+     * has admin rights on.
+     * <P>
+     * The workspace field of the filter is ignored.
+     */
+    AdministrableWorkspaces getAdministrableWorkspaces(RuleFilter filter);
+
+    /**
+     * Computes in a single pass the access to all the layers, e.g. for building
+     * a capabilities document.
+     * <P>
+     * The workspace and layer fields of the filter are ignored; the other fields are
+     * used as in {@link #getAccessInfo(RuleFilter)}, so a DEFAULT request will
+     * only match rules having a null request.
+     * <BR>Only the grant and the catalog mode are computed; the other
+     * details of an allowed layer should be requested via {@link #getAccessInfo(RuleFilter)}.
+     */
+    AccessibleLayers getAccessibleLayers(RuleFilter filter);
+
+    /**
+     * Returns all the rules that may apply to the user or role in the filter, so that
+     * the access can be evaluated on the client side.
+     * <P>
+     * Only the user, role and instance fields of the filter are used;
+     * rules are returned regardless of their address, service, request, workspace and layer.
+     */
+    UserPolicy getUserPolicy(RuleFilter filter);
+
+    /**
+     * @return the current version of the ruleset, as reported in {@link UserPolicy#getVersion()}.
+     */
+    String getRulesetVersion();
+
     /**
      * Return the unprocessed {@link Rule} list matching a given filter, sorted
      * by priority.
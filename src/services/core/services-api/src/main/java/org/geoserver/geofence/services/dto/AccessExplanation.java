@@ -0,0 +1,304 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Trace of the evaluation of a {@link RuleFilter}, as computed by
+ * {@link org.geoserver.geofence.services.RuleReaderService#explainAccessInfo(RuleFilter) explainAccessInfo}.
+ * <P>
+ * Besides the resulting {@link AccessInfo}, it holds the rules considered for each role,
+ * and the time spent in each stage of the evaluation.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+@XmlRootElement(name = "AccessExplanation")
+public class AccessExplanation implements Serializable {
+
+    private static final long serialVersionUID = 2983367240531296811L;
+
+    /**
+     * Stages of the rule evaluation.
+     */
+    public enum Stage {
+        ROLE_RESOLUTION, DB_QUERY, ADDRESS_FILTER, GEOMETRY, CONVERSION
+    }
+
+    private String filter;
+
+    private Set<String> roles;
+
+    private List<RoleExplanation> roleExplanations = new ArrayList<>();
+
+    private AccessInfo accessInfo;
+
+    private long roleResolutionNanos;
+    private long dbQueryNanos;
+    private long addressFilterNanos;
+    private long geometryNanos;
+    private long conversionNanos;
+    private long totalNanos;
+
+    public AccessExplanation() {
+    }
+
+    public AccessExplanation(String filter) {
+        this.filter = filter;
+    }
+
+    public void addTime(Stage stage, long nanos) {
+        switch (stage) {
+            case ROLE_RESOLUTION:
+                roleResolutionNanos += nanos;
+                break;
+            case DB_QUERY:
+                dbQueryNanos += nanos;
+                break;
+            case ADDRESS_FILTER:
+                addressFilterNanos += nanos;
+                break;
+            case GEOMETRY:
+                geometryNanos += nanos;
+                break;
+            case CONVERSION:
+                conversionNanos += nanos;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown stage " + stage);
+        }
+    }
+
+    public RoleExplanation addRole(String role) {
+        RoleExplanation re = new RoleExplanation(role);
+        roleExplanations.add(re);
+        return re;
+    }
+
+    /**
+     * @param role the role name, or null for the rules not grouped by role.
+     */
+    public RoleExplanation findRole(String role) {
+        for (RoleExplanation re : roleExplanations) {
+            if (role == null ? re.getRole() == null : role.equals(re.getRole())) {
+                return re;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The filter as requested, before any adjustment performed during the evaluation.
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    public void setFilter(String filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * @return the roles the rules have been grouped by; an empty set if no grouping was needed.
+     */
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    public void setRoles(Set<String> roles) {
+        this.roles = roles;
+    }
+
+    public List<RoleExplanation> getRoleExplanations() {
+        return roleExplanations;
+    }
+
+    public void setRoleExplanations(List<RoleExplanation> roleExplanations) {
+        this.roleExplanations = roleExplanations;
+    }
+
+    /**
+     * The final result, as it would be returned by <TT>getAccessInfo()</TT>.
+     */
+    public AccessInfo getAccessInfo() {
+        return accessInfo;
+    }
+
+    public void setAccessInfo(AccessInfo accessInfo) {
+        this.accessInfo = accessInfo;
+    }
+
+    public long getRoleResolutionNanos() {
+        return roleResolutionNanos;
+    }
+
+    public void setRoleResolutionNanos(long roleResolutionNanos) {
+        this.roleResolutionNanos = roleResolutionNanos;
+    }
+
+    public long getDbQueryNanos() {
+        return dbQueryNanos;
+    }
+
+    public void setDbQueryNanos(long dbQueryNanos) {
+        this.dbQueryNanos = dbQueryNanos;
+    }
+
+    public long getAddressFilterNanos() {
+        return addressFilterNanos;
+    }
+
+    public void setAddressFilterNanos(long addressFilterNanos) {
+        this.addressFilterNanos = addressFilterNanos;
+    }
+
+    public long getGeometryNanos() {
+        return geometryNanos;
+    }
+
+    public void setGeometryNanos(long geometryNanos) {
+        this.geometryNanos = geometryNanos;
+    }
+
+    public long getConversionNanos() {
+        return conversionNanos;
+    }
+
+    public void setConversionNanos(long conversionNanos) {
+        this.conversionNanos = conversionNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public void setTotalNanos(long totalNanos) {
+        this.totalNanos = totalNanos;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+                + "[filter:" + filter
+                + " roles:" + roles
+                + " result:" + accessInfo
+                + " total:" + totalNanos / 1000 + "us"
+                + " (roles:" + roleResolutionNanos / 1000
+                + " db:" + dbQueryNanos / 1000
+                + " addr:" + addressFilterNanos / 1000
+                + " geom:" + geometryNanos / 1000
+                + " conv:" + conversionNanos / 1000
+                + ")]";
+    }
+
+    /**
+     * How the rules have been evaluated for a single role.
+     */
+    public static class RoleExplanation implements Serializable {
+
+        private static final long serialVersionUID = -1637744985420338920L;
+
+        private String role;
+
+        private List<ShortRule> candidates = new ArrayList<>();
+        private List<ShortRule> droppedByAddress = new ArrayList<>();
+        private List<ShortRule> limits = new ArrayList<>();
+        private ShortRule decidingRule;
+
+        private AccessInfo roleAccess;
+        private AccessInfo enlargedAccess;
+
+        public RoleExplanation() {
+        }
+
+        public RoleExplanation(String role) {
+            this.role = role;
+        }
+
+        /**
+         * The role name, or null if the rules were not grouped by role.
+         */
+        public String getRole() {
+            return role;
+        }
+
+        public void setRole(String role) {
+            this.role = role;
+        }
+
+        /**
+         * Rules returned by the DB query, sorted by priority.
+         */
+        public List<ShortRule> getCandidates() {
+            return candidates;
+        }
+
+        public void setCandidates(List<ShortRule> candidates) {
+            this.candidates = candidates;
+        }
+
+        /**
+         * Candidate rules discarded since not matching the source address.
+         */
+        public List<ShortRule> getDroppedByAddress() {
+            return droppedByAddress;
+        }
+
+        public void setDroppedByAddress(List<ShortRule> droppedByAddress) {
+            this.droppedByAddress = droppedByAddress;
+        }
+
+        /**
+         * LIMIT rules collected before the deciding rule.
+         */
+        public List<ShortRule> getLimits() {
+            return limits;
+        }
+
+        public void setLimits(List<ShortRule> limits) {
+            this.limits = limits;
+        }
+
+        /**
+         * The first ALLOW or DENY rule, or null if no such rule matched.
+         */
+        public ShortRule getDecidingRule() {
+            return decidingRule;
+        }
+
+        public void setDecidingRule(ShortRule decidingRule) {
+            this.decidingRule = decidingRule;
+        }
+
+        /**
+         * The access computed for this role only.
+         */
+        public AccessInfo getRoleAccess() {
+            return roleAccess;
+        }
+
+        public void setRoleAccess(AccessInfo roleAccess) {
+            this.roleAccess = roleAccess;
+        }
+
+        /**
+         * The access accumulated so far, after merging this role's access
+         * with the ones of the previously evaluated roles.
+         */
+        public AccessInfo getEnlargedAccess() {
+            return enlargedAccess;
+        }
+
+        public void setEnlargedAccess(AccessInfo enlargedAccess) {
+            this.enlargedAccess = enlargedAccess;
+        }
+    }
+}
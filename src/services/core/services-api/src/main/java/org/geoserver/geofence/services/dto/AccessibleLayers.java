@@ -0,0 +1,222 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.XmlType;
+
+import org.geoserver.geofence.core.model.enums.GrantType;
+
+/**
+ * The layers accessible by a user, as computed by
+ * {@link org.geoserver.geofence.services.RuleReaderService#getAccessibleLayers(RuleFilter) getAccessibleLayers}.
+ * <P>
+ * Layers are not enumerated: each entry refers to a workspace and a layer
+ * explicitly named in some rule, where a null name means "any other".
+ * <BR>The access to a given layer is resolved by {@link #getAccess(String, String)}:
+ * <OL>
+ * <LI>if the workspace is named in some entry, only the entries of that workspace are considered,
+ *     otherwise only the entries with a null workspace;</LI>
+ * <LI>among them, the entry naming the layer is used, or the one with a null layer.</LI>
+ * </OL>
+ * An entry with both null workspace and layer, holding the default access, is always present.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+@XmlRootElement(name = "AccessibleLayers")
+@XmlType(propOrder = {"filter", "layers"})
+public class AccessibleLayers implements Serializable {
+
+    private static final long serialVersionUID = -5064107296235728105L;
+
+    private String filter;
+
+    private List<LayerAccess> layers = new ArrayList<>();
+
+    private transient Map<String, Map<String, LayerAccess>> index;
+
+    public AccessibleLayers() {
+    }
+
+    public AccessibleLayers(String filter) {
+        this.filter = filter;
+    }
+
+    public void add(LayerAccess access) {
+        layers.add(access);
+        index = null;
+    }
+
+    /**
+     * @return the access to the given layer; never null, since a default entry is always present.
+     */
+    public LayerAccess getAccess(String workspace, String layer) {
+        Map<String, Map<String, LayerAccess>> idx = getIndex();
+
+        Map<String, LayerAccess> wsLayers = idx.get(workspace);
+        if(wsLayers == null) {
+            wsLayers = idx.get(null);
+        }
+        if(wsLayers == null) {
+            return new LayerAccess(null, null, GrantType.DENY, null);
+        }
+        LayerAccess access = wsLayers.get(layer);
+        if(access == null) {
+            access = wsLayers.get(null);
+        }
+        return access != null ? access : new LayerAccess(workspace, null, GrantType.DENY, null);
+    }
+
+    public boolean isAllowed(String workspace, String layer) {
+        return getAccess(workspace, layer).getGrant() == GrantType.ALLOW;
+    }
+
+    /**
+     * @return the default access, applied to the layers not named in any entry.
+     */
+    @XmlTransient
+    public LayerAccess getDefaultAccess() {
+        return getAccess(null, null);
+    }
+
+    /**
+     * @return the explicitly named workspaces having at least an allowed layer.
+     * If the default access is ALLOW, workspaces not listed here are visible as well.
+     */
+    @XmlTransient
+    public Set<String> getAllowedWorkspaces() {
+        Set<String> ret = new TreeSet<>();
+        for (LayerAccess access : layers) {
+            if(access.getWorkspace() != null && access.getGrant() == GrantType.ALLOW) {
+                ret.add(access.getWorkspace());
+            }
+        }
+        return ret;
+    }
+
+    private Map<String, Map<String, LayerAccess>> getIndex() {
+        Map<String, Map<String, LayerAccess>> idx = index;
+        if(idx == null) {
+            idx = new HashMap<>();
+            for (LayerAccess access : layers) {
+                Map<String, LayerAccess> wsLayers = idx.get(access.getWorkspace());
+                if(wsLayers == null) {
+                    wsLayers = new HashMap<>();
+                    idx.put(access.getWorkspace(), wsLayers);
+                }
+                wsLayers.put(access.getLayer(), access);
+            }
+            index = idx;
+        }
+        return idx;
+    }
+
+    /**
+     * The filter the layers have been computed for.
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    public void setFilter(String filter) {
+        this.filter = filter;
+    }
+
+    public List<LayerAccess> getLayers() {
+        return layers;
+    }
+
+    public void setLayers(List<LayerAccess> layers) {
+        this.layers = layers;
+        index = null;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+                + "[filter:" + filter
+                + " entries:" + layers.size()
+                + ']';
+    }
+
+    /**
+     * Access to a workspace/layer pair; null names mean "any other".
+     */
+    @XmlType(propOrder = {"workspace", "layer", "grant", "catalogMode"})
+    public static class LayerAccess implements Serializable {
+
+        private static final long serialVersionUID = 4511962410523717049L;
+
+        private String workspace;
+        private String layer;
+        private GrantType grant;
+        private CatalogModeDTO catalogMode;
+
+        public LayerAccess() {
+        }
+
+        public LayerAccess(String workspace, String layer, GrantType grant, CatalogModeDTO catalogMode) {
+            this.workspace = workspace;
+            this.layer = layer;
+            this.grant = grant;
+            this.catalogMode = catalogMode;
+        }
+
+        public String getWorkspace() {
+            return workspace;
+        }
+
+        public void setWorkspace(String workspace) {
+            this.workspace = workspace;
+        }
+
+        public String getLayer() {
+            return layer;
+        }
+
+        public void setLayer(String layer) {
+            this.layer = layer;
+        }
+
+        /**
+         * Either ALLOW or DENY.
+         */
+        public GrantType getGrant() {
+            return grant;
+        }
+
+        public void setGrant(GrantType grant) {
+            this.grant = grant;
+        }
+
+        /**
+         * The catalog mode of allowed layers; null if not set by any rule.
+         */
+        public CatalogModeDTO getCatalogMode() {
+            return catalogMode;
+        }
+
+        public void setCatalogMode(CatalogModeDTO catalogMode) {
+            this.catalogMode = catalogMode;
+        }
+
+        @Override
+        public String toString() {
+            return (workspace == null ? "*" : workspace) + ":" + (layer == null ? "*" : layer)
+                    + "=" + grant
+                    + (catalogMode == null ? "" : "/" + catalogMode);
+        }
+    }
+}
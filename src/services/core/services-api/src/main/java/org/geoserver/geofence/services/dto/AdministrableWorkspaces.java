@@ -0,0 +1,105 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.dto;
+
+import java.io.Serializable;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+
+/**
+ * The workspaces a user administers, as computed by
+ * {@link org.geoserver.geofence.services.RuleReaderService#getAdministrableWorkspaces(RuleFilter) getAdministrableWorkspaces}.
+ * <P>
+ * Workspaces are not enumerated: only the ones named in some AdminRule are listed.
+ * <BR>If <TT>anyWorkspace</TT> is true, all the workspaces but the <TT>excluded</TT> ones
+ * are administrable; otherwise only the <TT>workspaces</TT> ones are.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+@XmlRootElement(name = "AdministrableWorkspaces")
+@XmlType(propOrder = {"filter", "anyWorkspace", "workspaces", "excluded"})
+public class AdministrableWorkspaces implements Serializable {
+
+    private static final long serialVersionUID = 7261547409384473312L;
+
+    private String filter;
+
+    private boolean anyWorkspace = false;
+    private Set<String> workspaces = new TreeSet<>();
+    private Set<String> excluded = new TreeSet<>();
+
+    public AdministrableWorkspaces() {
+    }
+
+    public AdministrableWorkspaces(String filter) {
+        this.filter = filter;
+    }
+
+    public boolean isAdmin(String workspace) {
+        if(anyWorkspace) {
+            return ! excluded.contains(workspace);
+        } else {
+            return workspaces.contains(workspace);
+        }
+    }
+
+    /**
+     * The filter the workspaces have been computed for.
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    public void setFilter(String filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * @return true if the workspaces not named in any AdminRule are administrable.
+     */
+    public boolean isAnyWorkspace() {
+        return anyWorkspace;
+    }
+
+    public void setAnyWorkspace(boolean anyWorkspace) {
+        this.anyWorkspace = anyWorkspace;
+    }
+
+    /**
+     * @return the named workspaces that are administrable.
+     */
+    public Set<String> getWorkspaces() {
+        return workspaces;
+    }
+
+    public void setWorkspaces(Set<String> workspaces) {
+        this.workspaces = workspaces;
+    }
+
+    /**
+     * @return the named workspaces that are not administrable.
+     */
+    public Set<String> getExcluded() {
+        return excluded;
+    }
+
+    public void setExcluded(Set<String> excluded) {
+        this.excluded = excluded;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+                + "[filter:" + filter
+                + " any:" + anyWorkspace
+                + " ws:" + workspaces
+                + (anyWorkspace ? " excluded:" + excluded : "")
+                + ']';
+    }
+}
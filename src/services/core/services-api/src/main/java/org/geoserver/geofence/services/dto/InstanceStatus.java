@@ -0,0 +1,173 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.dto;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+
+/**
+ * Reachability and latency of a GSInstance, as collected by the periodic probes.
+ * <P>
+ * <TT>available</TT> is null if the instance has not been probed yet.
+ * <BR>Averages and availability are computed on the most recent probes only.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+@XmlRootElement(name = "InstanceStatus")
+@XmlType(propOrder = {"id", "name", "url", "available", "lastCheck", "lastLatency", "averageLatency",
+    "maxLatency", "availability", "samples", "consecutiveFailures", "lastError"})
+public class InstanceStatus implements Serializable {
+
+    private static final long serialVersionUID = -3915284637004175912L;
+
+    private long id;
+    private String name;
+    private String url;
+
+    private Boolean available;
+    private Date lastCheck;
+    private Long lastLatency;
+    private Long averageLatency;
+    private Long maxLatency;
+    private Double availability;
+    private int samples;
+    private int consecutiveFailures;
+    private String lastError;
+
+    public InstanceStatus() {
+    }
+
+    public InstanceStatus(long id, String name, String url) {
+        this.id = id;
+        this.name = name;
+        this.url = url;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    /**
+     * @return the outcome of the last probe, or null if no probe has been run yet.
+     */
+    public Boolean getAvailable() {
+        return available;
+    }
+
+    public void setAvailable(Boolean available) {
+        this.available = available;
+    }
+
+    public Date getLastCheck() {
+        return lastCheck;
+    }
+
+    public void setLastCheck(Date lastCheck) {
+        this.lastCheck = lastCheck;
+    }
+
+    /**
+     * @return the latency in ms of the last successful probe.
+     */
+    public Long getLastLatency() {
+        return lastLatency;
+    }
+
+    public void setLastLatency(Long lastLatency) {
+        this.lastLatency = lastLatency;
+    }
+
+    /**
+     * @return the average latency in ms of the recent successful probes.
+     */
+    public Long getAverageLatency() {
+        return averageLatency;
+    }
+
+    public void setAverageLatency(Long averageLatency) {
+        this.averageLatency = averageLatency;
+    }
+
+    public Long getMaxLatency() {
+        return maxLatency;
+    }
+
+    public void setMaxLatency(Long maxLatency) {
+        this.maxLatency = maxLatency;
+    }
+
+    /**
+     * @return the percentage of the recent probes that succeeded.
+     */
+    public Double getAvailability() {
+        return availability;
+    }
+
+    public void setAvailability(Double availability) {
+        this.availability = availability;
+    }
+
+    /**
+     * @return the number of recent probes the stats are computed on.
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    public void setSamples(int samples) {
+        this.samples = samples;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public void setConsecutiveFailures(int consecutiveFailures) {
+        this.consecutiveFailures = consecutiveFailures;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+                + "[id:" + id
+                + " name:" + name
+                + " available:" + available
+                + " avgLatency:" + averageLatency
+                + " availability:" + availability
+                + ']';
+    }
+}
@@ -0,0 +1,385 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+
+import org.geoserver.geofence.core.model.LayerAttribute;
+import org.geoserver.geofence.core.model.enums.GrantType;
+
+/**
+ * All the rules that may apply to a user (or role) on an instance, as returned by
+ * {@link org.geoserver.geofence.services.RuleReaderService#getUserPolicy(RuleFilter) getUserPolicy}.
+ * <P>
+ * Rules are grouped by role, as in the server side evaluation, and sorted by priority;
+ * limits and layer details are embedded.
+ * A client can evaluate the access locally:
+ * <UL>
+ * <LI>for each role, the rules matching the request fields are scanned in order: LIMIT rules
+ *     collect their limits, the first ALLOW or DENY rule decides;</LI>
+ * <LI>the role accesses are then merged, any ALLOW winning over DENY.</LI>
+ * </UL>
+ * Rule fields set to null match any value. The source address is not resolved
+ * on the server, so each rule carries its address range in CIDR notation.
+ * <BR>Admin rights are not part of the policy, and should be requested to the server.
+ * <P>
+ * The <TT>version</TT> changes whenever rules, users or groups are modified;
+ * a client should fetch the policy again when the
+ * {@link org.geoserver.geofence.services.RuleReaderService#getRulesetVersion() current version}
+ * differs from the one it holds.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+@XmlRootElement(name = "UserPolicy")
+@XmlType(propOrder = {"version", "filter", "created", "roles"})
+public class UserPolicy implements Serializable {
+
+    private static final long serialVersionUID = 2914773870214565137L;
+
+    private String version;
+    private String filter;
+    private Date created;
+
+    private List<RolePolicy> roles = new ArrayList<>();
+
+    public UserPolicy() {
+    }
+
+    public UserPolicy(String version, String filter) {
+        this.version = version;
+        this.filter = filter;
+        this.created = new Date();
+    }
+
+    /**
+     * The version of the ruleset the policy has been computed on.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    /**
+     * The filter the policy has been computed for.
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    public void setFilter(String filter) {
+        this.filter = filter;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public void setCreated(Date created) {
+        this.created = created;
+    }
+
+    public List<RolePolicy> getRoles() {
+        return roles;
+    }
+
+    public void setRoles(List<RolePolicy> roles) {
+        this.roles = roles;
+    }
+
+    @Override
+    public String toString() {
+        int rules = 0;
+        for (RolePolicy role : roles) {
+            rules += role.getRules().size();
+        }
+        return getClass().getSimpleName()
+                + "[version:" + version
+                + " filter:" + filter
+                + " roles:" + roles.size()
+                + " rules:" + rules
+                + ']';
+    }
+
+    // ==========================================================================
+
+    /**
+     * The rules to be evaluated for a role.
+     */
+    @XmlType(propOrder = {"role", "rules"})
+    public static class RolePolicy implements Serializable {
+
+        private static final long serialVersionUID = -8716343720391655286L;
+
+        private String role;
+        private List<PolicyRule> rules = new ArrayList<>();
+
+        public RolePolicy() {
+        }
+
+        public RolePolicy(String role) {
+            this.role = role;
+        }
+
+        /**
+         * @return the role name; null when the filter was not resolved into roles.
+         */
+        public String getRole() {
+            return role;
+        }
+
+        public void setRole(String role) {
+            this.role = role;
+        }
+
+        /**
+         * @return the rules, sorted by priority.
+         */
+        public List<PolicyRule> getRules() {
+            return rules;
+        }
+
+        public void setRules(List<PolicyRule> rules) {
+            this.rules = rules;
+        }
+    }
+
+    /**
+     * A rule, with its limits or details.
+     */
+    @XmlType(propOrder = {"id", "priority", "instance", "addressRange", "service", "request",
+        "workspace", "layer", "access", "limits", "details"})
+    public static class PolicyRule implements Serializable {
+
+        private static final long serialVersionUID = 6095263124779263047L;
+
+        private Long id;
+        private long priority;
+
+        private String instance;
+        private String addressRange;
+        private String service;
+        private String request;
+        private String workspace;
+        private String layer;
+
+        private GrantType access;
+
+        private Limits limits;
+        private Details details;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public long getPriority() {
+            return priority;
+        }
+
+        public void setPriority(long priority) {
+            this.priority = priority;
+        }
+
+        public String getInstance() {
+            return instance;
+        }
+
+        public void setInstance(String instance) {
+            this.instance = instance;
+        }
+
+        /**
+         * @return the CIDR address range, or null for any address.
+         */
+        public String getAddressRange() {
+            return addressRange;
+        }
+
+        public void setAddressRange(String addressRange) {
+            this.addressRange = addressRange;
+        }
+
+        public String getService() {
+            return service;
+        }
+
+        public void setService(String service) {
+            this.service = service;
+        }
+
+        public String getRequest() {
+            return request;
+        }
+
+        public void setRequest(String request) {
+            this.request = request;
+        }
+
+        public String getWorkspace() {
+            return workspace;
+        }
+
+        public void setWorkspace(String workspace) {
+            this.workspace = workspace;
+        }
+
+        public String getLayer() {
+            return layer;
+        }
+
+        public void setLayer(String layer) {
+            this.layer = layer;
+        }
+
+        public GrantType getAccess() {
+            return access;
+        }
+
+        public void setAccess(GrantType access) {
+            this.access = access;
+        }
+
+        /**
+         * @return the limits of a LIMIT rule.
+         */
+        public Limits getLimits() {
+            return limits;
+        }
+
+        public void setLimits(Limits limits) {
+            this.limits = limits;
+        }
+
+        /**
+         * @return the layer details of an ALLOW rule.
+         */
+        public Details getDetails() {
+            return details;
+        }
+
+        public void setDetails(Details details) {
+            this.details = details;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName()
+                    + "[id:" + id
+                    + " pri:" + priority
+                    + " " + access
+                    + ']';
+        }
+    }
+
+    @XmlType(propOrder = {"areaWkt", "catalogMode"})
+    public static class Limits implements Serializable {
+
+        private static final long serialVersionUID = 4420987634528175042L;
+
+        private String areaWkt;
+        private CatalogModeDTO catalogMode;
+
+        public String getAreaWkt() {
+            return areaWkt;
+        }
+
+        public void setAreaWkt(String areaWkt) {
+            this.areaWkt = areaWkt;
+        }
+
+        public CatalogModeDTO getCatalogMode() {
+            return catalogMode;
+        }
+
+        public void setCatalogMode(CatalogModeDTO catalogMode) {
+            this.catalogMode = catalogMode;
+        }
+    }
+
+    @XmlType(propOrder = {"areaWkt", "catalogMode", "defaultStyle", "cqlFilterRead", "cqlFilterWrite",
+        "allowedStyles", "attributes"})
+    public static class Details implements Serializable {
+
+        private static final long serialVersionUID = -1873290456612478204L;
+
+        private String areaWkt;
+        private CatalogModeDTO catalogMode;
+        private String defaultStyle;
+        private String cqlFilterRead;
+        private String cqlFilterWrite;
+        private Set<String> allowedStyles;
+        private Set<LayerAttribute> attributes;
+
+        public String getAreaWkt() {
+            return areaWkt;
+        }
+
+        public void setAreaWkt(String areaWkt) {
+            this.areaWkt = areaWkt;
+        }
+
+        public CatalogModeDTO getCatalogMode() {
+            return catalogMode;
+        }
+
+        public void setCatalogMode(CatalogModeDTO catalogMode) {
+            this.catalogMode = catalogMode;
+        }
+
+        public String getDefaultStyle() {
+            return defaultStyle;
+        }
+
+        public void setDefaultStyle(String defaultStyle) {
+            this.defaultStyle = defaultStyle;
+        }
+
+        public String getCqlFilterRead() {
+            return cqlFilterRead;
+        }
+
+        public void setCqlFilterRead(String cqlFilterRead) {
+            this.cqlFilterRead = cqlFilterRead;
+        }
+
+        public String getCqlFilterWrite() {
+            return cqlFilterWrite;
+        }
+
+        public void setCqlFilterWrite(String cqlFilterWrite) {
+            this.cqlFilterWrite = cqlFilterWrite;
+        }
+
+        public Set<String> getAllowedStyles() {
+            return allowedStyles;
+        }
+
+        public void setAllowedStyles(Set<String> allowedStyles) {
+            this.allowedStyles = allowedStyles;
+        }
+
+        public Set<LayerAttribute> getAttributes() {
+            return attributes;
+        }
+
+        public void setAttributes(Set<LayerAttribute> attributes) {
+            this.attributes = attributes;
+        }
+    }
+}
@@ -13,6 +13,8 @@ import com.googlecode.genericdao.search.Search;
 import org.geoserver.geofence.core.dao.AdminRuleDAO;
 import org.geoserver.geofence.core.model.AdminRule;
 import org.geoserver.geofence.core.model.enums.InsertPosition;
+import org.geoserver.geofence.services.cache.CacheInvalidationBus;
+import org.geoserver.geofence.services.cache.InvalidationEvent;
 import org.geoserver.geofence.services.dto.RuleFilter;
 import org.geoserver.geofence.services.dto.ShortAdminRule;
 
@@ -36,6 +38,7 @@ public class AdminRuleAdminServiceImpl implements AdminRuleAdminService {
     private final static Logger LOGGER = LogManager.getLogger(AdminRuleAdminServiceImpl.class);
 
     private AdminRuleDAO ruleDAO;
+    private CacheInvalidationBus invalidationBus;
 
     // =========================================================================
     // Basic operations
@@ -44,12 +47,14 @@ public class AdminRuleAdminServiceImpl implements AdminRuleAdminService {
     @Override
     public long insert(AdminRule rule) {
         ruleDAO.persist(rule);
+        notifyChanged(null);
         return rule.getId();
     }
 
     @Override
     public long insert(AdminRule rule, InsertPosition position) {
         ruleDAO.persist(rule, position);
+        notifyChanged(null);
         return rule.getId();
     }
 
@@ -61,6 +66,7 @@ public class AdminRuleAdminServiceImpl implements AdminRuleAdminService {
         }
 
         ruleDAO.merge(rule);
+        notifyChanged(orig.getId());
         return orig.getId();
     }
 
@@ -76,12 +82,17 @@ public class AdminRuleAdminServiceImpl implements AdminRuleAdminService {
 
     @Override
     public int shift(long priorityStart, long offset) {
-        return ruleDAO.shift(priorityStart, offset);
+        int ret = ruleDAO.shift(priorityStart, offset);
+        if (ret > 0) {
+            notifyChanged(null);
+        }
+        return ret;
     }
 
     @Override
     public void swap(long id1, long id2) {
         ruleDAO.swap(id1, id2);
+        notifyChanged(null);
     }
 
 
@@ -104,7 +115,9 @@ public class AdminRuleAdminServiceImpl implements AdminRuleAdminService {
             throw new NotFoundServiceEx("AdminRule not found", id);
         }
 
-        return ruleDAO.remove(rule);
+        boolean ret = ruleDAO.remove(rule);
+        notifyChanged(id);
+        return ret;
     }
 
     @Override
@@ -120,6 +133,9 @@ public class AdminRuleAdminServiceImpl implements AdminRuleAdminService {
                 LOGGER.info("Removing rule for user " + username+": " + rule);
             ruleDAO.remove(rule);
         }
+        if ( ! list.isEmpty()) {
+            notifyChanged(null);
+        }
     }
 
     @Override
@@ -133,6 +149,9 @@ public class AdminRuleAdminServiceImpl implements AdminRuleAdminService {
                 LOGGER.info("Removing rule for role " + rolename+": " + rule);
             ruleDAO.remove(rule);
         }
+        if ( ! list.isEmpty()) {
+            notifyChanged(null);
+        }
     }
 
     @Override
@@ -146,6 +165,9 @@ public class AdminRuleAdminServiceImpl implements AdminRuleAdminService {
                 LOGGER.info("Removing AdminRule for instance " + instanceId+": " + rule);
             ruleDAO.remove(rule);
         }
+        if ( ! list.isEmpty()) {
+            notifyChanged(null);
+        }
     }
 
 
@@ -269,6 +291,12 @@ public class AdminRuleAdminServiceImpl implements AdminRuleAdminService {
 
     // ==========================================================================
 
+    private void notifyChanged(Long ruleId) {
+        if (invalidationBus != null) {
+            invalidationBus.changed(InvalidationEvent.Type.ADMINRULE, ruleId);
+        }
+    }
+
     private List<ShortAdminRule> convertToShortList(List<AdminRule> list) {
         List<ShortAdminRule> shortList = new ArrayList(list.size());
         for (AdminRule rule : list) {
@@ -284,4 +312,8 @@ public class AdminRuleAdminServiceImpl implements AdminRuleAdminService {
         this.ruleDAO = ruleDAO;
     }
 
+    public void setInvalidationBus(CacheInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
+
 }
@@ -7,38 +7,174 @@ package org.geoserver.geofence.services;
 
 import com.googlecode.genericdao.search.Search;
 
+import java.security.SecureRandom;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
+import org.geoserver.geofence.core.dao.GFUserDAO;
 import org.geoserver.geofence.core.dao.GSUserDAO;
+import org.geoserver.geofence.core.model.GFUser;
 import org.geoserver.geofence.core.model.GSUser;
+import org.geoserver.geofence.services.cache.InvalidationEvent;
+import org.geoserver.geofence.services.cache.InvalidationListener;
 import org.geoserver.geofence.services.dto.AuthUser;
 
 /**
+ * Checks the user credentials against the GSUsers in the DB and, when no GSUser
+ * has the given name, against the GFUsers (the GeoFence administrators, always granted the ADMIN role).
+ * <P>
+ * Verified credentials are cached for <TT>credentialTtlSec</TT> seconds, so that
+ * repeated requests by the same user will not hit the DB.
+ * Cache keys are salted hashes of username and password, so that no clear text password is kept in memory.
+ * <BR>The cache is invalidated when users are changed, through the {@link InvalidationListener} interface.
+ * <P>
+ * After <TT>maxFailures</TT> failed attempts within <TT>failureWindowSec</TT> seconds,
+ * further attempts for the same username are rejected without being checked, until the window expires.
+ * <BR>Failures are tracked for at most <TT>maxTrackedFailures</TT> usernames, and the expired ones are
+ * swept at most once per window, so that attempts with random usernames can not fill the memory:
+ * when the limit is reached, the usernames not locked out are dropped first.
  *
  * @author ETj (etj at geo-solutions.it)
  */
-public class AuthorizationServiceImpl implements AuthorizationService {
+public class AuthorizationServiceImpl implements AuthorizationService, InvalidationListener {
 
     private final static Logger LOGGER = LogManager.getLogger(AuthorizationServiceImpl.class);
 
     private GSUserDAO userDAO;
+    private GFUserDAO gfUserDAO;
+
+    private long credentialTtlSec = 60;
+    private int maxCachedCredentials = 10000;
+
+    private int maxFailures = 5;
+    private long failureWindowSec = 60;
+    private int maxTrackedFailures = 10000;
+
+    private final String salt;
+
+    private final Map<String, CachedAuth> credentials = new ConcurrentHashMap<>();
+    private final Map<String, Failures> failures = new ConcurrentHashMap<>();
+    private final Map<String, CachedStamp> stamps = new ConcurrentHashMap<>();
+    private volatile long lastFailureSweep;
+
+    public AuthorizationServiceImpl() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        salt = Hex.encodeHexString(bytes);
+    }
 
     @Override
     public AuthUser authorize(String username, String password) {
-        GSUser user = getUserByName(username);
-        if(user == null) {
+        if(username == null || password == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+
+        String key = credentialTtlSec > 0 ? DigestUtils.sha256Hex(salt + username + '\u0000' + password) : null;
+        if(key != null) {
+            CachedAuth cached = credentials.get(key);
+            if(cached != null) {
+                if(cached.expires > now) {
+                    return new AuthUser(cached.username, cached.role);
+                }
+                credentials.remove(key, cached);
+            }
+        }
+
+        if(isLockedOut(username, now)) {
+            LOGGER.debug("Too many failed attempts for user " + username);
+            return null;
+        }
+
+        Account account = getAccount(username);
+        if(account == null) {
             LOGGER.debug("User not found " + username);
+            addFailure(username, now);
             return null;
         }
-        if(! user.getPassword().equals(password)) {
+        if( ! account.enabled) {
+            LOGGER.debug("User disabled " + username);
+            addFailure(username, now);
+            return null;
+        }
+        if(! password.equals(account.password)) {
             LOGGER.debug("Bad pw for user " + username);
+            addFailure(username, now);
             return null;
         }
 
-        return new AuthUser(username, user.isAdmin() ? AuthUser.Role.ADMIN : AuthUser.Role.USER);
+        failures.remove(username);
+
+        if(key != null) {
+            if(credentials.size() >= maxCachedCredentials) {
+                purgeExpired(now);
+            }
+            credentials.put(key, new CachedAuth(account.userId, username, account.role, now + TimeUnit.SECONDS.toMillis(credentialTtlSec)));
+        }
+        return new AuthUser(username, account.role);
+    }
+
+    /**
+     * The stamp does not depend on the node, so that tokens are valid on all the nodes.
+     * Stamps are cached as the credentials, and dropped on the same events.
+     */
+    @Override
+    public String getCredentialStamp(String username) {
+        if(username == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        CachedStamp cached = stamps.get(username);
+        if(cached != null) {
+            if(cached.expires > now) {
+                return cached.stamp;
+            }
+            stamps.remove(username, cached);
+        }
+
+        Account account = getAccount(username);
+        if(account == null || ! account.enabled) {
+            return null;
+        }
+        String stamp = DigestUtils.sha256Hex((account.userId == null ? "gf" : "gs:" + account.userId)
+                + '\u0000' + account.password + '\u0000' + account.role);
+
+        if(credentialTtlSec > 0) {
+            if(stamps.size() >= maxCachedCredentials) {
+                stamps.clear();
+            }
+            stamps.put(username, new CachedStamp(account.userId, stamp, now + TimeUnit.SECONDS.toMillis(credentialTtlSec)));
+        }
+        return stamp;
+    }
+
+    /**
+     * @return the GSUser with the given name or, if none, the GFUser; null if none is found.
+     */
+    private Account getAccount(String username) {
+        GSUser user = getUserByName(username);
+        if(user != null) {
+            return new Account(user.getId(), user.getPassword(),
+                    ! Boolean.FALSE.equals(user.getEnabled()),
+                    user.isAdmin() ? AuthUser.Role.ADMIN : AuthUser.Role.USER);
+        }
+
+        GFUser gfUser = getGFUserByName(username);
+        if(gfUser != null) {
+            // GFUser ids are not related to the GSUser ones, and GFUser changes invalidate the whole cache
+            return new Account(null, gfUser.getPassword(), ! Boolean.FALSE.equals(gfUser.getEnabled()), AuthUser.Role.ADMIN);
+        }
+        return null;
     }
 
     private GSUser getUserByName(String userName) {
@@ -51,8 +187,203 @@ public class AuthorizationServiceImpl implements AuthorizationService {
         return users.isEmpty() ? null : users.get(0);
     }
 
+    private GFUser getGFUserByName(String userName) {
+        if(gfUserDAO == null) {
+            return null;
+        }
+        Search search = new Search(GFUser.class);
+        search.addFilterEqual("name", userName);
+        List<GFUser> users = gfUserDAO.search(search);
+        if(users.size() > 1)
+            throw new IllegalStateException("Found more than one GFUser with name '"+userName+"'");
+
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    /**
+     * Drops the cached credentials of the changed users.
+     */
+    @Override
+    public void invalidate(InvalidationEvent event, boolean remote) {
+        if(event.getType() != InvalidationEvent.Type.USER) {
+            return;
+        }
+        if(event.getId() == null) {
+            credentials.clear();
+            stamps.clear();
+            return;
+        }
+        for (Iterator<CachedStamp> it = stamps.values().iterator(); it.hasNext();) {
+            Long userId = it.next().userId;
+            if(userId == null || event.getId().equals(userId)) {
+                it.remove();
+            }
+        }
+        for (Iterator<CachedAuth> it = credentials.values().iterator(); it.hasNext();) {
+            Long userId = it.next().userId;
+            // GFUser entries are dropped too, since a GSUser may now shadow them
+            if(userId == null || event.getId().equals(userId)) {
+                it.remove();
+            }
+        }
+    }
+
+    private boolean isLockedOut(String username, long now) {
+        Failures f = failures.get(username);
+        if(f == null) {
+            return false;
+        }
+        if(now - f.windowStart > TimeUnit.SECONDS.toMillis(failureWindowSec)) {
+            failures.remove(username, f);
+            return false;
+        }
+        return f.count >= maxFailures;
+    }
+
+    private void addFailure(String username, long now) {
+        if(maxFailures <= 0) {
+            return;
+        }
+
+        final long window = TimeUnit.SECONDS.toMillis(failureWindowSec);
+        if(now - lastFailureSweep > window) {
+            lastFailureSweep = now;
+            sweepFailures(now, false);
+        }
+        if(failures.size() >= maxTrackedFailures && ! failures.containsKey(username)) {
+            sweepFailures(now, true);
+            if(failures.size() >= maxTrackedFailures) {
+                LOGGER.warn("Too many users with failed login attempts, not tracking " + username);
+                return;
+            }
+        }
+
+        Failures f = failures.compute(username, (k, old) ->
+                old == null || now - old.windowStart > window ?
+                    new Failures(now, 1) :
+                    new Failures(old.windowStart, old.count + 1));
+        if(f.count == maxFailures) {
+            LOGGER.warn("Too many failed login attempts for user " + username + ", rejecting further attempts for " + failureWindowSec + "s");
+        }
+    }
+
+    /**
+     * Removes the expired failures.
+     * @param all also remove the users not locked out yet
+     */
+    private void sweepFailures(long now, boolean all) {
+        final long window = TimeUnit.SECONDS.toMillis(failureWindowSec);
+        for (Map.Entry<String, Failures> entry : failures.entrySet()) {
+            Failures f = entry.getValue();
+            if(now - f.windowStart > window || (all && f.count < maxFailures)) {
+                failures.remove(entry.getKey(), f);
+            }
+        }
+    }
+
+    /**
+     * @return the number of usernames whose failed attempts are tracked.
+     */
+    int getTrackedFailures() {
+        return failures.size();
+    }
+
+    private void purgeExpired(long now) {
+        for (Iterator<CachedAuth> it = credentials.values().iterator(); it.hasNext();) {
+            if(it.next().expires <= now) {
+                it.remove();
+            }
+        }
+        if(credentials.size() >= maxCachedCredentials) {
+            credentials.clear();
+        }
+    }
+
+    private static class CachedAuth {
+        final Long userId;
+        final String username;
+        final AuthUser.Role role;
+        final long expires;
+
+        CachedAuth(Long userId, String username, AuthUser.Role role, long expires) {
+            this.userId = userId;
+            this.username = username;
+            this.role = role;
+            this.expires = expires;
+        }
+    }
+
+    private static class CachedStamp {
+        final Long userId;
+        final String stamp;
+        final long expires;
+
+        CachedStamp(Long userId, String stamp, long expires) {
+            this.userId = userId;
+            this.stamp = stamp;
+            this.expires = expires;
+        }
+    }
+
+    private static class Account {
+        final Long userId;
+        final String password;
+        final boolean enabled;
+        final AuthUser.Role role;
+
+        Account(Long userId, String password, boolean enabled, AuthUser.Role role) {
+            this.userId = userId;
+            this.password = password;
+            this.enabled = enabled;
+            this.role = role;
+        }
+    }
+
+    private static class Failures {
+        final long windowStart;
+        final int count;
+
+        Failures(long windowStart, int count) {
+            this.windowStart = windowStart;
+            this.count = count;
+        }
+    }
+
     public void setGsUserDAO(GSUserDAO userDAO) {
         this.userDAO = userDAO;
     }
 
+    public void setGfUserDAO(GFUserDAO gfUserDAO) {
+        this.gfUserDAO = gfUserDAO;
+    }
+
+    /**
+     * How long verified credentials are cached; 0 disables the cache.
+     */
+    public void setCredentialTtlSec(long credentialTtlSec) {
+        this.credentialTtlSec = credentialTtlSec;
+    }
+
+    public void setMaxCachedCredentials(int maxCachedCredentials) {
+        this.maxCachedCredentials = maxCachedCredentials;
+    }
+
+    /**
+     * Max failed attempts per user within the failure window; 0 disables the check.
+     */
+    public void setMaxFailures(int maxFailures) {
+        this.maxFailures = maxFailures;
+    }
+
+    public void setFailureWindowSec(long failureWindowSec) {
+        this.failureWindowSec = failureWindowSec;
+    }
+
+    /**
+     * Max number of usernames whose failed attempts are tracked.
+     */
+    public void setMaxTrackedFailures(int maxTrackedFailures) {
+        this.maxTrackedFailures = maxTrackedFailures;
+    }
+
 }
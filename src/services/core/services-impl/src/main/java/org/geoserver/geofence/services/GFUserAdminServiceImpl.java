@@ -16,6 +16,8 @@ import org.apache.log4j.Logger;
 
 import org.geoserver.geofence.core.dao.GFUserDAO;
 import org.geoserver.geofence.core.model.GFUser;
+import org.geoserver.geofence.services.cache.CacheInvalidationBus;
+import org.geoserver.geofence.services.cache.InvalidationEvent;
 import org.geoserver.geofence.services.exception.BadRequestServiceEx;
 import org.geoserver.geofence.services.exception.NotFoundServiceEx;
 
@@ -28,11 +30,13 @@ public class GFUserAdminServiceImpl implements GFUserAdminService {
     private final static Logger LOGGER = LogManager.getLogger(GFUserAdminServiceImpl.class);
 
     private GFUserDAO gfUserDAO;
+    private CacheInvalidationBus invalidationBus;
 
     // ==========================================================================
     @Override
     public long insert(GFUser user) {
         gfUserDAO.persist(user);
+        notifyChanged();
         return user.getId();
     }
 
@@ -44,6 +48,7 @@ public class GFUserAdminServiceImpl implements GFUserAdminService {
         }
 
         gfUserDAO.merge(user);
+        notifyChanged();
         return orig.getId();
     }
 
@@ -77,7 +82,9 @@ public class GFUserAdminServiceImpl implements GFUserAdminService {
     @Override
     public boolean delete(long id) throws NotFoundServiceEx {
         // data on ancillary tables should be deleted by cascading
-        return gfUserDAO.removeById(id);
+        boolean ret = gfUserDAO.removeById(id);
+        notifyChanged();
+        return ret;
     }
 
     @Override
@@ -122,6 +129,16 @@ public class GFUserAdminServiceImpl implements GFUserAdminService {
 
     // ==========================================================================
 
+    /**
+     * GFUser ids are not related to the GSUser ones carried by USER events,
+     * so the whole user cache is invalidated.
+     */
+    private void notifyChanged() {
+        if (invalidationBus != null) {
+            invalidationBus.changed(InvalidationEvent.Type.USER, null);
+        }
+    }
+
     private List<ShortUser> convertToShortList(List<GFUser> list) {
         List<ShortUser> swList = new ArrayList<ShortUser>(list.size());
         for (GFUser user : list) {
@@ -137,4 +154,8 @@ public class GFUserAdminServiceImpl implements GFUserAdminService {
         this.gfUserDAO = userDao;
     }
 
+    public void setInvalidationBus(CacheInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
+
 }
@@ -10,9 +10,13 @@ import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.geoserver.geofence.core.dao.GSInstanceDAO;
 import org.geoserver.geofence.core.model.GSInstance;
+import org.geoserver.geofence.services.cache.CacheInvalidationBus;
+import org.geoserver.geofence.services.cache.InvalidationEvent;
+import org.geoserver.geofence.services.dto.InstanceStatus;
 import org.geoserver.geofence.services.dto.ShortInstance;
 import org.geoserver.geofence.services.exception.BadRequestServiceEx;
 import org.geoserver.geofence.services.exception.NotFoundServiceEx;
+import org.geoserver.geofence.services.monitor.GSInstanceMonitor;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -25,11 +29,14 @@ public class InstanceAdminServiceImpl implements InstanceAdminService {
     private final static Logger LOGGER = LogManager.getLogger(InstanceAdminServiceImpl.class);
 
     private GSInstanceDAO instanceDAO;
+    private CacheInvalidationBus invalidationBus;
+    private GSInstanceMonitor instanceMonitor;
 
     // ==========================================================================
     @Override
     public long insert(GSInstance instance) {
         instanceDAO.persist(instance);
+        notifyChanged(instance.getId());
         return instance.getId();
     }
 
@@ -41,6 +48,7 @@ public class InstanceAdminServiceImpl implements InstanceAdminService {
         }
 
         instanceDAO.merge(instance);
+        notifyChanged(orig.getId());
         return orig.getId();
     }
 
@@ -79,7 +87,9 @@ public class InstanceAdminServiceImpl implements InstanceAdminService {
         }
 
         // data on ancillary tables should be deleted by cascading
-        return instanceDAO.remove(instance);
+        boolean ret = instanceDAO.remove(instance);
+        notifyChanged(id);
+        return ret;
     }
 
     @Override
@@ -134,12 +144,49 @@ public class InstanceAdminServiceImpl implements InstanceAdminService {
         return instanceDAO.count(searchCriteria);
     }
 
+    @Override
+    public List<InstanceStatus> getStatusList() {
+        List<GSInstance> instances = getFullList(null, null, null);
+        List<InstanceStatus> ret = new ArrayList<>(instances.size());
+        for (GSInstance instance : instances) {
+            ret.add(toStatus(instance));
+        }
+        return ret;
+    }
+
+    @Override
+    public InstanceStatus getStatus(long id) throws NotFoundServiceEx {
+        return toStatus(get(id));
+    }
+
+    private InstanceStatus toStatus(GSInstance instance) {
+        return instanceMonitor != null ?
+                instanceMonitor.getStatus(instance) :
+                new InstanceStatus(instance.getId(), instance.getName(), instance.getBaseURL());
+    }
+
+    // ==========================================================================
+
+    private void notifyChanged(Long instanceId) {
+        if (invalidationBus != null) {
+            invalidationBus.changed(InvalidationEvent.Type.INSTANCE, instanceId);
+        }
+    }
+
     // ==========================================================================
 
     public void setInstanceDAO(GSInstanceDAO instanceDAO) {
         this.instanceDAO = instanceDAO;
     }
 
+    public void setInvalidationBus(CacheInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
+
+    public void setInstanceMonitor(GSInstanceMonitor instanceMonitor) {
+        this.instanceMonitor = instanceMonitor;
+    }
+
     // ==========================================================================
 
 }
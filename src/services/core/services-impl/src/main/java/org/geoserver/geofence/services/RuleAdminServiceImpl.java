@@ -7,6 +7,7 @@ package org.geoserver.geofence.services;
 
 import com.googlecode.genericdao.search.Filter;
 import com.googlecode.genericdao.search.Search;
+import com.vividsolutions.jts.geom.Geometry;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.geoserver.geofence.core.dao.LayerDetailsDAO;
@@ -18,6 +19,9 @@ import org.geoserver.geofence.core.model.Rule;
 import org.geoserver.geofence.core.model.RuleLimits;
 import org.geoserver.geofence.core.model.enums.GrantType;
 import org.geoserver.geofence.core.model.enums.InsertPosition;
+import org.geoserver.geofence.services.cache.CacheInvalidationBus;
+import org.geoserver.geofence.services.cache.InvalidationEvent;
+import org.geoserver.geofence.services.cache.RuleAreaIndex;
 import org.geoserver.geofence.services.dto.RuleFilter;
 import org.geoserver.geofence.services.dto.ShortRule;
 import org.geoserver.geofence.services.exception.BadRequestServiceEx;
@@ -44,6 +48,8 @@ public class RuleAdminServiceImpl implements RuleAdminService {
     private RuleDAO ruleDAO;
     private RuleLimitsDAO limitsDAO;
     private LayerDetailsDAO detailsDAO;
+    private CacheInvalidationBus invalidationBus;
+    private RuleAreaIndex ruleAreaIndex;
 
     // =========================================================================
     // Basic operations
@@ -53,6 +59,8 @@ public class RuleAdminServiceImpl implements RuleAdminService {
     public long insert(Rule rule) {
         sanitizeFields(rule);
         ruleDAO.persist(rule);
+        // inserting may shift other rules' priority
+        notifyChanged(null);
         return rule.getId();
     }
 
@@ -60,6 +68,7 @@ public class RuleAdminServiceImpl implements RuleAdminService {
     public long insert(Rule rule, InsertPosition position) {
         sanitizeFields(rule);
         ruleDAO.persist(rule, position);
+        notifyChanged(null);
         return rule.getId();
     }
 
@@ -79,6 +88,7 @@ public class RuleAdminServiceImpl implements RuleAdminService {
             limitsDAO.remove(orig.getRuleLimits());
 
         ruleDAO.merge(rule);
+        notifyChanged(orig.getId());
         return orig.getId();
     }
 
@@ -94,12 +104,17 @@ public class RuleAdminServiceImpl implements RuleAdminService {
 
     @Override
     public int shift(long priorityStart, long offset) {
-        return ruleDAO.shift(priorityStart, offset);
+        int ret = ruleDAO.shift(priorityStart, offset);
+        if (ret > 0) {
+            notifyChanged(null);
+        }
+        return ret;
     }
 
     @Override
     public void swap(long id1, long id2) {
         ruleDAO.swap(id1, id2);
+        notifyChanged(null);
     }
 
 
@@ -138,7 +153,9 @@ public class RuleAdminServiceImpl implements RuleAdminService {
         }
 
         // data on ancillary tables should be deleted by cascading
-        return ruleDAO.remove(rule);
+        boolean ret = ruleDAO.remove(rule);
+        notifyChanged(id);
+        return ret;
     }
 
     @Override
@@ -146,7 +163,7 @@ public class RuleAdminServiceImpl implements RuleAdminService {
         Search searchCriteria = new Search(Rule.class);
         searchCriteria.addFilter(Filter.equal("username", username));
 
-        List<Rule> list = ruleDAO.search(searchCriteria);
+        List<Rule> list = ruleDAO.searchShallow(searchCriteria);
         if (LOGGER.isInfoEnabled())
             LOGGER.info("Removing " + list.size() + " rules for user " + username);
         for (Rule rule : list) {
@@ -154,6 +171,9 @@ public class RuleAdminServiceImpl implements RuleAdminService {
                 LOGGER.info("Removing rule for user " + username + ": " + rule);
             ruleDAO.remove(rule);
         }
+        if ( ! list.isEmpty()) {
+            notifyChanged(null);
+        }
     }
 
     @Override
@@ -161,12 +181,15 @@ public class RuleAdminServiceImpl implements RuleAdminService {
         Search searchCriteria = new Search(Rule.class);
         searchCriteria.addFilter(Filter.equal("rolename", rolename));
 
-        List<Rule> list = ruleDAO.search(searchCriteria);
+        List<Rule> list = ruleDAO.searchShallow(searchCriteria);
         for (Rule rule : list) {
             if (LOGGER.isInfoEnabled())
                 LOGGER.info("Removing rule for role " + rolename + ": " + rule);
             ruleDAO.remove(rule);
         }
+        if ( ! list.isEmpty()) {
+            notifyChanged(null);
+        }
     }
 
     @Override
@@ -174,18 +197,21 @@ public class RuleAdminServiceImpl implements RuleAdminService {
         Search searchCriteria = new Search(Rule.class);
         searchCriteria.addFilter(Filter.equal("instance.id", instanceId));
 
-        List<Rule> list = ruleDAO.search(searchCriteria);
+        List<Rule> list = ruleDAO.searchShallow(searchCriteria);
         for (Rule rule : list) {
             if (LOGGER.isInfoEnabled())
                 LOGGER.info("Removing rule for instance " + instanceId + ": " + rule);
             ruleDAO.remove(rule);
         }
+        if ( ! list.isEmpty()) {
+            notifyChanged(null);
+        }
     }
 
 
     @Override
     public List<ShortRule> getAll() {
-        List<Rule> found = ruleDAO.findAll();
+        List<Rule> found = ruleDAO.searchShallow(new Search(Rule.class));
         return convertToShortList(found);
     }
 
@@ -235,14 +261,14 @@ public class RuleAdminServiceImpl implements RuleAdminService {
     public List<ShortRule> getList(RuleFilter filter, Integer page, Integer entries) {
         Search searchCriteria = buildSearch(page, entries, filter);
 
-        List<Rule> found = ruleDAO.search(searchCriteria);
+        List<Rule> found = ruleDAO.searchShallow(searchCriteria);
         return convertToShortList(found);
     }
 
     @Override
     public ShortRule getRule(RuleFilter filter) throws BadRequestServiceEx {
         Search searchCriteria = buildFixedRuleSearch(filter);
-        List<Rule> found = ruleDAO.search(searchCriteria);
+        List<Rule> found = ruleDAO.searchShallow(searchCriteria);
         if (found.isEmpty())
             return null;
 
@@ -259,7 +285,7 @@ public class RuleAdminServiceImpl implements RuleAdminService {
         searchCriteria.addFilter(Filter.greaterOrEqual("priority", priority));
         searchCriteria.addSortAsc("priority");
         addPagingConstraints(searchCriteria, page, entries);
-        List<Rule> found = ruleDAO.search(searchCriteria);
+        List<Rule> found = ruleDAO.searchShallow(searchCriteria);
         return convertToShortList(found);
     }
 
@@ -267,7 +293,7 @@ public class RuleAdminServiceImpl implements RuleAdminService {
     public ShortRule getRuleByPriority(long priority) throws BadRequestServiceEx {
         Search searchCriteria = new Search(Rule.class);
         searchCriteria.addFilter(Filter.equal("priority", priority));
-        List<Rule> found = ruleDAO.search(searchCriteria);
+        List<Rule> found = ruleDAO.searchShallow(searchCriteria);
         if (found.isEmpty())
             return null;
 
@@ -285,6 +311,20 @@ public class RuleAdminServiceImpl implements RuleAdminService {
         return found;
     }
 
+    @Override
+    public List<ShortRule> getListByArea(Geometry geometry) {
+        Set<Long> ids = ruleAreaIndex.queryIntersecting(geometry);
+        if(ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Search searchCriteria = new Search(Rule.class);
+        searchCriteria.addFilterIn("id", ids);
+        searchCriteria.addSortAsc("priority");
+        List<Rule> found = ruleDAO.searchShallow(searchCriteria);
+        return convertToShortList(found);
+    }
+
     protected Search buildSearch(Integer page, Integer entries, RuleFilter filter) throws BadRequestServiceEx {
         Search searchCriteria = buildRuleSearch(filter);
         addPagingConstraints(searchCriteria, page, entries);
@@ -375,6 +415,7 @@ public class RuleAdminServiceImpl implements RuleAdminService {
             LOGGER.info("Removing limits for " + rule);
             // TODO: remove limits (already removed above?)
         }
+        notifyChanged(ruleId);
     }
 
     // =========================================================================
@@ -465,6 +506,7 @@ public class RuleAdminServiceImpl implements RuleAdminService {
         } else {
             LOGGER.info("Removing details for " + rule);
         }
+        notifyChanged(ruleId);
     }
 
 
@@ -479,6 +521,7 @@ public class RuleAdminServiceImpl implements RuleAdminService {
         }
 
         detailsDAO.setAllowedStyles(ruleId, styles);
+        notifyChanged(ruleId);
     }
 
     @Override
@@ -496,6 +539,12 @@ public class RuleAdminServiceImpl implements RuleAdminService {
 
     // ==========================================================================
 
+    private void notifyChanged(Long ruleId) {
+        if (invalidationBus != null) {
+            invalidationBus.changed(InvalidationEvent.Type.RULE, ruleId);
+        }
+    }
+
     private List<ShortRule> convertToShortList(List<Rule> list) {
         List<ShortRule> shortList = new ArrayList<ShortRule>(list.size());
         for (Rule rule : list) {
@@ -519,4 +568,12 @@ public class RuleAdminServiceImpl implements RuleAdminService {
         this.detailsDAO = detailsDAO;
     }
 
+    public void setInvalidationBus(CacheInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
+
+    public void setRuleAreaIndex(RuleAreaIndex ruleAreaIndex) {
+        this.ruleAreaIndex = ruleAreaIndex;
+    }
+
 }
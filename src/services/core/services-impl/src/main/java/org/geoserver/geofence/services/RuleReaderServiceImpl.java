@@ -5,11 +5,10 @@
 
 package org.geoserver.geofence.services;
 
-import com.googlecode.genericdao.search.Filter;
-import com.googlecode.genericdao.search.Search;
 import com.vividsolutions.jts.geom.Geometry;
 import org.geoserver.geofence.core.dao.LayerDetailsDAO;
 import org.geoserver.geofence.core.dao.RuleDAO;
+import org.geoserver.geofence.core.dao.util.MatchingQuery;
 import org.geoserver.geofence.core.model.LayerAttribute;
 import org.geoserver.geofence.core.model.LayerDetails;
 import org.geoserver.geofence.core.model.Rule;
@@ -17,7 +16,13 @@ import org.geoserver.geofence.core.model.RuleLimits;
 import org.geoserver.geofence.core.model.enums.AccessType;
 import org.geoserver.geofence.core.model.enums.CatalogMode;
 import org.geoserver.geofence.core.model.enums.GrantType;
+import org.geoserver.geofence.services.dto.AccessExplanation;
+import org.geoserver.geofence.services.dto.AccessExplanation.RoleExplanation;
+import org.geoserver.geofence.services.dto.AccessExplanation.Stage;
 import org.geoserver.geofence.services.dto.AccessInfo;
+import org.geoserver.geofence.services.dto.AdministrableWorkspaces;
+import org.geoserver.geofence.services.dto.AccessibleLayers;
+import org.geoserver.geofence.services.dto.AccessibleLayers.LayerAccess;
 import org.geoserver.geofence.services.dto.AuthUser;
 import org.geoserver.geofence.services.dto.RuleFilter;
 import org.geoserver.geofence.services.dto.RuleFilter.FilterType;
@@ -25,19 +30,31 @@ import org.geoserver.geofence.services.dto.RuleFilter.IdNameFilter;
 import org.geoserver.geofence.services.dto.RuleFilter.TextFilter;
 import org.geoserver.geofence.services.dto.RuleFilter.SpecialFilterType;
 import org.geoserver.geofence.services.dto.ShortRule;
+import org.geoserver.geofence.services.dto.UserPolicy;
+import org.geoserver.geofence.services.dto.UserPolicy.Details;
+import org.geoserver.geofence.services.dto.UserPolicy.Limits;
+import org.geoserver.geofence.services.dto.UserPolicy.PolicyRule;
+import org.geoserver.geofence.services.dto.UserPolicy.RolePolicy;
+import org.geoserver.geofence.services.cache.AdminRuleIndex;
+import org.geoserver.geofence.services.cache.RulesetVersionTracker;
 import org.geoserver.geofence.services.exception.BadRequestServiceEx;
 import org.geoserver.geofence.services.util.AccessInfoInternal;
+import org.geoserver.geofence.services.util.CQLUnion;
 import org.geoserver.geofence.spi.UserResolver;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
@@ -65,6 +82,8 @@ public class RuleReaderServiceImpl implements RuleReaderService {
 
     private UserResolver userResolver;
     private AuthorizationService authorizationService;
+    private RulesetVersionTracker rulesetVersionTracker;
+    private AdminRuleIndex adminRuleIndex;
 
     /**
      * @deprecated
@@ -122,26 +141,57 @@ public class RuleReaderServiceImpl implements RuleReaderService {
 
     @Override
     public AccessInfo getAccessInfo(RuleFilter filter)
+    {
+        return getAccessInfo(filter, null);
+    }
+
+    @Override
+    public AccessExplanation explainAccessInfo(RuleFilter filter)
+    {
+        AccessExplanation explanation = new AccessExplanation(filter.toString());
+        long start = System.nanoTime();
+        // the filter may be altered while validating user and roles
+        AccessInfo accessInfo = getAccessInfo(filter.clone(), explanation);
+        explanation.setAccessInfo(accessInfo);
+        explanation.setTotalNanos(System.nanoTime() - start);
+
+        if(LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Explained " + explanation);
+        }
+        return explanation;
+    }
+
+    /**
+     * @param explanation if not null, will collect the evaluation trace
+     */
+    private AccessInfo getAccessInfo(RuleFilter filter, AccessExplanation explanation)
     {
         LOGGER.info("Requesting access for " + filter);
-        Map<String, List<Rule>> groupedRules = getRules(filter);
+        Map<String, List<Rule>> groupedRules = getRules(filter, explanation);
 
         AccessInfoInternal currAccessInfo = null;
         
         for (Entry<String, List<Rule>> ruleGroup : groupedRules.entrySet()) {
             String role = ruleGroup.getKey();
             List<Rule> rules = ruleGroup.getValue();
+            RoleExplanation roleExplanation = explanation == null ? null : explanation.findRole(role);
 
-            AccessInfoInternal accessInfo = resolveRuleset(rules);
+            AccessInfoInternal accessInfo = resolveRuleset(rules, explanation, roleExplanation);
             if(LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Filter " + filter + " on role " + role + " has access " + accessInfo);
             }
 
-            currAccessInfo = enlargeAccessInfo(currAccessInfo, accessInfo);
+            currAccessInfo = enlargeAccessInfo(currAccessInfo, accessInfo, explanation);
+
+            if(roleExplanation != null) {
+                roleExplanation.setRoleAccess(accessInfo == null ? null : accessInfo.toAccessInfo());
+                roleExplanation.setEnlargedAccess(currAccessInfo == null ? null : currAccessInfo.toAccessInfo());
+            }
         }
 
         AccessInfo ret;
 
+        long start = System.nanoTime();
         if(currAccessInfo == null) {
             LOGGER.warn("No access for filter " + filter);
             // Denying by default
@@ -149,9 +199,10 @@ public class RuleReaderServiceImpl implements RuleReaderService {
         } else {
             ret = currAccessInfo.toAccessInfo();
         }
+        lap(explanation, Stage.CONVERSION, start);
 
         if(ret.getGrant() == GrantType.ALLOW) {
-            ret.setAdminRights(getAdminAuth(filter));
+            ret.setAdminRights(getAdminAuth(filter, explanation));
         }
 
         LOGGER.info("Returning " + ret + " for " + filter);
@@ -162,11 +213,297 @@ public class RuleReaderServiceImpl implements RuleReaderService {
     public AccessInfo getAdminAuthorization(RuleFilter filter)
     {
         AccessInfo ret = new AccessInfo(GrantType.ALLOW);
-        ret.setAdminRights(getAdminAuth(filter));
+        ret.setAdminRights(getAdminAuth(filter, null));
         return ret;
     }
 
-    private AccessInfoInternal enlargeAccessInfo(AccessInfoInternal baseAccess, AccessInfoInternal moreAccess)
+    @Override
+    public AccessibleLayers getAccessibleLayers(RuleFilter filter)
+    {
+        // the filter may be altered while validating user and roles
+        RuleFilter layersFilter = filter.clone();
+        layersFilter.setWorkspace(SpecialFilterType.ANY);
+        layersFilter.setLayer(SpecialFilterType.ANY);
+
+        LOGGER.info("Requesting accessible layers for " + layersFilter);
+        Map<String, List<Rule>> groupedRules = getRules(layersFilter);
+
+        // Group the rules of each role by workspace/layer, and collect the names
+        // used in the rules: only the named layers may have an access different
+        // from the one of their workspace
+        Set<String> workspaces = new TreeSet<>();
+        Map<String, Set<String>> layerNames = new HashMap<>(); // the null key holds the layers in any workspace
+        List<Map<LayerKey, List<Rule>>> roleRules = new ArrayList<>(groupedRules.size());
+
+        for (List<Rule> rules : groupedRules.values()) {
+            Map<LayerKey, List<Rule>> byLayer = new HashMap<>();
+            for (Rule rule : rules) {
+                byLayer.computeIfAbsent(new LayerKey(rule.getWorkspace(), rule.getLayer()), k -> new ArrayList<>()).add(rule);
+                if(rule.getWorkspace() != null) {
+                    workspaces.add(rule.getWorkspace());
+                }
+                if(rule.getLayer() != null) {
+                    layerNames.computeIfAbsent(rule.getWorkspace(), k -> new TreeSet<>()).add(rule.getLayer());
+                }
+            }
+            roleRules.add(byLayer);
+        }
+
+        // default entries come first, so that redundant layer entries can be skipped
+        Set<String> anyWsLayers = layerNames.getOrDefault(null, Collections.<String>emptySet());
+        Set<LayerKey> keys = new LinkedHashSet<>();
+        keys.add(new LayerKey(null, null));
+        for (String ws : workspaces) {
+            keys.add(new LayerKey(ws, null));
+        }
+        for (String layer : anyWsLayers) {
+            keys.add(new LayerKey(null, layer));
+        }
+        for (String ws : workspaces) {
+            for (String layer : anyWsLayers) {
+                keys.add(new LayerKey(ws, layer));
+            }
+            for (String layer : layerNames.getOrDefault(ws, Collections.<String>emptySet())) {
+                keys.add(new LayerKey(ws, layer));
+            }
+        }
+
+        AccessibleLayers ret = new AccessibleLayers(filter.toString());
+        Map<Long, CatalogMode> detailsModes = new HashMap<>();
+        Map<String, AccessInfoInternal> wsDefaults = new HashMap<>();
+
+        for (LayerKey key : keys) {
+            AccessInfoInternal access = null;
+            for (Map<LayerKey, List<Rule>> byLayer : roleRules) {
+                access = enlargeLayerAccess(access, resolveLayer(byLayer, key, detailsModes));
+            }
+            if(access == null) {
+                // Denying by default
+                access = new AccessInfoInternal(GrantType.DENY);
+            }
+
+            if(key.layer == null) {
+                wsDefaults.put(key.workspace, access);
+            } else {
+                AccessInfoInternal wsDefault = wsDefaults.get(key.workspace);
+                if(wsDefault.getGrant() == access.getGrant() && wsDefault.getCatalogMode() == access.getCatalogMode()) {
+                    continue; // same as the workspace default
+                }
+            }
+
+            ret.add(new LayerAccess(key.workspace, key.layer, access.getGrant(),
+                    AccessInfoInternal.mapCatalogModeDTO(access.getCatalogMode())));
+        }
+
+        LOGGER.info("Returning " + ret.getLayers().size() + " layer entries for " + layersFilter);
+        return ret;
+    }
+
+    /**
+     * Resolves the access to a workspace/layer pair, by considering all the rules
+     * of a role that match it, in priority order.
+     * A null workspace or layer stands for any name not used in the rules.
+     */
+    private AccessInfoInternal resolveLayer(Map<LayerKey, List<Rule>> byLayer, LayerKey key, Map<Long, CatalogMode> detailsModes) {
+
+        List<Rule> rules = new ArrayList<>();
+        addRules(rules, byLayer, null, null);
+        if(key.layer != null) {
+            addRules(rules, byLayer, null, key.layer);
+        }
+        if(key.workspace != null) {
+            addRules(rules, byLayer, key.workspace, null);
+            if(key.layer != null) {
+                addRules(rules, byLayer, key.workspace, key.layer);
+            }
+        }
+        rules.sort(Comparator.comparingLong(Rule::getPriority));
+
+        CatalogMode cmode = null;
+        for (Rule rule : rules) {
+            switch(rule.getAccess()) {
+                case LIMIT:
+                    RuleLimits rl = rule.getRuleLimits();
+                    if(rl != null) {
+                        cmode = getStricter(cmode, rl.getCatalogMode());
+                    }
+                    break;
+
+                case DENY:
+                    return new AccessInfoInternal(GrantType.DENY);
+
+                case ALLOW:
+                    AccessInfoInternal ret = new AccessInfoInternal(GrantType.ALLOW);
+                    ret.setCatalogMode(getStricter(cmode, getDetailsCatalogMode(rule, detailsModes)));
+                    return ret;
+
+                default:
+                    throw new IllegalStateException("Unknown GrantType " + rule.getAccess());
+            }
+        }
+        return null;
+    }
+
+    private static void addRules(List<Rule> rules, Map<LayerKey, List<Rule>> byLayer, String workspace, String layer) {
+        List<Rule> found = byLayer.get(new LayerKey(workspace, layer));
+        if(found != null) {
+            rules.addAll(found);
+        }
+    }
+
+    /**
+     * Details are loaded once per rule, since the same rule may decide many layers.
+     */
+    private CatalogMode getDetailsCatalogMode(Rule rule, Map<Long, CatalogMode> detailsModes) {
+        if(rule.getLayerDetails() == null) {
+            return null;
+        }
+        if( ! detailsModes.containsKey(rule.getId())) {
+            LayerDetails details = detailsDAO.find(rule.getId());
+            detailsModes.put(rule.getId(), details == null ? null : details.getCatalogMode());
+        }
+        return detailsModes.get(rule.getId());
+    }
+
+    /**
+     * Same as {@link #enlargeAccessInfo(AccessInfoInternal, AccessInfoInternal, AccessExplanation) enlargeAccessInfo},
+     * only considering the grant and the catalog mode.
+     */
+    private static AccessInfoInternal enlargeLayerAccess(AccessInfoInternal baseAccess, AccessInfoInternal moreAccess) {
+        if(moreAccess == null || moreAccess.getGrant() != GrantType.ALLOW) {
+            return baseAccess;
+        }
+        if(baseAccess == null) {
+            return moreAccess;
+        }
+        AccessInfoInternal ret = new AccessInfoInternal(GrantType.ALLOW);
+        ret.setCatalogMode(getLarger(baseAccess.getCatalogMode(), moreAccess.getCatalogMode()));
+        return ret;
+    }
+
+    @Override
+    public UserPolicy getUserPolicy(RuleFilter filter)
+    {
+        // read the version before the rules: a concurrent change will make the policy look stale
+        String version = getRulesetVersion();
+
+        // the filter may be altered while validating user and roles
+        RuleFilter policyFilter = filter.clone();
+        policyFilter.setSourceAddress(SpecialFilterType.ANY);
+        policyFilter.setService(SpecialFilterType.ANY);
+        policyFilter.setRequest(SpecialFilterType.ANY);
+        policyFilter.setWorkspace(SpecialFilterType.ANY);
+        policyFilter.setLayer(SpecialFilterType.ANY);
+
+        LOGGER.info("Requesting policy for " + policyFilter);
+        Map<String, List<Rule>> groupedRules = getRules(policyFilter);
+
+        UserPolicy ret = new UserPolicy(version, filter.toString());
+        Map<Long, PolicyRule> converted = new HashMap<>();
+        for (Entry<String, List<Rule>> ruleGroup : groupedRules.entrySet()) {
+            RolePolicy rolePolicy = new RolePolicy(ruleGroup.getKey());
+            for (Rule rule : ruleGroup.getValue()) {
+                // rules not bound to a role are shared by all the roles
+                PolicyRule policyRule = converted.get(rule.getId());
+                if(policyRule == null) {
+                    policyRule = toPolicyRule(rule);
+                    converted.put(rule.getId(), policyRule);
+                }
+                rolePolicy.getRules().add(policyRule);
+            }
+            ret.getRoles().add(rolePolicy);
+        }
+
+        LOGGER.info("Returning " + ret);
+        return ret;
+    }
+
+    @Override
+    public String getRulesetVersion()
+    {
+        return rulesetVersionTracker == null ? null : rulesetVersionTracker.getVersion();
+    }
+
+    private PolicyRule toPolicyRule(Rule rule) {
+        PolicyRule ret = new PolicyRule();
+        ret.setId(rule.getId());
+        ret.setPriority(rule.getPriority());
+        ret.setInstance(rule.getInstance() == null ? null : rule.getInstance().getName());
+        ret.setAddressRange(rule.getAddressRange() == null ? null : rule.getAddressRange().getCidrSignature());
+        ret.setService(rule.getService());
+        ret.setRequest(rule.getRequest());
+        ret.setWorkspace(rule.getWorkspace());
+        ret.setLayer(rule.getLayer());
+        ret.setAccess(rule.getAccess());
+
+        RuleLimits ruleLimits = rule.getRuleLimits();
+        if(rule.getAccess() == GrantType.LIMIT && ruleLimits != null) {
+            Limits limits = new Limits();
+            limits.setAreaWkt(ruleLimits.getAllowedArea() == null ? null : ruleLimits.getAllowedArea().toText());
+            limits.setCatalogMode(AccessInfoInternal.mapCatalogModeDTO(ruleLimits.getCatalogMode()));
+            ret.setLimits(limits);
+        }
+
+        // rules are loaded without the details collections
+        LayerDetails layerDetails = rule.getAccess() == GrantType.ALLOW && rule.getLayerDetails() != null
+                ? detailsDAO.find(rule.getId())
+                : null;
+        if(layerDetails != null) {
+            Details details = new Details();
+            details.setAreaWkt(layerDetails.getArea() == null ? null : layerDetails.getArea().toText());
+            details.setCatalogMode(AccessInfoInternal.mapCatalogModeDTO(layerDetails.getCatalogMode()));
+            details.setDefaultStyle(layerDetails.getDefaultStyle());
+            details.setCqlFilterRead(layerDetails.getCqlFilterRead());
+            details.setCqlFilterWrite(layerDetails.getCqlFilterWrite());
+            details.setAllowedStyles(layerDetails.getAllowedStyles() == null ? null : new HashSet<>(layerDetails.getAllowedStyles()));
+            details.setAttributes(layerDetails.getAttributes() == null ? null : new HashSet<>(layerDetails.getAttributes()));
+            ret.setDetails(details);
+        }
+
+        return ret;
+    }
+
+    /**
+     * A workspace/layer pair; null fields stand for "any other".
+     */
+    private static final class LayerKey {
+        private final String workspace;
+        private final String layer;
+
+        LayerKey(String workspace, String layer) {
+            this.workspace = workspace;
+            this.layer = layer;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if( ! (obj instanceof LayerKey)) {
+                return false;
+            }
+            LayerKey other = (LayerKey) obj;
+            return Objects.equals(workspace, other.workspace) && Objects.equals(layer, other.layer);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(workspace, layer);
+        }
+    }
+
+    /**
+     * Adds the time elapsed since <TT>start</TT> to the given stage.
+     *
+     * @return the current time, to be used as start for the next stage.
+     */
+    private static long lap(AccessExplanation explanation, Stage stage, long start) {
+        long now = System.nanoTime();
+        if(explanation != null) {
+            explanation.addTime(stage, now - start);
+        }
+        return now;
+    }
+
+    private AccessInfoInternal enlargeAccessInfo(AccessInfoInternal baseAccess, AccessInfoInternal moreAccess, AccessExplanation explanation)
     {
         if(baseAccess == null) {
             if(moreAccess == null)
@@ -184,8 +521,8 @@ public class RuleReaderServiceImpl implements RuleReaderService {
                 // ok: extending grants
                 AccessInfoInternal ret = new AccessInfoInternal(GrantType.ALLOW);
 
-                ret.setCqlFilterRead(unionCQL(baseAccess.getCqlFilterRead(), moreAccess.getCqlFilterRead()));
-                ret.setCqlFilterWrite(unionCQL(baseAccess.getCqlFilterWrite(), moreAccess.getCqlFilterWrite()));
+                ret.setCqlFilterRead(CQLUnion.union(baseAccess.getCqlFilterRead(), moreAccess.getCqlFilterRead()));
+                ret.setCqlFilterWrite(CQLUnion.union(baseAccess.getCqlFilterWrite(), moreAccess.getCqlFilterWrite()));
 
                 ret.setCatalogMode(getLarger(baseAccess.getCatalogMode(), moreAccess.getCatalogMode()));
 
@@ -196,20 +533,15 @@ public class RuleReaderServiceImpl implements RuleReaderService {
 
                 ret.setAllowedStyles(unionAllowedStyles(baseAccess.getAllowedStyles(), moreAccess.getAllowedStyles()));
                 ret.setAttributes(unionAttributes(baseAccess.getAttributes(), moreAccess.getAttributes()));
+                long start = System.nanoTime();
                 ret.setArea(unionGeometry(baseAccess.getArea(), moreAccess.getArea()));
+                lap(explanation, Stage.GEOMETRY, start);
 
                 return ret;
             }
         }        
     }
 
-    private String unionCQL(String c1, String c2) {
-          if(c1 == null || c2 == null)
-              return null;
-
-          return "("+c1+") OR ("+c2+")";
-    }
-
     private Geometry unionGeometry(Geometry g1, Geometry g2) {
           if(g1 == null || g2 == null)
               return null;
@@ -279,7 +611,7 @@ public class RuleReaderServiceImpl implements RuleReaderService {
         return allowedStyles;
     }
 
-    private AccessInfoInternal resolveRuleset(List<Rule> ruleList) {
+    private AccessInfoInternal resolveRuleset(List<Rule> ruleList, AccessExplanation explanation, RoleExplanation roleExplanation) {
 
         List<RuleLimits> limits = new ArrayList<>();
         AccessInfoInternal ret = null;
@@ -295,6 +627,9 @@ public class RuleReaderServiceImpl implements RuleReaderService {
                    if(rl != null) {
                        LOGGER.info("Collecting limits: " + rl);
                        limits.add(rl);
+                       if(roleExplanation != null) {
+                           roleExplanation.getLimits().add(new ShortRule(rule));
+                       }
                     } else
                        LOGGER.warn(rule + " has no associated limits");
                     break;
@@ -304,12 +639,16 @@ public class RuleReaderServiceImpl implements RuleReaderService {
                     break;
 
                 case ALLOW:
-                    ret = buildAllowAccessInfo(rule, limits, null); 
+                    ret = buildAllowAccessInfo(rule, limits, null, explanation); 
                     break;
 
                 default:
                     throw new IllegalStateException("Unknown GrantType " + rule.getAccess());
             }
+
+            if(ret != null && roleExplanation != null) {
+                roleExplanation.setDecidingRule(new ShortRule(rule));
+            }
         }
 
 //        if(ret == null) {
@@ -356,15 +695,22 @@ public class RuleReaderServiceImpl implements RuleReaderService {
         }
     }
 
-    private AccessInfoInternal buildAllowAccessInfo(Rule rule, List<RuleLimits> limits, IdNameFilter userFilter) {
+    private AccessInfoInternal buildAllowAccessInfo(Rule rule, List<RuleLimits> limits, IdNameFilter userFilter, AccessExplanation explanation) {
         AccessInfoInternal accessInfo = new AccessInfoInternal(GrantType.ALLOW);
 
+        long start = System.nanoTime();
         Geometry area = intersect(limits);
+        start = lap(explanation, Stage.GEOMETRY, start);
         CatalogMode cmode = resolveCatalogMode(limits);
 
-        LayerDetails details = rule.getLayerDetails();
+        // rules are loaded without the details collections: only the rule
+        // actually applied needs its full details
+        start = System.nanoTime();
+        LayerDetails details = rule.getLayerDetails() == null ? null : detailsDAO.find(rule.getId());
+        start = lap(explanation, Stage.DB_QUERY, start);
         if(details != null ) {
             area = intersect(area, details.getArea());
+            lap(explanation, Stage.GEOMETRY, start);
             cmode = getStricter(cmode, details.getCatalogMode());
 
             accessInfo.setAttributes(details.getAttributes());
@@ -392,11 +738,7 @@ public class RuleReaderServiceImpl implements RuleReaderService {
         for (RuleLimits limit : limits) {
             Geometry area = limit.getAllowedArea();
             if(area != null) {
-                if( g == null) {
-                    g = area;
-                } else {
-                    g = g.intersection(area);
-                }
+                g = intersect(g, area);
             }
         }
         return g;
@@ -406,6 +748,11 @@ public class RuleReaderServiceImpl implements RuleReaderService {
         if(g1!=null) {
             if(g2==null)
                 return g1;
+            // envelope pre-checks: skip the overlay when an area is a rectangle containing the other one
+            else if(isRectangle(g2) && g2.getEnvelopeInternal().covers(g1.getEnvelopeInternal()))
+                return g1;
+            else if(isRectangle(g1) && g1.getEnvelopeInternal().covers(g2.getEnvelopeInternal()))
+                return g2;
             else
                 return g1.intersection(g2);
         } else {
@@ -417,6 +764,10 @@ public class RuleReaderServiceImpl implements RuleReaderService {
         if(g1!=null) {
             if(g2==null)
                 return g1;
+            else if(isRectangle(g2) && g2.getEnvelopeInternal().covers(g1.getEnvelopeInternal()))
+                return g2;
+            else if(isRectangle(g1) && g1.getEnvelopeInternal().covers(g2.getEnvelopeInternal()))
+                return g1;
             else
                 return g1.union(g2);
         } else {
@@ -424,6 +775,13 @@ public class RuleReaderServiceImpl implements RuleReaderService {
         }
     }
 
+    /**
+     * Areas are stored as MultiPolygons, so a single rectangular Polygon is looked for.
+     */
+    private static boolean isRectangle(Geometry g) {
+        return g.getNumGeometries() == 1 && g.getGeometryN(0).isRectangle();
+    }
+
     /**
      * Returns the stricter catalog mode.
      */
@@ -481,8 +839,18 @@ public class RuleReaderServiceImpl implements RuleReaderService {
      * @return a Map having role names as keys, and the list of matching Rules as values. The NULL key holds the rules for the DEFAULT group.
      */
     protected Map<String, List<Rule>> getRules(RuleFilter filter) throws BadRequestServiceEx {
-        
+        return getRules(filter, null);
+    }
+
+    private Map<String, List<Rule>> getRules(RuleFilter filter, AccessExplanation explanation) throws BadRequestServiceEx {
+
+        long start = System.nanoTime();
         Set<String> finalRoleFilter = validateUserRoles(filter);
+        lap(explanation, Stage.ROLE_RESOLUTION, start);
+
+        if(explanation != null) {
+            explanation.setRoles(finalRoleFilter);
+        }
 
         if(finalRoleFilter == null) {
             return Collections.EMPTY_MAP; // shortcut here, in order to avoid loading the rules
@@ -491,13 +859,15 @@ public class RuleReaderServiceImpl implements RuleReaderService {
         Map<String, List<Rule>> ret = new HashMap<>();
 
         if(finalRoleFilter.isEmpty()) {
-            List<Rule> found = getRuleAux(filter, filter.getRole());
+            List<Rule> found = getRuleAux(filter, filter.getRole(), explanation,
+                    explanation == null ? null : explanation.addRole(null));
             ret.put(null, found);
         } else {
             for (String role : finalRoleFilter) {
                 TextFilter roleFilter = new TextFilter(role);
                 roleFilter.setIncludeDefault(true);
-                List<Rule> found = getRuleAux(filter, roleFilter);
+                List<Rule> found = getRuleAux(filter, roleFilter, explanation,
+                        explanation == null ? null : explanation.addRole(role));
                 ret.put(role, found);
             }
         }
@@ -592,41 +962,54 @@ public class RuleReaderServiceImpl implements RuleReaderService {
     }
 
     protected List<Rule> getRuleAux(RuleFilter filter, TextFilter roleFilter) {
-        Search searchCriteria = new Search(Rule.class);
-        searchCriteria.addSortAsc("priority");
-        addStringCriteria(searchCriteria, "username", filter.getUser());
-        addStringCriteria(searchCriteria, "rolename", roleFilter);
-        addCriteria(searchCriteria, "instance", filter.getInstance());
-        addStringCriteria(searchCriteria, "service", filter.getService()); // see class' javadoc
-        addStringCriteria(searchCriteria, "request", filter.getRequest()); // see class' javadoc
-        addStringCriteria(searchCriteria, "workspace", filter.getWorkspace());
-        addStringCriteria(searchCriteria, "layer", filter.getLayer());
-
-        List<Rule> found = ruleDAO.search(searchCriteria);
-        found = filterByAddress(filter, found);
+        return getRuleAux(filter, roleFilter, null, null);
+    }
+
+    private List<Rule> getRuleAux(RuleFilter filter, TextFilter roleFilter, AccessExplanation explanation, RoleExplanation roleExplanation) {
+        MatchingQuery query = new MatchingQuery();
+        addStringCriteria(query, "username", filter.getUser());
+        addStringCriteria(query, "rolename", roleFilter);
+        addCriteria(query, "instance", filter.getInstance());
+        addStringCriteria(query, "service", filter.getService()); // see class' javadoc
+        addStringCriteria(query, "request", filter.getRequest()); // see class' javadoc
+        addStringCriteria(query, "workspace", filter.getWorkspace());
+        addStringCriteria(query, "layer", filter.getLayer());
+
+        long start = System.nanoTime();
+        List<Rule> found = ruleDAO.searchMatching(query);
+        start = lap(explanation, Stage.DB_QUERY, start);
+
+        List<Rule> filtered = filterByAddress(filter, found);
+        lap(explanation, Stage.ADDRESS_FILTER, start);
+
+        if(roleExplanation != null) {
+            for (Rule rule : found) {
+                ShortRule shortRule = new ShortRule(rule);
+                roleExplanation.getCandidates().add(shortRule);
+                if( ! filtered.contains(rule)) {
+                    roleExplanation.getDroppedByAddress().add(shortRule);
+                }
+            }
+        }
 
-        return found;
+        return filtered;
     }
 
-    private void addCriteria(Search searchCriteria, String fieldName, IdNameFilter filter) {
+    private void addCriteria(MatchingQuery query, String fieldName, IdNameFilter filter) {
         switch (filter.getType()) {
             case ANY:
                 break; // no filtering
 
             case DEFAULT:
-                searchCriteria.addFilterNull(fieldName);
+                query.addNull(fieldName);
                 break;
 
             case IDVALUE:
-                searchCriteria.addFilterOr(
-                        Filter.isNull(fieldName),
-                        Filter.equal(fieldName + ".id", filter.getId()));
+                query.addNullOrEqual(fieldName + ".id", filter.getId());
                 break;
 
             case NAMEVALUE:
-                searchCriteria.addFilterOr(
-                        Filter.isNull(fieldName),
-                        Filter.equal(fieldName + ".name", filter.getName()));
+                query.addNullOrEqual(fieldName + ".name", filter.getName());
                 break;
 
             default:
@@ -634,19 +1017,17 @@ public class RuleReaderServiceImpl implements RuleReaderService {
         }
     }
 
-    private void addStringCriteria(Search searchCriteria, String fieldName, TextFilter filter) {
+    private void addStringCriteria(MatchingQuery query, String fieldName, TextFilter filter) {
         switch (filter.getType()) {
             case ANY:
                 break; // no filtering
 
             case DEFAULT:
-                searchCriteria.addFilterNull(fieldName);
+                query.addNull(fieldName);
                 break;
 
             case NAMEVALUE:
-                searchCriteria.addFilterOr(
-                        Filter.isNull(fieldName),
-                        Filter.equal(fieldName, filter.getText()));
+                query.addNullOrEqual(fieldName, filter.getText());
                 break;
 
             case IDVALUE:
@@ -700,10 +1081,23 @@ public class RuleReaderServiceImpl implements RuleReaderService {
         this.authorizationService = authorizationService;
     }
 
+    public void setRulesetVersionTracker(RulesetVersionTracker rulesetVersionTracker) {
+        this.rulesetVersionTracker = rulesetVersionTracker;
+    }
+
+    /**
+     * If set, AdminRules are evaluated in memory instead of being queried on each request.
+     */
+    public void setAdminRuleIndex(AdminRuleIndex adminRuleIndex) {
+        this.adminRuleIndex = adminRuleIndex;
+    }
+
 
 
-    private boolean getAdminAuth(RuleFilter filter) {
+    private boolean getAdminAuth(RuleFilter filter, AccessExplanation explanation) {
+        long start = System.nanoTime();
         Set<String> finalRoleFilter = validateUserRoles(filter);
+        lap(explanation, Stage.ROLE_RESOLUTION, start);
 
         if(finalRoleFilter == null) {
             return false;
@@ -712,13 +1106,13 @@ public class RuleReaderServiceImpl implements RuleReaderService {
         boolean isAdmin = false;
 
         if(finalRoleFilter.isEmpty()) {
-            AdminRule rule = getAdminAuthAux(filter, filter.getRole());
+            AdminRule rule = getAdminAuthAux(filter, filter.getRole(), explanation);
             isAdmin = rule == null ? false : rule.getAccess() == AdminGrantType.ADMIN;
         } else {
             for (String role : finalRoleFilter) {
                 TextFilter roleFilter = new TextFilter(role);
                 roleFilter.setIncludeDefault(true);
-                AdminRule rule = getAdminAuthAux(filter, roleFilter);
+                AdminRule rule = getAdminAuthAux(filter, roleFilter, explanation);
                 // if it's admin in at least one group, the admin auth is granted
                 if(rule != null && rule.getAccess() == AdminGrantType.ADMIN) {
                     isAdmin = true;
@@ -730,18 +1124,27 @@ public class RuleReaderServiceImpl implements RuleReaderService {
     }
 
     protected AdminRule getAdminAuthAux(RuleFilter filter, TextFilter roleFilter) {
-        Search searchCriteria = new Search(AdminRule.class);
-        searchCriteria.addSortAsc("priority");
-        addStringCriteria(searchCriteria, "username", filter.getUser());
-        addStringCriteria(searchCriteria, "rolename", roleFilter);
-        addCriteria(searchCriteria, "instance", filter.getInstance());
-        addStringCriteria(searchCriteria, "workspace", filter.getWorkspace());
+        return getAdminAuthAux(filter, roleFilter, null);
+    }
+
+    private AdminRule getAdminAuthAux(RuleFilter filter, TextFilter roleFilter, AccessExplanation explanation) {
+        if(adminRuleIndex != null) {
+            long start = System.nanoTime();
+            List<AdminRule> found = adminRuleIndex.search(filter, roleFilter);
+            lap(explanation, Stage.ADDRESS_FILTER, start);
+            return found.isEmpty() ? null : found.get(0);
+        }
+
+        MatchingQuery query = createAdminRuleQuery(filter, roleFilter);
 
         // we only need the first match, no need to aggregate (no LIMIT rules here)
-        searchCriteria.setMaxResults(1);
+        query.setMaxResults(1);
 
-        List<AdminRule> found = adminRuleDAO.search(searchCriteria);
+        long start = System.nanoTime();
+        List<AdminRule> found = adminRuleDAO.searchMatching(query);
+        start = lap(explanation, Stage.DB_QUERY, start);
         found = filterByAddress(filter, found);
+        lap(explanation, Stage.ADDRESS_FILTER, start);
 
         switch(found.size()) {
             case 0:
@@ -754,5 +1157,91 @@ public class RuleReaderServiceImpl implements RuleReaderService {
         }
     }
 
+    /**
+     * @return all the AdminRules matching the filter, sorted by priority.
+     */
+    private List<AdminRule> searchAdminRules(RuleFilter filter, TextFilter roleFilter) {
+        if(adminRuleIndex != null) {
+            return adminRuleIndex.search(filter, roleFilter);
+        }
+        List<AdminRule> found = adminRuleDAO.searchMatching(createAdminRuleQuery(filter, roleFilter));
+        return filterByAddress(filter, found);
+    }
+
+    private MatchingQuery createAdminRuleQuery(RuleFilter filter, TextFilter roleFilter) {
+        MatchingQuery query = new MatchingQuery();
+        addStringCriteria(query, "username", filter.getUser());
+        addStringCriteria(query, "rolename", roleFilter);
+        addCriteria(query, "instance", filter.getInstance());
+        addStringCriteria(query, "workspace", filter.getWorkspace());
+        return query;
+    }
+
+    @Override
+    public AdministrableWorkspaces getAdministrableWorkspaces(RuleFilter filter)
+    {
+        // the filter may be altered while validating user and roles
+        RuleFilter wsFilter = filter.clone();
+        wsFilter.setWorkspace(SpecialFilterType.ANY);
+
+        AdministrableWorkspaces ret = new AdministrableWorkspaces(filter.toString());
+
+        Set<String> finalRoleFilter = validateUserRoles(wsFilter);
+        if(finalRoleFilter == null) {
+            return ret;
+        }
+
+        List<List<AdminRule>> roleRules = new ArrayList<>();
+        if(finalRoleFilter.isEmpty()) {
+            roleRules.add(searchAdminRules(wsFilter, wsFilter.getRole()));
+        } else {
+            for (String role : finalRoleFilter) {
+                TextFilter roleFilter = new TextFilter(role);
+                roleFilter.setIncludeDefault(true);
+                roleRules.add(searchAdminRules(wsFilter, roleFilter));
+            }
+        }
+
+        // only the named workspaces may differ from the default
+        Set<String> workspaces = new TreeSet<>();
+        for (List<AdminRule> rules : roleRules) {
+            for (AdminRule rule : rules) {
+                if(rule.getWorkspace() != null) {
+                    workspaces.add(rule.getWorkspace());
+                }
+            }
+        }
+
+        ret.setAnyWorkspace(isAdmin(roleRules, null));
+        for (String workspace : workspaces) {
+            boolean admin = isAdmin(roleRules, workspace);
+            if(admin) {
+                ret.getWorkspaces().add(workspace);
+            } else {
+                ret.getExcluded().add(workspace);
+            }
+        }
+
+        LOGGER.info("Returning " + ret);
+        return ret;
+    }
+
+    /**
+     * @param workspace the workspace name, or null for the workspaces not named in any rule
+     * @return true if in at least one role the first rule matching the workspace grants ADMIN.
+     */
+    private static boolean isAdmin(List<List<AdminRule>> roleRules, String workspace) {
+        for (List<AdminRule> rules : roleRules) {
+            for (AdminRule rule : rules) {
+                if(rule.getWorkspace() == null || rule.getWorkspace().equals(workspace)) {
+                    if(rule.getAccess() == AdminGrantType.ADMIN) {
+                        return true;
+                    }
+                    break;
+                }
+            }
+        }
+        return false;
+    }
 
 }
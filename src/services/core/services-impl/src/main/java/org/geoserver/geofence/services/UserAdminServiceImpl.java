@@ -10,6 +10,8 @@ import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.geoserver.geofence.core.dao.GSUserDAO;
 import org.geoserver.geofence.core.model.GSUser;
+import org.geoserver.geofence.services.cache.CacheInvalidationBus;
+import org.geoserver.geofence.services.cache.InvalidationEvent;
 import org.geoserver.geofence.services.dto.ShortUser;
 import org.geoserver.geofence.services.exception.BadRequestServiceEx;
 import org.geoserver.geofence.services.exception.NotFoundServiceEx;
@@ -25,11 +27,13 @@ public class UserAdminServiceImpl implements UserAdminService {
     private final static Logger LOGGER = LogManager.getLogger(UserAdminServiceImpl.class);
 
     private GSUserDAO userDAO;
+    private CacheInvalidationBus invalidationBus;
 
     // ==========================================================================
     @Override
     public long insert(GSUser user) {
         userDAO.persist(user);
+        notifyChanged(user.getId());
         return user.getId();
     }
 
@@ -41,6 +45,7 @@ public class UserAdminServiceImpl implements UserAdminService {
         }
 
         userDAO.merge(user);
+        notifyChanged(orig.getId());
         return orig.getId();
     }
 
@@ -82,7 +87,9 @@ public class UserAdminServiceImpl implements UserAdminService {
     @Override
     public boolean delete(long id) throws NotFoundServiceEx {
         // data on ancillary tables should be deleted by cascading
-        return userDAO.removeById(id);
+        boolean ret = userDAO.removeById(id);
+        notifyChanged(id);
+        return ret;
     }
 
     @Override
@@ -136,6 +143,12 @@ public class UserAdminServiceImpl implements UserAdminService {
 
     // ==========================================================================
 
+    private void notifyChanged(Long userId) {
+        if (invalidationBus != null) {
+            invalidationBus.changed(InvalidationEvent.Type.USER, userId);
+        }
+    }
+
     private List<ShortUser> convertToShortList(List<GSUser> list) {
         List<ShortUser> swList = new ArrayList<>(list.size());
         for (GSUser user : list) {
@@ -151,4 +164,8 @@ public class UserAdminServiceImpl implements UserAdminService {
         this.userDAO = userDao;
     }
 
+    public void setInvalidationBus(CacheInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
+
 }
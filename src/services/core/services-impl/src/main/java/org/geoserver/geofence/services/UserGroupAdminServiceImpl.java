@@ -10,6 +10,8 @@ import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.geoserver.geofence.core.dao.UserGroupDAO;
 import org.geoserver.geofence.core.model.UserGroup;
+import org.geoserver.geofence.services.cache.CacheInvalidationBus;
+import org.geoserver.geofence.services.cache.InvalidationEvent;
 import org.geoserver.geofence.services.dto.ShortGroup;
 import org.geoserver.geofence.services.exception.BadRequestServiceEx;
 import org.geoserver.geofence.services.exception.NotFoundServiceEx;
@@ -24,6 +26,7 @@ public class UserGroupAdminServiceImpl implements UserGroupAdminService {
 
     private final static Logger LOGGER = LogManager.getLogger(UserGroupAdminServiceImpl.class);
     private UserGroupDAO userGroupDAO;
+    private CacheInvalidationBus invalidationBus;
 
     // ==========================================================================
     @Override
@@ -35,6 +38,7 @@ public class UserGroupAdminServiceImpl implements UserGroupAdminService {
             p.setEnabled(group.isEnabled());
 
         userGroupDAO.persist(p);
+        notifyChanged(p.getId());
         return p.getId();
     }
 
@@ -56,6 +60,7 @@ public class UserGroupAdminServiceImpl implements UserGroupAdminService {
         }
 
         userGroupDAO.merge(orig);
+        notifyChanged(orig.getId());
         return orig.getId();
     }
 
@@ -94,7 +99,9 @@ public class UserGroupAdminServiceImpl implements UserGroupAdminService {
         }
 
         // data on ancillary tables should be deleted by cascading
-        return userGroupDAO.remove(group);
+        boolean ret = userGroupDAO.remove(group);
+        notifyChanged(id);
+        return ret;
     }
 
     @Override
@@ -128,6 +135,12 @@ public class UserGroupAdminServiceImpl implements UserGroupAdminService {
     }
 
     // ==========================================================================
+    private void notifyChanged(Long groupId) {
+        if (invalidationBus != null) {
+            invalidationBus.changed(InvalidationEvent.Type.GROUP, groupId);
+        }
+    }
+
     private List<ShortGroup> convertToShortList(List<UserGroup> list) {
         List<ShortGroup> swList = new ArrayList<>(list.size());
         for (UserGroup group : list) {
@@ -141,4 +154,8 @@ public class UserGroupAdminServiceImpl implements UserGroupAdminService {
     public void setUserGroupDAO(UserGroupDAO userGroupDAO) {
         this.userGroupDAO = userGroupDAO;
     }
+
+    public void setInvalidationBus(CacheInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
 }
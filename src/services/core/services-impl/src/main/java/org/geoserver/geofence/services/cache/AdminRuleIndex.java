@@ -0,0 +1,174 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.geoserver.geofence.core.dao.AdminRuleDAO;
+import org.geoserver.geofence.core.model.AdminRule;
+import org.geoserver.geofence.core.model.GSInstance;
+import org.geoserver.geofence.services.dto.RuleFilter;
+import org.geoserver.geofence.services.dto.RuleFilter.IdNameFilter;
+import org.geoserver.geofence.services.dto.RuleFilter.TextFilter;
+import static org.geoserver.geofence.services.util.FilterUtils.filterByAddress;
+
+/**
+ * In-memory copy of all the {@link AdminRule}s, grouped by role name and sorted by priority.
+ * <P>
+ * AdminRules are few and seldom changed, while they are checked on most GeoServer
+ * requests, so they are all loaded at the first search after a change.
+ * <BR>The index is dropped on AdminRule and instance changes, through the
+ * {@link InvalidationListener} interface.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class AdminRuleIndex implements InvalidationListener {
+
+    private final static Logger LOGGER = LogManager.getLogger(AdminRuleIndex.class);
+
+    private static final Comparator<AdminRule> BY_PRIORITY = Comparator.comparingLong(AdminRule::getPriority);
+
+    private AdminRuleDAO adminRuleDAO;
+
+    private volatile Map<String, List<AdminRule>> rulesByRole;
+
+    /** Incremented on each invalidation, so that an index loaded concurrently is not kept. */
+    private final AtomicLong generation = new AtomicLong();
+
+    @Override
+    public void invalidate(InvalidationEvent event, boolean remote) {
+        switch(event.getType()) {
+            case ADMINRULE:
+            case INSTANCE:
+                generation.incrementAndGet();
+                rulesByRole = null;
+                break;
+            default:
+                // not related to AdminRules
+        }
+    }
+
+    /**
+     * Returns the AdminRules matching the filter, sorted by priority.
+     * <P>
+     * The filter is applied with the same semantics of the DB matching query:
+     * the ANY filter matches any value, DEFAULT matches only null fields,
+     * a name matches null fields and fields having that name.
+     *
+     * @param roleFilter the filter on the role, used in place of the one in <TT>filter</TT>
+     */
+    public List<AdminRule> search(RuleFilter filter, TextFilter roleFilter) {
+        Map<String, List<AdminRule>> index = getIndex();
+
+        List<AdminRule> candidates;
+        switch(roleFilter.getType()) {
+            case ANY:
+                candidates = new ArrayList<>();
+                for (List<AdminRule> rules : index.values()) {
+                    candidates.addAll(rules);
+                }
+                candidates.sort(BY_PRIORITY);
+                break;
+            case DEFAULT:
+                candidates = getRules(index, null);
+                break;
+            case NAMEVALUE:
+                candidates = new ArrayList<>(getRules(index, null));
+                candidates.addAll(getRules(index, roleFilter.getText()));
+                candidates.sort(BY_PRIORITY);
+                break;
+            default:
+                throw new AssertionError();
+        }
+
+        List<AdminRule> found = new ArrayList<>();
+        for (AdminRule rule : candidates) {
+            if(matches(filter.getUser(), rule.getUsername())
+                    && matches(filter.getInstance(), rule.getInstance())
+                    && matches(filter.getWorkspace(), rule.getWorkspace())) {
+                found.add(rule);
+            }
+        }
+        return filterByAddress(filter, found);
+    }
+
+    private Map<String, List<AdminRule>> getIndex() {
+        Map<String, List<AdminRule>> index = rulesByRole;
+        if(index == null) {
+            long gen = generation.get();
+            index = load();
+            synchronized(this) {
+                if(gen == generation.get()) {
+                    rulesByRole = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private Map<String, List<AdminRule>> load() {
+        long start = System.currentTimeMillis();
+        Map<String, List<AdminRule>> index = new HashMap<>();
+        for (AdminRule rule : adminRuleDAO.findAll()) {
+            index.computeIfAbsent(rule.getRolename(), k -> new ArrayList<>()).add(rule);
+        }
+        for (List<AdminRule> rules : index.values()) {
+            rules.sort(BY_PRIORITY);
+        }
+        if(LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Loaded AdminRule index for " + index.size() + " roles in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        }
+        return index;
+    }
+
+    private static List<AdminRule> getRules(Map<String, List<AdminRule>> index, String role) {
+        List<AdminRule> rules = index.get(role);
+        return rules != null ? rules : Collections.<AdminRule>emptyList();
+    }
+
+    private static boolean matches(TextFilter filter, String value) {
+        switch(filter.getType()) {
+            case ANY:
+                return true;
+            case DEFAULT:
+                return value == null;
+            case NAMEVALUE:
+                return value == null || value.equals(filter.getText());
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    private static boolean matches(IdNameFilter filter, GSInstance instance) {
+        switch(filter.getType()) {
+            case ANY:
+                return true;
+            case DEFAULT:
+                return instance == null;
+            case IDVALUE:
+                return instance == null || instance.getId().equals(filter.getId());
+            case NAMEVALUE:
+                return instance == null || instance.getName().equals(filter.getName());
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    // ==========================================================================
+
+    public void setAdminRuleDAO(AdminRuleDAO adminRuleDAO) {
+        this.adminRuleDAO = adminRuleDAO;
+    }
+}
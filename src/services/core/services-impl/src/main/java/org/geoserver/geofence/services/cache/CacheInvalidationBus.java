@@ -0,0 +1,125 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Dispatches the notifications about changed entities to the caches in this node,
+ * and propagates them to the other GeoFence nodes through the configured transports.
+ * <P>
+ * Admin services notify the bus after each write; the local listeners are invoked
+ * synchronously, while the remote nodes will get the event with the delay
+ * of the transport in use.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class CacheInvalidationBus implements InitializingBean, DisposableBean {
+
+    private final static Logger LOGGER = LogManager.getLogger(CacheInvalidationBus.class);
+
+    private String nodeId = UUID.randomUUID().toString();
+
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+    private List<InvalidationTransport> transports = new ArrayList<>();
+
+    @Override
+    public void afterPropertiesSet() {
+        LOGGER.info("Starting cache invalidation bus on node " + nodeId + " with " + transports.size() + " transports");
+        for (InvalidationTransport transport : transports) {
+            transport.start(this);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (InvalidationTransport transport : transports) {
+            try {
+                transport.stop();
+            } catch (Exception e) {
+                LOGGER.warn("Error stopping transport " + transport + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Notifies that some entities have been changed in this node.
+     *
+     * @param id the id of the changed entity, or null if more entities were changed.
+     */
+    public void changed(InvalidationEvent.Type type, Long id) {
+        InvalidationEvent event = new InvalidationEvent(type, id, nodeId);
+        dispatch(event, false);
+
+        for (InvalidationTransport transport : transports) {
+            try {
+                transport.publish(event);
+            } catch (Exception e) {
+                // the change is already committed: other nodes will only see it when their caches expire
+                LOGGER.error("Could not publish " + event + " on " + transport + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Called by the transports when an event is received.
+     */
+    public void received(InvalidationEvent event) {
+        if(nodeId.equals(event.getNode())) {
+            return;
+        }
+        if(LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Received " + event);
+        }
+        dispatch(event, true);
+    }
+
+    private void dispatch(InvalidationEvent event, boolean remote) {
+        for (InvalidationListener listener : listeners) {
+            try {
+                listener.invalidate(event, remote);
+            } catch (Exception e) {
+                LOGGER.error("Error invalidating " + event + " in " + listener + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    public void addListener(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(InvalidationListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void setListeners(List<InvalidationListener> listeners) {
+        this.listeners.clear();
+        this.listeners.addAll(listeners);
+    }
+
+    public void setTransports(List<InvalidationTransport> transports) {
+        this.transports = new ArrayList<>(transports);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Should be unique for each node; a random id is generated if not set.
+     */
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+}
@@ -0,0 +1,168 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.cache;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.geoserver.geofence.core.dao.ChangeLogDAO;
+import org.geoserver.geofence.core.model.ChangeLogEntry;
+
+/**
+ * Propagates invalidation events through a change log table in the shared DB.
+ * <P>
+ * Each published event is stored as a {@link ChangeLogEntry}; every node polls
+ * the table every {@link #setPollSeconds(int) pollSeconds}, so that the
+ * invalidation delay is bounded by the poll interval.
+ * <BR>Since transactions may commit out of order, and node clocks may be skewed,
+ * each poll reads back the entries in the last {@link #setOverlapSeconds(int) overlapSeconds}
+ * and skips the ones already processed.
+ * <P>
+ * Entries older than {@link #setRetentionMinutes(int) retentionMinutes} are purged.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class DBChangeLogTransport implements InvalidationTransport {
+
+    private final static Logger LOGGER = LogManager.getLogger(DBChangeLogTransport.class);
+
+    private ChangeLogDAO changeLogDAO;
+
+    private boolean enabled = true;
+    private int pollSeconds = 5;
+    private int overlapSeconds = 60;
+    private int retentionMinutes = 60;
+
+    private ScheduledExecutorService executor;
+    private CacheInvalidationBus bus;
+
+    /** Last poll time on this node's clock. */
+    private long lastPoll;
+    private long lastPurge;
+
+    /** Ids of the processed entries, with their timestamp, for skipping dups in the overlap window. */
+    private final Map<Long, Long> processed = new ConcurrentHashMap<>();
+
+    @Override
+    public synchronized void start(CacheInvalidationBus bus) {
+        if( ! enabled ) {
+            LOGGER.info("DB change log transport is disabled");
+            return;
+        }
+
+        this.bus = bus;
+        this.lastPoll = System.currentTimeMillis();
+        this.lastPurge = lastPoll;
+
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "geofence-changelog-poller");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    poll();
+                } catch (Exception e) {
+                    LOGGER.error("Error polling the change log: " + e.getMessage(), e);
+                }
+            }
+        }, pollSeconds, pollSeconds, TimeUnit.SECONDS);
+
+        LOGGER.info("DB change log transport started, polling every " + pollSeconds + "s");
+    }
+
+    @Override
+    public void publish(InvalidationEvent event) {
+        if( ! enabled ) {
+            return;
+        }
+        ChangeLogEntry entry = new ChangeLogEntry(event.getType().name(), event.getId(), event.getNode(), new Date());
+        changeLogDAO.persist(entry);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if(executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    protected void poll() {
+        long now = System.currentTimeMillis();
+        long overlap = TimeUnit.SECONDS.toMillis(overlapSeconds);
+
+        List<ChangeLogEntry> entries = changeLogDAO.findSince(new Date(lastPoll - overlap));
+        for (ChangeLogEntry entry : entries) {
+            if(processed.put(entry.getId(), now) != null) {
+                continue;
+            }
+
+            InvalidationEvent.Type type;
+            try {
+                type = InvalidationEvent.Type.valueOf(entry.getEntityType());
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Skipping unknown change log entry " + entry);
+                continue;
+            }
+            bus.received(new InvalidationEvent(type, entry.getEntityId(), entry.getNode()));
+        }
+        lastPoll = now;
+
+        // forget about entries out of the overlap window
+        for (Iterator<Long> it = processed.values().iterator(); it.hasNext();) {
+            if(it.next() < now - 2 * overlap) {
+                it.remove();
+            }
+        }
+
+        if(now - lastPurge > TimeUnit.MINUTES.toMillis(retentionMinutes)) {
+            int purged = changeLogDAO.purgeBefore(new Date(now - TimeUnit.MINUTES.toMillis(retentionMinutes)));
+            if(LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Purged " + purged + " change log entries");
+            }
+            lastPurge = now;
+        }
+    }
+
+    public void setChangeLogDAO(ChangeLogDAO changeLogDAO) {
+        this.changeLogDAO = changeLogDAO;
+    }
+
+    /**
+     * Enabled by default, so that nodes sharing the same DB stay consistent;
+     * may be disabled on single node installations to avoid the polling.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setPollSeconds(int pollSeconds) {
+        this.pollSeconds = pollSeconds;
+    }
+
+    public void setOverlapSeconds(int overlapSeconds) {
+        this.overlapSeconds = overlapSeconds;
+    }
+
+    public void setRetentionMinutes(int retentionMinutes) {
+        this.retentionMinutes = retentionMinutes;
+    }
+}
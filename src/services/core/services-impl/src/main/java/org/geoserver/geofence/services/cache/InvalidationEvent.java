@@ -0,0 +1,63 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.cache;
+
+import java.io.Serializable;
+
+/**
+ * Notifies that some entities have been changed, and cached info related to them is stale.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class InvalidationEvent implements Serializable {
+
+    private static final long serialVersionUID = -2106271839215853532L;
+
+    /**
+     * The kind of entities that have been changed.
+     */
+    public enum Type {
+        RULE, ADMINRULE, USER, GROUP, INSTANCE
+    }
+
+    private final Type type;
+    private final Long id;
+    private final String node;
+
+    /**
+     * @param type the kind of the changed entities
+     * @param id the id of the changed entity; null if more entities have been changed
+     * @param node the id of the node where the change happened
+     */
+    public InvalidationEvent(Type type, Long id, String node) {
+        if(type == null) {
+            throw new NullPointerException("Null type");
+        }
+        this.type = type;
+        this.id = id;
+        this.node = node;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the id of the changed entity, or null if the whole type should be invalidated.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + type + (id == null ? "" : (" id:" + id)) + " node:" + node + ']';
+    }
+}
@@ -0,0 +1,20 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.cache;
+
+/**
+ * Receives the invalidation events dispatched by the {@link CacheInvalidationBus}.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public interface InvalidationListener {
+
+    /**
+     * @param event the changed entities
+     * @param remote true if the change happened in another node
+     */
+    void invalidate(InvalidationEvent event, boolean remote);
+}
@@ -0,0 +1,25 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.cache;
+
+/**
+ * Carries invalidation events across GeoFence nodes.
+ * <P>
+ * Events received from other nodes should be handed back to
+ * {@link CacheInvalidationBus#received(InvalidationEvent)}; transports may
+ * deliver the same event more than once, and may also deliver events published
+ * by the local node, which will be discarded by the bus.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public interface InvalidationTransport {
+
+    void start(CacheInvalidationBus bus);
+
+    void publish(InvalidationEvent event);
+
+    void stop();
+}
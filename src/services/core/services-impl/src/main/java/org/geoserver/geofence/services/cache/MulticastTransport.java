@@ -0,0 +1,148 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.cache;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * Broadcasts invalidation events to the other nodes using UDP multicast.
+ * <P>
+ * Delivery is not guaranteed, so this transport should be used along with the
+ * {@link DBChangeLogTransport}: the multicast message will invalidate the caches
+ * almost immediately, and the change log will catch up the lost messages.
+ * <P>
+ * Messages are encoded as <TT>node|type|id</TT>.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class MulticastTransport implements InvalidationTransport {
+
+    private final static Logger LOGGER = LogManager.getLogger(MulticastTransport.class);
+
+    private boolean enabled = false;
+    private String group = "239.255.10.57";
+    private int port = 45570;
+    private int ttl = 1;
+
+    private volatile MulticastSocket socket;
+    private volatile InetAddress groupAddress;
+    private volatile Thread receiver;
+
+    @Override
+    public synchronized void start(final CacheInvalidationBus bus) {
+        if( ! enabled ) {
+            return;
+        }
+
+        try {
+            groupAddress = InetAddress.getByName(group);
+            socket = new MulticastSocket(port);
+            socket.setTimeToLive(ttl);
+            socket.joinGroup(groupAddress);
+        } catch (IOException e) {
+            LOGGER.error("Could not join multicast group " + group + ":" + port + " -- " + e.getMessage(), e);
+            socket = null;
+            return;
+        }
+
+        final MulticastSocket listening = socket;
+        receiver = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                byte[] buf = new byte[512];
+                while( ! listening.isClosed()) {
+                    DatagramPacket packet = new DatagramPacket(buf, buf.length);
+                    try {
+                        listening.receive(packet);
+                        InvalidationEvent event = decode(new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8));
+                        if(event != null) {
+                            bus.received(event);
+                        }
+                    } catch (IOException e) {
+                        if( ! listening.isClosed()) {
+                            LOGGER.warn("Error receiving invalidation message: " + e.getMessage());
+                        }
+                    }
+                }
+            }
+        }, "geofence-multicast-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+
+        LOGGER.info("Multicast transport started on " + group + ":" + port);
+    }
+
+    @Override
+    public void publish(InvalidationEvent event) {
+        MulticastSocket s = socket;
+        if(s == null) {
+            return;
+        }
+        byte[] msg = encode(event).getBytes(StandardCharsets.UTF_8);
+        try {
+            s.send(new DatagramPacket(msg, msg.length, groupAddress, port));
+        } catch (IOException e) {
+            LOGGER.warn("Could not send " + event + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if(socket != null) {
+            try {
+                socket.leaveGroup(groupAddress);
+            } catch (IOException e) {
+                LOGGER.debug("Error leaving group: " + e.getMessage());
+            }
+            socket.close();
+            socket = null;
+        }
+        receiver = null;
+    }
+
+    static String encode(InvalidationEvent event) {
+        return event.getNode() + "|" + event.getType().name() + "|" + (event.getId() == null ? "" : event.getId());
+    }
+
+    static InvalidationEvent decode(String msg) {
+        String[] parts = msg.split("\\|", -1);
+        if(parts.length != 3) {
+            LOGGER.warn("Bad invalidation message '" + msg + "'");
+            return null;
+        }
+        try {
+            InvalidationEvent.Type type = InvalidationEvent.Type.valueOf(parts[1]);
+            Long id = parts[2].isEmpty() ? null : Long.valueOf(parts[2]);
+            return new InvalidationEvent(type, id, parts[0]);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Bad invalidation message '" + msg + "'");
+            return null;
+        }
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setGroup(String group) {
+        this.group = group;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public void setTtl(int ttl) {
+        this.ttl = ttl;
+    }
+}
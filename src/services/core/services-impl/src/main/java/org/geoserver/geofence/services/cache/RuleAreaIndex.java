@@ -0,0 +1,139 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.cache;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.googlecode.genericdao.search.Search;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.geoserver.geofence.core.dao.LayerDetailsDAO;
+import org.geoserver.geofence.core.dao.RuleLimitsDAO;
+import org.geoserver.geofence.core.model.LayerDetails;
+import org.geoserver.geofence.core.model.RuleLimits;
+
+/**
+ * In-memory STR-tree of the areas of {@link RuleLimits} and {@link LayerDetails}.
+ * <P>
+ * The tree is built on the first query after a change, and dropped on rule changes
+ * notified through the {@link InvalidationListener} interface.
+ * <BR>Queries first select the candidates by envelope, and only then run the exact
+ * intersection test, so that most of the geometry algebra is skipped.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class RuleAreaIndex implements InvalidationListener {
+
+    private final static Logger LOGGER = LogManager.getLogger(RuleAreaIndex.class);
+
+    private RuleLimitsDAO limitsDAO;
+    private LayerDetailsDAO detailsDAO;
+
+    private volatile STRtree tree;
+
+    /** Incremented on each invalidation, so that a tree built concurrently is not kept. */
+    private final AtomicLong generation = new AtomicLong();
+
+    @Override
+    public void invalidate(InvalidationEvent event, boolean remote) {
+        if(event.getType() == InvalidationEvent.Type.RULE) {
+            generation.incrementAndGet();
+            tree = null;
+        }
+    }
+
+    /**
+     * @return the ids of the rules having an allowed area (either in their limits
+     * or in their details) intersecting the given geometry.
+     */
+    public Set<Long> queryIntersecting(Geometry geometry) {
+        Set<Long> ret = new TreeSet<>();
+        PreparedGeometry prepared = PreparedGeometryFactory.prepare(geometry);
+        for (Object item : getTree().query(geometry.getEnvelopeInternal())) {
+            RuleArea area = (RuleArea) item;
+            if( ! ret.contains(area.ruleId) && prepared.intersects(area.area)) {
+                ret.add(area.ruleId);
+            }
+        }
+        return ret;
+    }
+
+    private STRtree getTree() {
+        STRtree t = tree;
+        if(t == null) {
+            long gen = generation.get();
+            t = load();
+            synchronized(this) {
+                if(gen == generation.get()) {
+                    tree = t;
+                }
+            }
+        }
+        return t;
+    }
+
+    private STRtree load() {
+        long start = System.currentTimeMillis();
+        STRtree t = new STRtree();
+        int cnt = 0;
+
+        Search limitsSearch = new Search(RuleLimits.class);
+        limitsSearch.addFilterNotNull("allowedArea");
+        for (RuleLimits limits : limitsDAO.search(limitsSearch)) {
+            // limits share the id of their rule
+            insert(t, limits.getId(), limits.getAllowedArea());
+            cnt++;
+        }
+
+        // only the areas are read, the details collections are not needed
+        for (Map.Entry<Long, MultiPolygon> area : detailsDAO.getAreas().entrySet()) {
+            // details share the id of their rule
+            insert(t, area.getKey(), area.getValue());
+            cnt++;
+        }
+
+        // an STRtree can not be modified once built
+        t.build();
+
+        LOGGER.info("Indexed " + cnt + " rule areas in " + (System.currentTimeMillis() - start) + "ms");
+        return t;
+    }
+
+    private static void insert(STRtree t, Long ruleId, Geometry area) {
+        if(area != null && ! area.isEmpty()) {
+            t.insert(area.getEnvelopeInternal(), new RuleArea(ruleId, area));
+        }
+    }
+
+    private static class RuleArea {
+        private final Long ruleId;
+        private final Geometry area;
+
+        RuleArea(Long ruleId, Geometry area) {
+            this.ruleId = ruleId;
+            this.area = area;
+        }
+    }
+
+    // ==========================================================================
+
+    public void setRuleLimitsDAO(RuleLimitsDAO limitsDAO) {
+        this.limitsDAO = limitsDAO;
+    }
+
+    public void setLayerDetailsDAO(LayerDetailsDAO detailsDAO) {
+        this.detailsDAO = detailsDAO;
+    }
+}
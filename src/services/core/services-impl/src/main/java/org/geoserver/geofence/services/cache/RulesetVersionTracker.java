@@ -0,0 +1,45 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the version of the ruleset, changed on any event that may alter the
+ * result of a rule evaluation: rules, users and groups changes, both local and remote.
+ * <P>
+ * The version is made of a random epoch, chosen at startup, and a counter;
+ * versions are only meant to be compared for equality.
+ * Different nodes will report different versions for the same ruleset,
+ * so a client switching node will just fetch its data again.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class RulesetVersionTracker implements InvalidationListener {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36)
+            + Integer.toString((int)(Math.random() * 1296), 36);
+
+    private final AtomicLong counter = new AtomicLong();
+
+    @Override
+    public void invalidate(InvalidationEvent event, boolean remote) {
+        switch(event.getType()) {
+            case RULE:
+            case USER:
+            case GROUP:
+            case INSTANCE:
+                counter.incrementAndGet();
+                break;
+            default:
+                // AdminRules do not take part in the rule evaluation
+        }
+    }
+
+    public String getVersion() {
+        return epoch + "." + counter.get();
+    }
+}
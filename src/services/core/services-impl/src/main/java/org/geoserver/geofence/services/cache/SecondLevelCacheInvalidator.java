@@ -0,0 +1,83 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.cache;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.geoserver.geofence.core.model.AdminRule;
+import org.geoserver.geofence.core.model.GSInstance;
+import org.geoserver.geofence.core.model.GSUser;
+import org.geoserver.geofence.core.model.LayerDetails;
+import org.geoserver.geofence.core.model.Rule;
+import org.geoserver.geofence.core.model.RuleLimits;
+import org.geoserver.geofence.core.model.UserGroup;
+import org.hibernate.Cache;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+
+/**
+ * Evicts the hibernate second level cache regions when entities are changed in other nodes.
+ * <P>
+ * Local changes are already handled by hibernate itself, so they are ignored.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class SecondLevelCacheInvalidator implements InvalidationListener {
+
+    private final static Logger LOGGER = LogManager.getLogger(SecondLevelCacheInvalidator.class);
+
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void invalidate(InvalidationEvent event, boolean remote) {
+        if( ! remote ) {
+            return;
+        }
+
+        Cache cache = ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory().getCache();
+        if(LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Evicting 2nd level cache for " + event);
+        }
+
+        switch(event.getType()) {
+            case RULE:
+                // a Rule change may also imply a priority shift on other rules
+                cache.evictEntityRegion(Rule.class);
+                cache.evictEntityRegion(LayerDetails.class);
+                cache.evictEntityRegion(RuleLimits.class);
+                break;
+            case ADMINRULE:
+                cache.evictEntityRegion(AdminRule.class);
+                break;
+            case USER:
+                evict(cache, GSUser.class, event.getId());
+                break;
+            case GROUP:
+                evict(cache, UserGroup.class, event.getId());
+                break;
+            case INSTANCE:
+                evict(cache, GSInstance.class, event.getId());
+                break;
+            default:
+                throw new IllegalStateException("Unknown event type " + event.getType());
+        }
+
+        cache.evictQueryRegions();
+    }
+
+    private void evict(Cache cache, Class clazz, Long id) {
+        if(id != null) {
+            cache.evictEntity(clazz, id);
+        } else {
+            cache.evictEntityRegion(clazz);
+        }
+    }
+
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+}
@@ -0,0 +1,358 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.monitor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.geoserver.geofence.core.dao.GSInstanceDAO;
+import org.geoserver.geofence.core.model.GSInstance;
+import org.geoserver.geofence.services.dto.InstanceStatus;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Periodically probes all the registered GeoServer instances, and keeps their
+ * availability and latency stats.
+ * <P>
+ * All the instances are probed concurrently, using at most <TT>maxThreads</TT> threads;
+ * each probe is a GET on <TT>baseURL + probePath</TT>, bounded by <TT>connectTimeout</TT>
+ * and <TT>readTimeout</TT>. Any HTTP response below 500 means the instance is up.
+ * <BR>Stats are computed on the last <TT>window</TT> probes of each instance.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class GSInstanceMonitor implements InitializingBean, DisposableBean {
+
+    private final static Logger LOGGER = LogManager.getLogger(GSInstanceMonitor.class);
+
+    private GSInstanceDAO instanceDAO;
+
+    private boolean enabled = true;
+    private long interval = 60;
+    private int connectTimeout = 2000;
+    private int readTimeout = 5000;
+    private int window = 20;
+    private int maxThreads = 8;
+    private String probePath = "/rest/about/version.xml";
+
+    private final Map<Long, ProbeStats> stats = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService prober;
+
+    @Override
+    public void afterPropertiesSet() {
+        if( ! enabled ) {
+            LOGGER.info("GSInstance monitor is disabled");
+            return;
+        }
+
+        final AtomicInteger cnt = new AtomicInteger();
+        prober = Executors.newFixedThreadPool(maxThreads, r -> {
+            Thread t = new Thread(r, "geofence-instance-probe-" + cnt.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "geofence-instance-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                probeAll();
+            } catch (Exception e) {
+                LOGGER.error("Error probing GSInstances: " + e.getMessage(), e);
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+
+        LOGGER.info("GSInstance monitor started, probing every " + interval + "s");
+    }
+
+    @Override
+    public void destroy() {
+        if(scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if(prober != null) {
+            prober.shutdownNow();
+            prober = null;
+        }
+    }
+
+    /**
+     * Probes all the instances concurrently, and waits for the results.
+     */
+    public void probeAll() throws InterruptedException {
+        List<GSInstance> instances = instanceDAO.findAll();
+
+        Set<Long> ids = new HashSet<>();
+        List<Callable<Void>> probes = new ArrayList<>(instances.size());
+        for (final GSInstance instance : instances) {
+            ids.add(instance.getId());
+            probes.add(() -> {
+                probe(instance);
+                return null;
+            });
+        }
+        // forget the removed instances
+        stats.keySet().retainAll(ids);
+
+        ExecutorService executor = prober != null ? prober : Executors.newFixedThreadPool(maxThreads);
+        try {
+            // probes are bounded by their own timeouts; this is just a safety net
+            executor.invokeAll(probes, 2L * (connectTimeout + readTimeout) + 1000, TimeUnit.MILLISECONDS);
+        } finally {
+            if(executor != prober) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Probes a single instance, updating its stats.
+     */
+    public void probe(GSInstance instance) {
+        ProbeStats instanceStats = getStats(instance);
+
+        long start = System.nanoTime();
+        String error = null;
+        HttpURLConnection conn = null;
+        try {
+            URL url = new URL(stripSlash(instance.getBaseURL()) + probePath);
+            conn = (HttpURLConnection) url.openConnection();
+            conn.setConnectTimeout(connectTimeout);
+            conn.setReadTimeout(readTimeout);
+            conn.setUseCaches(false);
+            conn.setInstanceFollowRedirects(false);
+            if(instance.getUsername() != null) {
+                String auth = instance.getUsername() + ":" + (instance.getPassword() != null ? instance.getPassword() : "");
+                conn.setRequestProperty("Authorization",
+                        "Basic " + Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8)));
+            }
+
+            int code = conn.getResponseCode();
+            if(code >= 500) {
+                error = "HTTP " + code;
+            }
+            drain(code < 400 ? conn.getInputStream() : conn.getErrorStream());
+        } catch (IOException | RuntimeException e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        } finally {
+            if(conn != null) {
+                conn.disconnect();
+            }
+        }
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        if(error != null && LOGGER.isDebugEnabled()) {
+            LOGGER.debug("GSInstance " + instance.getName() + " unavailable: " + error);
+        }
+        boolean wasAvailable = instanceStats.isAvailable();
+        instanceStats.add(error == null, latency, error);
+        if(wasAvailable && error != null) {
+            LOGGER.warn("GSInstance " + instance.getName() + " is not reachable: " + error);
+        } else if( ! wasAvailable && error == null && instanceStats.getSamples() > 1) {
+            LOGGER.info("GSInstance " + instance.getName() + " is reachable again");
+        }
+    }
+
+    /**
+     * @return the stats of the instance; only the name and URL are set if it has not been probed yet.
+     */
+    public InstanceStatus getStatus(GSInstance instance) {
+        InstanceStatus status = new InstanceStatus(instance.getId(), instance.getName(), instance.getBaseURL());
+        ProbeStats instanceStats = stats.get(instance.getId());
+        if(instanceStats != null && Objects.equals(instanceStats.baseURL, instance.getBaseURL())) {
+            instanceStats.fill(status);
+        }
+        return status;
+    }
+
+    /**
+     * @return false only if the last probe of the instance failed.
+     */
+    public boolean isAvailable(long id) {
+        ProbeStats instanceStats = stats.get(id);
+        return instanceStats == null || instanceStats.isAvailable();
+    }
+
+    private ProbeStats getStats(GSInstance instance) {
+        ProbeStats instanceStats = stats.get(instance.getId());
+        if(instanceStats == null || ! Objects.equals(instanceStats.baseURL, instance.getBaseURL())) {
+            // new instance, or its URL has been changed
+            instanceStats = new ProbeStats(instance.getBaseURL(), window);
+            stats.put(instance.getId(), instanceStats);
+        }
+        return instanceStats;
+    }
+
+    private static void drain(InputStream is) throws IOException {
+        if(is == null) {
+            return;
+        }
+        try {
+            byte[] buf = new byte[1024];
+            while(is.read(buf) >= 0) {
+            }
+        } finally {
+            is.close();
+        }
+    }
+
+    private static String stripSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    // ==========================================================================
+
+    /**
+     * Outcomes and latencies of the most recent probes of an instance.
+     */
+    static class ProbeStats {
+
+        private final String baseURL;
+
+        private final boolean[] outcomes;
+        private final long[] latencies;
+        private int next = 0;
+        private int samples = 0;
+
+        private Date lastCheck;
+        private long lastLatency = -1;
+        private int consecutiveFailures = 0;
+        private String lastError;
+
+        ProbeStats(String baseURL, int window) {
+            this.baseURL = baseURL;
+            this.outcomes = new boolean[window];
+            this.latencies = new long[window];
+        }
+
+        synchronized void add(boolean success, long latency, String error) {
+            outcomes[next] = success;
+            latencies[next] = latency;
+            next = (next + 1) % outcomes.length;
+            samples = Math.min(samples + 1, outcomes.length);
+
+            lastCheck = new Date();
+            if(success) {
+                lastLatency = latency;
+                consecutiveFailures = 0;
+            } else {
+                consecutiveFailures++;
+                lastError = error;
+            }
+        }
+
+        synchronized boolean isAvailable() {
+            return consecutiveFailures == 0;
+        }
+
+        synchronized int getSamples() {
+            return samples;
+        }
+
+        synchronized void fill(InstanceStatus status) {
+            if(samples == 0) {
+                return;
+            }
+            int ok = 0;
+            long sum = 0;
+            long max = 0;
+            for (int i = 0; i < samples; i++) {
+                if(outcomes[i]) {
+                    ok++;
+                    sum += latencies[i];
+                    max = Math.max(max, latencies[i]);
+                }
+            }
+
+            status.setAvailable(consecutiveFailures == 0);
+            status.setLastCheck(lastCheck);
+            status.setSamples(samples);
+            status.setAvailability(100.0 * ok / samples);
+            status.setConsecutiveFailures(consecutiveFailures);
+            status.setLastError(lastError);
+            if(ok > 0) {
+                status.setLastLatency(lastLatency);
+                status.setAverageLatency(sum / ok);
+                status.setMaxLatency(max);
+            }
+        }
+    }
+
+    // ==========================================================================
+
+    public void setInstanceDAO(GSInstanceDAO instanceDAO) {
+        this.instanceDAO = instanceDAO;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Delay in seconds between the probe rounds.
+     */
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * Connection timeout of each probe, in milliseconds.
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * Read timeout of each probe, in milliseconds.
+     */
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Number of recent probes the stats are computed on.
+     */
+    public void setWindow(int window) {
+        this.window = window;
+    }
+
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * Path appended to the instance base URL for probing it.
+     */
+    public void setProbePath(String probePath) {
+        this.probePath = probePath;
+    }
+}
@@ -0,0 +1,62 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.remoting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.remoting.httpinvoker.HttpInvokerClientConfiguration;
+import org.springframework.remoting.httpinvoker.SimpleHttpInvokerRequestExecutor;
+import org.springframework.remoting.support.RemoteInvocationResult;
+
+/**
+ * HttpInvoker request executor which may also compress the requests.
+ * <P>
+ * Gzip compressed responses are already requested and handled by the {@link SimpleHttpInvokerRequestExecutor}.
+ * <BR>If <TT>compressRequests</TT> is set, requests bigger than <TT>threshold</TT> bytes are gzip compressed:
+ * it should only be set when the server uses a {@link CompressingHttpInvokerServiceExporter}.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class CompressingHttpInvokerRequestExecutor extends SimpleHttpInvokerRequestExecutor {
+
+    private boolean compressRequests = false;
+    private int threshold = 1024;
+
+    @Override
+    protected RemoteInvocationResult doExecuteRequest(HttpInvokerClientConfiguration config, ByteArrayOutputStream baos)
+            throws IOException, ClassNotFoundException {
+
+        if( ! compressRequests || baos.size() <= threshold) {
+            return super.doExecuteRequest(config, baos);
+        }
+
+        ByteArrayOutputStream zipped = new ByteArrayOutputStream(baos.size() / 2);
+        GZIPOutputStream gzos = new GZIPOutputStream(zipped);
+        baos.writeTo(gzos);
+        gzos.close();
+
+        HttpURLConnection con = openConnection(config);
+        prepareConnection(con, zipped.size());
+        con.setRequestProperty("Content-Encoding", "gzip");
+        writeRequestBody(config, con, zipped);
+        validateResponse(config, con);
+        return readRemoteInvocationResult(readResponseBody(config, con), config.getCodebaseUrl());
+    }
+
+    public void setCompressRequests(boolean compressRequests) {
+        this.compressRequests = compressRequests;
+    }
+
+    /**
+     * Requests smaller than this number of bytes are not compressed.
+     */
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+}
@@ -0,0 +1,93 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.remoting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.remoting.httpinvoker.HttpInvokerServiceExporter;
+import org.springframework.remoting.support.RemoteInvocationResult;
+
+/**
+ * HttpInvoker exporter negotiating the content encoding.
+ * <P>
+ * Results bigger than <TT>threshold</TT> bytes are gzip compressed, if the client
+ * sent an <TT>Accept-Encoding: gzip</TT> header, as the Spring HttpInvoker clients do by default.
+ * <BR>Gzip or deflate compressed requests are decompressed.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class CompressingHttpInvokerServiceExporter extends HttpInvokerServiceExporter {
+
+    private int threshold = 1024;
+
+    @Override
+    protected InputStream decorateInputStream(HttpServletRequest request, InputStream is) throws IOException {
+        String encoding = request.getHeader("Content-Encoding");
+        if(encoding == null) {
+            return is;
+        }
+        encoding = encoding.trim().toLowerCase();
+        if(encoding.equals("gzip") || encoding.equals("x-gzip")) {
+            return new GZIPInputStream(is);
+        }
+        if(encoding.equals("deflate")) {
+            return new InflaterInputStream(is);
+        }
+        return is;
+    }
+
+    @Override
+    protected void writeRemoteInvocationResult(HttpServletRequest request, HttpServletResponse response, RemoteInvocationResult result)
+            throws IOException {
+
+        // the result is serialized first, so that its size is known
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+        writeRemoteInvocationResult(request, response, result, baos);
+
+        response.setContentType(getContentType());
+        response.addHeader("Vary", "Accept-Encoding");
+
+        if(baos.size() > threshold && acceptsGzip(request)) {
+            response.setHeader("Content-Encoding", "gzip");
+            GZIPOutputStream gzos = new GZIPOutputStream(response.getOutputStream());
+            baos.writeTo(gzos);
+            gzos.finish();
+        } else {
+            response.setContentLength(baos.size());
+            baos.writeTo(response.getOutputStream());
+        }
+    }
+
+    static boolean acceptsGzip(HttpServletRequest request) {
+        String accept = request.getHeader("Accept-Encoding");
+        if(accept == null) {
+            return false;
+        }
+        for (String token : accept.split(",")) {
+            String[] parts = token.trim().split(";");
+            if(parts[0].trim().equalsIgnoreCase("gzip")) {
+                // gzip;q=0 means gzip is not accepted
+                return parts.length < 2 || ! parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Results smaller than this number of bytes are not compressed.
+     */
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+}
@@ -155,7 +155,7 @@ public class AccessInfoInternal implements Serializable {
         return ret;
     }
 
-    protected static CatalogModeDTO mapCatalogModeDTO(CatalogMode cm) {
+    public static CatalogModeDTO mapCatalogModeDTO(CatalogMode cm) {
         if(cm == null)
             return null;
         switch (cm) {
@@ -0,0 +1,212 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Merges CQL filters in OR, producing the shortest equivalent expression.
+ * <P>
+ * Each filter is split into its top level OR terms, which are cached by filter text,
+ * so that the filters of a LayerDetails are only split once.
+ * <BR>Nested ORs are flattened, duplicated terms are removed, and if any of the terms
+ * is unrestricted (<TT>INCLUDE</TT> or empty) the whole union is unrestricted.
+ * <P>
+ * Terms are only compared textually, after whitespace normalization and removal of
+ * the redundant outer parentheses: no other CQL semantics are involved.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class CQLUnion {
+
+    private static final int MAX_CACHED = 1000;
+
+    /** Filter text to its OR terms. An empty list means an unrestricted filter. */
+    private static final Map<String, List<String>> TERMS = new ConcurrentHashMap<>();
+
+    private CQLUnion() {
+    }
+
+    /**
+     * @return the union of the two filters, or null if the union is unrestricted.
+     * A null filter is unrestricted.
+     */
+    public static String union(String c1, String c2) {
+        if(c1 == null || c2 == null)
+            return null;
+
+        List<String> t1 = getTerms(c1);
+        List<String> t2 = getTerms(c2);
+        if(t1.isEmpty() || t2.isEmpty())
+            return null;
+
+        Set<String> terms = new LinkedHashSet<>(t1);
+        terms.addAll(t2);
+
+        if(terms.size() == 1)
+            return terms.iterator().next();
+
+        StringBuilder sb = new StringBuilder();
+        for (String term : terms) {
+            if(sb.length() > 0)
+                sb.append(" OR ");
+            sb.append('(').append(term).append(')');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the normalized top level OR terms of the filter; an empty list if the filter is unrestricted.
+     */
+    static List<String> getTerms(String cql) {
+        List<String> terms = TERMS.get(cql);
+        if(terms == null) {
+            terms = parse(cql);
+            if(TERMS.size() >= MAX_CACHED) {
+                // merged filters are seldom reused, so just start over
+                TERMS.clear();
+            }
+            TERMS.put(cql, terms);
+        }
+        return terms;
+    }
+
+    private static List<String> parse(String cql) {
+        Set<String> terms = new LinkedHashSet<>();
+        if( ! addTerms(terms, cql))
+            return Collections.emptyList();
+        return Collections.unmodifiableList(new ArrayList<>(terms));
+    }
+
+    /**
+     * @return false if the filter is unrestricted
+     */
+    private static boolean addTerms(Set<String> terms, String cql) {
+        String norm = stripParens(normalize(cql));
+        if(norm.isEmpty() || norm.equalsIgnoreCase("INCLUDE"))
+            return false;
+
+        List<String> parts = splitOr(norm);
+        if(parts.size() == 1 || parts.contains("")) {
+            // either a single term, or something we can not split safely
+            terms.add(norm);
+            return true;
+        }
+
+        for (String part : parts) {
+            if( ! addTerms(terms, part))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Collapses the whitespaces outside quoted strings.
+     */
+    private static String normalize(String cql) {
+        StringBuilder sb = new StringBuilder(cql.length());
+        char quote = 0;
+        boolean space = false;
+        for (int i = 0; i < cql.length(); i++) {
+            char c = cql.charAt(i);
+            if(quote != 0) {
+                sb.append(c);
+                if(c == quote)
+                    quote = 0; // an escaped quote ('') just reopens the string
+            } else if(Character.isWhitespace(c)) {
+                space = true;
+            } else {
+                if(space && sb.length() > 0)
+                    sb.append(' ');
+                space = false;
+                sb.append(c);
+                if(c == '\'' || c == '"')
+                    quote = c;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Removes the parentheses enclosing the whole expression.
+     */
+    private static String stripParens(String cql) {
+        while(cql.length() > 1 && cql.charAt(0) == '(' && findClosing(cql, 0) == cql.length() - 1) {
+            cql = cql.substring(1, cql.length() - 1).trim();
+        }
+        return cql;
+    }
+
+    /**
+     * @return the index of the parenthesis closing the one at <TT>open</TT>, or -1.
+     */
+    private static int findClosing(String cql, int open) {
+        int depth = 0;
+        char quote = 0;
+        for (int i = open; i < cql.length(); i++) {
+            char c = cql.charAt(i);
+            if(quote != 0) {
+                if(c == quote)
+                    quote = 0;
+            } else if(c == '\'' || c == '"') {
+                quote = c;
+            } else if(c == '(') {
+                depth++;
+            } else if(c == ')') {
+                depth--;
+                if(depth == 0)
+                    return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Splits a normalized filter on its top level OR operators.
+     */
+    private static List<String> splitOr(String cql) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < cql.length(); i++) {
+            char c = cql.charAt(i);
+            if(quote != 0) {
+                if(c == quote)
+                    quote = 0;
+            } else if(c == '\'' || c == '"') {
+                quote = c;
+            } else if(c == '(') {
+                depth++;
+            } else if(c == ')') {
+                depth--;
+            } else if(depth == 0 && isOr(cql, i)) {
+                parts.add(cql.substring(start, i).trim());
+                start = i + 2;
+                i++;
+            }
+        }
+        parts.add(cql.substring(start).trim());
+        return parts;
+    }
+
+    private static boolean isOr(String cql, int i) {
+        return i > 0 && i + 2 < cql.length()
+                && cql.regionMatches(true, i, "OR", 0, 2)
+                && isSeparator(cql.charAt(i - 1))
+                && isSeparator(cql.charAt(i + 2));
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '(' || c == ')';
+    }
+}
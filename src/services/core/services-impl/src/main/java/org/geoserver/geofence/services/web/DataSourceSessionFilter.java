@@ -0,0 +1,64 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.web;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.geoserver.geofence.core.dao.datasource.ReadWriteRoutingDataSource;
+
+/**
+ * Binds each request to a {@link ReadWriteRoutingDataSource} session, so that a
+ * committed write only keeps on the primary DB the reads of the same client.
+ * <P>
+ * The session is the http session if any, else the authenticated user, else the
+ * client address (e.g. a GeoServer instance calling through HttpInvoker).
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class DataSourceSessionFilter implements Filter {
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        ReadWriteRoutingDataSource.setSessionKey(getSessionKey(request));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadWriteRoutingDataSource.clearSessionKey();
+        }
+    }
+
+    static String getSessionKey(ServletRequest request) {
+        if(request instanceof HttpServletRequest) {
+            HttpServletRequest httpRequest = (HttpServletRequest) request;
+            HttpSession session = httpRequest.getSession(false);
+            if(session != null) {
+                return "session:" + session.getId();
+            }
+            if(httpRequest.getRemoteUser() != null) {
+                return "user:" + httpRequest.getRemoteUser();
+            }
+        }
+        return "addr:" + request.getRemoteAddr();
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
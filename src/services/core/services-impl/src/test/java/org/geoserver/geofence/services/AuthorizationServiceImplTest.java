@@ -0,0 +1,168 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.geoserver.geofence.core.dao.GFUserDAO;
+import org.geoserver.geofence.core.dao.GSUserDAO;
+import org.geoserver.geofence.core.model.GFUser;
+import org.geoserver.geofence.core.model.GSUser;
+import org.geoserver.geofence.services.dto.AuthUser;
+
+/**
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class AuthorizationServiceImplTest extends ServiceTestBase {
+
+    private AuthorizationService getAuthorizationService() {
+        return (AuthorizationService) ctx.getBean("authorizationService");
+    }
+
+    private GSUser createUser(String name, String password) {
+        GSUser user = new GSUser();
+        user.setName(name);
+        user.setPassword(password);
+        userAdminService.insert(user);
+        return user;
+    }
+
+    @Test
+    public void testCachedCredentials() throws Exception {
+        AuthorizationService authService = getAuthorizationService();
+        GSUser user = createUser("authCached", "pw1");
+
+        AuthUser auth = authService.authorize("authCached", "pw1");
+        assertNotNull(auth);
+        assertEquals(AuthUser.Role.USER, auth.getRole());
+        assertNotNull(authService.authorize("authCached", "pw1")); // cached
+        assertNull(authService.authorize("authCached", "wrong"));
+
+        // the update invalidates the cached credentials
+        GSUser loaded = userAdminService.get(user.getId());
+        loaded.setPassword("pw2");
+        userAdminService.update(loaded);
+
+        assertNull(authService.authorize("authCached", "pw1"));
+        assertNotNull(authService.authorize("authCached", "pw2"));
+
+        loaded = userAdminService.get(user.getId());
+        loaded.setEnabled(false);
+        userAdminService.update(loaded);
+        assertNull(authService.authorize("authCached", "pw2"));
+    }
+
+    @Test
+    public void testGFUser() throws Exception {
+        AuthorizationService authService = getAuthorizationService();
+
+        GFUser gfUser = new GFUser();
+        gfUser.setName("authGF");
+        gfUser.setPassword("gfpw");
+        gfUserAdminService.insert(gfUser);
+
+        AuthUser auth = authService.authorize("authGF", "gfpw");
+        assertNotNull(auth);
+        assertEquals(AuthUser.Role.ADMIN, auth.getRole());
+        assertNull(authService.authorize("authGF", "wrong"));
+
+        // the update invalidates the cached credentials
+        gfUser.setPassword("gfpw2");
+        gfUserAdminService.update(gfUser);
+        assertNull(authService.authorize("authGF", "gfpw"));
+        assertNotNull(authService.authorize("authGF", "gfpw2"));
+
+        // GSUsers take precedence over GFUsers with the same name
+        createUser("authGF", "gspw");
+        assertEquals(AuthUser.Role.USER, authService.authorize("authGF", "gspw").getRole());
+        assertNull(authService.authorize("authGF", "gfpw2"));
+    }
+
+    @Test
+    public void testCredentialStamp() throws Exception {
+        AuthorizationService authService = getAuthorizationService();
+        GSUser user = createUser("authStamp", "pw1");
+
+        String stamp = authService.getCredentialStamp("authStamp");
+        assertNotNull(stamp);
+        assertEquals(stamp, authService.getCredentialStamp("authStamp"));
+        assertNull(authService.getCredentialStamp("authStampUnknown"));
+
+        GSUser loaded = userAdminService.get(user.getId());
+        loaded.setAdmin(true);
+        userAdminService.update(loaded);
+        String adminStamp = authService.getCredentialStamp("authStamp");
+        assertNotNull(adminStamp);
+        assertFalse("Stamp should change with the role", stamp.equals(adminStamp));
+
+        loaded = userAdminService.get(user.getId());
+        loaded.setEnabled(false);
+        userAdminService.update(loaded);
+        assertNull(authService.getCredentialStamp("authStamp"));
+    }
+
+    @Test
+    public void testRateLimit() throws Exception {
+        AuthorizationService authService = getAuthorizationService();
+        createUser("authLocked", "pw");
+
+        for (int i = 0; i < 5; i++) {
+            assertNull(authService.authorize("authLocked", "wrong" + i));
+        }
+        assertNull("Attempts should be rejected after too many failures", authService.authorize("authLocked", "pw"));
+    }
+
+    @Test
+    public void testFailuresBounded() throws Exception {
+        AuthorizationServiceImpl authService = new AuthorizationServiceImpl();
+        authService.setGsUserDAO((GSUserDAO) ctx.getBean("gsUserDAO"));
+        authService.setGfUserDAO((GFUserDAO) ctx.getBean("gfUserDAO"));
+        authService.setMaxTrackedFailures(50);
+        createUser("authFlooded", "pw");
+
+        for (int i = 0; i < 5; i++) {
+            assertNull(authService.authorize("authFlooded", "wrong" + i));
+        }
+        for (int i = 0; i < 200; i++) {
+            assertNull(authService.authorize("authRandom" + i, "pw"));
+        }
+        assertTrue(authService.getTrackedFailures() <= 50);
+
+        // the locked out user is not flushed by the other failures
+        assertNull(authService.authorize("authFlooded", "pw"));
+    }
+
+    @Test
+    public void testConcurrentFailures() throws Exception {
+        final AuthorizationServiceImpl authService = new AuthorizationServiceImpl();
+        authService.setGsUserDAO((GSUserDAO) ctx.getBean("gsUserDAO"));
+        authService.setGfUserDAO((GFUserDAO) ctx.getBean("gfUserDAO"));
+        authService.setMaxFailures(20);
+        createUser("authConcurrent", "pw");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                results.add(executor.submit(() -> authService.authorize("authConcurrent", "wrong")));
+            }
+            for (Future<?> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertNull("No failure should be lost", authService.authorize("authConcurrent", "pw"));
+    }
+}
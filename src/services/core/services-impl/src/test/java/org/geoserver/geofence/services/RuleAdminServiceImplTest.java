@@ -683,6 +683,47 @@ public class RuleAdminServiceImplTest extends ServiceTestBase {
 
     }
 
+    public void testGetListByArea() throws NotFoundServiceEx {
+        Rule r1 = new Rule(10, null, null, null,null,      "s1", "r1", "w1", "l1", GrantType.LIMIT);
+        ruleAdminService.insert(r1);
+        Rule r2 = new Rule(20, null, null, null,null,      "s1", "r1", "w1", "l1", GrantType.ALLOW);
+        ruleAdminService.insert(r2);
+        Rule r3 = new Rule(30, null, null, null,null,      "s1", "r1", "w1", "l2", GrantType.ALLOW);
+        ruleAdminService.insert(r3);
+
+        RuleLimits limits = new RuleLimits();
+        limits.setAllowedArea(parseMultiPolygon("MULTIPOLYGON (((0 0, 10 0, 10 10, 0 10, 0 0)))"));
+        ruleAdminService.setLimits(r1.getId(), limits);
 
+        LayerDetails details = new LayerDetails();
+        details.setArea(parseMultiPolygon("MULTIPOLYGON (((20 20, 30 20, 30 30, 20 30, 20 20)))"));
+        ruleAdminService.setDetails(r2.getId(), details);
+
+        // r3 has no area, so it is never returned
+        {
+            List<ShortRule> found = ruleAdminService.getListByArea(parseMultiPolygon("MULTIPOLYGON (((5 5, 6 5, 6 6, 5 6, 5 5)))"));
+            assertEquals(1, found.size());
+            assertEquals(r1.getId(), found.get(0).getId());
+        }
+        {
+            List<ShortRule> found = ruleAdminService.getListByArea(parseMultiPolygon("MULTIPOLYGON (((5 5, 25 5, 25 25, 5 25, 5 5)))"));
+            assertEquals(2, found.size());
+            assertEquals(r1.getId(), found.get(0).getId());
+            assertEquals(r2.getId(), found.get(1).getId());
+        }
+        {
+            // the envelope overlaps both areas, but the geometry does not
+            List<ShortRule> found = ruleAdminService.getListByArea(parseMultiPolygon("MULTIPOLYGON (((22 -1, 23 -1, -1 23, -1 22, 22 -1)))"));
+            assertEquals(0, found.size());
+        }
+
+        // changes are seen by the index
+        ruleAdminService.setLimits(r1.getId(), null);
+        {
+            List<ShortRule> found = ruleAdminService.getListByArea(parseMultiPolygon("MULTIPOLYGON (((5 5, 25 5, 25 25, 5 25, 5 5)))"));
+            assertEquals(1, found.size());
+            assertEquals(r2.getId(), found.get(0).getId());
+        }
+    }
 
 }
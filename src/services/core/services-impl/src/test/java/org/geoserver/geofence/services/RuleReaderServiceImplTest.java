@@ -14,16 +14,24 @@ import org.geoserver.geofence.core.model.LayerAttribute;
 import org.geoserver.geofence.core.model.LayerDetails;
 import org.geoserver.geofence.core.model.UserGroup;
 import org.geoserver.geofence.core.model.Rule;
+import org.geoserver.geofence.core.model.RuleLimits;
+import org.geoserver.geofence.core.model.enums.CatalogMode;
 import org.geoserver.geofence.core.model.enums.AccessType;
 import org.geoserver.geofence.core.model.enums.GrantType;
+import org.geoserver.geofence.services.dto.AccessExplanation;
 import org.geoserver.geofence.services.dto.AccessInfo;
+import org.geoserver.geofence.services.dto.AccessibleLayers;
+import org.geoserver.geofence.services.dto.AdministrableWorkspaces;
+import org.geoserver.geofence.services.dto.CatalogModeDTO;
 import org.geoserver.geofence.services.dto.RuleFilter;
 import org.geoserver.geofence.services.dto.RuleFilter.SpecialFilterType;
 import org.geoserver.geofence.services.dto.ShortRule;
+import org.geoserver.geofence.services.dto.UserPolicy;
 import org.geoserver.geofence.services.exception.NotFoundServiceEx;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import org.geoserver.geofence.core.model.AdminRule;
@@ -654,6 +662,173 @@ public class RuleReaderServiceImplTest extends ServiceTestBase {
 
         assertEquals(0, ruleReaderService.getMatchingRules("*","*","*","BAD",  "*", "*","*","*").size());
     }
+
+    @Test
+    public void testExplain() {
+
+        RuleFilter filter = new RuleFilter(RuleFilter.SpecialFilterType.ANY);
+        assertEquals(0, ruleAdminService.count(filter));
+
+        UserGroup g1 = createRole("g1");
+
+        IPAddressRange ip10 = new IPAddressRange("10.10.100.0/24");
+
+        Rule r1 = new Rule(10, null, "g1", null, null, null, null, null, "l1", GrantType.LIMIT);
+        Rule r2 = new Rule(20, null, "g1", null, ip10, null, null, null, "l1", GrantType.DENY);
+        Rule r3 = new Rule(30, null, "g1", null, null, null, null, null, "l1", GrantType.ALLOW);
+        Rule r4 = new Rule(40, null, "g1", null, null, null, null, null, null, GrantType.DENY);
+
+        ruleAdminService.insert(r1);
+        ruleAdminService.insert(r2);
+        ruleAdminService.insert(r3);
+        ruleAdminService.insert(r4);
+
+        RuleLimits limits = new RuleLimits();
+        limits.setCatalogMode(CatalogMode.HIDE);
+        ruleAdminService.setLimits(r1.getId(), limits);
+
+        filter = new RuleFilter(RuleFilter.SpecialFilterType.ANY);
+        filter.setRole("g1");
+        filter.setSourceAddress("192.168.1.1");
+        filter.setLayer("l1");
+
+        AccessExplanation explanation = ruleReaderService.explainAccessInfo(filter);
+        LOGGER.info(explanation);
+
+        assertEquals(ruleReaderService.getAccessInfo(filter).getGrant(), explanation.getAccessInfo().getGrant());
+        assertEquals(GrantType.ALLOW, explanation.getAccessInfo().getGrant());
+        assertEquals(CatalogModeDTO.HIDE, explanation.getAccessInfo().getCatalogMode());
+
+        assertEquals(1, explanation.getRoleExplanations().size());
+        AccessExplanation.RoleExplanation re = explanation.getRoleExplanations().get(0);
+        assertEquals("g1", re.getRole());
+        assertEquals(4, re.getCandidates().size());
+        assertEquals(1, re.getDroppedByAddress().size());
+        assertEquals(r2.getId(), re.getDroppedByAddress().get(0).getId());
+        assertEquals(1, re.getLimits().size());
+        assertEquals(r1.getId(), re.getLimits().get(0).getId());
+        assertEquals(r3.getId(), re.getDecidingRule().getId());
+        assertEquals(GrantType.ALLOW, re.getEnlargedAccess().getGrant());
+
+        assertTrue(explanation.getTotalNanos() > 0);
+        assertTrue(explanation.getDbQueryNanos() > 0);
+        assertTrue(explanation.getTotalNanos() >= explanation.getDbQueryNanos());
+    }
+
+    @Test
+    public void testAccessibleLayers() {
+
+        RuleFilter filter = new RuleFilter(RuleFilter.SpecialFilterType.ANY);
+        assertEquals(0, ruleAdminService.count(filter));
+
+        UserGroup g1 = createRole("g1");
+
+        Rule r1 = new Rule(10, null, "g1", null, null, null, null, "w1", "l1", GrantType.ALLOW);
+        Rule r2 = new Rule(20, null, "g1", null, null, null, null, "w1", null, GrantType.DENY);
+        Rule r3 = new Rule(30, null, "g1", null, null, null, null, null, "l2", GrantType.LIMIT);
+        Rule r4 = new Rule(40, null, "g1", null, null, null, null, null, "l2", GrantType.ALLOW);
+        Rule r5 = new Rule(50, null, "g1", null, null, null, null, null, null, GrantType.DENY);
+
+        ruleAdminService.insert(r1);
+        ruleAdminService.insert(r2);
+        ruleAdminService.insert(r3);
+        ruleAdminService.insert(r4);
+        ruleAdminService.insert(r5);
+
+        RuleLimits limits = new RuleLimits();
+        limits.setCatalogMode(CatalogMode.HIDE);
+        ruleAdminService.setLimits(r3.getId(), limits);
+
+        filter = new RuleFilter(RuleFilter.SpecialFilterType.ANY);
+        filter.setRole("g1");
+
+        AccessibleLayers layers = ruleReaderService.getAccessibleLayers(filter);
+        LOGGER.info(layers.getLayers());
+
+        assertEquals(GrantType.DENY, layers.getDefaultAccess().getGrant());
+        assertEquals(GrantType.ALLOW, layers.getAccess("w1", "l1").getGrant());
+        assertEquals(GrantType.DENY, layers.getAccess("w1", "l2").getGrant());
+        assertEquals(GrantType.DENY, layers.getAccess("w1", "l3").getGrant());
+        assertEquals(GrantType.ALLOW, layers.getAccess("w2", "l2").getGrant());
+        assertEquals(CatalogModeDTO.HIDE, layers.getAccess("w2", "l2").getCatalogMode());
+        assertEquals(GrantType.DENY, layers.getAccess("w2", "l3").getGrant());
+        assertEquals(Collections.singleton("w1"), layers.getAllowedWorkspaces());
+
+        // same results as the single layer requests
+        for (String ws : new String[]{"w1", "w2"}) {
+            for (String layer : new String[]{"l1", "l2", "l3"}) {
+                RuleFilter layerFilter = filter.clone();
+                layerFilter.setWorkspace(ws);
+                layerFilter.setLayer(layer);
+                assertEquals(ws + ":" + layer,
+                        ruleReaderService.getAccessInfo(layerFilter).getGrant(),
+                        layers.getAccess(ws, layer).getGrant());
+            }
+        }
+    }
+
+    @Test
+    public void testUserPolicy() {
+
+        RuleFilter filter = new RuleFilter(RuleFilter.SpecialFilterType.ANY);
+        assertEquals(0, ruleAdminService.count(filter));
+
+        UserGroup g1 = createRole("g1");
+        UserGroup g2 = createRole("g2");
+
+        IPAddressRange ip10 = new IPAddressRange("10.10.100.0/24");
+
+        Rule r1 = new Rule(10, null, "g1", null, ip10, "WMS", null, "w1", "l1", GrantType.LIMIT);
+        Rule r2 = new Rule(20, null, "g1", null, null, "WMS", null, "w1", "l1", GrantType.ALLOW);
+        Rule r3 = new Rule(30, null, "g2", null, null, null, null, null, null, GrantType.ALLOW);
+        Rule r4 = new Rule(40, null, null, null, null, null, null, null, null, GrantType.DENY);
+
+        ruleAdminService.insert(r1);
+        ruleAdminService.insert(r2);
+        ruleAdminService.insert(r3);
+        ruleAdminService.insert(r4);
+
+        RuleLimits limits = new RuleLimits();
+        limits.setCatalogMode(CatalogMode.HIDE);
+        ruleAdminService.setLimits(r1.getId(), limits);
+
+        LayerDetails details = new LayerDetails();
+        details.setRule(r2);
+        details.setCqlFilterRead("a > 1");
+        ruleAdminService.setDetails(r2.getId(), details);
+
+        String version = ruleReaderService.getRulesetVersion();
+        assertNotNull(version);
+
+        filter = new RuleFilter(RuleFilter.SpecialFilterType.ANY);
+        filter.setRole("g1");
+        filter.setLayer("l1");
+
+        UserPolicy policy = ruleReaderService.getUserPolicy(filter);
+        LOGGER.info(policy);
+
+        assertEquals(version, policy.getVersion());
+        assertEquals(1, policy.getRoles().size());
+        UserPolicy.RolePolicy rolePolicy = policy.getRoles().get(0);
+        assertEquals("g1", rolePolicy.getRole());
+        assertEquals(3, rolePolicy.getRules().size());
+
+        UserPolicy.PolicyRule p1 = rolePolicy.getRules().get(0);
+        assertEquals(r1.getId(), p1.getId());
+        assertEquals("10.10.100.0/24", p1.getAddressRange());
+        assertEquals(CatalogModeDTO.HIDE, p1.getLimits().getCatalogMode());
+        assertNull(p1.getDetails());
+
+        UserPolicy.PolicyRule p2 = rolePolicy.getRules().get(1);
+        assertEquals(r2.getId(), p2.getId());
+        assertEquals("a > 1", p2.getDetails().getCqlFilterRead());
+
+        assertEquals(r4.getId(), rolePolicy.getRules().get(2).getId());
+
+        // any change in the rules invalidates the policy
+        ruleAdminService.delete(r3.getId());
+        assertFalse(version.equals(ruleReaderService.getRulesetVersion()));
+    }
     
     @Test
     public void testGetRulesForUserOnly() {
@@ -740,4 +915,50 @@ public class RuleReaderServiceImplTest extends ServiceTestBase {
         assertTrue(accessInfo.getAdminRights());
     }
 
+    @Test
+    public void testAdministrableWorkspaces() {
+
+        GSUser user = createUser("auth00");
+
+        RuleFilter filter = new RuleFilter(SpecialFilterType.ANY, true);
+        filter.setUser(user.getName());
+
+        AdministrableWorkspaces ws = ruleReaderService.getAdministrableWorkspaces(filter);
+        assertFalse(ws.isAnyWorkspace());
+        assertTrue(ws.getWorkspaces().isEmpty());
+
+        adminruleAdminService.insert(new AdminRule(10, user.getName(), null, null, null, "w1", AdminGrantType.ADMIN));
+        adminruleAdminService.insert(new AdminRule(20, user.getName(), null, null, null, "w2", AdminGrantType.USER));
+        adminruleAdminService.insert(new AdminRule(30, user.getName(), null, null, null, null, AdminGrantType.USER));
+
+        // the index must have been invalidated by the inserts
+        ws = ruleReaderService.getAdministrableWorkspaces(filter);
+        LOGGER.info(ws);
+        assertFalse(ws.isAnyWorkspace());
+        assertEquals(Collections.singleton("w1"), ws.getWorkspaces());
+        assertTrue(ws.isAdmin("w1"));
+        assertFalse(ws.isAdmin("w2"));
+        assertFalse(ws.isAdmin("w3"));
+
+        adminruleAdminService.insert(new AdminRule(40, user.getName(), null, null, null, null, AdminGrantType.ADMIN));
+        adminruleAdminService.insert(new AdminRule(5, user.getName(), null, null, null, "w3", AdminGrantType.USER));
+        adminruleAdminService.insert(new AdminRule(6, user.getName(), null, null, null, null, AdminGrantType.ADMIN));
+
+        ws = ruleReaderService.getAdministrableWorkspaces(filter);
+        LOGGER.info(ws);
+        assertTrue(ws.isAnyWorkspace());
+        assertTrue(ws.isAdmin("w1"));
+        assertTrue(ws.isAdmin("w2"));
+        assertFalse(ws.isAdmin("w3"));
+        assertTrue(ws.isAdmin("w4"));
+
+        // same results as the single workspace requests
+        for (String workspace : new String[]{"w1", "w2", "w3", "w4"}) {
+            RuleFilter wsFilter = filter.clone();
+            wsFilter.setWorkspace(workspace);
+            assertEquals(workspace, ws.isAdmin(workspace),
+                    ruleReaderService.getAdminAuthorization(wsFilter).getAdminRights());
+        }
+    }
+
 }
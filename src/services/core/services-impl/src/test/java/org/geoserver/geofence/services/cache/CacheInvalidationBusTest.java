@@ -0,0 +1,82 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class CacheInvalidationBusTest {
+
+    @Test
+    public void testDispatch() {
+        final List<InvalidationEvent> local = new ArrayList<>();
+        final List<InvalidationEvent> remote = new ArrayList<>();
+        final List<InvalidationEvent> published = new ArrayList<>();
+
+        CacheInvalidationBus bus = new CacheInvalidationBus();
+        bus.setNodeId("node1");
+        bus.addListener(new InvalidationListener() {
+            @Override
+            public void invalidate(InvalidationEvent event, boolean isRemote) {
+                (isRemote ? remote : local).add(event);
+            }
+        });
+        bus.setTransports(Collections.<InvalidationTransport>singletonList(new InvalidationTransport() {
+            @Override
+            public void start(CacheInvalidationBus bus) {
+            }
+
+            @Override
+            public void publish(InvalidationEvent event) {
+                published.add(event);
+            }
+
+            @Override
+            public void stop() {
+            }
+        }));
+        bus.afterPropertiesSet();
+
+        bus.changed(InvalidationEvent.Type.RULE, 42L);
+        assertEquals(1, local.size());
+        assertEquals(1, published.size());
+        assertEquals("node1", published.get(0).getNode());
+        assertEquals(Long.valueOf(42), published.get(0).getId());
+
+        // events coming back from our own node are skipped
+        bus.received(published.get(0));
+        assertTrue(remote.isEmpty());
+
+        bus.received(new InvalidationEvent(InvalidationEvent.Type.USER, null, "node2"));
+        assertEquals(1, remote.size());
+        assertEquals(InvalidationEvent.Type.USER, remote.get(0).getType());
+
+        bus.destroy();
+    }
+
+    @Test
+    public void testMulticastEncoding() {
+        InvalidationEvent event = new InvalidationEvent(InvalidationEvent.Type.ADMINRULE, 7L, "n1");
+        InvalidationEvent decoded = MulticastTransport.decode(MulticastTransport.encode(event));
+        assertEquals(event.getType(), decoded.getType());
+        assertEquals(event.getId(), decoded.getId());
+        assertEquals(event.getNode(), decoded.getNode());
+
+        decoded = MulticastTransport.decode(MulticastTransport.encode(new InvalidationEvent(InvalidationEvent.Type.GROUP, null, "n2")));
+        assertNull(decoded.getId());
+
+        assertNull(MulticastTransport.decode("garbage"));
+        assertNull(MulticastTransport.decode("n1|NOTATYPE|1"));
+    }
+}
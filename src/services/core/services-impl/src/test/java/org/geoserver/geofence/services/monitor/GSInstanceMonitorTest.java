@@ -0,0 +1,118 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.monitor;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.geoserver.geofence.core.model.GSInstance;
+import org.geoserver.geofence.services.dto.InstanceStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class GSInstanceMonitorTest {
+
+    private HttpServer server;
+    private final AtomicInteger responseCode = new AtomicInteger(200);
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/geoserver/rest/about/version.xml", exchange -> {
+            byte[] body = "<about/>".getBytes("UTF-8");
+            exchange.sendResponseHeaders(responseCode.get(), body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testStats() {
+        GSInstanceMonitor monitor = new GSInstanceMonitor();
+        monitor.setWindow(4);
+
+        GSInstance instance = createInstance(1, "http://localhost:" + server.getAddress().getPort() + "/geoserver/");
+
+        InstanceStatus status = monitor.getStatus(instance);
+        assertNull(status.getAvailable());
+        assertTrue(monitor.isAvailable(1));
+
+        monitor.probe(instance);
+        status = monitor.getStatus(instance);
+        assertEquals(Boolean.TRUE, status.getAvailable());
+        assertEquals(1, status.getSamples());
+        assertEquals(100.0, status.getAvailability(), 0.001);
+        assertNotNull(status.getAverageLatency());
+
+        responseCode.set(503);
+        monitor.probe(instance);
+        status = monitor.getStatus(instance);
+        assertEquals(Boolean.FALSE, status.getAvailable());
+        assertFalse(monitor.isAvailable(1));
+        assertEquals(50.0, status.getAvailability(), 0.001);
+        assertEquals(1, status.getConsecutiveFailures());
+        assertEquals("HTTP 503", status.getLastError());
+
+        // auth errors mean the instance is up
+        responseCode.set(401);
+        for (int i = 0; i < 4; i++) {
+            monitor.probe(instance);
+        }
+        status = monitor.getStatus(instance);
+        assertEquals(Boolean.TRUE, status.getAvailable());
+        assertEquals(4, status.getSamples());
+        assertEquals(100.0, status.getAvailability(), 0.001);
+        assertEquals(0, status.getConsecutiveFailures());
+
+        // stats are reset when the URL changes
+        instance.setBaseURL(instance.getBaseURL() + "other/");
+        assertNull(monitor.getStatus(instance).getAvailable());
+    }
+
+    @Test
+    public void testUnreachable() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        GSInstanceMonitor monitor = new GSInstanceMonitor();
+        monitor.setConnectTimeout(500);
+        GSInstance instance = createInstance(2, "http://localhost:" + port + "/geoserver");
+
+        monitor.probe(instance);
+        InstanceStatus status = monitor.getStatus(instance);
+        assertEquals(Boolean.FALSE, status.getAvailable());
+        assertEquals(0.0, status.getAvailability(), 0.001);
+        assertNull(status.getAverageLatency());
+        assertNotNull(status.getLastError());
+    }
+
+    private static GSInstance createInstance(long id, String url) {
+        GSInstance instance = new GSInstance();
+        instance.setId(id);
+        instance.setName("gs" + id);
+        instance.setBaseURL(url);
+        instance.setUsername("admin");
+        instance.setPassword("geoserver");
+        return instance;
+    }
+}
@@ -0,0 +1,69 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.remoting;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class CompressingHttpInvokerServiceExporterTest {
+
+    @Test
+    public void testAcceptsGzip() {
+        assertFalse(CompressingHttpInvokerServiceExporter.acceptsGzip(createRequest(null, null)));
+        assertTrue(CompressingHttpInvokerServiceExporter.acceptsGzip(createRequest("Accept-Encoding", "gzip")));
+        assertTrue(CompressingHttpInvokerServiceExporter.acceptsGzip(createRequest("Accept-Encoding", "deflate, GZIP;q=0.5")));
+        assertFalse(CompressingHttpInvokerServiceExporter.acceptsGzip(createRequest("Accept-Encoding", "gzip; q=0, identity")));
+        assertFalse(CompressingHttpInvokerServiceExporter.acceptsGzip(createRequest("Accept-Encoding", "identity")));
+    }
+
+    @Test
+    public void testGzippedRequest() throws Exception {
+        byte[] data = "some serialized invocation".getBytes("UTF-8");
+        ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzos = new GZIPOutputStream(zipped)) {
+            gzos.write(data);
+        }
+
+        CompressingHttpInvokerServiceExporter exporter = new CompressingHttpInvokerServiceExporter();
+        InputStream is = exporter.decorateInputStream(createRequest("Content-Encoding", "gzip"), new ByteArrayInputStream(zipped.toByteArray()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[64];
+        for (int n; (n = is.read(buf)) > 0;) {
+            out.write(buf, 0, n);
+        }
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    private static HttpServletRequest createRequest(String header, String value) {
+        final Map<String, String> headers = new HashMap<>();
+        if(header != null) {
+            headers.put(header, value);
+        }
+        return (HttpServletRequest) Proxy.newProxyInstance(CompressingHttpInvokerServiceExporterTest.class.getClassLoader(),
+                new Class[]{HttpServletRequest.class},
+                (proxy, method, args) -> {
+                    if("getHeader".equals(method.getName())) {
+                        return headers.get((String)args[0]);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
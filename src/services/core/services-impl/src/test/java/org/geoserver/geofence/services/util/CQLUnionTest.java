@@ -0,0 +1,55 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.util;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class CQLUnionTest {
+
+    @Test
+    public void testUnrestricted() {
+        assertNull(CQLUnion.union(null, "a > 1"));
+        assertNull(CQLUnion.union("a > 1", null));
+        assertNull(CQLUnion.union("a > 1", "INCLUDE"));
+        assertNull(CQLUnion.union("a > 1", " "));
+        assertNull(CQLUnion.union("a > 1", "(b = 2) OR (include)"));
+    }
+
+    @Test
+    public void testDedupe() {
+        assertEquals("a > 1", CQLUnion.union("a > 1", "a > 1"));
+        assertEquals("a > 1", CQLUnion.union("(a  >  1)", "a > 1"));
+        assertEquals("(a > 1) OR (b = 2)", CQLUnion.union("(a > 1) OR (b = 2)", "b = 2"));
+    }
+
+    @Test
+    public void testFlatten() {
+        String merged = CQLUnion.union("a > 1", "b = 2");
+        assertEquals("(a > 1) OR (b = 2)", merged);
+
+        merged = CQLUnion.union(merged, "((c = 3 OR a > 1))");
+        assertEquals("(a > 1) OR (b = 2) OR (c = 3)", merged);
+
+        assertEquals(Arrays.asList("a > 1", "b = 2", "c = 3"), CQLUnion.getTerms(merged));
+    }
+
+    @Test
+    public void testNotSplit() {
+        // OR inside nested expressions, quoted strings and names must be kept as is
+        assertEquals(Arrays.asList("a = 1 AND (b = 2 OR c = 3)"), CQLUnion.getTerms("a = 1 AND (b = 2 OR c = 3)"));
+        assertEquals(Arrays.asList("name = 'x OR y'"), CQLUnion.getTerms("name = 'x OR y'"));
+        assertEquals(Arrays.asList("name = 'it''s OR  not'"), CQLUnion.getTerms("name = 'it''s OR  not'"));
+        assertEquals(Arrays.asList("COLOR = 1"), CQLUnion.getTerms("COLOR = 1"));
+        assertEquals(Arrays.asList("(a = 1) AND (b = 2)"), CQLUnion.getTerms("(a = 1) AND (b = 2)"));
+    }
+}
@@ -8,8 +8,10 @@ import org.geoserver.geofence.core.dao.GSUserDAO;
 import org.geoserver.geofence.core.model.GSUser;
 import org.geoserver.geofence.core.model.UserGroup;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.googlecode.genericdao.search.Filter;
 import com.googlecode.genericdao.search.Search;
@@ -25,6 +27,7 @@ public class GSUserDAOLdapImpl extends LDAPBaseDAO<GSUserDAO, GSUser> implements
 {
 
     private UserGroupDAOLdapImpl userGroupDAOLdapImpl;
+    private GroupMembershipIndex membershipIndex;
 
     /**
      *
@@ -45,20 +48,23 @@ public class GSUserDAOLdapImpl extends LDAPBaseDAO<GSUserDAO, GSUser> implements
      */
     private List<UserGroup> getGroups(GSUser user)
     {
-        Filter filter;
-
         String dn = user.getExtId();
-        if(StringUtils.isNotBlank(dn)) {
-            filter = new Filter("member", dn);
-        } else {
+        if(StringUtils.isBlank(dn)) {
             String userName = user.getName();
             LOGGER.info("User id is null, using username '"+userName+"'");
             String nameAttr = getLDAPAttribute("username");
-            String exp = nameAttr + "=" + userName;
-            filter = new Filter("member", exp);
+            // not a full DN, so it can not be looked up in the index
+            return userGroupDAOLdapImpl.search(new Filter("member", nameAttr + "=" + userName));
+        }
+
+        if(membershipIndex != null) {
+            Set<UserGroup> indexed = membershipIndex.getGroups(dn);
+            if(indexed != null) {
+                return new ArrayList<>(indexed);
+            }
         }
 
-        List<UserGroup> groups = userGroupDAOLdapImpl.search(filter);
+        List<UserGroup> groups = userGroupDAOLdapImpl.search(new Filter("member", dn));
         return groups;
     }
 
@@ -103,4 +109,12 @@ public class GSUserDAOLdapImpl extends LDAPBaseDAO<GSUserDAO, GSUser> implements
         this.userGroupDAOLdapImpl = userGroupDAOLdapImpl;
     }
 
+    /**
+     * Optional index used for resolving the user groups without querying the LDAP server.
+     */
+    public void setMembershipIndex(GroupMembershipIndex membershipIndex)
+    {
+        this.membershipIndex = membershipIndex;
+    }
+
 }
@@ -0,0 +1,322 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.geofence.ldap.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.InvalidNameException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.SearchControls;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.geoserver.geofence.core.model.UserGroup;
+import org.geoserver.geofence.ldap.utils.LdapUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.ldap.core.AttributesMapper;
+
+import com.googlecode.genericdao.search.Search;
+
+/**
+ * In memory index of the LDAP group memberships.
+ * <P>
+ * All the groups are loaded along with their members with a single paged search,
+ * so that the groups of a user can be resolved without querying the LDAP server.
+ * <BR>The index is refreshed periodically, only loading the groups changed since
+ * the previous refresh, according to the <TT>changeAttribute</TT>
+ * (<TT>modifyTimestamp</TT> by default, <TT>uSNChanged</TT> may be used on AD).
+ * Since removed groups can not be detected this way, a full reload is performed
+ * every <TT>fullReloadEvery</TT> refreshes.
+ * <P>
+ * Until the first load is completed, {@link #getGroups(String)} returns null,
+ * and the groups should be searched on the LDAP server as usual.
+ *
+ * @author Emanuele Tajariol (etj at geo-solutions.it)
+ */
+public class GroupMembershipIndex implements InitializingBean, DisposableBean
+{
+    private static final Logger LOGGER = LogManager.getLogger(GroupMembershipIndex.class);
+
+    private UserGroupDAOLdapImpl userGroupDAOLdapImpl;
+
+    private boolean enabled = false;
+    private long refreshsec = 5 * 60;
+    private int fullReloadEvery = 12;
+    private String changeAttribute = "modifyTimestamp";
+
+    private ScheduledExecutorService executor;
+
+    /** Groups with their members, by group id. Only accessed while refreshing. */
+    private Map<String, GroupEntry> groups = new HashMap<>();
+    /** Highest value of the changeAttribute found so far. */
+    private String lastChange;
+    private int refreshCount = 0;
+
+    /** Groups by member. Replaced at each refresh, so it can be read without locking. */
+    private volatile Map<String, Set<UserGroup>> index;
+
+    @Override
+    public void afterPropertiesSet() throws Exception
+    {
+        if( ! enabled ) {
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "geofence-ldap-membership-index");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refresh();
+                } catch (Exception e) {
+                    LOGGER.error("Error refreshing the LDAP membership index: " + e.getMessage(), e);
+                }
+            }
+        }, 0, refreshsec, TimeUnit.SECONDS);
+
+        LOGGER.info("LDAP membership index enabled, refreshing every " + refreshsec + "s");
+    }
+
+    @Override
+    public void destroy() throws Exception
+    {
+        if(executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * @param member the member as stored in the group entries (usually the user DN).
+     *
+     * @return the groups the member belongs to, or null if the index is not loaded yet.
+     */
+    public Set<UserGroup> getGroups(String member)
+    {
+        Map<String, Set<UserGroup>> current = index;
+        if(current == null) {
+            return null;
+        }
+        Set<UserGroup> ret = current.get(normalize(member));
+        return ret != null ? ret : Collections.<UserGroup>emptySet();
+    }
+
+    public boolean isLoaded()
+    {
+        return index != null;
+    }
+
+    /**
+     * Loads the changed groups, or all of them if a full reload is due.
+     */
+    public synchronized void refresh()
+    {
+        if(lastChange == null || index == null || ++refreshCount >= fullReloadEvery) {
+            reload();
+            return;
+        }
+
+        Search search = new Search();
+        search.addFilterGreaterOrEqual(changeAttribute, lastChange);
+        List<GroupEntry> changed = load(search);
+        for (GroupEntry entry : changed) {
+            groups.put(entry.key, entry);
+        }
+        rebuild();
+
+        if(LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Membership index refreshed: " + changed.size() + " changed groups");
+        }
+    }
+
+    /**
+     * Loads all the groups from scratch.
+     */
+    public synchronized void reload()
+    {
+        lastChange = null;
+        refreshCount = 0;
+
+        Map<String, GroupEntry> loaded = new HashMap<>();
+        for (GroupEntry entry : load(new Search())) {
+            loaded.put(entry.key, entry);
+        }
+        groups = loaded;
+        rebuild();
+
+        LOGGER.info("Membership index loaded: " + groups.size() + " groups, " + index.size() + " members");
+    }
+
+    private List<GroupEntry> load(Search search)
+    {
+        String filter = LdapUtils.createLDAPFilter(userGroupDAOLdapImpl.getSearchFilter(), search, null);
+
+        SearchControls controls = userGroupDAOLdapImpl.createSearchControls(0);
+        // operational attributes are only returned when explicitly requested
+        controls.setReturningAttributes(new String[]{"*", changeAttribute});
+
+        return userGroupDAOLdapImpl.pagedSearch(filter, controls, new GroupEntryMapper(), 0);
+    }
+
+    private void rebuild()
+    {
+        Map<String, Set<UserGroup>> newIndex = new HashMap<>();
+        for (GroupEntry entry : groups.values()) {
+            for (String member : entry.members) {
+                Set<UserGroup> memberGroups = newIndex.get(member);
+                if(memberGroups == null) {
+                    memberGroups = new HashSet<>();
+                    newIndex.put(member, memberGroups);
+                }
+                memberGroups.add(entry.group);
+            }
+        }
+        index = newIndex;
+    }
+
+    /**
+     * Normalizes a member value, so that equivalent DNs are indexed the same way:
+     * attribute types and values are lowercased, the values of multivalued RDNs are sorted,
+     * and the spaces and escapes allowed by RFC 4514 are made uniform.
+     * <BR>Values which are not DNs (e.g. <TT>memberUid</TT>) are only trimmed and lowercased.
+     */
+    static String normalize(String member)
+    {
+        if(member == null) {
+            return null;
+        }
+
+        LdapName name;
+        try {
+            name = new LdapName(member);
+        } catch (InvalidNameException e) {
+            return member.trim().toLowerCase();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        List<Rdn> rdns = name.getRdns();
+        for (int i = rdns.size() - 1; i >= 0; i--) { // leftmost RDN first
+            List<String> avas = new ArrayList<>();
+            try {
+                NamingEnumeration<? extends Attribute> attrs = rdns.get(i).toAttributes().getAll();
+                while(attrs.hasMore()) {
+                    Attribute attr = attrs.next();
+                    avas.add(attr.getID().toLowerCase() + "=" + Rdn.escapeValue(attr.get()).toLowerCase());
+                }
+            } catch (NamingException e) {
+                return member.trim().toLowerCase();
+            }
+            Collections.sort(avas);
+
+            if(sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(StringUtils.join(avas, '+'));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Compares two values of the changeAttribute: numerically for USNs,
+     * lexicographically for generalized times.
+     */
+    static int compareChange(String c1, String c2)
+    {
+        if(StringUtils.isNumeric(c1) && StringUtils.isNumeric(c2) && c1.length() != c2.length()) {
+            return c1.length() - c2.length();
+        }
+        return c1.compareTo(c2);
+    }
+
+    private static class GroupEntry
+    {
+        String key;
+        UserGroup group;
+        Set<String> members = new HashSet<>();
+    }
+
+    private class GroupEntryMapper implements AttributesMapper
+    {
+        @Override
+        public Object mapFromAttributes(Attributes attrs) throws NamingException
+        {
+            GroupEntry entry = new GroupEntry();
+            entry.group = (UserGroup) userGroupDAOLdapImpl.getAttributesMapper().mapFromAttributes(attrs);
+            entry.key = StringUtils.isNotBlank(entry.group.getExtId()) ? entry.group.getExtId() : entry.group.getName();
+
+            Attribute memberAttr = attrs.get(userGroupDAOLdapImpl.getLDAPAttribute("member"));
+            if(memberAttr != null) {
+                NamingEnumeration values = memberAttr.getAll();
+                while(values.hasMore()) {
+                    Object value = values.next();
+                    entry.members.add(normalize(value instanceof byte[] ? new String((byte[]) value) : value.toString()));
+                }
+            }
+
+            Attribute changeAttr = attrs.get(changeAttribute);
+            if(changeAttr != null && changeAttr.get() != null) {
+                String change = changeAttr.get().toString();
+                if(lastChange == null || compareChange(change, lastChange) > 0) {
+                    lastChange = change;
+                }
+            }
+            return entry;
+        }
+    }
+
+    public void setUserGroupDAOLdapImpl(UserGroupDAOLdapImpl userGroupDAOLdapImpl)
+    {
+        this.userGroupDAOLdapImpl = userGroupDAOLdapImpl;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setRefreshsec(long refreshsec)
+    {
+        this.refreshsec = refreshsec;
+    }
+
+    public void setFullReloadEvery(int fullReloadEvery)
+    {
+        this.fullReloadEvery = fullReloadEvery;
+    }
+
+    public void setChangeAttribute(String changeAttribute)
+    {
+        this.changeAttribute = changeAttribute;
+    }
+}
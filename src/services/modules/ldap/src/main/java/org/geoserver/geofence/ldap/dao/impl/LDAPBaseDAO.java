@@ -7,28 +7,48 @@ package org.geoserver.geofence.ldap.dao.impl;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import org.geoserver.geofence.core.dao.RestrictedGenericDAO;
 import org.geoserver.geofence.ldap.utils.LdapUtils;
 
+import org.springframework.ldap.control.PagedResultsDirContextProcessor;
 import org.springframework.ldap.core.AttributesMapper;
+import org.springframework.ldap.core.LdapOperations;
 import org.springframework.ldap.core.LdapTemplate;
+import org.springframework.ldap.core.support.CountNameClassPairCallbackHandler;
+import org.springframework.ldap.core.support.LdapOperationsCallback;
+import org.springframework.ldap.core.support.SingleContextSource;
 
 import com.googlecode.genericdao.search.Filter;
 import com.googlecode.genericdao.search.ISearch;
+import com.googlecode.genericdao.search.Search;
+
+import javax.naming.directory.SearchControls;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 
 /**
@@ -39,12 +59,17 @@ import org.springframework.beans.factory.InitializingBean;
  * Currently only read type operations are supported (findAll, find, search).
  *
  * Search results are cached in order to avoid too many calls to the LDAP services.
+ * Expired entries are reloaded in background, while the stale values are still served;
+ * empty results and failed searches are cached for a shorter time.
+ *
+ * Each DAO search is translated into a single LDAP filter; results are retrieved
+ * in pages (RFC 2696 paged results control) and only the requested page is kept.
  *
  * @author "Mauro Bartolomeoli - mauro.bartolomeoli@geo-solutions.it"
  * @author Emanuele Tajariol (etj at geo-solutions.it)
  */
 public abstract class LDAPBaseDAO<T extends RestrictedGenericDAO<R>, R> 
-            implements RestrictedGenericDAO<R>, InitializingBean
+            implements RestrictedGenericDAO<R>, InitializingBean, DisposableBean
 {
     protected Logger LOGGER = LogManager.getLogger(getClass());
 
@@ -53,13 +78,27 @@ public abstract class LDAPBaseDAO<T extends RestrictedGenericDAO<R>, R>
     private String searchFilter;
     private AttributesMapper attributesMapper;
 
-    private LoadingCache<String, List<R>> ldapcache;
+    private int pageSize = 500;
+
+    private LoadingCache<LDAPQuery, List<R>> ldapcache;
     private long cachesize = 1000;
     private long cacherefreshsec = 60 * 60; // 1 hour
-    private long cacheexpiresec = 60 * 60; // 1 hour
+    private long cacheexpiresec = 2 * 60 * 60; // 2 hours, so that refreshed entries are reloaded before expiring
     private final AtomicLong dumpCnt = new AtomicLong(0);
     private long cachedumpmodulo = 10;
 
+    /** Queries returning no result, or failing, are cached here for a shorter time. */
+    private Cache<LDAPQuery, Boolean> negativecache;
+    private long negativettlsec = 60;
+
+    private ListeningExecutorService reloadExecutor;
+    private int reloadthreads = 2;
+    private int reloadqueuesize = 100;
+
+    private List<String> warmupFilters = new ArrayList<>();
+
+    private Ticker ticker = Ticker.systemTicker();
+
     public LDAPBaseDAO()
     {
     }
@@ -68,6 +107,62 @@ public abstract class LDAPBaseDAO<T extends RestrictedGenericDAO<R>, R>
     public void afterPropertiesSet() throws Exception
     {
         ldapcache  = getCacheBuilder().build(new LDAPLoader());
+        negativecache = CacheBuilder.newBuilder()
+                .maximumSize(cachesize)
+                .expireAfterWrite(negativettlsec, TimeUnit.SECONDS)
+                .ticker(ticker)
+                .build();
+
+        final String name = getClass().getSimpleName();
+        final AtomicInteger threadCnt = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(reloadthreads, reloadthreads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(reloadqueuesize),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "geofence-ldap-" + name + "-" + threadCnt.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        reloadExecutor = MoreExecutors.listeningDecorator(executor);
+
+        if( ! warmupFilters.isEmpty()) {
+            warmup();
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception
+    {
+        if(reloadExecutor != null) {
+            reloadExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads the warmup filters in background, so that the startup is not
+     * delayed if the LDAP server is slow or unreachable.
+     */
+    protected void warmup()
+    {
+        try {
+            reloadExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (String filter : warmupFilters) {
+                        List<R> ret = search(filter);
+                        if(LOGGER.isDebugEnabled()) {
+                            LOGGER.debug("Warmup filter '" + filter + "' returned " + ret.size() + " items");
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Could not schedule the LDAP cache warmup: " + e.getMessage());
+        }
     }
 
     protected CacheBuilder getCacheBuilder() {
@@ -76,6 +171,7 @@ public abstract class LDAPBaseDAO<T extends RestrictedGenericDAO<R>, R>
                 .refreshAfterWrite(cacherefreshsec, TimeUnit.SECONDS) // reloadable after x time
                 .expireAfterWrite(cacheexpiresec, TimeUnit.SECONDS) // throw away entries too old
                 .recordStats()
+                .ticker(ticker)
                 ;
         return builder;
     }
@@ -88,7 +184,7 @@ public abstract class LDAPBaseDAO<T extends RestrictedGenericDAO<R>, R>
     @Override
     public List<R> findAll()
     {
-        List ret = search(searchFilter);
+        List ret = query(new LDAPQuery(LdapUtils.createLDAPFilter(searchFilter, null, attributesMapper), 0, -1));
         if(LOGGER.isDebugEnabled()) {
             LOGGER.debug("findAll returned " + ret.size() + " items");
         }
@@ -105,24 +201,57 @@ public abstract class LDAPBaseDAO<T extends RestrictedGenericDAO<R>, R>
     @Override
     public List<R> search(ISearch search)
     {
-        List<R> objects = new ArrayList<>();
-        if (search.getFilters().isEmpty()) {
-            // no filter
-            return findAll();
-        }
-        for (Filter filter : search.getFilters()) {
-            if (filter != null) {
-                List<R> filteredObjects = search(filter);
-                objects.addAll(filteredObjects);
-            }
+        String filter = LdapUtils.createLDAPFilter(searchFilter, search, attributesMapper);
+        if(filter == null) {
+            LOGGER.warn(getClass().getSimpleName() + ": unsupported search " + search);
+            return Collections.EMPTY_LIST;
         }
-        return objects;
+
+        int max = search.getMaxResults() > 0 ? search.getMaxResults() : -1;
+        int first = search.getFirstResult() > 0 ? search.getFirstResult()
+                : (search.getPage() > 0 && max > 0 ? search.getPage() * max : 0);
+
+        return query(new LDAPQuery(filter, first, max));
     }
 
+    /**
+     * Counts the entries matching the search.
+     * <BR>Entries are not mapped, and no attribute is retrieved from the server.
+     */
     @Override
     public int count(ISearch search)
     {
-        return search(search).size();
+        final String filter = LdapUtils.createLDAPFilter(searchFilter, search, attributesMapper);
+        if(filter == null) {
+            LOGGER.warn(getClass().getSimpleName() + ": unsupported search " + search);
+            return 0;
+        }
+
+        List<R> cached = ldapcache.getIfPresent(new LDAPQuery(filter, 0, -1));
+        if(cached != null) {
+            return cached.size();
+        }
+
+        final SearchControls controls = createSearchControls(0);
+        controls.setReturningAttributes(new String[]{"1.1"}); // RFC 4511: no attributes
+
+        final CountNameClassPairCallbackHandler handler = new CountNameClassPairCallbackHandler();
+        if(pageSize <= 0) {
+            ldapTemplate.search(searchBase, filter, controls, handler);
+        } else {
+            SingleContextSource.doWithSingleContext(ldapTemplate.getContextSource(), new LdapOperationsCallback<Object>() {
+                @Override
+                public Object doWithLdapOperations(LdapOperations operations)
+                {
+                    PagedResultsDirContextProcessor processor = new PagedResultsDirContextProcessor(pageSize);
+                    do {
+                        operations.search(searchBase, filter, controls, handler, processor);
+                    } while(processor.hasMore());
+                    return null;
+                }
+            });
+        }
+        return handler.getNoOfRows();
     }
 
     @Override
@@ -166,28 +295,29 @@ public abstract class LDAPBaseDAO<T extends RestrictedGenericDAO<R>, R>
     /**
      * Search using the given filter on the LDAP server. Uses default base, filter and mapper.
      *
-     * @param base
      * @param filter
-     * @param mapper
      * @return
      */
     public List search(Filter filter)
     {
-        return search(LdapUtils.createLDAPFilter(filter, attributesMapper));
+        return search(new Search().addFilter(filter));
     }
 
     /**
-     * Search using the given filter on the LDAP server. Uses default base, filter and mapper.
+     * Search using the given LDAP filter on the LDAP server. Uses default base and mapper.
      *
-     * @param base
      * @param filter
-     * @param mapper
      * @return
      */
     public List search(String filter)
+    {
+        return query(new LDAPQuery(filter, 0, -1));
+    }
+
+    protected List<R> query(LDAPQuery query)
     {
         if(LOGGER.isTraceEnabled())
-            LOGGER.trace(getClass().getSimpleName() + ": searching base:'"+searchBase+"', filter: '"+filter+"'");
+            LOGGER.trace(getClass().getSimpleName() + ": searching base:'"+searchBase+"', " + query);
 
         if(LOGGER.isInfoEnabled()) {
             if(dumpCnt.incrementAndGet() % cachedumpmodulo == 0) {
@@ -195,37 +325,177 @@ public abstract class LDAPBaseDAO<T extends RestrictedGenericDAO<R>, R>
             }
         }
 
+        if(negativecache.getIfPresent(query) != null) {
+            return Collections.EMPTY_LIST;
+        }
+
         try {
-            return ldapcache.get(filter);
-            //return search(ldapTemplate, searchBase, filter, attributesMapper);
+            List<R> ret = ldapcache.get(query);
+            if(ret.isEmpty()) {
+                // move it to the short lived cache
+                negativecache.put(query, Boolean.TRUE);
+                ldapcache.invalidate(query);
+            }
+            return ret;
         } catch (ExecutionException ex) {
             LOGGER.warn("Error while getting LDAP info: " + ex.getMessage(), ex);
+            negativecache.put(query, Boolean.TRUE);
             return Collections.EMPTY_LIST;
         }
     }
 
-    private class LDAPLoader extends CacheLoader<String, List<R>>
+    /**
+     * Removes all the cached results.
+     */
+    public void invalidateCache()
+    {
+        ldapcache.invalidateAll();
+        negativecache.invalidateAll();
+    }
+
+    /**
+     * Runs the query on the LDAP server.
+     * <BR>When paging is enabled, pages are requested until the needed entries
+     * are collected, so that a limited query will not scan the whole subtree.
+     */
+    protected List<R> load(LDAPQuery query)
+    {
+        final String filter = query.filter;
+        final int first = query.first;
+        final int needed = query.max < 0 ? 0 : query.first + query.max;
+        final SearchControls controls = createSearchControls(needed);
+
+        List<R> ret;
+        if(pageSize <= 0 && needed == 0) {
+            ret = ldapTemplate.search(searchBase, filter, attributesMapper); // template's default count limit
+        } else {
+            ret = pagedSearch(filter, controls, attributesMapper, needed);
+        }
+
+        if(needed > 0 && ret.size() > needed) {
+            ret = ret.subList(0, needed);
+        }
+        if(first > 0) {
+            ret = first >= ret.size() ? new ArrayList<R>() : new ArrayList<>(ret.subList(first, ret.size()));
+        }
+        return ret;
+    }
+
+    /**
+     * Searches the DAO base using the paged results control, if enabled.
+     *
+     * @param needed stop requesting pages once this number of entries is reached; 0 for no limit.
+     */
+    protected List pagedSearch(final String filter, final SearchControls controls, final AttributesMapper mapper, final int needed)
     {
+        if(pageSize <= 0) {
+            return ldapTemplate.search(searchBase, filter, controls, mapper);
+        }
+
+        final int size = needed > 0 ? Math.min(needed, pageSize) : pageSize;
+        return SingleContextSource.doWithSingleContext(ldapTemplate.getContextSource(), new LdapOperationsCallback<List>() {
+            @Override
+            public List doWithLdapOperations(LdapOperations operations)
+            {
+                List entries = new ArrayList();
+                PagedResultsDirContextProcessor processor = new PagedResultsDirContextProcessor(size);
+                do {
+                    List page = operations.search(searchBase, filter, controls, mapper, processor);
+                    entries.addAll(page);
+                } while(processor.hasMore() && (needed == 0 || entries.size() < needed));
+                return entries;
+            }
+        });
+    }
+
+    protected SearchControls createSearchControls(int countLimit)
+    {
+        SearchControls controls = new SearchControls();
+        controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+        controls.setCountLimit(countLimit); // 0 means no limit
+        return controls;
+    }
+
+    /**
+     * Cache key: the encoded LDAP filter and the requested page.
+     */
+    protected static class LDAPQuery
+    {
+        private final String filter;
+        private final int first;
+        private final int max;
+
+        public LDAPQuery(String filter, int first, int max)
+        {
+            this.filter = filter;
+            this.first = first;
+            this.max = max;
+        }
+
         @Override
-        public List<R> load(String filter) throws Exception {
-            if(LOGGER.isInfoEnabled())
-                LOGGER.info("Loading " + filter);
+        public int hashCode()
+        {
+            return Objects.hash(filter, first, max);
+        }
 
-            return ldapTemplate.search(searchBase, filter, attributesMapper);
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof LDAPQuery)) {
+                return false;
+            }
+            final LDAPQuery other = (LDAPQuery) obj;
+            return first == other.first && max == other.max && Objects.equals(filter, other.filter);
         }
 
         @Override
-        public ListenableFuture<List<R>> reload(final String filter, List<R> accessInfo) throws Exception
+        public String toString()
         {
+            return "filter:'" + filter + "' first:" + first + " max:" + max;
+        }
+    }
+
+    private class LDAPLoader extends CacheLoader<LDAPQuery, List<R>>
+    {
+        @Override
+        public List<R> load(LDAPQuery query) throws Exception {
             if(LOGGER.isInfoEnabled())
-                LOGGER.info("RELoading " + filter);
+                LOGGER.info("Loading " + query);
+
+            return LDAPBaseDAO.this.load(query);
+        }
 
-            // this is a sync implementation
-            List<R> ldapObjs = ldapTemplate.search(searchBase, filter, attributesMapper);
-            return Futures.immediateFuture(ldapObjs);
+        @Override
+        public ListenableFuture<List<R>> reload(final LDAPQuery query, List<R> oldValue) throws Exception
+        {
+            if(LOGGER.isInfoEnabled())
+                LOGGER.info("RELoading " + query);
+
+            // the stale value is served until the reload completes
+            try {
+                return reloadExecutor.submit(new Callable<List<R>>() {
+                    @Override
+                    public List<R> call() throws Exception {
+                        return LDAPBaseDAO.this.load(query);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("Too many pending LDAP reloads, keeping stale entry for " + query);
+                return Futures.immediateFuture(oldValue);
+            }
         }
     }
 
+    public String getSearchFilter()
+    {
+        return searchFilter;
+    }
+
+    public AttributesMapper getAttributesMapper()
+    {
+        return attributesMapper;
+    }
+
     /**
      * Sets the base name for users in LDAP server.
      *
@@ -266,6 +536,15 @@ public abstract class LDAPBaseDAO<T extends RestrictedGenericDAO<R>, R>
         this.ldapTemplate = ldapTemplate;
     }
 
+    /**
+     * Sets the number of entries requested for each page.
+     * Set it to 0 if the server does not support the paged results control.
+     */
+    public void setPageSize(int pageSize)
+    {
+        this.pageSize = pageSize;
+    }
+
     public void setCachesize(long cachesize)
     {
         this.cachesize = cachesize;
@@ -286,4 +565,45 @@ public abstract class LDAPBaseDAO<T extends RestrictedGenericDAO<R>, R>
         this.cachedumpmodulo = cachedumpmodulo;
     }
 
+    /**
+     * Sets how long empty results and failed searches are cached.
+     */
+    public void setNegativettlsec(long negativettlsec)
+    {
+        this.negativettlsec = negativettlsec;
+    }
+
+    /**
+     * Sets the number of threads used for reloading the expired entries.
+     */
+    public void setReloadthreads(int reloadthreads)
+    {
+        this.reloadthreads = reloadthreads;
+    }
+
+    /**
+     * Sets the max number of pending reloads; further expired entries
+     * will be kept as they are until the next refresh.
+     */
+    public void setReloadqueuesize(int reloadqueuesize)
+    {
+        this.reloadqueuesize = reloadqueuesize;
+    }
+
+    /**
+     * Sets the LDAP filters to be loaded into the cache at startup.
+     */
+    public void setWarmupFilters(List<String> warmupFilters)
+    {
+        this.warmupFilters = warmupFilters;
+    }
+
+    /**
+     * Sets the time source used for expiring the cached entries.
+     */
+    public void setTicker(Ticker ticker)
+    {
+        this.ticker = ticker;
+    }
+
 }
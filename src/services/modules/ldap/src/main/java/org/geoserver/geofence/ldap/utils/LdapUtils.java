@@ -4,17 +4,34 @@
  */
 package org.geoserver.geofence.ldap.utils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
 import org.geoserver.geofence.ldap.LdapAttributesMapper;
 
 import org.springframework.ldap.core.AttributesMapper;
+import org.springframework.ldap.filter.AndFilter;
+import org.springframework.ldap.filter.BinaryLogicalFilter;
+import org.springframework.ldap.filter.EqualsFilter;
+import org.springframework.ldap.filter.GreaterThanOrEqualsFilter;
+import org.springframework.ldap.filter.HardcodedFilter;
+import org.springframework.ldap.filter.LessThanOrEqualsFilter;
+import org.springframework.ldap.filter.LikeFilter;
+import org.springframework.ldap.filter.NotFilter;
+import org.springframework.ldap.filter.OrFilter;
+import org.springframework.ldap.filter.PresentFilter;
 
 import com.googlecode.genericdao.search.Filter;
+import com.googlecode.genericdao.search.ISearch;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
 /**
  * @author "Mauro Bartolomeoli - mauro.bartolomeoli@geo-solutions.it"
+ * @author Emanuele Tajariol (etj at geo-solutions.it)
  */
 public class LdapUtils
 {
@@ -22,26 +39,179 @@ public class LdapUtils
 
 
     /**
-     * Creates and LDAP filter from the DAO search filter. Currently only "property = value" filters are supported.
+     * Creates and LDAP filter from the DAO search filter.
      *
      * @param filter
-     * @return
+     * @return the encoded LDAP filter, or null if the filter contains unsupported operators.
      */
     public static String createLDAPFilter(Filter filter, AttributesMapper mapper)
     {
-        // TODO add other filter types
-        if (filter.getOperator() == Filter.OP_EQUAL) {
-            String propertyName = filter.getProperty();
-            if (mapper instanceof LdapAttributesMapper) {
-                propertyName = ((LdapAttributesMapper) mapper)
-                        .getLdapAttribute(propertyName);
+        org.springframework.ldap.filter.Filter ldapFilter = toLDAPFilter(filter, mapper);
+        return ldapFilter == null ? null : ldapFilter.encode();
+    }
+
+    /**
+     * Creates a single LDAP filter from all the filters in the DAO search.
+     * <P>
+     * Filters are combined in AND, or in OR if the search is a disjunction;
+     * the resulting filter is then put in AND with the given base filter, if any.
+     *
+     * @param baseFilter the filter identifying the searched objects (e.g. <TT>objectClass=inetOrgPerson</TT>), may be null.
+     *
+     * @return the encoded LDAP filter, or null if the search contains unsupported operators.
+     */
+    public static String createLDAPFilter(String baseFilter, ISearch search, AttributesMapper mapper)
+    {
+        List<org.springframework.ldap.filter.Filter> filters = new ArrayList<>();
+        if(search != null && search.getFilters() != null) {
+            for (Filter filter : search.getFilters()) {
+                if(filter == null) {
+                    continue;
+                }
+                org.springframework.ldap.filter.Filter ldapFilter = toLDAPFilter(filter, mapper);
+                if(ldapFilter == null) {
+                    return null;
+                }
+                filters.add(ldapFilter);
+            }
+        }
+
+        AndFilter ret = new AndFilter();
+        if(baseFilter != null && ! baseFilter.trim().isEmpty()) {
+            ret.and(new HardcodedFilter(wrap(baseFilter.trim())));
+        }
+
+        if( ! filters.isEmpty()) {
+            if(filters.size() == 1) {
+                ret.and(filters.get(0));
+            } else {
+                BinaryLogicalFilter combined = search.isDisjunction() ? new OrFilter() : new AndFilter();
+                combined.appendAll(filters);
+                ret.and(combined);
+            }
+        }
+
+        String encoded = ret.encode();
+        return encoded.isEmpty() ? "(objectClass=*)" : encoded;
+    }
+
+    /**
+     * Encloses a filter in parentheses, as required when filters are combined.
+     */
+    public static String wrap(String filter)
+    {
+        return filter.startsWith("(") ? filter : "(" + filter + ")";
+    }
+
+    protected static org.springframework.ldap.filter.Filter toLDAPFilter(Filter filter, AttributesMapper mapper)
+    {
+        switch(filter.getOperator()) {
+            case Filter.OP_AND:
+            case Filter.OP_OR:
+                BinaryLogicalFilter logical = filter.getOperator() == Filter.OP_AND ? new AndFilter() : new OrFilter();
+                for (Object o : getValues(filter)) {
+                    org.springframework.ldap.filter.Filter sub = toLDAPFilter((Filter)o, mapper);
+                    if(sub == null) {
+                        return null;
+                    }
+                    logical.append(sub);
+                }
+                return logical;
+
+            case Filter.OP_NOT:
+                org.springframework.ldap.filter.Filter negated = toLDAPFilter((Filter)filter.getValue(), mapper);
+                return negated == null ? null : new NotFilter(negated);
+
+            default:
+                // property based filters
+        }
+
+        String attr = getLDAPAttribute(filter.getProperty(), mapper);
+        Object value = filter.getValue();
+
+        switch(filter.getOperator()) {
+            case Filter.OP_EQUAL:
+                return value == null ? new NotFilter(new PresentFilter(attr)) : new EqualsFilter(attr, value.toString());
+            case Filter.OP_NOT_EQUAL:
+                return value == null ? new PresentFilter(attr) : new NotFilter(new EqualsFilter(attr, value.toString()));
+            case Filter.OP_NULL:
+                return new NotFilter(new PresentFilter(attr));
+            case Filter.OP_NOT_NULL:
+                return new PresentFilter(attr);
+            case Filter.OP_LIKE:
+            case Filter.OP_ILIKE: // matching rules in LDAP are usually case insensitive
+                return new LikeFilter(attr, toLDAPPattern(value.toString()));
+            case Filter.OP_GREATER_OR_EQUAL:
+                return new GreaterThanOrEqualsFilter(attr, value.toString());
+            case Filter.OP_LESS_OR_EQUAL:
+                return new LessThanOrEqualsFilter(attr, value.toString());
+            case Filter.OP_GREATER_THAN: // LDAP has no strict comparison operators
+                return new AndFilter()
+                        .and(new GreaterThanOrEqualsFilter(attr, value.toString()))
+                        .and(new NotFilter(new EqualsFilter(attr, value.toString())));
+            case Filter.OP_LESS_THAN:
+                return new AndFilter()
+                        .and(new LessThanOrEqualsFilter(attr, value.toString()))
+                        .and(new NotFilter(new EqualsFilter(attr, value.toString())));
+            case Filter.OP_IN:
+            case Filter.OP_NOT_IN:
+                Collection<?> values = getValues(filter);
+                if(values.isEmpty()) { // an empty OR can not be encoded
+                    PresentFilter any = new PresentFilter("objectClass");
+                    return filter.getOperator() == Filter.OP_IN ? new NotFilter(any) : any;
+                }
+                OrFilter in = new OrFilter();
+                for (Object v : values) {
+                    in.or(new EqualsFilter(attr, v.toString()));
+                }
+                return filter.getOperator() == Filter.OP_IN ? in : new NotFilter(in);
+            default:
+                LOGGER.error("MISSING IMPLEMENTATION FOR " + filter);
+                return null;
+        }
+    }
+
+    protected static String getLDAPAttribute(String propertyName, AttributesMapper mapper)
+    {
+        if (mapper instanceof LdapAttributesMapper) {
+            String ldapName = ((LdapAttributesMapper) mapper).getLdapAttribute(propertyName);
+            if(ldapName != null) {
+                return ldapName;
             }
-            return propertyName + "=" + filter.getValue().toString();
-        } else {
-            LOGGER.error("MISSING IMPLEMENTATION FOR " + filter);
         }
-        return null;
+        return propertyName;
     }
 
+    /**
+     * Translates a SQL LIKE pattern into an LDAP substring pattern.
+     * <BR>Since LDAP has no single char wildcard, '_' is mapped into '*' as well.
+     * <BR>Special chars are escaped later on by the {@link LikeFilter}.
+     */
+    protected static String toLDAPPattern(String likePattern)
+    {
+        StringBuilder sb = new StringBuilder(likePattern.length());
+        for (char c : likePattern.toCharArray()) {
+            switch(c) {
+                case '%':
+                case '_':
+                    sb.append('*');
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
 
+    private static Collection<?> getValues(Filter filter)
+    {
+        Object value = filter.getValue();
+        if(value instanceof Collection) {
+            return (Collection<?>)value;
+        } else if(value instanceof Object[]) {
+            return Arrays.asList((Object[])value);
+        } else {
+            return value == null ? new ArrayList<>() : Arrays.asList(value);
+        }
+    }
 }
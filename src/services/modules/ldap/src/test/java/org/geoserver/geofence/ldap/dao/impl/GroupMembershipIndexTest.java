@@ -0,0 +1,68 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.geofence.ldap.dao.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.geoserver.geofence.core.model.UserGroup;
+import org.junit.Test;
+
+/**
+ *
+ * @author Emanuele Tajariol (etj at geo-solutions.it)
+ */
+public class GroupMembershipIndexTest extends BaseDAOTest
+{
+    @Test
+    public void testIndex() throws Exception
+    {
+        GroupMembershipIndex index = new GroupMembershipIndex();
+        index.setUserGroupDAOLdapImpl((UserGroupDAOLdapImpl) userGroupDAO);
+
+        assertNull("Index should not be loaded yet", index.getGroups("cn=destination2,ou=People,dc=example,dc=com"));
+
+        index.reload();
+        assertTrue(index.isLoaded());
+
+        Set<String> names = new HashSet<>();
+        for (UserGroup g : index.getGroups("CN=destination2,ou=People,dc=example,dc=com")) {
+            names.add(g.getName());
+        }
+        assertEquals(2, names.size());
+        assertTrue(names.contains("destination"));
+        assertTrue(names.contains("otherGroup"));
+
+        assertTrue(index.getGroups("cn=nobody,ou=People,dc=example,dc=com").isEmpty());
+
+        // incremental refresh must not lose any membership
+        index.refresh();
+        assertEquals(2, index.getGroups("cn=destination2,ou=People,dc=example,dc=com").size());
+    }
+
+    @Test
+    public void testNormalize()
+    {
+        String dn = GroupMembershipIndex.normalize("cn=destination2,ou=People,dc=example,dc=com");
+        assertEquals(dn, GroupMembershipIndex.normalize("CN=Destination2, OU=people,DC=example, dc=COM"));
+        assertEquals(dn, GroupMembershipIndex.normalize(" cn = destination2 ,ou=People,dc=example,dc=com"));
+        assertEquals(GroupMembershipIndex.normalize("cn=a+uid=b,dc=com"), GroupMembershipIndex.normalize("UID=b+cn=A,dc=com"));
+        assertEquals(GroupMembershipIndex.normalize("cn=a\\,b,dc=com"), GroupMembershipIndex.normalize("cn=a\\2Cb,dc=com"));
+        assertFalse(dn.equals(GroupMembershipIndex.normalize("cn=destination1,ou=People,dc=example,dc=com")));
+
+        // not DNs
+        assertEquals("destination2", GroupMembershipIndex.normalize(" Destination2 "));
+    }
+
+    @Test
+    public void testCompareChange()
+    {
+        assertTrue(GroupMembershipIndex.compareChange("99", "100") < 0);
+        assertTrue(GroupMembershipIndex.compareChange("20170102000000Z", "20170101000000Z") > 0);
+        assertEquals(0, GroupMembershipIndex.compareChange("42", "42"));
+    }
+}
@@ -0,0 +1,176 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.ldap.dao.impl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Ticker;
+
+import org.geoserver.geofence.core.model.UserGroup;
+
+import org.springframework.ldap.core.AttributesMapper;
+import org.springframework.ldap.core.LdapTemplate;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Checks the caching of the LDAP search results against the embedded LDAP server.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class LDAPBaseDAOCacheTest extends BaseDAOTest
+{
+    private static final String ADMIN_GROUP = "(&(objectClass=groupOfNames)(cn=adminGroup))";
+    private static final String MISSING_GROUP = "(&(objectClass=groupOfNames)(cn=missingGroup))";
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private volatile CountDownLatch reloadBlocker;
+
+    private UserGroupDAOLdapImpl dao;
+
+    @After
+    public void tearDown() throws Exception
+    {
+        if(reloadBlocker != null) {
+            reloadBlocker.countDown();
+        }
+        if(dao != null) {
+            dao.destroy();
+        }
+    }
+
+    @Test
+    public void testStaleServedWhileReloading() throws Exception
+    {
+        dao = createDAO();
+
+        List<UserGroup> groups = dao.search(ADMIN_GROUP);
+        assertEquals(1, groups.size());
+        assertEquals(1, loads.get());
+
+        reloadBlocker = new CountDownLatch(1);
+        advance(11);
+
+        // the reload is stuck, but the stale entry is returned at once
+        List<UserGroup> stale = dao.search(ADMIN_GROUP);
+        assertEquals(groups, stale);
+        waitForLoads(2);
+
+        reloadBlocker.countDown();
+        // the reloaded entry replaces the stale one without further LDAP calls
+        long timeout = System.currentTimeMillis() + 10000;
+        while(System.currentTimeMillis() < timeout) {
+            List<UserGroup> current = dao.search(ADMIN_GROUP);
+            assertEquals(1, current.size());
+            if(current != stale) {
+                break;
+            }
+            Thread.sleep(20);
+        }
+        assertNotSame(stale, dao.search(ADMIN_GROUP));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testNegativeEntryExpiry() throws Exception
+    {
+        dao = createDAO();
+
+        assertTrue(dao.search(MISSING_GROUP).isEmpty());
+        assertEquals(1, loads.get());
+
+        advance(4);
+        assertTrue(dao.search(MISSING_GROUP).isEmpty());
+        assertEquals(1, loads.get());
+
+        advance(2);
+        assertTrue(dao.search(MISSING_GROUP).isEmpty());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testWarmup() throws Exception
+    {
+        dao = new CountingDAO();
+        configure(dao);
+        dao.setWarmupFilters(Arrays.asList(ADMIN_GROUP));
+        dao.afterPropertiesSet();
+
+        waitForLoads(1);
+
+        assertEquals(1, dao.search(ADMIN_GROUP).size());
+        assertEquals(1, loads.get());
+    }
+
+    private UserGroupDAOLdapImpl createDAO() throws Exception
+    {
+        UserGroupDAOLdapImpl ret = new CountingDAO();
+        configure(ret);
+        ret.afterPropertiesSet();
+        return ret;
+    }
+
+    private void configure(UserGroupDAOLdapImpl dao)
+    {
+        dao.setLdapTemplate((LdapTemplate) ctx.getBean("geofenceLdapTemplate"));
+        dao.setAttributesMapper((AttributesMapper) ctx.getBean("geofenceLdapGroupMapper"));
+        dao.setSearchBase("ou=Groups");
+        dao.setSearchFilter("objectClass=groupOfNames");
+        dao.setCacherefreshsec(10);
+        dao.setCacheexpiresec(100);
+        dao.setNegativettlsec(5);
+        dao.setTicker(new Ticker() {
+            @Override
+            public long read()
+            {
+                return nanos.get();
+            }
+        });
+    }
+
+    private void advance(long seconds)
+    {
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    private void waitForLoads(int expected) throws InterruptedException
+    {
+        long timeout = System.currentTimeMillis() + 10000;
+        while(loads.get() < expected && System.currentTimeMillis() < timeout) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, loads.get());
+    }
+
+    /**
+     * Counts the LDAP searches, and blocks the reloads when requested.
+     */
+    private class CountingDAO extends UserGroupDAOLdapImpl
+    {
+        @Override
+        protected List<UserGroup> load(LDAPQuery query)
+        {
+            CountDownLatch blocker = reloadBlocker;
+            loads.incrementAndGet();
+            if(blocker != null) {
+                try {
+                    blocker.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.load(query);
+        }
+    }
+}
@@ -0,0 +1,370 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.geofence.ldap.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.directory.Attribute;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.geoserver.geofence.core.model.GSUser;
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.core.LdapTemplate;
+import org.springframework.ldap.core.support.LdapContextSource;
+import org.springframework.ldap.pool.factory.PoolingContextSource;
+import org.springframework.ldap.pool.validation.DefaultDirContextValidator;
+import org.springframework.ldap.test.LdapTestUtils;
+
+/**
+ * Benchmark harness for the LDAP DAOs.
+ * <P>
+ * Starts an embedded LDAP server, fills it with generated users and groups, and
+ * measures throughput and latency of {@link GSUserDAOLdapImpl#getFull(String)}
+ * called concurrently on random users.
+ * <P>
+ * Run it with <TT>main</TT>; params are read from system properties:
+ * <UL>
+ * <LI><TT>users</TT>, <TT>groups</TT>, <TT>groupsPerUser</TT>: size of the directory</LI>
+ * <LI><TT>threads</TT>, <TT>seconds</TT>: the load</LI>
+ * <LI><TT>pooled</TT>: use the connection pool (default true)</LI>
+ * <LI><TT>cached</TT>: use the DAO caches (default false, so that every call hits the server)</LI>
+ * <LI><TT>index</TT>: resolve the groups using the {@link GroupMembershipIndex} (default false)</LI>
+ * </UL>
+ *
+ * @author Emanuele Tajariol (etj at geo-solutions.it)
+ */
+public class LdapBenchmark
+{
+    private static final Logger LOGGER = LogManager.getLogger(LdapBenchmark.class);
+
+    public static final String BASE = "dc=example,dc=com";
+
+    private int port = 10399;
+    private int users = 1000;
+    private int groups = 50;
+    private int groupsPerUser = 3;
+    private boolean pooled = true;
+    private boolean cached = false;
+    private boolean index = false;
+
+    private LdapContextSource contextSource;
+    private PoolingContextSource poolingSource;
+    private GSUserDAOLdapImpl userDAO;
+    private UserGroupDAOLdapImpl groupDAO;
+    private GroupMembershipIndex membershipIndex;
+
+    public static void main(String[] args) throws Exception
+    {
+        LdapBenchmark benchmark = new LdapBenchmark();
+        benchmark.setUsers(Integer.getInteger("users", 5000));
+        benchmark.setGroups(Integer.getInteger("groups", 200));
+        benchmark.setGroupsPerUser(Integer.getInteger("groupsPerUser", 3));
+        benchmark.setPooled(Boolean.parseBoolean(System.getProperty("pooled", "true")));
+        benchmark.setCached(Boolean.getBoolean("cached"));
+        benchmark.setIndex(Boolean.getBoolean("index"));
+
+        benchmark.start();
+        try {
+            Result result = benchmark.run(Integer.getInteger("threads", 8), Integer.getInteger("seconds", 30));
+            LOGGER.info(result);
+        } finally {
+            benchmark.stop();
+        }
+    }
+
+    /**
+     * Starts the embedded server, loads the generated data and creates the DAOs.
+     */
+    public void start() throws Exception
+    {
+        LdapTestUtils.startEmbeddedServer(port, "dc=com", "benchmark");
+
+        contextSource = new LdapContextSource();
+        contextSource.setUrl("ldap://127.0.0.1:" + port);
+        contextSource.setUserDn("uid=admin,ou=system");
+        contextSource.setPassword("secret");
+        contextSource.setPooled(false);
+        contextSource.afterPropertiesSet();
+
+        long start = System.currentTimeMillis();
+        generate(new LdapTemplate(contextSource));
+        LOGGER.info("Generated " + users + " users and " + groups + " groups in " + (System.currentTimeMillis() - start) + "ms");
+
+        ContextSource daoSource = contextSource;
+        if(pooled) {
+            poolingSource = new PoolingContextSource();
+            poolingSource.setContextSource(contextSource);
+            poolingSource.setDirContextValidator(new DefaultDirContextValidator());
+            poolingSource.setMaxActive(-1); // limited by maxTotal
+            poolingSource.setMaxTotal(32);
+            poolingSource.setTestOnBorrow(true);
+            daoSource = poolingSource;
+        }
+        LdapTemplate template = new LdapTemplate(daoSource);
+
+        UserGroupAttributesMapper groupMapper = new UserGroupAttributesMapper();
+        groupMapper.setMap(map("id", "gidNumber", "groupname", "cn", "member", "member"));
+        groupDAO = new UserGroupDAOLdapImpl();
+        groupDAO.setLdapTemplate(template);
+        groupDAO.setAttributesMapper(groupMapper);
+        groupDAO.setSearchBase("ou=Groups," + BASE);
+        groupDAO.setSearchFilter("objectClass=groupOfNames");
+        configureCache(groupDAO);
+        groupDAO.afterPropertiesSet();
+
+        GSUserAttributesMapper userMapper = new GSUserAttributesMapper();
+        userMapper.setMap(map("id", "uidNumber", "username", "uid", "email", "mail", "name", "cn", "surname", "sn"));
+        userDAO = new GSUserDAOLdapImpl();
+        userDAO.setLdapTemplate(template);
+        userDAO.setAttributesMapper(userMapper);
+        userDAO.setSearchBase("ou=People," + BASE);
+        userDAO.setUserGroupDAOLdapImpl(groupDAO);
+        configureCache(userDAO);
+        userDAO.afterPropertiesSet();
+
+        if(index) {
+            membershipIndex = new GroupMembershipIndex();
+            membershipIndex.setUserGroupDAOLdapImpl(groupDAO);
+            membershipIndex.reload();
+            userDAO.setMembershipIndex(membershipIndex);
+        }
+    }
+
+    public void stop() throws Exception
+    {
+        if(userDAO != null) {
+            userDAO.destroy();
+            groupDAO.destroy();
+        }
+        if(poolingSource != null) {
+            poolingSource.destroy();
+        }
+        LdapTestUtils.shutdownEmbeddedServer();
+    }
+
+    /**
+     * Calls getFull on random users from the given number of threads.
+     */
+    public Result run(int threads, int seconds) throws Exception
+    {
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Result>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final Random random = new Random(t);
+            futures.add(executor.submit(new Callable<Result>() {
+                @Override
+                public Result call() throws Exception {
+                    Result result = new Result();
+                    while(System.nanoTime() < end) {
+                        String name = userName(random.nextInt(users));
+                        long start = System.nanoTime();
+                        GSUser user = userDAO.getFull(name);
+                        result.add(System.nanoTime() - start, user != null && ! user.getGroups().isEmpty());
+                    }
+                    return result;
+                }
+            }));
+        }
+
+        Result total = new Result();
+        for (Future<Result> future : futures) {
+            total.merge(future.get());
+        }
+        executor.shutdown();
+        total.seconds = seconds;
+        return total;
+    }
+
+    private void configureCache(LDAPBaseDAO dao)
+    {
+        if( ! cached ) {
+            dao.setCachesize(0);
+        }
+        dao.setCachedumpmodulo(Long.MAX_VALUE);
+    }
+
+    private void generate(LdapTemplate template)
+    {
+        template.bind(BASE, null, attributes("objectClass", new String[]{"top", "domain"}, "dc", "example"));
+        template.bind("ou=People," + BASE, null, attributes("objectClass", new String[]{"top", "organizationalUnit"}, "ou", "People"));
+        template.bind("ou=Groups," + BASE, null, attributes("objectClass", new String[]{"top", "organizationalUnit"}, "ou", "Groups"));
+
+        List<List<String>> members = new ArrayList<>();
+        for (int g = 0; g < groups; g++) {
+            members.add(new ArrayList<String>());
+        }
+
+        for (int u = 0; u < users; u++) {
+            String name = userName(u);
+            String dn = "uid=" + name + ",ou=People," + BASE;
+            template.bind(dn, null, attributes(
+                    "objectClass", new String[]{"top", "person", "organizationalPerson", "inetOrgPerson"},
+                    "uid", name, "cn", name, "sn", "Surname" + u, "mail", name + "@example.com"));
+
+            // the user mapper has no DN attribute, so users are looked up in groups as "uid=<name>"
+            for (int i = 0; i < groupsPerUser; i++) {
+                members.get((u + i * (groups / groupsPerUser + 1)) % groups).add("uid=" + name);
+            }
+        }
+
+        for (int g = 0; g < groups; g++) {
+            BasicAttributes attrs = attributes("objectClass", new String[]{"top", "groupOfNames"}, "cn", "group" + g);
+            Attribute member = new BasicAttribute("member");
+            for (String m : members.get(g)) {
+                member.add(m);
+            }
+            if(member.size() == 0) {
+                member.add("uid=nobody"); // groupOfNames requires at least a member
+            }
+            attrs.put(member);
+            template.bind("cn=group" + g + ",ou=Groups," + BASE, null, attrs);
+        }
+    }
+
+    private static BasicAttributes attributes(Object... keyValues)
+    {
+        BasicAttributes attrs = new BasicAttributes(true);
+        for (int i = 0; i < keyValues.length; i += 2) {
+            Attribute attr = new BasicAttribute((String) keyValues[i]);
+            Object value = keyValues[i + 1];
+            for (Object v : value instanceof Object[] ? (Object[]) value : new Object[]{value}) {
+                attr.add(v);
+            }
+            attrs.put(attr);
+        }
+        return attrs;
+    }
+
+    private static Map<String, String> map(String... keyValues)
+    {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            map.put(keyValues[i], keyValues[i + 1]);
+        }
+        return map;
+    }
+
+    public static String userName(int i)
+    {
+        return "user" + i;
+    }
+
+    /**
+     * Number of calls and their latencies.
+     */
+    public static class Result
+    {
+        private long[] nanos = new long[1024];
+        private int count = 0;
+        private int failures = 0;
+        private int seconds;
+
+        void add(long elapsed, boolean ok)
+        {
+            if(count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = elapsed;
+            if( ! ok ) {
+                failures++;
+            }
+        }
+
+        void merge(Result other)
+        {
+            for (int i = 0; i < other.count; i++) {
+                add(other.nanos[i], true);
+            }
+            failures += other.failures;
+        }
+
+        public int getCount()
+        {
+            return count;
+        }
+
+        public int getFailures()
+        {
+            return failures;
+        }
+
+        /**
+         * @param percentile in the range 0-100
+         * @return the latency in micros
+         */
+        public long getPercentile(double percentile)
+        {
+            if(count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            int idx = (int) Math.min(count - 1, Math.ceil(percentile / 100 * count) - 1);
+            return sorted[Math.max(idx, 0)] / 1000;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "calls:" + count
+                    + " failures:" + failures
+                    + (seconds > 0 ? " throughput:" + count / seconds + "/s" : "")
+                    + " p50:" + getPercentile(50) + "us"
+                    + " p95:" + getPercentile(95) + "us"
+                    + " p99:" + getPercentile(99) + "us"
+                    + " max:" + getPercentile(100) + "us";
+        }
+    }
+
+    public void setPort(int port)
+    {
+        this.port = port;
+    }
+
+    public void setUsers(int users)
+    {
+        this.users = users;
+    }
+
+    public void setGroups(int groups)
+    {
+        this.groups = groups;
+    }
+
+    public void setGroupsPerUser(int groupsPerUser)
+    {
+        this.groupsPerUser = groupsPerUser;
+    }
+
+    public void setPooled(boolean pooled)
+    {
+        this.pooled = pooled;
+    }
+
+    public void setCached(boolean cached)
+    {
+        this.cached = cached;
+    }
+
+    public void setIndex(boolean index)
+    {
+        this.index = index;
+    }
+}
@@ -0,0 +1,45 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.geofence.ldap.dao.impl;
+
+import static org.junit.Assert.*;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Runs the {@link LdapBenchmark} with a small load, just to make sure the harness works.
+ * <BR>Ignored in the regular builds, since it starts its own LDAP server and takes
+ * a while; run it by hand after changing the benchmark.
+ *
+ * @author Emanuele Tajariol (etj at geo-solutions.it)
+ */
+public class LdapBenchmarkTest
+{
+    private static final Logger LOGGER = LogManager.getLogger(LdapBenchmarkTest.class);
+
+    @Test
+    @Ignore("benchmark harness check, run by hand")
+    public void testSmallRun() throws Exception
+    {
+        LdapBenchmark benchmark = new LdapBenchmark();
+        benchmark.setUsers(100);
+        benchmark.setGroups(10);
+        benchmark.setGroupsPerUser(2);
+        benchmark.setIndex(true);
+
+        benchmark.start();
+        try {
+            LdapBenchmark.Result result = benchmark.run(2, 1);
+            LOGGER.info(result);
+            assertTrue(result.getCount() > 0);
+            assertEquals(0, result.getFailures());
+        } finally {
+            benchmark.stop();
+        }
+    }
+}
@@ -66,4 +66,51 @@ public class UserGroupDAOLdapImplTest extends BaseDAOTest
     {
         assertEquals(4, userGroupDAO.count(new Search()));
     }
+
+    @Test
+    public void testSearchDisjunction()
+    {
+        Search search = new Search();
+        search.setDisjunction(true);
+        search.addFilter(new Filter("groupname", "adminGroup"));
+        search.addFilter(new Filter("groupname", "otherGroup"));
+
+        List<UserGroup> groups = userGroupDAO.search(search);
+        assertEquals(2, groups.size());
+        assertEquals(2, userGroupDAO.count(search));
+
+        // same filters in AND can not match anything
+        search.setDisjunction(false);
+        assertEquals(0, userGroupDAO.search(search).size());
+    }
+
+    @Test
+    public void testSearchLike()
+    {
+        Search search = new Search();
+        search.addFilterILike("groupname", "other%");
+
+        Set<String> found = new HashSet<>();
+        for (UserGroup g : userGroupDAO.search(search)) {
+            found.add(g.getName());
+        }
+        assertEquals(new HashSet<>(Arrays.asList(new String[]{"other", "otherGroup"})), found);
+    }
+
+    @Test
+    public void testSearchPaged()
+    {
+        Search search = new Search();
+        search.setMaxResults(3);
+        assertEquals(3, userGroupDAO.search(search).size());
+
+        search.setPage(1);
+        assertEquals(1, userGroupDAO.search(search).size());
+
+        search.setPage(2);
+        assertEquals(0, userGroupDAO.search(search).size());
+
+        // count ignores paging
+        assertEquals(4, userGroupDAO.count(search));
+    }
 }
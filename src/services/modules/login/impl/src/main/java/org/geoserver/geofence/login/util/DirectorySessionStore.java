@@ -0,0 +1,150 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.login.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * Stores each session as a serialized file in a directory.
+ * <P>
+ * Sessions survive a restart, and may be shared among nodes by using a shared directory.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class DirectorySessionStore implements SessionStore
+{
+    private static final Logger LOGGER = LogManager.getLogger(DirectorySessionStore.class);
+
+    private static final String SUFFIX = ".session";
+
+    private File directory;
+
+    @Override
+    public void save(String token, SessionManager.Session session)
+    {
+        File file = getFile(token);
+        if (file == null)
+        {
+            return;
+        }
+
+        File tmp = new File(directory, token + ".tmp");
+        try
+        {
+            ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(tmp));
+            try
+            {
+                out.writeObject(session);
+            }
+            finally
+            {
+                out.close();
+            }
+            if (!tmp.renameTo(file))
+            {
+                LOGGER.warn("Could not store session file " + file);
+                tmp.delete();
+            }
+        }
+        catch (IOException e)
+        {
+            LOGGER.warn("Could not store session for user [" + session.getUsername() + "]: " + e.getMessage());
+            tmp.delete();
+        }
+    }
+
+    @Override
+    public SessionManager.Session load(String token)
+    {
+        File file = getFile(token);
+        if (file == null || !file.isFile())
+        {
+            return null;
+        }
+
+        try
+        {
+            ObjectInputStream in = new ObjectInputStream(new FileInputStream(file));
+            try
+            {
+                return (SessionManager.Session) in.readObject();
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            LOGGER.warn("Could not read session file " + file + ": " + e.getMessage());
+        }
+        catch (ClassNotFoundException e)
+        {
+            LOGGER.warn("Could not read session file " + file + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    @Override
+    public SessionManager.Session remove(String token)
+    {
+        SessionManager.Session session = load(token);
+        File file = getFile(token);
+        if (file != null)
+        {
+            file.delete();
+        }
+        return session;
+    }
+
+    @Override
+    public void removeCreatedBefore(long time)
+    {
+        File[] files = directory.listFiles();
+        if (files == null)
+        {
+            return;
+        }
+        for (File file : files)
+        {
+            // files are never rewritten, so their timestamp is the session creation time
+            if (file.getName().endsWith(SUFFIX) && file.lastModified() < time)
+            {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * @return the file for the given token, or null if the token is not valid.
+     */
+    private File getFile(String token)
+    {
+        // tokens are hex strings: anything else may be an attempt to escape the directory
+        if (token == null || !token.matches("[0-9a-fA-F]+"))
+        {
+            return null;
+        }
+        return new File(directory, token + SUFFIX);
+    }
+
+    public void setDirectory(File directory)
+    {
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new IllegalArgumentException("Can not create session directory " + directory);
+        }
+        this.directory = directory;
+    }
+}
@@ -5,106 +5,376 @@
 
 package org.geoserver.geofence.login.util;
 
-import java.util.LinkedHashMap;
+import java.io.Serializable;
+import java.security.SecureRandom;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.codec.binary.Hex;
 import org.geoserver.geofence.api.dto.GrantedAuths;
 import org.geoserver.geofence.api.exception.AuthException;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
 /**
+ * Keeps track of the logged in users.
+ * <P>
+ * Sessions expire after <TT>idleTimeoutSec</TT> seconds without being used, and
+ * in any case <TT>maxLifetimeSec</TT> seconds after the login.
+ * Expired sessions are removed by a background sweeper; when more than <TT>maxSessions</TT>
+ * sessions are active, the least recently used ones are discarded.
+ * <P>
+ * If a {@link SessionStore} is set, sessions are also saved there, so that they may survive
+ * a restart or be shared among nodes.
+ * <BR>Sessions cached in memory are checked against the store at most every
+ * <TT>storeCheckIntervalSec</TT> seconds, so that a session closed on another node is
+ * dropped here too within that interval.
+ * <BR>The last access is only known by each node, so idle or least recently used sessions
+ * are only evicted from the memory of the node, since they may still be in use on other nodes,
+ * and are reloaded from the store if used again: stored sessions are only removed on logout
+ * or after <TT>maxLifetimeSec</TT>.
  *
  * @author etj
  */
-public class SessionManager
+public class SessionManager implements InitializingBean, DisposableBean
 {
 
     private static final Logger LOGGER = LogManager.getLogger(SessionManager.class);
 
-    private static final int MAXSESSIONS = 100;
+    private final ConcurrentMap<String, Session> activeSessions = new ConcurrentHashMap<String, Session>();
+
+    private final SecureRandom random = new SecureRandom();
+
+    private int maxSessions = 100;
+    private long idleTimeoutSec = 30 * 60;
+    private long maxLifetimeSec = 8 * 60 * 60;
+    private long sweepIntervalSec = 60;
+    private long storeCheckIntervalSec = 10;
+
+    private SessionStore sessionStore;
 
-    private final SessionMap activeSessions = new SessionMap(MAXSESSIONS);
+    private ScheduledExecutorService sweeper;
+
+    @Override
+    public void afterPropertiesSet()
+    {
+        sweeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "geofence-session-sweeper");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        sweeper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sweep();
+                } catch (Exception e) {
+                    LOGGER.error("Error while removing expired sessions: " + e.getMessage(), e);
+                }
+            }
+        }, sweepIntervalSec, sweepIntervalSec, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (sweeper != null)
+        {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
 
     public String createSession(String username, GrantedAuths grantedAuths)
     {
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        String token = Hex.encodeHexString(bytes);
+
+        long now = now();
+        Session session = new Session(username, grantedAuths, now);
 
-        String token = TokenEncoder.encode(username + grantedAuths.hashCode(), ("" +
-                    System.nanoTime() + "" + System.currentTimeMillis()).substring(0, 16));
+        if (activeSessions.size() >= maxSessions)
+        {
+            makeRoom();
+        }
+        activeSessions.put(token, session);
 
-        LoggedInMember loggedInMember = new LoggedInMember();
-        loggedInMember.grantedAuths = grantedAuths;
-        loggedInMember.username = username;
-        activeSessions.put(token, loggedInMember);
+        if (sessionStore != null)
+        {
+            sessionStore.save(token, session);
+        }
 
         return token;
     }
 
     public void closeSession(String token)
     {
-        LoggedInMember member = activeSessions.remove(token);
+        Session member = activeSessions.remove(token);
+        if (sessionStore != null)
+        {
+            Session stored = sessionStore.remove(token);
+            if (member == null)
+            {
+                member = stored;
+            }
+        }
+
         if (member == null)
         {
             LOGGER.warn("Tried to close non existent session. Token " + token);
         }
         else
         {
-            LOGGER.info("Closing session for user [" + member.username + "] token " + token);
+            LOGGER.info("Closing session for user [" + member.getUsername() + "] token " + token);
         }
     }
 
     public GrantedAuths getGrantedAuthorities(String token) throws AuthException
     {
-        LoggedInMember loggedInMember = activeSessions.get(token);
-        if (loggedInMember != null)
+        long now = now();
+
+        Session session = activeSessions.get(token);
+        if (session != null && sessionStore != null && isIdle(session, now))
         {
-            return loggedInMember.grantedAuths;
+            // only idle on this node: check the store again
+            activeSessions.remove(token, session);
+            session = null;
         }
-        else
+
+        if (session == null && sessionStore != null)
+        {
+            session = sessionStore.load(token);
+            if (session != null)
+            {
+                // the last access is not tracked in the store
+                session.lastAccess = now;
+                session.lastChecked = now;
+                activeSessions.putIfAbsent(token, session);
+            }
+        }
+        else if (session != null && sessionStore != null
+                && now - session.lastChecked > TimeUnit.SECONDS.toMillis(storeCheckIntervalSec))
+        {
+            if (sessionStore.load(token) == null)
+            {
+                // closed or expired on another node
+                activeSessions.remove(token, session);
+                throw new AuthException("No active session for token " + token);
+            }
+            session.lastChecked = now;
+        }
+
+        if (session == null)
         {
             throw new AuthException("No active session for token " + token);
         }
+
+        if (isExpired(session, now))
+        {
+            expire(token, session, now);
+            throw new AuthException("Session expired for token " + token);
+        }
+
+        session.lastAccess = now;
+        return session.getGrantedAuths();
     }
 
-    private static class LoggedInMember
+    public int getActiveSessions()
     {
-        public GrantedAuths grantedAuths;
+        return activeSessions.size();
+    }
 
-        public String username;
+    /**
+     * Removes the expired sessions.
+     * <BR>Entries are removed one by one, so no lock is held on the whole map.
+     */
+    public void sweep()
+    {
+        long now = now();
+        int cnt = 0;
+        for (Map.Entry<String, Session> entry : activeSessions.entrySet())
+        {
+            if (isExpired(entry.getValue(), now))
+            {
+                expire(entry.getKey(), entry.getValue(), now);
+                cnt++;
+            }
+        }
+        if (sessionStore != null)
+        {
+            sessionStore.removeCreatedBefore(now - TimeUnit.SECONDS.toMillis(maxLifetimeSec));
+        }
+        if (cnt > 0 && LOGGER.isDebugEnabled())
+        {
+            LOGGER.debug("Removed " + cnt + " expired sessions");
+        }
     }
 
     /**
-     * If too many sessions, throw away the older ones. Todo: has to be improved and made
-     * customizable.
+     * Current time in millis; overridable for testing.
      */
-    class SessionMap extends LinkedHashMap<String, LoggedInMember>
+    protected long now()
     {
+        return System.currentTimeMillis();
+    }
 
-        private final int MAX_ENTRIES;
+    protected boolean isExpired(Session session, long now)
+    {
+        return isIdle(session, now) || isTooOld(session, now);
+    }
+
+    private boolean isIdle(Session session, long now)
+    {
+        return now - session.lastAccess > TimeUnit.SECONDS.toMillis(idleTimeoutSec);
+    }
+
+    private boolean isTooOld(Session session, long now)
+    {
+        return now - session.getCreated() > TimeUnit.SECONDS.toMillis(maxLifetimeSec);
+    }
 
-        public SessionMap(int maxEntries)
+    /**
+     * Removes the session from memory; it is removed from the store only when its lifetime is over,
+     * since other nodes may still be using it.
+     */
+    private void expire(String token, Session session, long now)
+    {
+        if (activeSessions.remove(token, session))
         {
-            this.MAX_ENTRIES = maxEntries;
+            if (sessionStore != null && isTooOld(session, now))
+            {
+                sessionStore.remove(token);
+            }
+            LOGGER.info("Session expired for user [" + session.getUsername() + "]");
         }
+    }
 
-        @Override
-        protected boolean removeEldestEntry(Map.Entry eldest)
+    /**
+     * Removes the expired sessions, or the least recently used one if none is expired.
+     */
+    private void makeRoom()
+    {
+        sweep();
+
+        while (activeSessions.size() >= maxSessions)
         {
-            if (size() > MAX_ENTRIES)
+            String eldestToken = null;
+            Session eldest = null;
+            for (Map.Entry<String, Session> entry : activeSessions.entrySet())
             {
-                LoggedInMember member = (LoggedInMember) eldest.getValue();
-                LOGGER.info("Removing stale token " + eldest.getKey() + " for member " +
-                    member.username);
-
-                // todo: have to logout related member?
-                return true;
+                if (eldest == null || entry.getValue().lastAccess < eldest.lastAccess)
+                {
+                    eldestToken = entry.getKey();
+                    eldest = entry.getValue();
+                }
             }
-            else
+            if (eldest == null)
             {
-                return false;
+                return;
             }
+            if (activeSessions.remove(eldestToken, eldest))
+            {
+                LOGGER.info("Too many sessions, removing the least recently used one for member " + eldest.getUsername());
+            }
+        }
+    }
+
+    /**
+     * A logged in user.
+     */
+    public static class Session implements Serializable
+    {
+        private static final long serialVersionUID = 3154807367424961398L;
+
+        private final String username;
+        private final GrantedAuths grantedAuths;
+        private final long created;
+
+        transient volatile long lastAccess;
+        /** Last time the session was found in the SessionStore. */
+        transient volatile long lastChecked;
+
+        public Session(String username, GrantedAuths grantedAuths, long created)
+        {
+            this.username = username;
+            this.grantedAuths = grantedAuths;
+            this.created = created;
+            this.lastAccess = created;
+            this.lastChecked = created;
+        }
+
+        public String getUsername()
+        {
+            return username;
+        }
+
+        public GrantedAuths getGrantedAuths()
+        {
+            return grantedAuths;
         }
+
+        public long getCreated()
+        {
+            return created;
+        }
+    }
+
+    /**
+     * Max number of active sessions; when exceeded, the least recently used sessions are removed
+     * (only from memory, if a SessionStore is set).
+     */
+    public void setMaxSessions(int maxSessions)
+    {
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Sessions not used for this number of seconds are expired.
+     */
+    public void setIdleTimeoutSec(long idleTimeoutSec)
+    {
+        this.idleTimeoutSec = idleTimeoutSec;
+    }
+
+    /**
+     * Sessions are expired this number of seconds after the login, even if still in use.
+     */
+    public void setMaxLifetimeSec(long maxLifetimeSec)
+    {
+        this.maxLifetimeSec = maxLifetimeSec;
+    }
+
+    public void setSweepIntervalSec(long sweepIntervalSec)
+    {
+        this.sweepIntervalSec = sweepIntervalSec;
     }
 
+    /**
+     * How often the sessions cached in memory are checked against the SessionStore.
+     */
+    public void setStoreCheckIntervalSec(long storeCheckIntervalSec)
+    {
+        this.storeCheckIntervalSec = storeCheckIntervalSec;
+    }
+
+    /**
+     * Optional store where the sessions are saved.
+     */
+    public void setSessionStore(SessionStore sessionStore)
+    {
+        this.sessionStore = sessionStore;
+    }
 }
@@ -0,0 +1,34 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.login.util;
+
+/**
+ * Secondary storage for the login sessions.
+ * <P>
+ * The {@link SessionManager} keeps the active sessions in memory; a SessionStore
+ * allows sessions to survive a restart, or to be shared among several nodes.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public interface SessionStore
+{
+    void save(String token, SessionManager.Session session);
+
+    /**
+     * @return the session, or null if not found.
+     */
+    SessionManager.Session load(String token);
+
+    /**
+     * @return the removed session, or null if not found.
+     */
+    SessionManager.Session remove(String token);
+
+    /**
+     * Removes the sessions created before the given time (millis).
+     */
+    void removeCreatedBefore(long time);
+}
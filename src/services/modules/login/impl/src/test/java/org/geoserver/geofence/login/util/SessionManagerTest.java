@@ -0,0 +1,180 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.geofence.login.util;
+
+import java.io.File;
+
+import org.geoserver.geofence.api.dto.GrantedAuths;
+import org.geoserver.geofence.api.exception.AuthException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class SessionManagerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSession() {
+        SessionManager sm = new SessionManager();
+        GrantedAuths ga = new GrantedAuths();
+
+        String token = sm.createSession("user", ga);
+        assertSame(ga, sm.getGrantedAuthorities(token));
+        assertFalse(token.equals(sm.createSession("user", ga)));
+
+        sm.closeSession(token);
+        try {
+            sm.getGrantedAuthorities(token);
+            fail("Session not closed");
+        } catch (AuthException e) {
+        }
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        SessionManager sm = new SessionManager();
+        sm.setIdleTimeoutSec(0);
+
+        String token = sm.createSession("user", new GrantedAuths());
+        Thread.sleep(10);
+        try {
+            sm.getGrantedAuthorities(token);
+            fail("Session not expired");
+        } catch (AuthException e) {
+        }
+        assertEquals(0, sm.getActiveSessions());
+    }
+
+    @Test
+    public void testCapacity() {
+        TestSessionManager sm = new TestSessionManager();
+        sm.setMaxSessions(3);
+
+        String[] tokens = new String[5];
+        for (int i = 0; i < 3; i++) {
+            tokens[i] = sm.createSession("u" + i, new GrantedAuths());
+            sm.time += 1000;
+        }
+        // u0 is used again, so u1 is now the least recently used one
+        sm.getGrantedAuthorities(tokens[0]);
+        sm.time += 1000;
+
+        tokens[3] = sm.createSession("u3", new GrantedAuths());
+        assertEquals(3, sm.getActiveSessions());
+        assertNotNull(sm.getGrantedAuthorities(tokens[0]));
+        try {
+            sm.getGrantedAuthorities(tokens[1]);
+            fail("Least recently used session not removed");
+        } catch (AuthException e) {
+        }
+        assertNotNull(sm.getGrantedAuthorities(tokens[2]));
+    }
+
+    @Test
+    public void testStore() throws Exception {
+        File dir = folder.newFolder("sessions");
+        DirectorySessionStore store = new DirectorySessionStore();
+        store.setDirectory(dir);
+
+        SessionManager sm1 = new SessionManager();
+        sm1.setSessionStore(store);
+        String token = sm1.createSession("user", new GrantedAuths());
+
+        // another node, or the same one after a restart
+        SessionManager sm2 = new SessionManager();
+        sm2.setSessionStore(store);
+        assertNotNull(sm2.getGrantedAuthorities(token));
+
+        sm2.closeSession(token);
+        assertNull(store.load(token));
+        assertNull(store.load("../../etc/passwd"));
+    }
+
+    @Test
+    public void testClosedOnOtherNode() throws Exception {
+        File dir = folder.newFolder("sessions");
+        DirectorySessionStore store = new DirectorySessionStore();
+        store.setDirectory(dir);
+
+        TestSessionManager sm1 = new TestSessionManager();
+        sm1.setSessionStore(store);
+        sm1.setStoreCheckIntervalSec(10);
+        String token = sm1.createSession("user", new GrantedAuths());
+
+        TestSessionManager sm2 = new TestSessionManager();
+        sm2.setSessionStore(store);
+        assertNotNull(sm2.getGrantedAuthorities(token));
+        sm2.closeSession(token);
+
+        // still cached within the check interval
+        sm1.time += 5000;
+        assertNotNull(sm1.getGrantedAuthorities(token));
+
+        sm1.time += 6000;
+        try {
+            sm1.getGrantedAuthorities(token);
+            fail("Session closed on another node still active");
+        } catch (AuthException e) {
+        }
+        assertEquals(0, sm1.getActiveSessions());
+    }
+
+    @Test
+    public void testIdleOnOtherNode() throws Exception {
+        File dir = folder.newFolder("sessions");
+        DirectorySessionStore store = new DirectorySessionStore();
+        store.setDirectory(dir);
+
+        TestSessionManager active = new TestSessionManager();
+        active.setSessionStore(store);
+        active.setIdleTimeoutSec(60);
+        active.setStoreCheckIntervalSec(10);
+        String token = active.createSession("user", new GrantedAuths());
+
+        // e.g. a failover: the other node serves the session once, then goes idle
+        TestSessionManager idle = new TestSessionManager();
+        idle.setSessionStore(store);
+        idle.setIdleTimeoutSec(60);
+        idle.setStoreCheckIntervalSec(10);
+        assertNotNull(idle.getGrantedAuthorities(token));
+
+        for (int i = 0; i < 5; i++) {
+            active.time += 30000;
+            idle.time += 30000;
+            idle.sweep();
+            assertNotNull(active.getGrantedAuthorities(token));
+        }
+        assertEquals(0, idle.getActiveSessions());
+        assertNotNull(store.load(token));
+
+        // the idle node reloads the session if used again
+        assertNotNull(idle.getGrantedAuthorities(token));
+
+        // when the lifetime is over the session is removed from the store
+        active.setMaxLifetimeSec(100);
+        active.sweep();
+        assertEquals(0, active.getActiveSessions());
+        assertNull(store.load(token));
+    }
+
+    /**
+     * A SessionManager with a manually driven clock.
+     */
+    private static class TestSessionManager extends SessionManager {
+        long time = 1000000;
+
+        @Override
+        protected long now() {
+            return time;
+        }
+    }
+}
@@ -42,7 +42,7 @@ public interface RESTAdminRuleService
 
     @GET
     @Path("/id/{id}")
-    @Produces(MediaType.APPLICATION_XML)
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     RESTOutputAdminRule get(@PathParam("id") Long id) throws BadRequestRestEx, NotFoundRestEx;
 
     @PUT
@@ -58,7 +58,7 @@ public interface RESTAdminRuleService
 
     @GET
     @Path("/")
-    @Produces(MediaType.APPLICATION_XML)
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     RESTOutputAdminRuleList get(
         @QueryParam("page") Integer page,
         @QueryParam("entries") Integer entries,
@@ -45,7 +45,7 @@ public interface RESTConfigService
      */
     @GET
     @Path("/full")
-    @Produces(MediaType.APPLICATION_XML)
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     RESTFullConfiguration getConfiguration(@QueryParam("includeGFUsers")
         @DefaultValue("False")
         Boolean includeGRUsers);
@@ -105,7 +105,7 @@ public interface RESTConfigService
      */
     @GET
     @Path("/users")
-    @Produces(MediaType.APPLICATION_XML)
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     RESTFullUserList getUsers()
             throws BadRequestRestEx, NotFoundRestEx, InternalErrorRestEx;
 
@@ -114,7 +114,7 @@ public interface RESTConfigService
      */
     @GET
     @Path("/groups")
-    @Produces(MediaType.APPLICATION_XML)
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     RESTFullUserGroupList getUserGroups()
             throws BadRequestRestEx, NotFoundRestEx, InternalErrorRestEx;
 
@@ -6,12 +6,14 @@
 package org.geoserver.geofence.services.rest;
 
 import org.apache.cxf.jaxrs.ext.multipart.Multipart;
+import org.geoserver.geofence.services.dto.InstanceStatus;
 import org.geoserver.geofence.services.rest.exception.BadRequestRestEx;
 import org.geoserver.geofence.services.rest.exception.ConflictRestEx;
 import org.geoserver.geofence.services.rest.exception.InternalErrorRestEx;
 import org.geoserver.geofence.services.rest.exception.NotFoundRestEx;
 import org.geoserver.geofence.services.rest.model.RESTFullInstanceList;
 import org.geoserver.geofence.services.rest.model.RESTInputInstance;
+import org.geoserver.geofence.services.rest.model.RESTInstanceStatusList;
 import org.geoserver.geofence.services.rest.model.RESTOutputInstance;
 import org.geoserver.geofence.services.rest.model.RESTShortInstanceList;
 
@@ -91,6 +93,23 @@ public interface RESTGSInstanceService {
     void update(@PathParam("name") String name,
             @Multipart("instance") RESTInputInstance instance) throws BadRequestRestEx, NotFoundRestEx, InternalErrorRestEx;
 
+    /**
+     * @return the reachability and latency stats of all the instances
+     */
+    @GET
+    @Path("/status")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    RESTInstanceStatusList getStatusList() throws InternalErrorRestEx;
+
+    /**
+     * @return the reachability and latency stats of the instance
+     * @throws NotFoundRestEx      (HTTP code 404) if the instance is not found
+     */
+    @GET
+    @Path("/id/{id}/status")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    InstanceStatus getStatus(@PathParam("id") Long id) throws NotFoundRestEx, InternalErrorRestEx;
+
     /**
      * Deletes a GSInstance.
      *
@@ -0,0 +1,105 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.rest;
+
+import org.geoserver.geofence.services.dto.AccessExplanation;
+import org.geoserver.geofence.services.dto.AccessibleLayers;
+import org.geoserver.geofence.services.dto.AdministrableWorkspaces;
+import org.geoserver.geofence.services.dto.UserPolicy;
+import org.geoserver.geofence.services.rest.exception.BadRequestRestEx;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+
+
+/**
+ * Diagnostic access to the rule evaluation.
+ *
+ * @author Emanuele Tajariol (etj at geo-solutions.it)
+ */
+
+@Path("/")
+public interface RESTRuleReaderService {
+
+    /**
+     * Evaluates the access for the given request, returning the trace of the evaluation.
+     * <P>
+     * Params not set will match any value.
+     */
+    @GET
+    @Path("/explain")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    AccessExplanation explain(
+            @QueryParam("user") String userName,
+            @QueryParam("role") String roleName,
+            @QueryParam("instance") String instanceName,
+            @QueryParam("sourceAddress") String sourceAddress,
+            @QueryParam("service") String service,
+            @QueryParam("request") String request,
+            @QueryParam("workspace") String workspace,
+            @QueryParam("layer") String layer
+    ) throws BadRequestRestEx;
+
+    /**
+     * Computes the access to all the layers for the given request, e.g. for
+     * building a capabilities document.
+     * <P>
+     * Params not set will match any value.
+     */
+    @GET
+    @Path("/accessible")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    AccessibleLayers getAccessibleLayers(
+            @QueryParam("user") String userName,
+            @QueryParam("role") String roleName,
+            @QueryParam("instance") String instanceName,
+            @QueryParam("sourceAddress") String sourceAddress,
+            @QueryParam("service") String service,
+            @QueryParam("request") String request
+    ) throws BadRequestRestEx;
+
+    /**
+     * Returns all the workspaces the given user or role has admin rights on.
+     * <P>
+     * Params not set will match any value.
+     */
+    @GET
+    @Path("/adminworkspaces")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    AdministrableWorkspaces getAdministrableWorkspaces(
+            @QueryParam("user") String userName,
+            @QueryParam("role") String roleName,
+            @QueryParam("instance") String instanceName,
+            @QueryParam("sourceAddress") String sourceAddress
+    ) throws BadRequestRestEx;
+
+    /**
+     * Returns all the rules that may apply to the given user or role on the given instance,
+     * for evaluating the access on the client side.
+     * <P>
+     * Params not set will match any value.
+     */
+    @GET
+    @Path("/policy")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    UserPolicy getUserPolicy(
+            @QueryParam("user") String userName,
+            @QueryParam("role") String roleName,
+            @QueryParam("instance") String instanceName
+    ) throws BadRequestRestEx;
+
+    /**
+     * Returns the current ruleset version; a client should fetch its policy
+     * again when it differs from the one in the policy.
+     */
+    @GET
+    @Path("/policy/version")
+    @Produces(MediaType.TEXT_PLAIN)
+    String getRulesetVersion();
+}
@@ -39,7 +39,7 @@ public interface RESTRuleService {
 
     @GET
     @Path("/id/{id}")
-    @Produces(MediaType.APPLICATION_XML)
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     RESTOutputRule get(@PathParam("id") Long id) throws BadRequestRestEx, NotFoundRestEx;
 
     @PUT
@@ -61,7 +61,7 @@ public interface RESTRuleService {
 
     @GET
     @Path("/")
-    @Produces(MediaType.APPLICATION_XML)
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     RESTOutputRuleList get(
             @QueryParam("page") Integer page,
             @QueryParam("entries") Integer entries,
@@ -96,6 +96,20 @@ public interface RESTRuleService {
             @QueryParam("entries") Integer entries)
             throws BadRequestRestEx, InternalErrorRestEx;
 
+    /**
+     * Returns the rules whose allowed area intersects the given geometry.
+     * <P>
+     * The geometry is given either as WKT or as a <TT>minx,miny,maxx,maxy</TT> bbox.
+     * Rules with no area restrictions are not returned.
+     */
+    @GET
+    @Path("/search/area")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    RESTShortRuleList searchByArea(
+            @QueryParam("wkt") String wkt,
+            @QueryParam("bbox") String bbox)
+            throws BadRequestRestEx, InternalErrorRestEx;
+
     @GET
     @Path("/count")
     long count(
@@ -38,7 +38,7 @@ public interface RESTUserService {
      */
     @GET
     @Path("/")
-    @Produces(MediaType.APPLICATION_XML)
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     RESTShortUserList getList(
             @QueryParam("nameLike") String nameLike,
             @QueryParam("page") Integer page,
@@ -58,7 +58,7 @@ public interface RESTUserService {
      */
     @GET
     @Path("/search/full")
-    @Produces(MediaType.APPLICATION_XML)
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     RESTFullUserList getFullList(
             @QueryParam("nameLike") String nameLike,
             @QueryParam("page") Integer page,
@@ -91,7 +91,7 @@ public interface RESTUserService {
      */
     @GET
     @Path("/name/{name}")
-    @Produces(MediaType.APPLICATION_XML)
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     RESTOutputUser get(@PathParam("name") String name) throws NotFoundRestEx, InternalErrorRestEx;
 
     /**
@@ -0,0 +1,60 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.rest.model;
+
+import org.geoserver.geofence.services.dto.InstanceStatus;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+@XmlRootElement(name = "InstanceStatusList")
+public class RESTInstanceStatusList implements Iterable<InstanceStatus> {
+
+    private List<InstanceStatus> list;
+
+    public RESTInstanceStatusList() {
+        this(10);
+    }
+
+    public RESTInstanceStatusList(List<InstanceStatus> list) {
+        this.list = list;
+    }
+
+    public RESTInstanceStatusList(int initialCapacity) {
+        list = new ArrayList<InstanceStatus>(initialCapacity);
+    }
+
+    @XmlElement(name = "InstanceStatus")
+    public List<InstanceStatus> getList() {
+        return list;
+    }
+
+    public void setList(List<InstanceStatus> list) {
+        this.list = list;
+    }
+
+    public void add(InstanceStatus status) {
+        list.add(status);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + list.size() + " instance statuses]";
+    }
+
+    @Override
+    public Iterator<InstanceStatus> iterator() {
+        return list.iterator();
+    }
+}
@@ -1,32 +1,77 @@
-/* (c) 2014 Open Source Geospatial Foundation - all rights reserved
+/* (c) 2014 - 2017 Open Source Geospatial Foundation - all rights reserved
  * This code is licensed under the GPL 2.0 license, available at the root
  * application directory.
  */
 
 package org.geoserver.geofence.services.rest;
 
-import org.geoserver.geofence.services.rest.RESTBatchService;
-import org.geoserver.geofence.services.rest.RESTUserGroupService;
-import org.geoserver.geofence.services.rest.RESTUserService;
-import org.geoserver.geofence.services.rest.RESTGSInstanceService;
-import org.geoserver.geofence.services.rest.RESTRuleService;
+import org.geoserver.geofence.services.dto.RuleFilter;
+import org.geoserver.geofence.services.rest.model.RESTBatch;
+import org.geoserver.geofence.services.rest.model.RESTInputRule;
+import org.geoserver.geofence.services.rest.model.RESTInputUser;
+import org.geoserver.geofence.services.rest.model.RESTOutputRule;
+import org.geoserver.geofence.services.rest.model.RESTOutputRuleList;
+import org.geoserver.geofence.services.rest.model.RESTOutputUser;
+import java.io.Closeable;
 import java.util.HashMap;
 import java.util.Map;
-import org.apache.cxf.common.util.Base64Utility;
-import org.apache.cxf.jaxrs.client.JAXRSClientFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.ws.rs.core.Response;
+import org.apache.cxf.Bus;
+import org.apache.cxf.BusFactory;
+import org.apache.cxf.jaxrs.client.ClientConfiguration;
+import org.apache.cxf.jaxrs.client.JAXRSClientFactoryBean;
 import org.apache.cxf.jaxrs.client.WebClient;
+import org.apache.cxf.transport.common.gzip.GZIPInInterceptor;
+import org.apache.cxf.transport.common.gzip.GZIPOutInterceptor;
+import org.apache.cxf.transport.http.HTTPConduit;
+import org.apache.cxf.transport.http.asyncclient.AsyncHTTPConduitFactory;
+import org.apache.cxf.transports.http.configuration.ConnectionType;
+import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
 
 /**
+ * Client for the GeoFence REST API.
+ * <P>
+ * Service proxies are thread safe, so a single client can be shared among threads.
+ * <BR>When <TT>pooled</TT> is set, requests are sent through a pool of HTTP connections
+ * (see <TT>maxConnections</TT> and <TT>maxConnectionsPerHost</TT>); the pool is released by {@link #close()}.
+ * <P>
+ * Responses are requested gzip compressed; requests bigger than <TT>gzipThreshold</TT> bytes
+ * are compressed as well, if <TT>gzipRequests</TT> is set.
+ * <P>
+ * The <TT>*Async</TT> methods run the calls in the client executor, which by default has one thread
+ * per connection to the GeoFence host.
  *
  * @author ETj (etj at geo-solutions.it)
  */
-public class GeoFenceClient {
+public class GeoFenceClient implements Closeable {
 
     private String username = null;
     private String password = null;
     private String restUrl = null;
 
-    private Map<Class, Object> services  = new HashMap<Class, Object>();
+    private long connectionTimeout = 30000;
+    private long receiveTimeout = 60000;
+
+    private boolean pooled = false;
+    private int maxConnections = 20;
+    private int maxConnectionsPerHost = 10;
+
+    private boolean gzipResponses = true;
+    private boolean gzipRequests = false;
+    private int gzipThreshold = 1024;
+
+    private final Map<Class, Object> services = new ConcurrentHashMap<Class, Object>();
+
+    private Bus bus;
+    private Executor executor;
+    private ExecutorService ownExecutor;
 
     public GeoFenceClient() {
     }
@@ -35,24 +80,99 @@ public class GeoFenceClient {
 
     // endpoint is how the service is mapped in the CXF servlet.
     // since it's specified in the applicationcontext, it can not be automatically retrieved by the proxy client
-    
+
     protected <T>T getService(Class<T> clazz, String endpoint) {
-        if(services.containsKey(clazz))
-            return (T)services.get(clazz);
+        Object service = services.get(clazz);
+        if(service != null)
+            return (T)service;
 
         if(restUrl == null)
-            new IllegalStateException("GeoFence URL not set");
+            throw new IllegalStateException("GeoFence URL not set");
 
         synchronized(services) {
-//            T proxy = JAXRSClientFactory.create(restUrl, clazz, username, password, null);
-            
-            T proxy = JAXRSClientFactory.create(restUrl+"/"+endpoint, clazz);
-            String authorizationHeader = "Basic "  + Base64Utility.encode((username+":"+password).getBytes());
-            WebClient.client(proxy).header("Authorization", authorizationHeader);
-
-//        WebClient.client(proxy).accept("text/xml");
-            services.put(clazz, proxy);
-            return proxy;
+            service = services.get(clazz);
+            if(service == null) {
+                service = createProxy(clazz, endpoint);
+                services.put(clazz, service);
+            }
+            return (T)service;
+        }
+    }
+
+    private <T>T createProxy(Class<T> clazz, String endpoint) {
+        JAXRSClientFactoryBean factory = new JAXRSClientFactoryBean();
+        factory.setAddress(restUrl+"/"+endpoint);
+        factory.setServiceClass(clazz);
+        factory.setThreadSafe(true);
+        if(pooled) {
+            factory.setBus(getBus());
+        }
+
+        // headers set in the factory are shared by all threads
+        Map<String, String> headers = new HashMap<String, String>();
+        if(username != null) {
+            factory.setUsername(username);
+            factory.setPassword(password);
+        }
+        if(gzipResponses || gzipRequests) {
+            factory.getInInterceptors().add(new GZIPInInterceptor());
+        }
+        if(gzipRequests) {
+            // also asks for compressed responses
+            factory.getOutInterceptors().add(new GZIPOutInterceptor(gzipThreshold));
+        } else if(gzipResponses) {
+            headers.put("Accept-Encoding", "gzip, deflate");
+        }
+        factory.setHeaders(headers);
+
+        T proxy = factory.create(clazz);
+
+        ClientConfiguration config = WebClient.getConfig(proxy);
+        HTTPClientPolicy policy = new HTTPClientPolicy();
+        policy.setConnectionTimeout(connectionTimeout);
+        policy.setReceiveTimeout(receiveTimeout);
+        policy.setConnection(ConnectionType.KEEP_ALIVE);
+        HTTPConduit conduit = config.getHttpConduit();
+        conduit.setClient(policy);
+
+        return proxy;
+    }
+
+    /**
+     * The bus holding the connection pool shared by the proxies of this client.
+     */
+    private synchronized Bus getBus() {
+        if(bus == null) {
+            bus = BusFactory.newInstance().createBus();
+            bus.setProperty(AsyncHTTPConduitFactory.USE_POLICY, "ALWAYS");
+            bus.setProperty(AsyncHTTPConduitFactory.MAX_CONNECTIONS, maxConnections);
+            bus.setProperty(AsyncHTTPConduitFactory.MAX_PER_HOST_CONNECTIONS, maxConnectionsPerHost);
+        }
+        return bus;
+    }
+
+    private synchronized Executor getExecutor() {
+        if(executor == null) {
+            ownExecutor = Executors.newFixedThreadPool(maxConnectionsPerHost, new DaemonThreadFactory());
+            executor = ownExecutor;
+        }
+        return executor;
+    }
+
+    /**
+     * Releases the connection pool and the default executor.
+     */
+    @Override
+    public synchronized void close() {
+        services.clear();
+        if(ownExecutor != null) {
+            ownExecutor.shutdown();
+            ownExecutor = null;
+            executor = null;
+        }
+        if(bus != null) {
+            bus.shutdown(false);
+            bus = null;
         }
     }
 
@@ -80,6 +200,62 @@ public class GeoFenceClient {
 
     //==========================================================================
 
+    /**
+     * Runs the given call in the client executor.
+     */
+    public <T> CompletableFuture<T> async(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, getExecutor());
+    }
+
+    public CompletableFuture<RESTOutputRule> getRuleAsync(Long id) {
+        return async(() -> getRuleService().get(id));
+    }
+
+    public CompletableFuture<RESTOutputRuleList> getRulesAsync(Integer page, Integer entries, boolean full, RuleFilter filter) {
+        return async(() -> {
+            RuleServiceHelper helper = new RuleServiceHelper(getRuleService());
+            return filter != null ?
+                    helper.get(page, entries, full, filter) :
+                    helper.get(page, entries, full, null, null, null, null, null, null, null);
+        });
+    }
+
+    public CompletableFuture<Response> insertRuleAsync(RESTInputRule rule) {
+        return async(() -> getRuleService().insert(rule));
+    }
+
+    public CompletableFuture<Void> updateRuleAsync(Long id, RESTInputRule rule) {
+        return async(() -> {
+            getRuleService().update(id, rule);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Response> deleteRuleAsync(Long id) {
+        return async(() -> getRuleService().delete(id));
+    }
+
+    public CompletableFuture<RESTOutputUser> getUserAsync(String name) {
+        return async(() -> getUserService().get(name));
+    }
+
+    public CompletableFuture<Response> insertUserAsync(RESTInputUser user) {
+        return async(() -> getUserService().insert(user));
+    }
+
+    public CompletableFuture<Void> updateUserAsync(String name, RESTInputUser user) {
+        return async(() -> {
+            getUserService().update(name, user);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Response> execBatchAsync(RESTBatch batch) {
+        return async(() -> getBatchService().exec(batch));
+    }
+
+    //==========================================================================
+
     public String getPassword() {
         return password;
     }
@@ -104,4 +280,66 @@ public class GeoFenceClient {
         this.restUrl = restUrl;
     }
 
+    /**
+     * Connection timeout in milliseconds; 0 means no timeout.
+     */
+    public void setConnectionTimeout(long connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    /**
+     * Response timeout in milliseconds; 0 means no timeout.
+     */
+    public void setReceiveTimeout(long receiveTimeout) {
+        this.receiveTimeout = receiveTimeout;
+    }
+
+    /**
+     * Whether requests should go through a pool of persistent connections.
+     */
+    public void setPooled(boolean pooled) {
+        this.pooled = pooled;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public void setGzipResponses(boolean gzipResponses) {
+        this.gzipResponses = gzipResponses;
+    }
+
+    /**
+     * Requests should only be compressed if the server accepts compressed content.
+     */
+    public void setGzipRequests(boolean gzipRequests) {
+        this.gzipRequests = gzipRequests;
+    }
+
+    public void setGzipThreshold(int gzipThreshold) {
+        this.gzipThreshold = gzipThreshold;
+    }
+
+    /**
+     * The executor for the <TT>*Async</TT> calls.
+     * If not set, a pool of <TT>maxConnectionsPerHost</TT> threads is used.
+     */
+    public synchronized void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    private static class DaemonThreadFactory implements java.util.concurrent.ThreadFactory {
+        private final AtomicInteger cnt = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "geofence-client-" + cnt.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
 }
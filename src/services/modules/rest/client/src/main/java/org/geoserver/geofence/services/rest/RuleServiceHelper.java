@@ -7,7 +7,10 @@ package org.geoserver.geofence.services.rest;
 
 import org.geoserver.geofence.services.rest.RESTRuleService;
 import org.geoserver.geofence.services.dto.RuleFilter;
+import org.geoserver.geofence.services.rest.model.RESTOutputRule;
 import org.geoserver.geofence.services.rest.model.RESTOutputRuleList;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  *
@@ -107,6 +110,28 @@ public class RuleServiceHelper {
         return get(null, null, false, null, null, null, null, null, null, null);
     }
 
+    /**
+     * Loads all the rules matching the filter, <TT>pageSize</TT> rules per request.
+     * <BR>Useful to build a local index of the rules, instead of querying
+     * GeoFence for every single rule.
+     */
+    public List<RESTOutputRule> getAll(RuleFilter ruleFilter, int pageSize) {
+        List<RESTOutputRule> ret = new ArrayList<RESTOutputRule>();
+        for (int page = 0; ; page++) {
+            RESTOutputRuleList rules = ruleFilter != null ?
+                    get(page, pageSize, false, ruleFilter) :
+                    get(page, pageSize, false, null, null, null, null, null, null, null);
+            List<RESTOutputRule> list = rules.getList();
+            if(list == null) {
+                return ret;
+            }
+            ret.addAll(list);
+            if(list.size() < pageSize) {
+                return ret;
+            }
+        }
+    }
+
     public RESTOutputRuleList get(Integer page, Integer entries, boolean full, RuleFilter ruleFilter) {
         return get(
                 page, entries, full,
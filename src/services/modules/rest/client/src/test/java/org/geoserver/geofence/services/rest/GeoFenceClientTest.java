@@ -20,7 +20,11 @@ import org.geoserver.geofence.services.rest.model.RESTShortUser;
 import org.geoserver.geofence.services.rest.model.util.IdName;
 
 import java.net.ConnectException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import javax.ws.rs.core.Response;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
@@ -270,6 +274,30 @@ public class GeoFenceClientTest {
         assertEquals(GrantType.ALLOW, outRule.getGrant());
     }
 
+    @Test
+    public void testAsyncRules() throws Exception {
+        GeoFenceClient client = createClient();
+        client.setPooled(true);
+        client.setMaxConnectionsPerHost(4);
+
+        try {
+            List<CompletableFuture<Response>> inserts = new ArrayList<CompletableFuture<Response>>();
+            for (int i = 0; i < 20; i++) {
+                RESTInputRule rule = new RESTInputRule();
+                rule.setLayer("layer" + i);
+                rule.setGrant(GrantType.ALLOW);
+                rule.setPosition(new RESTRulePosition(RESTRulePosition.RulePosition.fixedPriority, i + 1));
+                inserts.add(client.insertRuleAsync(rule));
+            }
+            CompletableFuture.allOf(inserts.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+
+            RESTOutputRuleList list = client.getRulesAsync(null, null, false, null).get(60, TimeUnit.SECONDS);
+            assertEquals(20, list.getList().size());
+        } finally {
+            client.close();
+        }
+    }
+
     protected boolean pingGeoFence(GeoFenceClient client) {
         try {
             client.getUserService().count("*");
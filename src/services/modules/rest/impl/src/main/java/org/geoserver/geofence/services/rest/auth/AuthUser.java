@@ -14,6 +14,8 @@ public class AuthUser
 
     private String name;
 
+    private boolean admin;
+
     public String getName()
     {
         return name;
@@ -24,6 +26,16 @@ public class AuthUser
         this.name = name;
     }
 
+    public boolean isAdmin()
+    {
+        return admin;
+    }
+
+    public void setAdmin(boolean admin)
+    {
+        this.admin = admin;
+    }
+
     @Override
     public boolean equals(Object obj)
     {
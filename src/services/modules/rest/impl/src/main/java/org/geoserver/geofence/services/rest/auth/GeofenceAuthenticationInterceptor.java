@@ -6,16 +6,48 @@
 package org.geoserver.geofence.services.rest.auth;
 
 
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.HttpServletResponse;
+import javax.xml.bind.DatatypeConverter;
+
 import org.apache.cxf.configuration.security.AuthorizationPolicy;
 import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.phase.AbstractPhaseInterceptor;
 import org.apache.cxf.phase.Phase;
 import org.apache.cxf.security.SecurityContext;
+import org.apache.cxf.transport.http.AbstractHTTPDestination;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
+import org.geoserver.geofence.services.AuthorizationService;
+
 /**
+ * Authenticates the REST requests against the GeoFence users.
+ * <P>
+ * Basic auth credentials are checked through the {@link AuthorizationService},
+ * which caches the verified credentials.
+ * <BR>If a <TT>tokenSecret</TT> is set, a successful login returns a signed token
+ * in the <TT>X-Geofence-Token</TT> response header; the token can be sent back
+ * either in the same header or as a <TT>Bearer</TT> authorization.
+ * <BR>The token signature also covers the {@link AuthorizationService#getCredentialStamp(String) credential stamp}
+ * of the user, so that the token is revoked as soon as the user is disabled or deleted, or its
+ * password or role change. Stamps are cached by the AuthorizationService, so verifying a token
+ * does not hit the DB on each request.
+ * <P>
+ * Requests with no credentials are served as GUEST, unless <TT>allowGuest</TT> is false.
+ * <BR>Requests with bad credentials or with an invalid token are always rejected with a 401,
+ * so that clients can tell a mistyped password from a restricted access.
  *
  * Starting point was JAASLoginInterceptor
  *
@@ -26,7 +58,23 @@ public class GeofenceAuthenticationInterceptor extends AbstractPhaseInterceptor<
 
     private static final Logger LOGGER = LogManager.getLogger(GeofenceAuthenticationInterceptor.class);
 
-    // TODO: inject user service
+    public static final String TOKEN_HEADER = "X-Geofence-Token";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final int MAX_CACHED_PRINCIPALS = 1000;
+
+    private AuthorizationService authorizationService;
+
+    private boolean allowGuest = true;
+
+    private long tokenTtlSec = 60 * 60;
+
+    private SecretKeySpec tokenKey;
+
+    private final ThreadLocal<Mac> macs = new ThreadLocal<Mac>();
+
+    private final ConcurrentMap<String, GeofencePrincipal> principals = new ConcurrentHashMap<String, GeofencePrincipal>();
 
     public GeofenceAuthenticationInterceptor()
     {
@@ -36,38 +84,252 @@ public class GeofenceAuthenticationInterceptor extends AbstractPhaseInterceptor<
     @Override
     public void handleMessage(Message message) throws Fault
     {
+        GeofencePrincipal principal = null;
 
-        LOGGER.info("In handleMessage");
-        LOGGER.info("Message --> " + message);
+        String token = getToken(message);
+        AuthorizationPolicy policy = (AuthorizationPolicy) message.get(AuthorizationPolicy.class);
 
-        String name = null;
-        String password = null;
+        if (token != null)
+        {
+            principal = verifyToken(token);
+            if (principal == null)
+            {
+                throw unauthorized("Invalid or expired token");
+            }
+        }
+        else if (policy != null && policy.getUserName() != null)
+        {
+            String name = policy.getUserName();
+            org.geoserver.geofence.services.dto.AuthUser authUser = authorizationService.authorize(name, policy.getPassword());
+            if (authUser != null)
+            {
+                boolean admin = authUser.getRole() == org.geoserver.geofence.services.dto.AuthUser.Role.ADMIN;
+                principal = getPrincipal(name, admin);
 
-        AuthUser user = null;
+                if (tokenKey != null)
+                {
+                    String newToken = createToken(name, admin);
+                    if (newToken != null)
+                    {
+                        setResponseToken(message, newToken);
+                    }
+                }
+            }
+            else
+            {
+                throw unauthorized("Bad credentials for user " + name);
+            }
+        }
+        else if (allowGuest)
+        {
+            principal = GeofencePrincipal.createGuest();
+        }
+        else
+        {
+            throw unauthorized("Missing credentials");
+        }
 
-        AuthorizationPolicy policy = (AuthorizationPolicy) message.get(AuthorizationPolicy.class);
-        if (policy != null)
+        if (LOGGER.isDebugEnabled())
         {
-            name = policy.getUserName();
-            password = policy.getPassword();
+            LOGGER.debug("Request authenticated as " + principal.getName());
+        }
 
-            LOGGER.info("Requesting user: " + name);
-            // TODO: read user from DB
-            // if user and pw do not match, throw new AuthenticationException("Unauthorized");
+        GeofenceSecurityContext securityContext = new GeofenceSecurityContext();
+        securityContext.setPrincipal(principal);
 
-            user = new AuthUser();
+        message.put(SecurityContext.class, securityContext);
+    }
+
+    private Fault unauthorized(String reason)
+    {
+        if (LOGGER.isDebugEnabled())
+        {
+            LOGGER.debug("Unauthorized: " + reason);
+        }
+        Fault fault = new Fault(new SecurityException("Unauthorized"));
+        fault.setStatusCode(401);
+        return fault;
+    }
+
+    /**
+     * Principals are immutable, so they are shared among the requests of the same user.
+     */
+    private GeofencePrincipal getPrincipal(String name, boolean admin)
+    {
+        String key = (admin ? "A:" : "U:") + name;
+        GeofencePrincipal principal = principals.get(key);
+        if (principal == null)
+        {
+            AuthUser user = new AuthUser();
             user.setName(name);
+            user.setAdmin(admin);
+            principal = new GeofencePrincipal(user);
 
+            if (principals.size() >= MAX_CACHED_PRINCIPALS)
+            {
+                principals.clear();
+            }
+            principals.put(key, principal);
         }
-        else
+        return principal;
+    }
+
+    private String getToken(Message message)
+    {
+        if (tokenKey == null)
         {
-            LOGGER.info("No requesting user -- GUEST access");
+            return null;
         }
 
-        GeofenceSecurityContext securityContext = new GeofenceSecurityContext();
-        GeofencePrincipal principal = (user != null) ? new GeofencePrincipal(user) : GeofencePrincipal.createGuest();
-        securityContext.setPrincipal(principal);
+        Map<String, List<String>> headers = (Map<String, List<String>>) message.get(Message.PROTOCOL_HEADERS);
+        if (headers != null)
+        {
+            List<String> values = headers.get(TOKEN_HEADER);
+            if (values != null && !values.isEmpty())
+            {
+                return values.get(0);
+            }
+        }
 
-        message.put(SecurityContext.class, securityContext);
+        AuthorizationPolicy policy = (AuthorizationPolicy) message.get(AuthorizationPolicy.class);
+        if (policy != null && "Bearer".equalsIgnoreCase(policy.getAuthorizationType()))
+        {
+            return policy.getAuthorization();
+        }
+        return null;
+    }
+
+    private void setResponseToken(Message message, String token)
+    {
+        HttpServletResponse response = (HttpServletResponse) message.get(AbstractHTTPDestination.HTTP_RESPONSE);
+        if (response != null)
+        {
+            response.setHeader(TOKEN_HEADER, token);
+        }
+    }
+
+    /**
+     * Creates a token for the given user, valid for <TT>tokenTtlSec</TT> seconds.
+     * <BR>The token is made of the hex encoded username, the admin flag, the expiry time and
+     * the HMAC of these fields and of the user credential stamp, separated by dots.
+     *
+     * @return null if the user does not exist or is disabled
+     */
+    public String createToken(String name, boolean admin)
+    {
+        if (tokenKey == null)
+        {
+            throw new IllegalStateException("Token secret not set");
+        }
+        String stamp = authorizationService.getCredentialStamp(name);
+        if (stamp == null)
+        {
+            return null;
+        }
+        long expiry = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(tokenTtlSec);
+        String payload = DatatypeConverter.printHexBinary(utf8(name)) + "." + (admin ? "1" : "0") + "." + expiry;
+        return payload + "." + DatatypeConverter.printHexBinary(sign(payload + "." + stamp));
+    }
+
+    /**
+     * @return the principal of the token owner, or null if the token is malformed, forged or expired,
+     * or if the user credentials changed since the token was issued.
+     */
+    GeofencePrincipal verifyToken(String token)
+    {
+        String[] fields = token.trim().split("\\.");
+        if (fields.length != 4)
+        {
+            return null;
+        }
+
+        try
+        {
+            if (Long.parseLong(fields[2]) < System.currentTimeMillis())
+            {
+                return null;
+            }
+            String name = new String(DatatypeConverter.parseHexBinary(fields[0]), "UTF-8");
+            String stamp = authorizationService.getCredentialStamp(name);
+            if (stamp == null)
+            {
+                return null;
+            }
+            String payload = fields[0] + "." + fields[1] + "." + fields[2];
+            if (!MessageDigest.isEqual(sign(payload + "." + stamp), DatatypeConverter.parseHexBinary(fields[3])))
+            {
+                return null;
+            }
+            return getPrincipal(name, "1".equals(fields[1]));
+        }
+        catch (IllegalArgumentException e) // also NumberFormatException
+        {
+            return null;
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] sign(String payload)
+    {
+        Mac mac = macs.get();
+        try
+        {
+            if (mac == null)
+            {
+                mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(tokenKey);
+                macs.set(mac);
+            }
+            // doFinal resets the mac, so it can be reused for the next token
+            return mac.doFinal(utf8(payload));
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new IllegalStateException("Can not sign token", e);
+        }
+    }
+
+    private static byte[] utf8(String s)
+    {
+        try
+        {
+            return s.getBytes("UTF-8");
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void setAuthorizationService(AuthorizationService authorizationService)
+    {
+        this.authorizationService = authorizationService;
+    }
+
+    /**
+     * Whether requests with no credentials are served as GUEST.
+     */
+    public void setAllowGuest(boolean allowGuest)
+    {
+        this.allowGuest = allowGuest;
+    }
+
+    /**
+     * Secret used to sign the tokens; if not set, tokens are disabled.
+     */
+    public void setTokenSecret(String tokenSecret)
+    {
+        this.tokenKey = (tokenSecret == null || tokenSecret.isEmpty())
+                ? null
+                : new SecretKeySpec(utf8(tokenSecret), HMAC_ALGORITHM);
+        this.macs.remove();
+    }
+
+    public void setTokenTtlSec(long tokenTtlSec)
+    {
+        this.tokenTtlSec = tokenTtlSec;
     }
 }
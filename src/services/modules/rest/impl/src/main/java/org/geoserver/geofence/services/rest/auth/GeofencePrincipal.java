@@ -15,9 +15,14 @@ import java.security.Principal;
 public class GeofencePrincipal implements Principal
 {
 
+    private static final GeofencePrincipal GUEST = new GeofencePrincipal();
+
+    /**
+     * @return the shared guest principal.
+     */
     static GeofencePrincipal createGuest()
     {
-        return new GeofencePrincipal();
+        return GUEST;
     }
 
     private AuthUser user;
@@ -41,6 +46,16 @@ public class GeofencePrincipal implements Principal
         return (user != null) ? user.getName() : "GUEST";
     }
 
+    public boolean isGuest()
+    {
+        return user == null;
+    }
+
+    public boolean isAdmin()
+    {
+        return (user != null) && user.isAdmin();
+    }
+
     @Override
     public boolean equals(Object obj)
     {
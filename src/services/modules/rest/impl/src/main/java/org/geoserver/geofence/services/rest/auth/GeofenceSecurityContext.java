@@ -38,7 +38,10 @@ public class GeofenceSecurityContext implements SecurityContext
     public boolean isUserInRole(String role)
     {
         boolean ret = isUserInRoleAux(role);
-        LOGGER.info("User" + principal.getName() + " in " + role + " : " + ret);
+        if (LOGGER.isDebugEnabled())
+        {
+            LOGGER.debug("User " + principal.getName() + " in " + role + " : " + ret);
+        }
 
         return ret;
     }
@@ -58,12 +61,12 @@ public class GeofenceSecurityContext implements SecurityContext
 
         if ("user".equalsIgnoreCase(role)) // so user is registered
         {
-            return true;
+            return !principal.isGuest();
         }
 
-        if ("admin".equalsIgnoreCase(principal.getName()) && "admin".equalsIgnoreCase(role))
+        if ("admin".equalsIgnoreCase(role))
         {
-            return true;
+            return principal.isAdmin();
         }
 
         return false;
@@ -1,4 +1,4 @@
-/* (c) 2014 Open Source Geospatial Foundation - all rights reserved
+/* (c) 2014 - 2017 Open Source Geospatial Foundation - all rights reserved
  * This code is licensed under the GPL 2.0 license, available at the root
  * application directory.
  */
@@ -6,35 +6,66 @@
 package org.geoserver.geofence.services.rest.auth;
 
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import javax.ws.rs.ext.ContextResolver;
 import javax.ws.rs.ext.Provider;
 import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.geoserver.geofence.services.rest.model.RESTBatch;
+import org.geoserver.geofence.services.rest.model.RESTFullInstanceList;
+import org.geoserver.geofence.services.rest.model.RESTOutputAdminRule;
+import org.geoserver.geofence.services.rest.model.RESTOutputAdminRuleList;
+import org.geoserver.geofence.services.rest.model.RESTOutputRule;
+import org.geoserver.geofence.services.rest.model.RESTOutputRuleList;
+import org.geoserver.geofence.services.rest.model.RESTOutputUser;
+import org.geoserver.geofence.services.rest.model.RESTShortInstanceList;
+import org.geoserver.geofence.services.rest.model.RESTShortRuleList;
+import org.geoserver.geofence.services.rest.model.RESTShortUserGroupList;
+import org.geoserver.geofence.services.rest.model.RESTShortUserList;
+import org.geoserver.geofence.services.rest.model.config.RESTFullConfiguration;
+import org.geoserver.geofence.services.rest.model.config.RESTFullUserGroupList;
+import org.geoserver.geofence.services.rest.model.config.RESTFullUserList;
 
 
 /**
- * Class JAXBContextResolver.
+ * Provides shared JAXBContexts for the REST payloads.
+ * <P>
+ * Creating a JAXBContext is expensive, so the contexts for the most used payloads
+ * are created at startup, while the other ones are created on first use.
+ * <BR>JAXBContexts are thread safe, so they are shared among requests.
+ * <P>
+ * Contexts are created per class, since some payloads share the same root element name.
  *
  * @author ETj (etj at geo-solutions.it)
  */
 @Provider
 public class JAXBContextResolver implements ContextResolver<JAXBContext>
 {
+    private static final Logger LOGGER = LogManager.getLogger(JAXBContextResolver.class);
 
-    private static final JAXBContext context = initContext();
-
-    private static JAXBContext initContext()
-    {
-        JAXBContext context = null;
+    private static final Class[] PREBUILT = {
+        RESTOutputRule.class, RESTOutputRuleList.class, RESTShortRuleList.class,
+        RESTOutputAdminRule.class, RESTOutputAdminRuleList.class,
+        RESTOutputUser.class, RESTShortUserList.class,
+        RESTShortUserGroupList.class,
+        RESTShortInstanceList.class, RESTFullInstanceList.class,
+        RESTFullConfiguration.class, RESTFullUserList.class, RESTFullUserGroupList.class,
+        RESTBatch.class
+    };
 
-//        try {
-//            context = null;
-//            JAXBContext.newInstance(SearchFilter.class, AndFilter.class,
-//                      AttributeFilter.class, FieldFilter.class, NotFilter.class, OrFilter.class);
-//        } catch (JAXBException e) {
-//            throw new RuntimeException(e);
-//        }
+    private final ConcurrentMap<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<Class<?>, JAXBContext>();
 
-        return context;
+    public JAXBContextResolver()
+    {
+        for (Class clazz : PREBUILT) {
+            getContext(clazz);
+        }
     }
 
     /* (non-Javadoc)
@@ -43,9 +74,24 @@ public class JAXBContextResolver implements ContextResolver<JAXBContext>
     @Override
     public JAXBContext getContext(Class<?> clazz)
     {
-//       if(clazz.equals(SearchFilter.class))
-//             return context;
-        return null;
+        if( ! clazz.isAnnotationPresent(XmlRootElement.class)) {
+            return null; // let the provider handle it
+        }
+
+        JAXBContext context = contexts.get(clazz);
+        if(context == null) {
+            try {
+                context = JAXBContext.newInstance(clazz);
+            } catch (JAXBException e) {
+                LOGGER.warn("Could not create JAXBContext for " + clazz.getName() + ": " + e.getMessage());
+                return null;
+            }
+            JAXBContext prev = contexts.putIfAbsent(clazz, context);
+            if(prev != null) {
+                context = prev;
+            }
+        }
+        return context;
     }
 
 }
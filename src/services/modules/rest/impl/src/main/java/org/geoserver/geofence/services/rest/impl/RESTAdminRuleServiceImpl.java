@@ -21,6 +21,7 @@ import org.geoserver.geofence.services.rest.exception.GeoFenceRestEx;
 import org.geoserver.geofence.services.rest.exception.InternalErrorRestEx;
 import org.geoserver.geofence.services.rest.exception.NotFoundRestEx;
 import org.geoserver.geofence.services.rest.model.util.IdName;
+import org.geoserver.geofence.services.rest.utils.ConvertingList;
 import org.geoserver.geofence.services.rest.model.RESTInputAdminRule;
 import org.geoserver.geofence.services.rest.model.RESTOutputAdminRule;
 import org.geoserver.geofence.services.rest.model.RESTOutputAdminRuleList;
@@ -287,10 +288,14 @@ public class RESTAdminRuleServiceImpl
 
     protected RESTOutputAdminRuleList toOutput(List<AdminRule> rules)
     {
-        RESTOutputAdminRuleList list = new RESTOutputAdminRuleList(rules.size());
-        for (AdminRule rule : rules) {
-            list.add(toOutput(rule));
-        }
+        RESTOutputAdminRuleList list = new RESTOutputAdminRuleList(0);
+        // rules are converted while being marshalled
+        list.setList(new ConvertingList<AdminRule, RESTOutputAdminRule>(rules) {
+            @Override
+            protected RESTOutputAdminRule convert(AdminRule rule) {
+                return toOutput(rule);
+            }
+        });
         return list;
     }
 
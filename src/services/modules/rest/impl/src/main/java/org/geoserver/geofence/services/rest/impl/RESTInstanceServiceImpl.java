@@ -10,6 +10,7 @@ import org.apache.log4j.Logger;
 import org.geoserver.geofence.core.model.GSInstance;
 import org.geoserver.geofence.core.model.util.PwEncoder;
 import org.geoserver.geofence.services.InstanceAdminService;
+import org.geoserver.geofence.services.dto.InstanceStatus;
 import org.geoserver.geofence.services.dto.RuleFilter;
 import org.geoserver.geofence.services.dto.RuleFilter.SpecialFilterType;
 import org.geoserver.geofence.services.dto.ShortInstance;
@@ -19,6 +20,7 @@ import org.geoserver.geofence.services.rest.RESTGSInstanceService;
 import org.geoserver.geofence.services.rest.exception.*;
 import org.geoserver.geofence.services.rest.model.RESTFullInstanceList;
 import org.geoserver.geofence.services.rest.model.RESTInputInstance;
+import org.geoserver.geofence.services.rest.model.RESTInstanceStatusList;
 import org.geoserver.geofence.services.rest.model.RESTOutputInstance;
 import org.geoserver.geofence.services.rest.model.RESTShortInstanceList;
 
@@ -99,6 +101,29 @@ public class RESTInstanceServiceImpl
         }
     }
 
+    @Override
+    public RESTInstanceStatusList getStatusList() throws InternalErrorRestEx {
+        try {
+            return new RESTInstanceStatusList(instanceAdminService.getStatusList());
+        } catch (Exception ex) {
+            LOGGER.error(ex.getMessage(), ex);
+            throw new InternalErrorRestEx(ex.getMessage());
+        }
+    }
+
+    @Override
+    public InstanceStatus getStatus(Long id) throws NotFoundRestEx, InternalErrorRestEx {
+        try {
+            return instanceAdminService.getStatus(id);
+        } catch (NotFoundServiceEx ex) {
+            LOGGER.warn("GSInstance not found: " + id);
+            throw new NotFoundRestEx("GSInstance not found: " + id);
+        } catch (Exception ex) {
+            LOGGER.error(ex.getMessage(), ex);
+            throw new InternalErrorRestEx(ex.getMessage());
+        }
+    }
+
     @Override
     public Response insert(RESTInputInstance instance) throws NotFoundRestEx, InternalErrorRestEx, ConflictRestEx {
 
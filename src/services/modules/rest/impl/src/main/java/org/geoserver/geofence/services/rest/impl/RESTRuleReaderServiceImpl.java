@@ -0,0 +1,122 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.rest.impl;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.geoserver.geofence.services.RuleReaderService;
+import org.geoserver.geofence.services.dto.AccessExplanation;
+import org.geoserver.geofence.services.dto.AccessibleLayers;
+import org.geoserver.geofence.services.dto.AdministrableWorkspaces;
+import org.geoserver.geofence.services.dto.RuleFilter;
+import org.geoserver.geofence.services.dto.RuleFilter.SpecialFilterType;
+import org.geoserver.geofence.services.dto.UserPolicy;
+import org.geoserver.geofence.services.exception.BadRequestServiceEx;
+import org.geoserver.geofence.services.rest.RESTRuleReaderService;
+import org.geoserver.geofence.services.rest.exception.BadRequestRestEx;
+
+
+/**
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class RESTRuleReaderServiceImpl implements RESTRuleReaderService {
+
+    private static final Logger LOGGER = LogManager.getLogger(RESTRuleReaderServiceImpl.class);
+
+    private RuleReaderService ruleReaderService;
+
+    @Override
+    public AccessExplanation explain(String userName, String roleName, String instanceName,
+            String sourceAddress, String service, String request, String workspace, String layer)
+            throws BadRequestRestEx {
+
+        RuleFilter filter = createFilter(userName, roleName, instanceName, sourceAddress, service, request);
+        if(workspace != null)
+            filter.setWorkspace(workspace);
+        if(layer != null)
+            filter.setLayer(layer);
+
+        try {
+            return ruleReaderService.explainAccessInfo(filter);
+        } catch (BadRequestServiceEx e) {
+            LOGGER.warn("Bad explain request " + filter + ": " + e.getMessage());
+            throw new BadRequestRestEx(e.getMessage());
+        }
+    }
+
+    @Override
+    public AccessibleLayers getAccessibleLayers(String userName, String roleName, String instanceName,
+            String sourceAddress, String service, String request)
+            throws BadRequestRestEx {
+
+        RuleFilter filter = createFilter(userName, roleName, instanceName, sourceAddress, service, request);
+
+        try {
+            return ruleReaderService.getAccessibleLayers(filter);
+        } catch (BadRequestServiceEx e) {
+            LOGGER.warn("Bad accessible layers request " + filter + ": " + e.getMessage());
+            throw new BadRequestRestEx(e.getMessage());
+        }
+    }
+
+    @Override
+    public AdministrableWorkspaces getAdministrableWorkspaces(String userName, String roleName, String instanceName,
+            String sourceAddress)
+            throws BadRequestRestEx {
+
+        RuleFilter filter = createFilter(userName, roleName, instanceName, sourceAddress, null, null);
+
+        try {
+            return ruleReaderService.getAdministrableWorkspaces(filter);
+        } catch (BadRequestServiceEx e) {
+            LOGGER.warn("Bad administrable workspaces request " + filter + ": " + e.getMessage());
+            throw new BadRequestRestEx(e.getMessage());
+        }
+    }
+
+    @Override
+    public UserPolicy getUserPolicy(String userName, String roleName, String instanceName)
+            throws BadRequestRestEx {
+
+        RuleFilter filter = createFilter(userName, roleName, instanceName, null, null, null);
+
+        try {
+            return ruleReaderService.getUserPolicy(filter);
+        } catch (BadRequestServiceEx e) {
+            LOGGER.warn("Bad policy request " + filter + ": " + e.getMessage());
+            throw new BadRequestRestEx(e.getMessage());
+        }
+    }
+
+    @Override
+    public String getRulesetVersion() {
+        return ruleReaderService.getRulesetVersion();
+    }
+
+    private static RuleFilter createFilter(String userName, String roleName, String instanceName,
+            String sourceAddress, String service, String request) {
+        RuleFilter filter = new RuleFilter(SpecialFilterType.ANY);
+        if(userName != null)
+            filter.setUser(userName);
+        if(roleName != null)
+            filter.setRole(roleName);
+        if(instanceName != null)
+            filter.setInstance(instanceName);
+        if(sourceAddress != null)
+            filter.setSourceAddress(sourceAddress);
+        if(service != null)
+            filter.setService(service);
+        if(request != null)
+            filter.setRequest(request);
+        return filter;
+    }
+
+    // ==========================================================================
+
+    public void setRuleReaderService(RuleReaderService ruleReaderService) {
+        this.ruleReaderService = ruleReaderService;
+    }
+}
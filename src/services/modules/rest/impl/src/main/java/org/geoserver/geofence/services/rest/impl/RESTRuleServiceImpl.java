@@ -5,7 +5,9 @@
 
 package org.geoserver.geofence.services.rest.impl;
 
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.MultiPolygon;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKTReader;
@@ -30,6 +32,7 @@ import org.geoserver.geofence.services.rest.exception.NotFoundRestEx;
 import org.geoserver.geofence.services.rest.model.*;
 import org.geoserver.geofence.services.rest.model.RESTRulePosition.RulePosition;
 import org.geoserver.geofence.services.rest.model.util.IdName;
+import org.geoserver.geofence.services.rest.utils.ConvertingList;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -395,6 +398,48 @@ public class RESTRuleServiceImpl
         }
     }
 
+    @Override
+    public RESTShortRuleList searchByArea(String wkt, String bbox) throws BadRequestRestEx, InternalErrorRestEx {
+        Geometry geometry = parseArea(wkt, bbox);
+        try {
+            List<ShortRule> shortRules = ruleAdminService.getListByArea(geometry);
+            RESTShortRuleList restShortRuleList = new RESTShortRuleList(shortRules.size());
+            restShortRuleList.setList(shortRules);
+            return restShortRuleList;
+        } catch (Exception ex) {
+            LOGGER.error(ex);
+            throw new InternalErrorRestEx(ex.getMessage());
+        }
+    }
+
+    private static Geometry parseArea(String wkt, String bbox) throws BadRequestRestEx {
+        if((wkt == null) == (bbox == null)) {
+            throw new BadRequestRestEx("Either wkt or bbox should be set");
+        }
+
+        if(wkt != null) {
+            try {
+                return new WKTReader().read(wkt);
+            } catch (ParseException ex) {
+                throw new BadRequestRestEx("Error parsing WKT:" + ex.getMessage());
+            }
+        }
+
+        String[] coords = bbox.split(",");
+        if(coords.length != 4) {
+            throw new BadRequestRestEx("Bad bbox, expected minx,miny,maxx,maxy: " + bbox);
+        }
+        try {
+            double minx = Double.parseDouble(coords[0].trim());
+            double miny = Double.parseDouble(coords[1].trim());
+            double maxx = Double.parseDouble(coords[2].trim());
+            double maxy = Double.parseDouble(coords[3].trim());
+            return new GeometryFactory().toGeometry(new Envelope(minx, maxx, miny, maxy));
+        } catch (NumberFormatException ex) {
+            throw new BadRequestRestEx("Bad bbox, expected minx,miny,maxx,maxy: " + bbox);
+        }
+    }
+
     // ==========================================================================
     // ==========================================================================
 //    public void setUserGroupAdminService(UserGroupAdminService service) {
@@ -531,10 +576,14 @@ public class RESTRuleServiceImpl
 
     // ==========================================================================
     protected RESTOutputRuleList toOutput(List<Rule> rules) {
-        RESTOutputRuleList list = new RESTOutputRuleList(rules.size());
-        for (Rule rule : rules) {
-            list.add(toOutput(rule));
-        }
+        RESTOutputRuleList list = new RESTOutputRuleList(0);
+        // rules are converted while being marshalled
+        list.setList(new ConvertingList<Rule, RESTOutputRule>(rules) {
+            @Override
+            protected RESTOutputRule convert(Rule rule) {
+                return toOutput(rule);
+            }
+        });
         return list;
     }
 
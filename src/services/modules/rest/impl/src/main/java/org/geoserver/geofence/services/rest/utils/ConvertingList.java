@@ -0,0 +1,40 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.rest.utils;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A read only view of a List, converting each element when it is accessed.
+ * <P>
+ * Used for the REST output lists: the marshallers will convert and write
+ * the items one at a time, so that the whole output object graph never needs
+ * to be held in memory.
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public abstract class ConvertingList<S, T> extends AbstractList<T> implements RandomAccess
+{
+    private final List<S> source;
+
+    public ConvertingList(List<S> source) {
+        this.source = source;
+    }
+
+    protected abstract T convert(S item);
+
+    @Override
+    public T get(int index) {
+        return convert(source.get(index));
+    }
+
+    @Override
+    public int size() {
+        return source.size();
+    }
+}
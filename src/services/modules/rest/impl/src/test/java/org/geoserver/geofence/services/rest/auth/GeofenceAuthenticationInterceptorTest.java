@@ -0,0 +1,204 @@
+/* (c) 2017 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+
+package org.geoserver.geofence.services.rest.auth;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.cxf.configuration.security.AuthorizationPolicy;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.security.SecurityContext;
+import org.geoserver.geofence.services.AuthorizationService;
+import org.geoserver.geofence.services.dto.AuthUser;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ETj (etj at geo-solutions.it)
+ */
+public class GeofenceAuthenticationInterceptorTest
+{
+    private GeofenceAuthenticationInterceptor interceptor;
+    private int authCalls;
+    private Map<String, String> stamps;
+    private AuthorizationService authService;
+
+    @Before
+    public void setUp()
+    {
+        authCalls = 0;
+        stamps = new HashMap<String, String>();
+        stamps.put("admin", "stamp-admin");
+        stamps.put("user", "stamp-user");
+        interceptor = new GeofenceAuthenticationInterceptor();
+        authService = new AuthorizationService()
+        {
+            @Override
+            public AuthUser authorize(String username, String password)
+            {
+                authCalls++;
+                if ("admin".equals(username) && "geofence".equals(password))
+                {
+                    return new AuthUser(username, AuthUser.Role.ADMIN);
+                }
+                if ("user".equals(username) && "pw".equals(password))
+                {
+                    return new AuthUser(username, AuthUser.Role.USER);
+                }
+                return null;
+            }
+
+            @Override
+            public String getCredentialStamp(String username)
+            {
+                return stamps.get(username);
+            }
+        };
+        interceptor.setAuthorizationService(authService);
+    }
+
+    @Test
+    public void testBasicAuth()
+    {
+        GeofenceSecurityContext sc = authenticate(basic("admin", "geofence"), null);
+        assertEquals("admin", sc.getUserPrincipal().getName());
+        assertTrue(sc.isUserInRole("admin"));
+
+        sc = authenticate(basic("user", "pw"), null);
+        assertEquals("user", sc.getUserPrincipal().getName());
+        assertTrue(sc.isUserInRole("user"));
+        assertFalse(sc.isUserInRole("admin"));
+    }
+
+    @Test
+    public void testBadCredentials()
+    {
+        // rejected even if guests are allowed, so that the client knows
+        for (boolean allowGuest : new boolean[] {true, false})
+        {
+            interceptor.setAllowGuest(allowGuest);
+            try
+            {
+                authenticate(basic("user", "wrong"), null);
+                fail("Bad credentials accepted");
+            }
+            catch (Fault f)
+            {
+                assertEquals(401, f.getStatusCode());
+            }
+        }
+    }
+
+    @Test
+    public void testGuest()
+    {
+        GeofenceSecurityContext sc = authenticate(null, null);
+        assertTrue(((GeofencePrincipal) sc.getUserPrincipal()).isGuest());
+        assertFalse(sc.isUserInRole("user"));
+
+        interceptor.setAllowGuest(false);
+        try
+        {
+            authenticate(null, null);
+            fail("Guest access allowed");
+        }
+        catch (Fault f)
+        {
+            assertEquals(401, f.getStatusCode());
+        }
+    }
+
+    @Test
+    public void testToken()
+    {
+        interceptor.setTokenSecret("s3cr3t");
+        String token = interceptor.createToken("admin", true);
+
+        GeofenceSecurityContext sc = authenticate(null, token);
+        assertEquals("admin", sc.getUserPrincipal().getName());
+        assertTrue(sc.isUserInRole("admin"));
+        assertEquals("Token should be verified without checking the credentials", 0, authCalls);
+
+        AuthorizationPolicy bearer = new AuthorizationPolicy();
+        bearer.setAuthorizationType("Bearer");
+        bearer.setAuthorization(token);
+        sc = authenticate(bearer, null);
+        assertEquals("admin", sc.getUserPrincipal().getName());
+        assertEquals(0, authCalls);
+    }
+
+    @Test
+    public void testInvalidToken()
+    {
+        interceptor.setTokenSecret("s3cr3t");
+        String token = interceptor.createToken("user", false);
+
+        // tamper with the admin flag
+        String[] fields = token.split("\\.");
+        assertNull(interceptor.verifyToken(fields[0] + ".1." + fields[2] + "." + fields[3]));
+        assertNull(interceptor.verifyToken("garbage"));
+
+        // signed with another secret
+        GeofenceAuthenticationInterceptor other = new GeofenceAuthenticationInterceptor();
+        other.setAuthorizationService(authService);
+        other.setTokenSecret("other");
+        assertNull(interceptor.verifyToken(other.createToken("user", false)));
+
+        // expired
+        interceptor.setTokenTtlSec(-1);
+        assertNull(interceptor.verifyToken(interceptor.createToken("user", false)));
+    }
+
+    @Test
+    public void testTokenRevoked()
+    {
+        interceptor.setTokenSecret("s3cr3t");
+        String token = interceptor.createToken("admin", true);
+        assertNotNull(interceptor.verifyToken(token));
+
+        // password or role changed
+        stamps.put("admin", "stamp-admin-2");
+        assertNull(interceptor.verifyToken(token));
+
+        // user disabled or removed
+        token = interceptor.createToken("admin", true);
+        stamps.remove("admin");
+        assertNull(interceptor.verifyToken(token));
+        assertNull(interceptor.createToken("admin", true));
+    }
+
+    private static AuthorizationPolicy basic(String user, String pw)
+    {
+        AuthorizationPolicy policy = new AuthorizationPolicy();
+        policy.setUserName(user);
+        policy.setPassword(pw);
+        return policy;
+    }
+
+    private GeofenceSecurityContext authenticate(AuthorizationPolicy policy, String token)
+    {
+        Message message = new MessageImpl();
+        if (policy != null)
+        {
+            message.put(AuthorizationPolicy.class, policy);
+        }
+        if (token != null)
+        {
+            Map<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+            headers.put(GeofenceAuthenticationInterceptor.TOKEN_HEADER, Collections.singletonList(token));
+            message.put(Message.PROTOCOL_HEADERS, headers);
+        }
+        interceptor.handleMessage(message);
+        return (GeofenceSecurityContext) message.get(SecurityContext.class);
+    }
+}
@@ -8,17 +8,21 @@ package org.geoserver.geofence.services.rest.impl;
 import org.geoserver.geofence.services.rest.model.RESTInputUser;
 import org.geoserver.geofence.services.rest.model.RESTInputRule;
 import org.geoserver.geofence.services.rest.model.RESTOutputRule;
+import org.geoserver.geofence.services.rest.model.RESTOutputRuleList;
 import org.geoserver.geofence.services.rest.model.RESTInputGroup;
 import org.geoserver.geofence.services.rest.model.RESTLayerConstraints;
 import org.geoserver.geofence.core.model.LayerAttribute;
 import org.geoserver.geofence.core.model.enums.AccessType;
 import org.geoserver.geofence.core.model.enums.GrantType;
 import org.geoserver.geofence.services.rest.exception.BadRequestRestEx;
+import org.geoserver.geofence.services.rest.auth.JAXBContextResolver;
 import org.geoserver.geofence.services.rest.model.util.IdName;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import javax.ws.rs.core.Response;
+import javax.xml.bind.JAXBContext;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.geoserver.geofence.services.rest.model.RESTRulePosition;
@@ -74,6 +78,31 @@ public class RESTRuleServiceImplTest extends RESTBaseTest {
         }
     }
 
+    @Test
+    public void testMarshalList() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            RESTInputRule rule = new RESTInputRule();
+            rule.setPosition(new RESTRulePosition(RESTRulePosition.RulePosition.offsetFromBottom, 0));
+            rule.setGrant(GrantType.ALLOW);
+            rule.setLayer("l" + i);
+            restRuleService.insert(rule);
+        }
+
+        RESTOutputRuleList list = restRuleService.get(null, null, true,
+                null, null, null, null, null, null, null,
+                null, null, null, null, null, null, null, null);
+        assertEquals(3, list.getList().size());
+
+        JAXBContext context = new JAXBContextResolver().getContext(RESTOutputRuleList.class);
+        assertNotNull(context);
+        StringWriter sw = new StringWriter();
+        context.createMarshaller().marshal(list, sw);
+        String xml = sw.toString();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(xml.contains("<layer>l" + i + "</layer>"));
+        }
+    }
+
     @Test
     public void testMissingLayerOnConstraints() {
 